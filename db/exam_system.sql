@@ -50,7 +50,10 @@ CREATE TABLE exam_question (
   FOREIGN KEY (subject_id) REFERENCES exam_subject(id),
   FOREIGN KEY (creator_id) REFERENCES sys_user(id),
   INDEX idx_subject(subject_id),
-  INDEX idx_difficulty(difficulty)
+  INDEX idx_difficulty(difficulty),
+  INDEX idx_create_time(create_time),
+  INDEX idx_subject_create_time(subject_id, create_time),
+  INDEX idx_update_time(update_time)
 ) ENGINE=InnoDB COMMENT='题库表';
 
 -- 试卷表（包含题目元数据）
@@ -80,16 +83,83 @@ CREATE TABLE exam_record (
   start_time DATETIME NOT NULL COMMENT '开始时间',
   submit_time DATETIME COMMENT '提交时间',
   answer_snapshot JSON COMMENT '答题快照（存储题目和答案）',
+  answer_snapshot_bin BLOB COMMENT '答题快照紧凑编码（与answer_snapshot二者只存其一）',
+  shuffled TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否按考生乱序出卷',
   auto_score DECIMAL(5,1) DEFAULT 0.0 COMMENT '系统评分',
   manual_score DECIMAL(5,1) DEFAULT 0.0 COMMENT '人工评分',
   final_score DECIMAL(5,1) GENERATED ALWAYS AS (auto_score + manual_score) STORED COMMENT '最终得分',
   status ENUM('PROGRESS','SUBMITTED','TIMEOUT','REVIEWING') DEFAULT 'PROGRESS' COMMENT '考试状态',
+  grade_time DATETIME COMMENT '系统评分完成时间',
+  score_time DATETIME(3) COMMENT '最近一次分数变化时间（数据库时间）',
   create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
   FOREIGN KEY (user_id) REFERENCES sys_user(id),
   FOREIGN KEY (paper_id) REFERENCES exam_paper(id),
-  INDEX idx_user_exam(user_id, paper_id)
+  UNIQUE KEY uk_user_paper(user_id, paper_id),
+  INDEX idx_create_time(create_time),
+  INDEX idx_paper_create_time(paper_id, create_time),
+  INDEX idx_paper_score_time(paper_id, score_time)
 ) ENGINE=InnoDB COMMENT='考试记录表';
 
+-- 试题分析表
+CREATE TABLE exam_item_analysis (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '分析ID',
+  paper_id BIGINT NOT NULL COMMENT '试卷ID',
+  question_id BIGINT NOT NULL COMMENT '题目ID',
+  question_type VARCHAR(20) COMMENT '题型',
+  sample_count INT DEFAULT 0 COMMENT '参与分析的答卷数',
+  answered_count INT DEFAULT 0 COMMENT '作答人数',
+  correct_count INT DEFAULT 0 COMMENT '答对人数',
+  difficulty DECIMAL(5,4) COMMENT '难度（通过率）',
+  discrimination DECIMAL(5,4) COMMENT '区分度（点二列相关系数）',
+  option_counts JSON COMMENT '各选项选择人数',
+  analysis_time DATETIME COMMENT '分析时间',
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_paper_question (paper_id, question_id)
+) ENGINE=InnoDB COMMENT='试题分析表';
+
+-- 重新评分任务表
+CREATE TABLE exam_regrade_job (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+  question_id BIGINT NOT NULL COMMENT '答案被修改的题目',
+  paper_ids TEXT COMMENT '受影响的试卷ID，逗号分隔',
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '任务状态(PENDING/RUNNING/COMPLETED/FAILED)',
+  total_count INT DEFAULT 0 COMMENT '待处理记录数',
+  processed_count INT DEFAULT 0 COMMENT '已处理记录数',
+  changed_count INT DEFAULT 0 COMMENT '分数变化记录数',
+  last_record_id BIGINT DEFAULT 0 COMMENT '断点：已处理的最大考试记录ID',
+  error_message VARCHAR(500) COMMENT '失败原因',
+  owner VARCHAR(100) COMMENT '执行实例',
+  heartbeat_time DATETIME COMMENT '执行实例最近心跳时间',
+  finish_time DATETIME COMMENT '完成时间',
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX idx_status(status)
+) ENGINE=InnoDB COMMENT='重新评分任务表';
+
+-- 题目导入任务表
+CREATE TABLE exam_question_import_job (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+  file_name VARCHAR(255) COMMENT '上传的文件名',
+  file_path VARCHAR(500) NOT NULL COMMENT '文件存储路径（相对上传目录）',
+  subject_id BIGINT COMMENT '默认科目（行内未填科目时使用）',
+  creator_id BIGINT NOT NULL COMMENT '导入人',
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '任务状态(PENDING/RUNNING/COMPLETED/FAILED)',
+  total_rows INT DEFAULT 0 COMMENT '数据行数（开始时按工作表范围估算，完成后为实际行数）',
+  processed_rows INT DEFAULT 0 COMMENT '已处理行数',
+  success_count INT DEFAULT 0 COMMENT '导入成功数',
+  failed_count INT DEFAULT 0 COMMENT '校验失败数',
+  last_row INT DEFAULT 0 COMMENT '断点：已处理的最后一行行号',
+  errors MEDIUMTEXT COMMENT '错误明细（JSON数组，行号和原因）',
+  error_message VARCHAR(500) COMMENT '失败原因',
+  owner VARCHAR(100) COMMENT '执行实例',
+  heartbeat_time DATETIME COMMENT '执行实例最近心跳时间',
+  finish_time DATETIME COMMENT '完成时间',
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX idx_status(status)
+) ENGINE=InnoDB COMMENT='题目导入任务表';
+
 -- 错题本表（学习分析）
 CREATE TABLE exam_wrong_book (
   id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '记录ID',
@@ -100,5 +170,6 @@ CREATE TABLE exam_wrong_book (
   create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
   FOREIGN KEY (user_id) REFERENCES sys_user(id),
   FOREIGN KEY (question_id) REFERENCES exam_question(id),
-  UNIQUE KEY uniq_user_question (user_id, question_id)
+  UNIQUE KEY uniq_user_question (user_id, question_id),
+  INDEX idx_user_last_wrong_time (user_id, last_wrong_time)
 ) ENGINE=InnoDB COMMENT='错题本表';
\ No newline at end of file
@@ -82,6 +82,98 @@ CREATE TABLE IF NOT EXISTS sys_access_log (
   INDEX idx_username (username)
 ) ENGINE=InnoDB COMMENT='访问日志表';
 
+-- 游标分页索引：按 (create_time, id) 倒序定位，InnoDB二级索引末尾隐含主键id
+-- sys_access_log 已有 idx_access_time，无需新增
+ALTER TABLE exam_question ADD INDEX idx_create_time (create_time);
+ALTER TABLE exam_question ADD INDEX idx_subject_create_time (subject_id, create_time);
+ALTER TABLE exam_record ADD INDEX idx_create_time (create_time);
+ALTER TABLE exam_record ADD INDEX idx_paper_create_time (paper_id, create_time);
+
+-- 异步评分：记录系统评分完成时间，为空表示待评分
+ALTER TABLE exam_record ADD COLUMN grade_time DATETIME NULL COMMENT '系统评分完成时间' AFTER status;
+
+-- 开始考试准入：每个学生每张试卷只有一条考试记录，执行前需先清理重复记录
+ALTER TABLE exam_record ADD UNIQUE KEY uk_user_paper (user_id, paper_id), DROP INDEX idx_user_exam;
+
+-- 答题快照紧凑编码：已评分记录由后台任务从JSON转换
+ALTER TABLE exam_record ADD COLUMN answer_snapshot_bin BLOB NULL COMMENT '答题快照紧凑编码（与answer_snapshot二者只存其一）' AFTER answer_snapshot;
+
+-- 错题本分页：按用户取最近错题，避免对用户全部错题排序
+ALTER TABLE exam_wrong_book ADD INDEX idx_user_last_wrong_time (user_id, last_wrong_time);
+
+-- 成绩统计和排行榜对账：每次分数变化写入数据库时间，按试卷取 (已评分数, 最近变化时间) 判断内存数据是否过期
+ALTER TABLE exam_record ADD COLUMN score_time DATETIME(3) NULL COMMENT '最近一次分数变化时间（数据库时间）' AFTER grade_time,
+  ADD INDEX idx_paper_score_time (paper_id, score_time);
+UPDATE exam_record SET score_time = COALESCE(grade_time, submit_time)
+WHERE score_time IS NULL AND (grade_time IS NOT NULL OR status = 'REVIEWING');
+
+-- 考生乱序：开始考试时记录是否乱序，取卷和评分按记录而不是当前开关；已有记录默认按原顺序，
+-- 若升级前已开启 exam.shuffle.enabled，需将开启期间开始的记录置为 1
+ALTER TABLE exam_record ADD COLUMN shuffled TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否按考生乱序出卷' AFTER answer_snapshot_bin;
+
+-- 标准答案缓存：按题库最新更新时间发现其他实例修改的题目
+ALTER TABLE exam_question ADD INDEX idx_update_time (update_time);
+
+-- 试题分析表
+CREATE TABLE IF NOT EXISTS exam_item_analysis (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '分析ID',
+  paper_id BIGINT NOT NULL COMMENT '试卷ID',
+  question_id BIGINT NOT NULL COMMENT '题目ID',
+  question_type VARCHAR(20) COMMENT '题型',
+  sample_count INT DEFAULT 0 COMMENT '参与分析的答卷数',
+  answered_count INT DEFAULT 0 COMMENT '作答人数',
+  correct_count INT DEFAULT 0 COMMENT '答对人数',
+  difficulty DECIMAL(5,4) COMMENT '难度（通过率）',
+  discrimination DECIMAL(5,4) COMMENT '区分度（点二列相关系数）',
+  option_counts JSON COMMENT '各选项选择人数',
+  analysis_time DATETIME COMMENT '分析时间',
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_paper_question (paper_id, question_id)
+) ENGINE=InnoDB COMMENT='试题分析表';
+
+-- 重新评分任务表
+CREATE TABLE IF NOT EXISTS exam_regrade_job (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+  question_id BIGINT NOT NULL COMMENT '答案被修改的题目',
+  paper_ids TEXT COMMENT '受影响的试卷ID，逗号分隔',
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '任务状态(PENDING/RUNNING/COMPLETED/FAILED)',
+  total_count INT DEFAULT 0 COMMENT '待处理记录数',
+  processed_count INT DEFAULT 0 COMMENT '已处理记录数',
+  changed_count INT DEFAULT 0 COMMENT '分数变化记录数',
+  last_record_id BIGINT DEFAULT 0 COMMENT '断点：已处理的最大考试记录ID',
+  error_message VARCHAR(500) COMMENT '失败原因',
+  owner VARCHAR(100) COMMENT '执行实例（多实例时只有认领成功的实例执行）',
+  heartbeat_time DATETIME COMMENT '执行实例最近心跳时间',
+  finish_time DATETIME COMMENT '完成时间',
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX idx_status(status)
+) ENGINE=InnoDB COMMENT='重新评分任务表';
+
+-- 题目导入任务表
+CREATE TABLE IF NOT EXISTS exam_question_import_job (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+  file_name VARCHAR(255) COMMENT '上传的文件名',
+  file_path VARCHAR(500) NOT NULL COMMENT '文件存储路径（相对上传目录）',
+  subject_id BIGINT COMMENT '默认科目（行内未填科目时使用）',
+  creator_id BIGINT NOT NULL COMMENT '导入人',
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '任务状态(PENDING/RUNNING/COMPLETED/FAILED)',
+  total_rows INT DEFAULT 0 COMMENT '数据行数（开始时按工作表范围估算，完成后为实际行数）',
+  processed_rows INT DEFAULT 0 COMMENT '已处理行数',
+  success_count INT DEFAULT 0 COMMENT '导入成功数',
+  failed_count INT DEFAULT 0 COMMENT '校验失败数',
+  last_row INT DEFAULT 0 COMMENT '断点：已处理的最后一行行号',
+  errors MEDIUMTEXT COMMENT '错误明细（JSON数组，行号和原因）',
+  error_message VARCHAR(500) COMMENT '失败原因',
+  owner VARCHAR(100) COMMENT '执行实例（上传文件只在能读到它的实例上执行，多实例时上传目录应放在共享存储）',
+  heartbeat_time DATETIME COMMENT '执行实例最近心跳时间',
+  finish_time DATETIME COMMENT '完成时间',
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX idx_status(status)
+) ENGINE=InnoDB COMMENT='题目导入任务表';
+
 -- 初始数据
 INSERT IGNORE INTO sys_role (code, name, description, sort, status)
 VALUES
@@ -0,0 +1,23 @@
+package com.zw.common;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "游标分页结果")
+public class CursorPage<T> {
+
+    @Schema(description = "当前页数据")
+    private List<T> records;
+
+    @Schema(description = "下一页游标，为空表示没有更多数据")
+    private String nextCursor;
+
+    @Schema(description = "是否还有下一页")
+    private boolean hasMore;
+
+    @Schema(description = "每页大小", example = "10")
+    private long size;
+}
@@ -0,0 +1,77 @@
+package com.zw.config;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.ParameterUtils;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带COUNT缓存的分页拦截器
+ * <p>
+ * 翻页时同一查询条件的COUNT结果基本不变，按"语句ID + SQL + 参数值"缓存总数，
+ * 在TTL内的后续翻页直接复用，避免大表上重复执行COUNT。
+ * 缓存的总数最多滞后TTL时间，列表数据本身不受影响。
+ */
+public class CountCachingPaginationInnerInterceptor extends PaginationInnerInterceptor {
+
+    private final long ttlMillis;
+
+    private final int maxSize;
+
+    private final Map<CacheKey, CachedCount> countCache = new ConcurrentHashMap<>();
+
+    public CountCachingPaginationInnerInterceptor(DbType dbType, long ttlMillis, int maxSize) {
+        super(dbType);
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public boolean willDoQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                               ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        IPage<?> page = ParameterUtils.findPage(parameter).orElse(null);
+        if (ttlMillis <= 0 || page == null || page.getSize() < 0 || !page.searchCount()
+                || resultHandler != Executor.NO_RESULT_HANDLER) {
+            return super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        }
+
+        // 此时SQL尚未拼接LIMIT，使用默认RowBounds使不同页码共享同一个缓存键
+        CacheKey cacheKey = executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql);
+        long now = System.currentTimeMillis();
+        CachedCount cached = countCache.get(cacheKey);
+        if (cached != null && cached.expireAt > now) {
+            page.setTotal(cached.total);
+            return continuePage(page);
+        }
+
+        boolean continueQuery = super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        if (countCache.size() >= maxSize) {
+            evict(now);
+        }
+        countCache.put(cacheKey, new CachedCount(page.getTotal(), now + ttlMillis));
+        return continueQuery;
+    }
+
+    /**
+     * 清理过期条目，仍然超出容量时整体清空
+     */
+    private void evict(long now) {
+        countCache.values().removeIf(cached -> cached.expireAt <= now);
+        if (countCache.size() >= maxSize) {
+            countCache.clear();
+        }
+    }
+
+    private record CachedCount(long total, long expireAt) {
+    }
+}
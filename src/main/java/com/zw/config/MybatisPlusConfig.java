@@ -1,16 +1,36 @@
 package com.zw.config;
 
+import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class MybatisPlusConfig {
 
+    @Value("${pagination.max-limit:500}")
+    private Long maxLimit;
+
+    @Value("${pagination.count-cache.ttl-seconds:30}")
+    private long countCacheTtlSeconds;
+
+    @Value("${pagination.count-cache.max-size:2048}")
+    private int countCacheMaxSize;
+
     @Bean
     public MybatisPlusInterceptor mybatisPlusInterceptor() {
         MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
-        // 暂时不添加分页插件，等待依赖问题解决
+
+        // MySQL分页插件：LIMIT/OFFSET分页 + COUNT结果短时缓存
+        CountCachingPaginationInnerInterceptor pagination = new CountCachingPaginationInnerInterceptor(
+                DbType.MYSQL, countCacheTtlSeconds * 1000, countCacheMaxSize);
+        // COUNT语句去掉ORDER BY，并移除不影响行数的LEFT JOIN
+        pagination.setOptimizeJoin(true);
+        // 单页最大条数，超出按最大值截断
+        pagination.setMaxLimit(maxLimit);
+        interceptor.addInnerInterceptor(pagination);
+
         return interceptor;
     }
-} 
\ No newline at end of file
+}
@@ -1,17 +1,33 @@
 package com.zw.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.zw.common.CursorPage;
 import com.zw.common.Result;
 import com.zw.entity.ExamRecord;
+import com.zw.entity.ItemAnalysis;
+import com.zw.entity.User;
 import com.zw.service.ExamRecordService;
+import com.zw.service.UserService;
+import com.zw.service.grading.GradingNotifier;
+import com.zw.service.grading.GradingPipeline;
+import com.zw.utils.SecurityUtils;
+import com.zw.vo.ExamPaperVO;
+import com.zw.vo.GradingMetricsVO;
+import com.zw.vo.GradingResultVO;
+import com.zw.vo.LeaderboardEntryVO;
+import com.zw.vo.RankVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -24,11 +40,17 @@ import java.util.Map;
 public class ExamController {
 
     private final ExamRecordService examRecordService;
+    
+    private final GradingPipeline gradingPipeline;
+    
+    private final GradingNotifier gradingNotifier;
+    
+    private final UserService userService;
 
-    @Operation(summary = "开始考试", description = "学生开始一场新的考试")
+    @Operation(summary = "开始考试", description = "学生开始一场新的考试，已参加过时返回已有考试记录")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "考试开始成功"),
-        @ApiResponse(responseCode = "400", description = "已参加过该考试"),
+        @ApiResponse(responseCode = "503", description = "开始考试人数过多，稍后重试"),
         @ApiResponse(responseCode = "403", description = "无权限")
     })
     @PostMapping("/start")
@@ -37,16 +59,11 @@ public class ExamController {
             @Parameter(description = "用户ID") @RequestParam Long userId,
             @Parameter(description = "试卷ID") @RequestParam Long paperId) {
         
-        // 检查用户是否已参加过该考试
-        if (examRecordService.hasUserTakenExam(userId, paperId)) {
-            return Result.error("您已参加过该考试");
-        }
-        
         ExamRecord record = examRecordService.startExam(userId, paperId);
         return Result.success(record);
     }
 
-    @Operation(summary = "提交考试", description = "学生提交考试答案")
+    @Operation(summary = "提交考试", description = "学生提交考试答案，系统评分异步完成")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "提交成功"),
         @ApiResponse(responseCode = "403", description = "无权限")
@@ -55,12 +72,97 @@ public class ExamController {
     @PreAuthorize("hasRole('STUDENT')")
     public Result<ExamRecord> submitExam(
             @Parameter(description = "考试记录ID") @RequestParam Long recordId,
-            @Parameter(description = "答案快照") @RequestBody String answerSnapshot) {
+            @Parameter(description = "答案快照，不传时以已保存的草稿交卷") @RequestBody(required = false) String answerSnapshot) {
         
         ExamRecord record = examRecordService.submitExam(recordId, answerSnapshot);
         return Result.success(record);
     }
 
+    @Operation(summary = "保存答题草稿", description = "按题保存，只需提交有变更的题目，答案为null表示清除该题")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "保存成功"),
+        @ApiResponse(responseCode = "400", description = "考试已结束"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @PutMapping("/records/{id}/draft")
+    @PreAuthorize("hasRole('STUDENT')")
+    public Result<Integer> saveDraft(
+            @Parameter(description = "考试记录ID") @PathVariable Long id,
+            @Parameter(description = "题目ID到答案的映射") @RequestBody Map<String, JsonNode> answers) {
+        String username = SecurityUtils.getCurrentUsername();
+        User user = username != null ? userService.getByUsername(username) : null;
+        if (user == null) {
+            return Result.error("未登录");
+        }
+        return Result.success(examRecordService.saveDraft(id, user.getId(), answers));
+    }
+
+    @Operation(summary = "获取答题草稿", description = "断线重连后恢复作答进度")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "获取成功"),
+        @ApiResponse(responseCode = "400", description = "考试已结束"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @GetMapping("/records/{id}/draft")
+    @PreAuthorize("hasRole('STUDENT')")
+    public Result<JsonNode> getDraft(
+            @Parameter(description = "考试记录ID") @PathVariable Long id) {
+        String username = SecurityUtils.getCurrentUsername();
+        User user = username != null ? userService.getByUsername(username) : null;
+        if (user == null) {
+            return Result.error("未登录");
+        }
+        return Result.success(examRecordService.getDraft(id, user.getId()));
+    }
+
+    @Operation(summary = "获取考试试卷", description = "题目和选项按考生乱序（开启时），不含答案；作答时提交显示位置的选项字母")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "获取成功"),
+        @ApiResponse(responseCode = "400", description = "考试已结束"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @GetMapping("/records/{id}/paper")
+    @PreAuthorize("hasRole('STUDENT')")
+    public Result<ExamPaperVO> getExamPaper(
+            @Parameter(description = "考试记录ID") @PathVariable Long id) {
+        String username = SecurityUtils.getCurrentUsername();
+        User user = username != null ? userService.getByUsername(username) : null;
+        if (user == null) {
+            return Result.error("未登录");
+        }
+        return Result.success(examRecordService.getExamPaper(id, user.getId()));
+    }
+
+    @Operation(summary = "查询考试得分", description = "交卷后系统评分异步完成，graded为true时得分有效")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/records/{id}/score")
+    public Result<GradingResultVO> getGradingResult(
+            @Parameter(description = "考试记录ID") @PathVariable Long id) {
+        return Result.success(examRecordService.getGradingResult(id));
+    }
+
+    @Operation(summary = "订阅考试得分", description = "SSE推送，评分完成后发送graded事件并结束连接")
+    @ApiResponse(responseCode = "200", description = "订阅成功")
+    @GetMapping(value = "/records/{id}/score/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeGradingResult(
+            @Parameter(description = "考试记录ID") @PathVariable Long id) {
+        // 先注册再查询，避免订阅前刚好完成评分而错过推送
+        SseEmitter emitter = gradingNotifier.subscribe(id);
+        GradingResultVO result = examRecordService.getGradingResult(id);
+        if (Boolean.TRUE.equals(result.getGraded())) {
+            gradingNotifier.complete(emitter, result);
+        }
+        return emitter;
+    }
+
+    @Operation(summary = "评分队列指标", description = "队列深度、等待时长及累计评分数")
+    @ApiResponse(responseCode = "200", description = "获取成功")
+    @GetMapping("/grading/metrics")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<GradingMetricsVO> getGradingMetrics() {
+        return Result.success(gradingPipeline.metrics());
+    }
+
     @Operation(summary = "自动提交考试", description = "管理员或教师强制提交学生的考试")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "提交成功"),
@@ -122,14 +224,45 @@ public class ExamController {
             @Parameter(description = "试卷ID（可选）") @RequestParam(required = false) Long paperId,
             @Parameter(description = "考试状态（可选）") @RequestParam(required = false) String status,
             @Parameter(description = "页码") @RequestParam(defaultValue = "1") Integer pageNum,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer pageSize) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer pageSize,
+            @Parameter(description = "是否查询总数，传false跳过COUNT") @RequestParam(defaultValue = "true") Boolean searchCount) {
         
         IPage<ExamRecord> page = examRecordService.getRecordPage(
-                userId, paperId, status, pageNum, pageSize);
+                userId, paperId, status, pageNum, pageSize, searchCount);
         return Result.success(page);
     }
 
-    @Operation(summary = "获取考试统计数据", description = "管理员或教师获取某场考试的统计数据")
+    @Operation(summary = "游标分页查询考试记录", description = "按创建时间倒序的游标分页，翻页耗时与页深无关")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/records/cursor")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<CursorPage<ExamRecord>> getRecordCursor(
+            @Parameter(description = "用户ID（可选）") @RequestParam(required = false) Long userId,
+            @Parameter(description = "试卷ID（可选）") @RequestParam(required = false) Long paperId,
+            @Parameter(description = "考试状态（可选）") @RequestParam(required = false) String status,
+            @Parameter(description = "游标（可选），首页不传，后续传上一页返回的nextCursor") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer size) {
+        
+        CursorPage<ExamRecord> page = examRecordService.getRecordCursor(userId, paperId, status, cursor, size);
+        return Result.success(page);
+    }
+
+    @Operation(summary = "导出考试记录", description = "按条件流式导出考试记录到Excel，含考生、试卷名称和各项得分")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "导出成功"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @GetMapping("/records/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public void exportRecords(HttpServletResponse response,
+            @Parameter(description = "用户ID（可选）") @RequestParam(required = false) Long userId,
+            @Parameter(description = "试卷ID（可选）") @RequestParam(required = false) Long paperId,
+            @Parameter(description = "考试状态（可选）") @RequestParam(required = false) String status) {
+        examRecordService.exportRecords(response, userId, paperId, status);
+    }
+
+    @Operation(summary = "获取考试统计数据", description = "参考人数、已评分人数、平均分、最高最低分、标准差、百分位数和分数段分布")
     @ApiResponse(responseCode = "200", description = "获取成功")
     @GetMapping("/statistics/{paperId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
@@ -138,4 +271,47 @@ public class ExamController {
         Map<String, Object> statistics = examRecordService.getExamStatistics(paperId);
         return Result.success(statistics);
     }
+
+    @Operation(summary = "获取试题分析", description = "每道题的难度（通过率）、区分度（点二列相关）和各选项选择人数，尚未分析时立即分析")
+    @ApiResponse(responseCode = "200", description = "获取成功")
+    @GetMapping("/statistics/{paperId}/items")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<List<ItemAnalysis>> getItemAnalysis(
+            @Parameter(description = "试卷ID") @PathVariable Long paperId) {
+        return Result.success(examRecordService.getItemAnalysis(paperId));
+    }
+
+    @Operation(summary = "重新分析试题", description = "按当前所有已交答卷重新计算试题分析")
+    @ApiResponse(responseCode = "200", description = "分析完成")
+    @PostMapping("/statistics/{paperId}/items/analyze")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<List<ItemAnalysis>> analyzeItems(
+            @Parameter(description = "试卷ID") @PathVariable Long paperId) {
+        return Result.success(examRecordService.analyzeItems(paperId));
+    }
+
+    @Operation(summary = "获取考试排行榜", description = "按总分倒序的前N名，同分同名次")
+    @ApiResponse(responseCode = "200", description = "获取成功")
+    @GetMapping("/leaderboard/{paperId}")
+    public Result<List<LeaderboardEntryVO>> getLeaderboard(
+            @Parameter(description = "试卷ID") @PathVariable Long paperId,
+            @Parameter(description = "前N名，最多100") @RequestParam(defaultValue = "10") Integer top) {
+        return Result.success(examRecordService.getLeaderboard(paperId, top));
+    }
+
+    @Operation(summary = "获取学生名次", description = "学生在某场考试中的名次和超过的考生百分比")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "获取成功"),
+        @ApiResponse(responseCode = "404", description = "尚未评分")
+    })
+    @GetMapping("/leaderboard/{paperId}/rank")
+    public Result<RankVO> getUserRank(
+            @Parameter(description = "试卷ID") @PathVariable Long paperId,
+            @Parameter(description = "用户ID") @RequestParam Long userId) {
+        RankVO rank = examRecordService.getUserRank(paperId, userId);
+        if (rank == null) {
+            return Result.error("成绩尚未评定");
+        }
+        return Result.success(rank);
+    }
 } 
\ No newline at end of file
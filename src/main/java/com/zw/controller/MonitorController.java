@@ -1,6 +1,7 @@
 package com.zw.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.zw.common.CursorPage;
 import com.zw.common.Result;
 import com.zw.dto.LogQueryDTO;
 import com.zw.entity.AccessLog;
@@ -13,6 +14,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -54,6 +56,31 @@ public class MonitorController {
         return Result.success(logs);
     }
     
+    @Operation(summary = "游标分页查询访问日志", description = "按访问时间倒序的游标分页，cursor传上一页返回的nextCursor，pageSize为每页大小")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "查询成功"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @GetMapping("/access-logs/cursor")
+    public Result<CursorPage<AccessLog>> getAccessLogCursor(
+            @Parameter(description = "日志查询参数", required = true)
+            LogQueryDTO queryDTO) {
+        CursorPage<AccessLog> logs = monitorService.getAccessLogCursor(queryDTO);
+        return Result.success(logs);
+    }
+    
+    @Operation(summary = "导出访问日志", description = "按查询条件流式导出访问日志到Excel，分页参数不生效")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "导出成功"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @GetMapping("/access-logs/export")
+    public void exportAccessLogs(HttpServletResponse response,
+            @Parameter(description = "日志查询参数", required = true)
+            LogQueryDTO queryDTO) {
+        monitorService.exportAccessLogs(response, queryDTO);
+    }
+    
     @Operation(summary = "获取访问统计", description = "获取系统访问统计信息")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "获取成功"),
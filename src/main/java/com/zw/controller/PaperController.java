@@ -2,14 +2,19 @@ package com.zw.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.zw.common.Result;
+import com.zw.dto.PaperBlueprintDTO;
 import com.zw.entity.Paper;
+import com.zw.entity.User;
 import com.zw.service.PaperService;
+import com.zw.service.UserService;
 import com.zw.utils.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +28,7 @@ import java.util.List;
 public class PaperController {
 
     private final PaperService paperService;
+    private final UserService userService;
 
     @Operation(summary = "分页查询试卷", description = "根据条件分页查询试卷列表")
     @ApiResponse(responseCode = "200", description = "查询成功")
@@ -33,9 +39,10 @@ public class PaperController {
             @Parameter(description = "试卷状态（可选）：0-草稿，1-已发布，2-已归档") 
             @RequestParam(required = false) Integer status,
             @Parameter(description = "页码") @RequestParam(defaultValue = "1") Integer pageNum,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer pageSize) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer pageSize,
+            @Parameter(description = "是否查询总数，传false跳过COUNT") @RequestParam(defaultValue = "true") Boolean searchCount) {
         
-        IPage<Paper> page = paperService.getPaperPage(subjectId, title, status, pageNum, pageSize);
+        IPage<Paper> page = paperService.getPaperPage(subjectId, title, status, pageNum, pageSize, searchCount);
         return Result.success(page);
     }
 
@@ -77,6 +84,28 @@ public class PaperController {
         return Result.success(paper);
     }
 
+    @Operation(summary = "自动组卷", description = "按蓝图（科目、各题型数量、难度占比、总分）从已审核题目中抽题生成试卷，可一次生成多份平行试卷，保存为草稿")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "生成成功"),
+        @ApiResponse(responseCode = "400", description = "蓝图参数错误或题库题目不足"),
+        @ApiResponse(responseCode = "401", description = "未登录"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @PostMapping("/generate")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<List<Paper>> generatePapers(
+            @Parameter(description = "组卷蓝图", required = true)
+            @Valid @RequestBody PaperBlueprintDTO blueprint) {
+        String username = SecurityUtils.getCurrentUsername();
+        User user = username != null ? userService.getByUsername(username) : null;
+        if (user == null) {
+            return Result.error("未登录");
+        }
+        
+        List<Paper> papers = paperService.generatePapers(blueprint, user.getId());
+        return Result.success(papers);
+    }
+
     @Operation(summary = "更新试卷", description = "更新试卷信息")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "更新成功"),
@@ -160,6 +189,24 @@ public class PaperController {
         return Result.success();
     }
 
+    @Operation(summary = "导出线下考试试卷", description = "按考生或套数生成乱序的Word试卷（含答题卡），打包为ZIP下载")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "导出成功"),
+        @ApiResponse(responseCode = "400", description = "套数超出范围或考生不存在"),
+        @ApiResponse(responseCode = "403", description = "无权限"),
+        @ApiResponse(responseCode = "404", description = "试卷不存在")
+    })
+    @GetMapping("/{id}/docx")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public void exportPaperDocx(HttpServletResponse response,
+            @Parameter(description = "试卷ID", required = true)
+            @PathVariable Long id,
+            @Parameter(description = "考生ID列表（可选），每人一套，顺序与其在线考试一致")
+            @RequestParam(required = false) List<Long> userIds,
+            @Parameter(description = "套数（未指定考生时使用）") @RequestParam(required = false) Integer variants) {
+        paperService.exportPaperDocx(response, id, userIds, variants);
+    }
+
     @Operation(summary = "获取可参加的考试", description = "获取学生可以参加的考试列表")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "获取成功"),
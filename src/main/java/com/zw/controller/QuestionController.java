@@ -1,18 +1,27 @@
 package com.zw.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.zw.common.CursorPage;
 import com.zw.common.Result;
 import com.zw.entity.Question;
+import com.zw.entity.QuestionImportJob;
+import com.zw.entity.User;
+import com.zw.entity.RegradeJob;
 import com.zw.service.QuestionService;
+import com.zw.service.UserService;
 import com.zw.utils.SecurityUtils;
+import com.zw.vo.DuplicateClusterVO;
+import com.zw.vo.QuestionFacetVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -24,22 +33,45 @@ public class QuestionController {
 
     private final QuestionService questionService;
 
-    @Operation(summary = "分页查询试题", description = "根据条件分页查询试题列表")
+    private final UserService userService;
+
+    @Operation(summary = "分页查询试题", description = "根据条件分页查询试题列表，按内容关键词检索时按相关度排序")
     @ApiResponse(responseCode = "200", description = "查询成功")
     @GetMapping
     public Result<IPage<Question>> getQuestionPage(
             @Parameter(description = "科目ID（可选）") @RequestParam(required = false) Long subjectId,
             @Parameter(description = "题目类型（可选）：SINGLE-单选题，MULTI-多选题，JUDGE-判断题，FILL-填空题") 
             @RequestParam(required = false) String questionType,
-            @Parameter(description = "题目内容（可选）") @RequestParam(required = false) String content,
+            @Parameter(description = "内容关键词（可选），检索题干、选项和解析") @RequestParam(required = false) String content,
             @Parameter(description = "难度系数（可选）：1-5") @RequestParam(required = false) Integer difficulty,
             @Parameter(description = "审核状态（可选）：0-待审核，1-已通过，2-已驳回") 
             @RequestParam(required = false) Integer reviewStatus,
             @Parameter(description = "页码") @RequestParam(defaultValue = "1") Integer pageNum,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer pageSize) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer pageSize,
+            @Parameter(description = "是否查询总数，传false跳过COUNT") @RequestParam(defaultValue = "true") Boolean searchCount) {
         
         IPage<Question> page = questionService.getQuestionPage(
-                subjectId, questionType, content, difficulty, reviewStatus, pageNum, pageSize);
+                subjectId, questionType, content, difficulty, reviewStatus, pageNum, pageSize, searchCount);
+        return Result.success(page);
+    }
+
+    @Operation(summary = "游标分页查询试题", description = "按创建时间倒序的游标分页，翻页耗时与页深无关")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/cursor")
+    public Result<CursorPage<Question>> getQuestionCursor(
+            @Parameter(description = "科目ID（可选）") @RequestParam(required = false) Long subjectId,
+            @Parameter(description = "题目类型（可选）：SINGLE-单选题，MULTI-多选题，JUDGE-判断题，FILL-填空题") 
+            @RequestParam(required = false) String questionType,
+            @Parameter(description = "题目内容（可选）") @RequestParam(required = false) String content,
+            @Parameter(description = "难度系数（可选）：1-5") @RequestParam(required = false) Integer difficulty,
+            @Parameter(description = "审核状态（可选）：0-待审核，1-已通过，2-已驳回") 
+            @RequestParam(required = false) Integer reviewStatus,
+            @Parameter(description = "游标（可选），首页不传，后续传上一页返回的nextCursor") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer size) {
+        
+        CursorPage<Question> page = questionService.getQuestionCursor(
+                subjectId, questionType, content, difficulty, reviewStatus, cursor, size);
         return Result.success(page);
     }
 
@@ -59,7 +91,7 @@ public class QuestionController {
         return Result.success(question);
     }
 
-    @Operation(summary = "创建试题", description = "创建新的试题")
+    @Operation(summary = "创建试题", description = "创建新的试题，返回的 similarQuestionIds 为题库中疑似重复的题目")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "创建成功"),
         @ApiResponse(responseCode = "400", description = "请求参数错误"),
@@ -104,6 +136,106 @@ public class QuestionController {
         return Result.success(question);
     }
 
+    @Operation(summary = "重新评分", description = "按题目当前答案重新评分所有引用该题的已交答卷，修改答案时会自动触发")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "任务已创建"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @PostMapping("/{id}/regrade")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<RegradeJob> regrade(
+            @Parameter(description = "试题ID", required = true)
+            @PathVariable Long id) {
+        RegradeJob job = questionService.regrade(id);
+        if (job == null) {
+            return Result.error("没有试卷引用该题目");
+        }
+        return Result.success(job);
+    }
+
+    @Operation(summary = "查询重新评分进度", description = "已处理数、分数变化数及任务状态")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/regrade-jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<RegradeJob> getRegradeJob(
+            @Parameter(description = "任务ID", required = true)
+            @PathVariable Long jobId) {
+        return Result.success(questionService.getRegradeJob(jobId));
+    }
+
+    @Operation(summary = "批量导入试题", description = "上传 .xlsx 文件后台导入，表头需包含题型、题干、答案列，"
+            + "可选科目ID、选项、解析、难度、分值列；返回任务ID用于查询进度")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "任务已提交"),
+        @ApiResponse(responseCode = "400", description = "文件格式错误"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @PostMapping("/import")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<QuestionImportJob> importQuestions(
+            @Parameter(description = "Excel文件(.xlsx)", required = true)
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "默认科目ID（可选），行内未填科目ID时使用")
+            @RequestParam(required = false) Long subjectId) {
+        String username = SecurityUtils.getCurrentUsername();
+        if (username == null) {
+            return Result.error("未登录");
+        }
+        User user = userService.getByUsername(username);
+        return Result.success(questionService.importQuestions(file, subjectId, user.getId()));
+    }
+
+    @Operation(summary = "导出试题", description = "按条件流式导出试题到Excel，导出的文件可直接用于批量导入")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "导出成功"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public void exportQuestions(HttpServletResponse response,
+            @Parameter(description = "科目ID（可选）") @RequestParam(required = false) Long subjectId,
+            @Parameter(description = "题目类型（可选）：SINGLE-单选题，MULTI-多选题，JUDGE-判断题，FILL-填空题")
+            @RequestParam(required = false) String questionType,
+            @Parameter(description = "难度系数（可选）：1-5") @RequestParam(required = false) Integer difficulty,
+            @Parameter(description = "审核状态（可选）：0-待审核，1-已通过，2-已驳回")
+            @RequestParam(required = false) Integer reviewStatus) {
+        questionService.exportQuestions(response, subjectId, questionType, difficulty, reviewStatus);
+    }
+
+    @Operation(summary = "查询导入进度", description = "总行数、已处理行数、成功和失败数，以及失败行的行号和原因")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/import-jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<QuestionImportJob> getImportJob(
+            @Parameter(description = "任务ID", required = true)
+            @PathVariable Long jobId) {
+        return Result.success(questionService.getImportJob(jobId));
+    }
+
+    @Operation(summary = "重复题聚类", description = "按题干和选项的相似指纹对整个题库聚类，异步执行")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "任务已提交"),
+        @ApiResponse(responseCode = "403", description = "无权限")
+    })
+    @PostMapping("/duplicates/cluster")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<DuplicateClusterVO> clusterDuplicates() {
+        return Result.success(questionService.clusterDuplicates());
+    }
+
+    @Operation(summary = "查询重复题聚类结果", description = "最近一次聚类的状态和重复组，按组大小降序")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/duplicates/clusters")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public Result<DuplicateClusterVO> getDuplicateClusters(
+            @Parameter(description = "返回的重复组数") @RequestParam(defaultValue = "100") Integer limit) {
+        DuplicateClusterVO result = questionService.getDuplicateClusters(limit);
+        if (result == null) {
+            return Result.error("尚未执行重复题聚类");
+        }
+        return Result.success(result);
+    }
+
     @Operation(summary = "审核试题", description = "管理员审核试题")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "审核成功"),
@@ -173,11 +305,26 @@ public class QuestionController {
             @Parameter(description = "题目类型：SINGLE-单选题，MULTI-多选题，JUDGE-判断题，FILL-填空题", required = true)
             @RequestParam String questionType,
             @Parameter(description = "获取数量", required = true)
-            @RequestParam Integer count) {
-        List<Question> questions = questionService.getRandomQuestions(subjectId, questionType, count);
+            @RequestParam Integer count,
+            @Parameter(description = "随机种子（可选），相同种子在题库不变时返回相同的题目")
+            @RequestParam(required = false) Long seed) {
+        List<Question> questions = questionService.getRandomQuestions(subjectId, questionType, count, seed);
         return Result.success(questions);
     }
 
+    @Operation(summary = "题库分面统计", description = "满足筛选条件的试题按科目、题型、难度、审核状态及其组合的数量")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    @GetMapping("/facets")
+    public Result<QuestionFacetVO> getQuestionFacets(
+            @Parameter(description = "科目ID（可选）") @RequestParam(required = false) Long subjectId,
+            @Parameter(description = "题目类型（可选）：SINGLE-单选题，MULTI-多选题，JUDGE-判断题，FILL-填空题")
+            @RequestParam(required = false) String questionType,
+            @Parameter(description = "难度系数（可选）：1-5") @RequestParam(required = false) Integer difficulty,
+            @Parameter(description = "审核状态（可选）：0-待审核，1-已通过，2-已驳回")
+            @RequestParam(required = false) Integer reviewStatus) {
+        return Result.success(questionService.getQuestionFacets(subjectId, questionType, difficulty, reviewStatus));
+    }
+
     @Operation(summary = "获取科目试题数量", description = "获取指定科目下的试题总数")
     @ApiResponse(responseCode = "200", description = "获取成功")
     @GetMapping("/subject/count")
@@ -14,4 +14,8 @@ public class LogQueryDTO {
     private LocalDateTime endTime;
     private Integer pageNum = 1;
     private Integer pageSize = 10;
+    // 是否查询总数，深分页时可传false跳过COUNT
+    private Boolean searchCount = true;
+    // 游标分页时上一页返回的nextCursor
+    private String cursor;
 } 
\ No newline at end of file
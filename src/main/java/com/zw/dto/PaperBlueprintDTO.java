@@ -0,0 +1,53 @@
+package com.zw.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 自动组卷蓝图
+ */
+@Data
+public class PaperBlueprintDTO {
+    @NotBlank(message = "试卷标题不能为空")
+    private String title;
+
+    @NotNull(message = "科目不能为空")
+    private Long subjectId;
+
+    // 是否包含下级科目的题目
+    private Boolean includeChildren = true;
+
+    // 各题型题目数量，如 {"SINGLE": 20, "JUDGE": 10}，按键的顺序排列试卷
+    @NotEmpty(message = "题型数量不能为空")
+    private Map<String, Integer> typeCounts;
+
+    // 难度(1-5)的目标占比权重，如 {"1": 1, "3": 2, "5": 1}，为空时按题库中各难度的题目数分配
+    private Map<Integer, Integer> difficultyWeights;
+
+    // 目标总分，为空时不调整；题库分值无法凑出时取最接近的组合
+    private BigDecimal totalScore;
+
+    @NotNull(message = "考试时长不能为空")
+    @Min(value = 1, message = "考试时长必须大于0")
+    private Integer timeLimit;
+
+    private LocalDateTime examStart;
+
+    private LocalDateTime examEnd;
+
+    // 生成的平行试卷份数，各份之间尽量不重复选题
+    @Min(value = 1, message = "试卷份数至少为1")
+    @Max(value = 20, message = "试卷份数最多为20")
+    private Integer variants = 1;
+
+    // 随机种子，相同种子和题库生成相同的试卷
+    private Long seed;
+}
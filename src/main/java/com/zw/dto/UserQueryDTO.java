@@ -10,4 +10,6 @@ public class UserQueryDTO {
     private Integer status;
     private Integer pageNum = 1;
     private Integer pageSize = 10;
+    // 是否查询总数，深分页时可传false跳过COUNT
+    private Boolean searchCount = true;
 } 
\ No newline at end of file
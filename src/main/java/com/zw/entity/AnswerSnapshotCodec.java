@@ -0,0 +1,469 @@
+package com.zw.entity;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 答题快照紧凑二进制编码
+ * <p>
+ * JSON 快照 {"题目ID": 答案, ...} 编码为：
+ * <pre>
+ * 版本(1字节) | 字典条数 | 字典(长度+UTF-8)... | 题目数 | (题目ID差值, 答案)...
+ * </pre>
+ * 整数均为 varint，题目ID按出现顺序存与上一题的差值（zigzag）。答案以1字节标记开头：
+ * 选择题字母串（如 "ABD"）和单字母数组存为位掩码，布尔值只占标记，
+ * 文本和数字存为字典下标，字典由常用判断题答案和本快照中出现的文本组成，重复文本只存一次。
+ * 解码还原为等价的JSON，题目顺序和重复键保持不变。
+ */
+public final class AnswerSnapshotCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_TRUE = 1;
+    private static final byte TAG_FALSE = 2;
+    private static final byte TAG_CHOICE = 3;
+    private static final byte TAG_CHOICE_ARRAY = 4;
+    private static final byte TAG_TEXT = 5;
+    private static final byte TAG_NUMBER = 6;
+    private static final byte TAG_ARRAY = 7;
+
+    /**
+     * 内置字典，不写入编码结果，下标从0开始
+     */
+    private static final String[] BUILTIN = {"", "正确", "错误", "对", "错", "true", "false", "T", "F", "√", "×"};
+
+    private static final Map<String, Integer> BUILTIN_INDEX = new HashMap<>();
+
+    /**
+     * 内置字典和选择题字母组合（8个选项以内）对应的带引号JSON字符串，解码时直接拼接
+     */
+    private static final String[] BUILTIN_QUOTED = new String[BUILTIN.length];
+
+    private static final String[] CHOICE_QUOTED = new String[1 << 8];
+
+    private static final String[] CHOICE_ARRAY_QUOTED = new String[1 << 8];
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    static {
+        for (int i = 0; i < BUILTIN.length; i++) {
+            BUILTIN_INDEX.put(BUILTIN[i], i);
+            BUILTIN_QUOTED[i] = quote(BUILTIN[i]);
+        }
+        for (int mask = 1; mask < CHOICE_QUOTED.length; mask++) {
+            CHOICE_QUOTED[mask] = choiceJson(mask);
+            CHOICE_ARRAY_QUOTED[mask] = choiceArrayJson(mask);
+        }
+    }
+
+    private AnswerSnapshotCodec() {
+    }
+
+    /**
+     * 编码JSON快照，快照为空、键不是规范的题目ID或答案含对象时返回null（保留JSON存储）
+     */
+    public static byte[] encode(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        Encoder encoder = new Encoder();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            long previousId = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                long questionId = parseQuestionId(parser.currentName());
+                if (questionId < 0) {
+                    return null;
+                }
+                encoder.entries.writeVarLong(zigzag(questionId - previousId));
+                previousId = questionId;
+                encoder.entryCount++;
+                if (!encoder.writeValue(parser, parser.nextToken(), true)) {
+                    return null;
+                }
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 解码为JSON快照
+     */
+    public static String decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        Decoder decoder = new Decoder(data);
+        if (decoder.readByte() != VERSION) {
+            throw new IllegalStateException("不支持的答题快照编码版本");
+        }
+        try {
+            int dictionarySize = decoder.readVarInt();
+            // 原文用于数字，带引号的转义形式用于字符串，后者按需生成
+            String[] dictionary = new String[BUILTIN.length + dictionarySize];
+            String[] quoted = new String[dictionary.length];
+            System.arraycopy(BUILTIN, 0, dictionary, 0, BUILTIN.length);
+            System.arraycopy(BUILTIN_QUOTED, 0, quoted, 0, BUILTIN.length);
+            for (int i = BUILTIN.length; i < dictionary.length; i++) {
+                dictionary[i] = decoder.readString();
+            }
+
+            StringBuilder json = new StringBuilder(data.length * 4);
+            json.append('{');
+            int entryCount = decoder.readVarInt();
+            long questionId = 0;
+            for (int i = 0; i < entryCount; i++) {
+                questionId += unzigzag(decoder.readVarLong());
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(questionId).append("\":");
+                decoder.readValue(json, dictionary, quoted);
+            }
+            return json.append('}').toString();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("答题快照数据损坏", e);
+        }
+    }
+
+    /**
+     * 校验编码结果能否还原为原快照：解码后逐个比较JSON记号的类型和文本，
+     * 忽略空白和字符串转义写法的差异，题目顺序和重复键必须一致
+     */
+    public static boolean verify(String json, byte[] data) {
+        try (JsonParser expected = JSON_FACTORY.createParser(json);
+             JsonParser actual = JSON_FACTORY.createParser(decode(data))) {
+            JsonToken token;
+            do {
+                token = expected.nextToken();
+                if (token != actual.nextToken()) {
+                    return false;
+                }
+                if (token != null && token != JsonToken.START_OBJECT && token != JsonToken.END_OBJECT
+                        && token != JsonToken.START_ARRAY && token != JsonToken.END_ARRAY
+                        && !expected.getText().equals(actual.getText())) {
+                    return false;
+                }
+            } while (token != null);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析规范的十进制题目ID（无前导零），否则返回-1
+     */
+    private static long parseQuestionId(String name) {
+        if (name == null || name.isEmpty() || name.length() > 18 || (name.length() > 1 && name.charAt(0) == '0')) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    /**
+     * 严格升序且不重复的大写字母串转位掩码，否则返回0
+     */
+    private static int choiceMask(String text) {
+        if (text.isEmpty() || text.length() > 26) {
+            return 0;
+        }
+        int mask = 0;
+        int previous = -1;
+        for (int i = 0; i < text.length(); i++) {
+            int letter = text.charAt(i) - 'A';
+            if (letter <= previous || letter > 25) {
+                return 0;
+            }
+            mask |= 1 << letter;
+            previous = letter;
+        }
+        return mask;
+    }
+
+    private static String quote(String text) {
+        return '"' + new String(JsonStringEncoder.getInstance().quoteAsString(text)) + '"';
+    }
+
+    private static String choiceJson(int mask) {
+        StringBuilder builder = new StringBuilder().append('"');
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            builder.append((char) ('A' + Integer.numberOfTrailingZeros(bits)));
+        }
+        return builder.append('"').toString();
+    }
+
+    private static String choiceArrayJson(int mask) {
+        StringBuilder builder = new StringBuilder().append('[');
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            if (bits != mask) {
+                builder.append(',');
+            }
+            builder.append('"').append((char) ('A' + Integer.numberOfTrailingZeros(bits))).append('"');
+        }
+        return builder.append(']').toString();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Encoder {
+
+        private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private final VarOutput entries = new VarOutput();
+
+        private int entryCount;
+
+        /**
+         * 写入一个答案，不支持的结构返回false
+         */
+        private boolean writeValue(JsonParser parser, JsonToken token, boolean topLevel) throws IOException {
+            switch (token) {
+                case VALUE_NULL:
+                    entries.write(TAG_NULL);
+                    return true;
+                case VALUE_TRUE:
+                    entries.write(TAG_TRUE);
+                    return true;
+                case VALUE_FALSE:
+                    entries.write(TAG_FALSE);
+                    return true;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    entries.write(TAG_NUMBER);
+                    entries.writeVarInt(indexOf(parser.getText()));
+                    return true;
+                case VALUE_STRING:
+                    String text = parser.getText();
+                    int mask = choiceMask(text);
+                    if (mask != 0) {
+                        entries.write(TAG_CHOICE);
+                        entries.writeVarInt(mask);
+                    } else {
+                        entries.write(TAG_TEXT);
+                        entries.writeVarInt(indexOf(text));
+                    }
+                    return true;
+                case START_ARRAY:
+                    return topLevel && writeArray(parser);
+                default:
+                    return false;
+            }
+        }
+
+        private boolean writeArray(JsonParser parser) throws IOException {
+            List<JsonToken> tokens = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT || token == null) {
+                    return false;
+                }
+                tokens.add(token);
+                texts.add(token == JsonToken.VALUE_NULL ? null : parser.getText());
+            }
+
+            // 单字母升序数组（多选题）存为位掩码
+            int mask = 0;
+            int previous = -1;
+            for (int i = 0; i < tokens.size() && (i == 0 || mask != 0); i++) {
+                String text = texts.get(i);
+                int letter = tokens.get(i) == JsonToken.VALUE_STRING && text.length() == 1 ? text.charAt(0) - 'A' : -1;
+                mask = letter > previous && letter <= 25 ? mask | (1 << letter) : 0;
+                previous = letter;
+            }
+            if (mask != 0) {
+                entries.write(TAG_CHOICE_ARRAY);
+                entries.writeVarInt(mask);
+                return true;
+            }
+
+            entries.write(TAG_ARRAY);
+            entries.writeVarInt(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                JsonToken element = tokens.get(i);
+                if (element == JsonToken.VALUE_NULL || element == JsonToken.VALUE_TRUE || element == JsonToken.VALUE_FALSE) {
+                    entries.write(element == JsonToken.VALUE_NULL ? TAG_NULL
+                            : element == JsonToken.VALUE_TRUE ? TAG_TRUE : TAG_FALSE);
+                } else {
+                    entries.write(element == JsonToken.VALUE_STRING ? TAG_TEXT : TAG_NUMBER);
+                    entries.writeVarInt(indexOf(texts.get(i)));
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(String text) {
+            Integer builtin = BUILTIN_INDEX.get(text);
+            if (builtin != null) {
+                return builtin;
+            }
+            Integer index = dictionaryIndex.get(text);
+            if (index == null) {
+                index = BUILTIN.length + dictionary.size();
+                dictionaryIndex.put(text, index);
+                dictionary.add(text);
+            }
+            return index;
+        }
+
+        private byte[] toByteArray() {
+            VarOutput output = new VarOutput();
+            output.write(VERSION);
+            output.writeVarInt(dictionary.size());
+            for (String text : dictionary) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                output.writeVarInt(bytes.length);
+                output.write(bytes, 0, bytes.length);
+            }
+            output.writeVarInt(entryCount);
+            entries.writeTo(output);
+            return output.toByteArray();
+        }
+    }
+
+    private static final class VarOutput extends ByteArrayOutputStream {
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeTo(VarOutput output) {
+            output.write(buf, 0, count);
+        }
+    }
+
+    private static final class Decoder {
+
+        private final byte[] data;
+
+        private int position;
+
+        private Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        private byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalStateException("答题快照数据不完整");
+            }
+            return data[position++];
+        }
+
+        private int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("答题快照数据损坏");
+        }
+
+        private String readString() {
+            int length = readVarInt();
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalStateException("答题快照数据不完整");
+            }
+            String text = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return text;
+        }
+
+        private void readValue(StringBuilder json, String[] dictionary, String[] quoted) {
+            byte tag = readByte();
+            switch (tag) {
+                case TAG_NULL:
+                    json.append("null");
+                    break;
+                case TAG_TRUE:
+                    json.append("true");
+                    break;
+                case TAG_FALSE:
+                    json.append("false");
+                    break;
+                case TAG_CHOICE:
+                    int choice = readVarInt();
+                    json.append(choice < CHOICE_QUOTED.length ? CHOICE_QUOTED[choice] : choiceJson(choice));
+                    break;
+                case TAG_CHOICE_ARRAY:
+                    int choices = readVarInt();
+                    json.append(choices < CHOICE_ARRAY_QUOTED.length ? CHOICE_ARRAY_QUOTED[choices]
+                            : choiceArrayJson(choices));
+                    break;
+                case TAG_TEXT:
+                    int index = readVarInt();
+                    if (quoted[index] == null) {
+                        quoted[index] = quote(dictionary[index]);
+                    }
+                    json.append(quoted[index]);
+                    break;
+                case TAG_NUMBER:
+                    json.append(dictionary[readVarInt()]);
+                    break;
+                case TAG_ARRAY:
+                    int size = readVarInt();
+                    json.append('[');
+                    for (int i = 0; i < size; i++) {
+                        if (i > 0) {
+                            json.append(',');
+                        }
+                        readValue(json, dictionary, quoted);
+                    }
+                    json.append(']');
+                    break;
+                default:
+                    throw new IllegalStateException("答题快照数据损坏");
+            }
+        }
+    }
+}
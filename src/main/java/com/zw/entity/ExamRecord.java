@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -28,12 +29,30 @@ public class ExamRecord extends BaseEntity {
     
     private String answerSnapshot;
     
+    /**
+     * 紧凑编码的答题快照，见 {@link AnswerSnapshotCodec}，与 answerSnapshot 二者只存其一
+     */
+    @JsonIgnore
+    private byte[] answerSnapshotBin;
+    
+    /**
+     * 是否按考生乱序出卷，开始考试时按当时的乱序开关写入，取卷和评分以此为准
+     */
+    private Boolean shuffled;
+    
     private BigDecimal autoScore;
     
     private BigDecimal manualScore;
     
     private String status;
     
+    private LocalDateTime gradeTime;
+    
+    /**
+     * 最近一次分数变化时间，由数据库 NOW(3) 写入，用于判断内存中的成绩统计是否过期
+     */
+    private LocalDateTime scoreTime;
+    
     @TableField(exist = false)
     private User user;
     
@@ -43,6 +62,16 @@ public class ExamRecord extends BaseEntity {
     @TableField(exist = false)
     private BigDecimal finalScore;
     
+    /**
+     * 答题快照JSON，已转为紧凑编码的记录在读取时解码
+     */
+    public String getAnswerSnapshot() {
+        if (answerSnapshot == null && answerSnapshotBin != null) {
+            return AnswerSnapshotCodec.decode(answerSnapshotBin);
+        }
+        return answerSnapshot;
+    }
+    
     public BigDecimal getFinalScore() {
         if (autoScore == null) {
             autoScore = new BigDecimal("0.0");
@@ -0,0 +1,47 @@
+package com.zw.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("exam_item_analysis")
+public class ItemAnalysis extends BaseEntity {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    private Long paperId;
+    
+    private Long questionId;
+    
+    private String questionType;
+    
+    // 参与分析的答卷数
+    private Integer sampleCount;
+    
+    private Integer answeredCount;
+    
+    private Integer correctCount;
+    
+    // 难度（通过率）
+    private BigDecimal difficulty;
+    
+    // 区分度（点二列相关系数）
+    private BigDecimal discrimination;
+    
+    // 各选项选择人数
+    private String optionCounts;
+    
+    private LocalDateTime analysisTime;
+    
+    @TableField(exist = false)
+    private Question question;
+}
@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -42,4 +43,10 @@ public class Question extends BaseEntity {
     
     @TableField(exist = false)
     private User creator;
+    
+    /**
+     * 创建时检测到的疑似重复题目ID，按相似度降序
+     */
+    @TableField(exist = false)
+    private List<Long> similarQuestionIds;
 } 
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.zw.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("exam_question_import_job")
+public class QuestionImportJob extends BaseEntity {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    // 上传的文件名
+    private String fileName;
+    
+    // 文件存储路径，相对上传目录
+    private String filePath;
+    
+    // 默认科目，行内未填科目时使用
+    private Long subjectId;
+    
+    private Long creatorId;
+    
+    // PENDING/RUNNING/COMPLETED/FAILED
+    private String status;
+    
+    // 数据行数，开始时按工作表范围估算，完成后为实际行数
+    private Integer totalRows;
+    
+    private Integer processedRows;
+    
+    private Integer successCount;
+    
+    private Integer failedCount;
+    
+    // 断点：已处理的最后一行行号（从0开始）
+    private Integer lastRow;
+    
+    // 错误明细，JSON数组：[{"row":行号,"message":原因}]
+    private String errors;
+    
+    private String errorMessage;
+    
+    // 执行实例，认领任务时写入
+    private String owner;
+    
+    // 执行实例最近心跳时间，超过租约时间未更新的任务可被其他实例认领
+    private LocalDateTime heartbeatTime;
+    
+    private LocalDateTime finishTime;
+}
@@ -0,0 +1,47 @@
+package com.zw.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("exam_regrade_job")
+public class RegradeJob extends BaseEntity {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    // 答案被修改的题目
+    private Long questionId;
+    
+    // 受影响的试卷ID，逗号分隔
+    private String paperIds;
+    
+    // PENDING/RUNNING/COMPLETED/FAILED
+    private String status;
+    
+    private Integer totalCount;
+    
+    private Integer processedCount;
+    
+    // 分数发生变化的记录数
+    private Integer changedCount;
+    
+    // 断点：已处理的最大考试记录ID
+    private Long lastRecordId;
+    
+    private String errorMessage;
+    
+    // 执行实例，认领任务时写入
+    private String owner;
+    
+    // 执行实例最近心跳时间，超过租约时间未更新的任务可被其他实例认领
+    private LocalDateTime heartbeatTime;
+    
+    private LocalDateTime finishTime;
+}
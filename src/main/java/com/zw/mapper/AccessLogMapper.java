@@ -3,7 +3,34 @@ package com.zw.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zw.entity.AccessLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
 
 @Mapper
 public interface AccessLogMapper extends BaseMapper<AccessLog> {
+    
+    /**
+     * 游标读取导出的访问日志，条件与分页查询一致，按访问时间倒序
+     */
+    @Select("<script>" +
+            "SELECT id, ip_address, request_uri, request_method, user_agent, username, status, response_time, " +
+            "access_time FROM sys_access_log " +
+            "<where>" +
+            "<if test='username != null'>AND username LIKE CONCAT('%', #{username}, '%')</if>" +
+            "<if test='ipAddress != null'>AND ip_address LIKE CONCAT('%', #{ipAddress}, '%')</if>" +
+            "<if test='status != null'>AND status = #{status}</if>" +
+            "<if test='startTime != null'>AND access_time &gt;= #{startTime}</if>" +
+            "<if test='endTime != null'>AND access_time &lt;= #{endTime}</if>" +
+            "</where>" +
+            "ORDER BY access_time DESC, id DESC" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<AccessLog> cursorForExport(@Param("username") String username, @Param("ipAddress") String ipAddress,
+                                      @Param("status") Integer status, @Param("startTime") LocalDateTime startTime,
+                                      @Param("endTime") LocalDateTime endTime);
 } 
\ No newline at end of file
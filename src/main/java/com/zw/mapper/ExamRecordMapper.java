@@ -2,11 +2,21 @@ package com.zw.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zw.entity.ExamRecord;
+import com.zw.vo.ExamRecordExportVO;
+import com.zw.vo.ScoreWatermarkVO;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -27,6 +37,206 @@ public interface ExamRecordMapper extends BaseMapper<ExamRecord> {
     @Select("SELECT COUNT(*) FROM exam_record WHERE user_id = #{userId} AND paper_id = #{paperId}")
     Integer countByUserIdAndPaperId(@Param("userId") Long userId, @Param("paperId") Long paperId);
     
-    @Select("SELECT * FROM exam_record WHERE user_id = #{userId} ORDER BY create_time DESC")
+    /**
+     * 查询用户的考试记录列表，不含答题快照
+     */
+    @Select("SELECT id, user_id, paper_id, start_time, submit_time, auto_score, manual_score, status, grade_time, " +
+            "create_time FROM exam_record WHERE user_id = #{userId} ORDER BY create_time DESC")
     List<ExamRecord> selectByUserId(@Param("userId") Long userId);
+    
+    /**
+     * 查询试卷已评分（系统评分完成或已人工评分）的记录分数
+     */
+    @Select("SELECT id, auto_score, manual_score FROM exam_record " +
+            "WHERE paper_id = #{paperId} AND (grade_time IS NOT NULL OR status = 'REVIEWING')")
+    List<ExamRecord> selectScoredByPaperId(@Param("paperId") Long paperId);
+    
+    /**
+     * 流式扫描试卷已评分的记录
+     */
+    @Select("SELECT id, user_id, auto_score, manual_score FROM exam_record " +
+            "WHERE paper_id = #{paperId} AND (grade_time IS NOT NULL OR status = 'REVIEWING')")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(ExamRecord.class)
+    void streamScoredByPaperId(@Param("paperId") Long paperId, ResultHandler<ExamRecord> handler);
+    
+    /**
+     * 游标读取试卷已交卷的答题快照（JSON或紧凑编码）
+     */
+    @Select("SELECT user_id, shuffled, answer_snapshot, answer_snapshot_bin FROM exam_record WHERE paper_id = #{paperId} " +
+            "AND status IN ('SUBMITTED', 'TIMEOUT', 'REVIEWING') " +
+            "AND (answer_snapshot IS NOT NULL OR answer_snapshot_bin IS NOT NULL)")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<ExamRecord> cursorSnapshotsByPaperId(@Param("paperId") Long paperId);
+    
+    /**
+     * 按ID顺序分批查询试卷已交卷的记录，用于重新评分
+     */
+    @Select("<script>" +
+            "SELECT id, user_id, paper_id, shuffled, auto_score, answer_snapshot, answer_snapshot_bin FROM exam_record " +
+            "WHERE status IN ('SUBMITTED', 'TIMEOUT', 'REVIEWING') AND id > #{lastId} AND paper_id IN " +
+            "<foreach collection='paperIds' item='paperId' open='(' separator=',' close=')'>#{paperId}</foreach>" +
+            " ORDER BY id LIMIT #{limit}" +
+            "</script>")
+    List<ExamRecord> selectForRegrade(@Param("paperIds") List<Long> paperIds, @Param("lastId") Long lastId,
+                                      @Param("limit") Integer limit);
+    
+    @Select("<script>" +
+            "SELECT COUNT(*) FROM exam_record WHERE status IN ('SUBMITTED', 'TIMEOUT', 'REVIEWING') AND paper_id IN " +
+            "<foreach collection='paperIds' item='paperId' open='(' separator=',' close=')'>#{paperId}</foreach>" +
+            "</script>")
+    Long countForRegrade(@Param("paperIds") List<Long> paperIds);
+    
+    /**
+     * 查询试卷的参考名单
+     */
+    @Select("SELECT id, user_id FROM exam_record WHERE paper_id = #{paperId}")
+    List<ExamRecord> selectParticipants(@Param("paperId") Long paperId);
+    
+    /**
+     * 批量创建考试记录，(user_id, paper_id) 已存在时忽略
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO exam_record (user_id, paper_id, start_time, shuffled, status, auto_score, manual_score) " +
+            "VALUES <foreach collection='records' item='r' separator=','>" +
+            "(#{r.userId}, #{r.paperId}, #{r.startTime}, #{r.shuffled}, 'PROGRESS', 0, 0)" +
+            "</foreach>" +
+            "</script>")
+    int batchInsertIgnore(@Param("records") List<ExamRecord> records);
+    
+    /**
+     * 按 (user_id, paper_id) 批量查询考试记录
+     */
+    @Select("<script>" +
+            "SELECT * FROM exam_record WHERE (user_id, paper_id) IN " +
+            "<foreach collection='records' item='r' open='(' separator=',' close=')'>(#{r.userId}, #{r.paperId})</foreach>" +
+            "</script>")
+    List<ExamRecord> selectByUserAndPaper(@Param("records") List<ExamRecord> records);
+    
+    /**
+     * 交卷，仅在考试进行中时更新，返回0表示已提交过
+     */
+    @Update("UPDATE exam_record SET answer_snapshot = #{answerSnapshot}, submit_time = #{submitTime}, " +
+            "status = #{status}, grade_time = NULL WHERE id = #{id} AND status = 'PROGRESS'")
+    int submitAnswer(@Param("id") Long id, @Param("answerSnapshot") String answerSnapshot,
+                     @Param("submitTime") LocalDateTime submitTime, @Param("status") String status);
+    
+    /**
+     * 批量写入答题草稿，仅更新仍在进行中的记录
+     */
+    @Update("<script>" +
+            "UPDATE exam_record SET answer_snapshot = CASE id " +
+            "<foreach collection='records' item='r'>WHEN #{r.id} THEN #{r.answerSnapshot} </foreach>" +
+            "END WHERE status = 'PROGRESS' AND id IN " +
+            "<foreach collection='records' item='r' open='(' separator=',' close=')'>#{r.id}</foreach>" +
+            "</script>")
+    int batchUpdateDraft(@Param("records") List<ExamRecord> records);
+    
+    /**
+     * 数据库当前时间（毫秒精度），写入 score_time 前取得，同时随评分事件通知本实例的统计推进水位
+     */
+    @Select("SELECT NOW(3)")
+    LocalDateTime selectNow();
+    
+    /**
+     * 批量写入系统评分
+     */
+    @Update("<script>" +
+            "UPDATE exam_record SET auto_score = CASE id " +
+            "<foreach collection='records' item='r'>WHEN #{r.id} THEN #{r.autoScore} </foreach>" +
+            "END, grade_time = #{gradeTime}, score_time = #{scoreTime} WHERE id IN " +
+            "<foreach collection='records' item='r' open='(' separator=',' close=')'>#{r.id}</foreach>" +
+            "</script>")
+    int batchUpdateAutoScore(@Param("records") List<ExamRecord> records, @Param("gradeTime") LocalDateTime gradeTime,
+                             @Param("scoreTime") LocalDateTime scoreTime);
+    
+    /**
+     * 写入人工评分
+     */
+    @Update("UPDATE exam_record SET manual_score = #{manualScore}, status = 'REVIEWING', score_time = #{scoreTime} " +
+            "WHERE id = #{id}")
+    int updateManualScore(@Param("id") Long id, @Param("manualScore") BigDecimal manualScore,
+                          @Param("scoreTime") LocalDateTime scoreTime);
+    
+    /**
+     * 试卷的已评分记录数和最近一次分数变化时间，任一变化说明有内存中没有收到的评分
+     */
+    @Select("SELECT COUNT(score_time) AS scored_count, MAX(score_time) AS last_score_time FROM exam_record " +
+            "WHERE paper_id = #{paperId}")
+    ScoreWatermarkVO selectScoreWatermark(@Param("paperId") Long paperId);
+    
+    /**
+     * 按ID顺序分批查询已交卷但尚未评分的记录
+     */
+    @Select("SELECT id, user_id, paper_id, shuffled, answer_snapshot, answer_snapshot_bin FROM exam_record " +
+            "WHERE status IN ('SUBMITTED', 'TIMEOUT') AND grade_time IS NULL AND id > #{lastId} " +
+            "ORDER BY id LIMIT #{limit}")
+    List<ExamRecord> selectUngraded(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+    
+    /**
+     * 按ID顺序分批查询进行中的考试记录
+     */
+    @Select("SELECT id, paper_id, start_time FROM exam_record " +
+            "WHERE status = 'PROGRESS' AND id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<ExamRecord> selectInProgress(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+    
+    /**
+     * 批量超时交卷，仅更新仍在进行中的记录
+     */
+    @Update("<script>" +
+            "UPDATE exam_record SET status = 'TIMEOUT', submit_time = #{submitTime}, grade_time = NULL " +
+            "WHERE status = 'PROGRESS' AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int batchTimeout(@Param("ids") List<Long> ids, @Param("submitTime") LocalDateTime submitTime);
+    
+    /**
+     * 查询指定记录中已超时且未评分的记录
+     */
+    @Select("<script>" +
+            "SELECT id, user_id, paper_id, shuffled, answer_snapshot, answer_snapshot_bin FROM exam_record " +
+            "WHERE status = 'TIMEOUT' AND grade_time IS NULL AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<ExamRecord> selectTimeoutUngraded(@Param("ids") List<Long> ids);
+    
+    /**
+     * 按ID顺序分批查询已评分且仍以JSON存储答题快照的记录
+     */
+    @Select("SELECT id, answer_snapshot FROM exam_record " +
+            "WHERE id > #{lastId} AND status IN ('SUBMITTED', 'TIMEOUT', 'REVIEWING') " +
+            "AND (grade_time IS NOT NULL OR status = 'REVIEWING') AND answer_snapshot IS NOT NULL " +
+            "ORDER BY id LIMIT #{limit}")
+    List<ExamRecord> selectJsonSnapshots(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+    
+    /**
+     * 批量写入紧凑编码的答题快照并清空JSON快照，进行中的记录不处理
+     */
+    @Update("<script>" +
+            "UPDATE exam_record SET answer_snapshot_bin = CASE id " +
+            "<foreach collection='records' item='r'>WHEN #{r.id} THEN #{r.answerSnapshotBin} </foreach>" +
+            "END, answer_snapshot = NULL WHERE status != 'PROGRESS' AND id IN " +
+            "<foreach collection='records' item='r' open='(' separator=',' close=')'>#{r.id}</foreach>" +
+            "</script>")
+    int batchUpdateSnapshotBin(@Param("records") List<ExamRecord> records);
+    
+    /**
+     * 游标读取导出的考试记录，关联考生和试卷名称
+     */
+    @Select("<script>" +
+            "SELECT r.id, r.user_id, u.username, u.real_name, r.paper_id, p.title AS paper_title, r.start_time, " +
+            "r.submit_time, r.auto_score, r.manual_score, r.status, r.grade_time " +
+            "FROM exam_record r " +
+            "LEFT JOIN sys_user u ON u.id = r.user_id " +
+            "LEFT JOIN exam_paper p ON p.id = r.paper_id " +
+            "<where>" +
+            "<if test='userId != null'>AND r.user_id = #{userId}</if>" +
+            "<if test='paperId != null'>AND r.paper_id = #{paperId}</if>" +
+            "<if test='status != null'>AND r.status = #{status}</if>" +
+            "</where>" +
+            "ORDER BY r.id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<ExamRecordExportVO> cursorForExport(@Param("userId") Long userId, @Param("paperId") Long paperId,
+                                               @Param("status") String status);
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.zw.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zw.entity.ItemAnalysis;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface ItemAnalysisMapper extends BaseMapper<ItemAnalysis> {
+    
+    @Select("SELECT * FROM exam_item_analysis WHERE paper_id = #{paperId} ORDER BY id")
+    List<ItemAnalysis> selectByPaperId(@Param("paperId") Long paperId);
+    
+    @Delete("DELETE FROM exam_item_analysis WHERE paper_id = #{paperId}")
+    int deleteByPaperId(@Param("paperId") Long paperId);
+    
+    @Insert("<script>" +
+            "INSERT INTO exam_item_analysis (paper_id, question_id, question_type, sample_count, answered_count, " +
+            "correct_count, difficulty, discrimination, option_counts, analysis_time) VALUES " +
+            "<foreach collection='items' item='i' separator=','>" +
+            "(#{i.paperId}, #{i.questionId}, #{i.questionType}, #{i.sampleCount}, #{i.answeredCount}, " +
+            "#{i.correctCount}, #{i.difficulty}, #{i.discrimination}, #{i.optionCounts}, #{i.analysisTime})" +
+            "</foreach>" +
+            "</script>")
+    int batchInsert(@Param("items") List<ItemAnalysis> items);
+} 
\ No newline at end of file
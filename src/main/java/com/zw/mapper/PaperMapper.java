@@ -7,19 +7,41 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface PaperMapper extends BaseMapper<Paper> {
 
-    @Select("SELECT p.* FROM exam_paper p " +
+    /**
+     * 试卷列表列，不含试题数据
+     */
+    String LIST_COLUMNS = "p.id, p.title, p.subject_id, p.total_score, p.time_limit, p.creator_id, " +
+            "p.exam_start, p.exam_end, p.status, p.create_time, p.update_time";
+
+    @Select("SELECT " + LIST_COLUMNS + " FROM exam_paper p " +
             "LEFT JOIN exam_record r ON p.id = r.paper_id AND r.user_id = #{userId} " +
             "WHERE p.status = 1 AND p.exam_start <= #{now} AND p.exam_end >= #{now} " +
             "AND r.id IS NULL")
     List<Paper> selectAvailableExams(@Param("userId") Long userId, @Param("now") LocalDateTime now);
     
-    @Select("SELECT p.* FROM exam_paper p " +
+    @Select("SELECT " + LIST_COLUMNS + " FROM exam_paper p " +
             "INNER JOIN exam_record r ON p.id = r.paper_id " +
             "WHERE r.user_id = #{userId}")
     List<Paper> selectUserExams(@Param("userId") Long userId);
+    
+    /**
+     * 按ID批量查询试卷列表字段
+     */
+    @Select("<script>" +
+            "SELECT " + LIST_COLUMNS + " FROM exam_paper p WHERE p.id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Paper> selectSummariesByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 按ID顺序分批读取试卷题目数据
+     */
+    @Select("SELECT id, question_data, update_time FROM exam_paper WHERE id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Paper> selectQuestionDataAfter(@Param("lastId") Long lastId, @Param("limit") Integer limit);
 } 
\ No newline at end of file
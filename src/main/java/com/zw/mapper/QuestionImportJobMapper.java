@@ -0,0 +1,37 @@
+package com.zw.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zw.entity.QuestionImportJob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+@Mapper
+public interface QuestionImportJobMapper extends BaseMapper<QuestionImportJob> {
+    
+    @Select("SELECT * FROM exam_question_import_job WHERE status IN ('PENDING', 'RUNNING') ORDER BY id")
+    List<QuestionImportJob> selectUnfinished();
+    
+    /**
+     * 认领任务：未被认领、已由本实例认领或原实例心跳过期时成功，返回0表示由其他实例执行
+     */
+    @Update("UPDATE exam_question_import_job SET status = 'RUNNING', owner = #{owner}, heartbeat_time = NOW() " +
+            "WHERE id = #{id} AND status IN ('PENDING', 'RUNNING') AND (owner IS NULL OR owner = #{owner} " +
+            "OR heartbeat_time IS NULL OR heartbeat_time < NOW() - INTERVAL #{leaseSeconds} SECOND)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+    
+    @Update("UPDATE exam_question_import_job SET heartbeat_time = NOW() WHERE id = #{id} AND owner = #{owner}")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner);
+    
+    /**
+     * 释放本实例认领的未完成任务，id 为空时释放全部（停机时）
+     */
+    @Update("<script>" +
+            "UPDATE exam_question_import_job SET owner = NULL WHERE owner = #{owner} AND status IN ('PENDING', 'RUNNING')" +
+            "<if test='id != null'> AND id = #{id}</if>" +
+            "</script>")
+    int release(@Param("id") Long id, @Param("owner") String owner);
+}
@@ -2,19 +2,160 @@ package com.zw.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zw.entity.Question;
+import com.zw.vo.QuestionExportVO;
+import com.zw.vo.QuestionFacetCellVO;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface QuestionMapper extends BaseMapper<Question> {
     
-    @Select("SELECT * FROM exam_question WHERE subject_id = #{subjectId} " +
-            "AND question_type = #{questionType} AND review_status = 1 " +
-            "ORDER BY RAND() LIMIT #{count}")
-    List<Question> selectRandomQuestions(@Param("subjectId") Long subjectId,
-                                       @Param("questionType") String questionType,
-                                       @Param("count") Integer count);
+    /**
+     * 流式读取科目下已审核通过题目的组卷字段
+     */
+    @Select("SELECT id, question_type, difficulty, score FROM exam_question " +
+            "WHERE subject_id = #{subjectId} AND review_status = 1 ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Question.class)
+    void streamReviewedBySubject(@Param("subjectId") Long subjectId, ResultHandler<Question> handler);
+    
+    /**
+     * 按ID查询题目的组卷字段
+     */
+    @Select("<script>" +
+            "SELECT id, subject_id, question_type, difficulty, score, review_status FROM exam_question WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Question> selectForBank(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 流式读取全部题目的检索字段
+     */
+    @Select("SELECT id, subject_id, question_type, content, options, analysis, difficulty, review_status " +
+            "FROM exam_question ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Question.class)
+    void streamForSearch(ResultHandler<Question> handler);
+    
+    /**
+     * 按ID查询题目的检索字段
+     */
+    @Select("<script>" +
+            "SELECT id, subject_id, question_type, content, options, analysis, difficulty, review_status " +
+            "FROM exam_question WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Question> selectForSearch(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 流式读取全部题目的查重字段
+     */
+    @Select("SELECT id, content, options FROM exam_question ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Question.class)
+    void streamForDedup(ResultHandler<Question> handler);
+    
+    /**
+     * 按ID查询题目的查重字段
+     */
+    @Select("<script>" +
+            "SELECT id, content, options FROM exam_question WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Question> selectForDedup(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 流式读取全部题目的分面字段
+     */
+    @Select("SELECT id, subject_id, question_type, difficulty, review_status FROM exam_question ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Question.class)
+    void streamForFacets(ResultHandler<Question> handler);
+    
+    /**
+     * 按ID查询题目的分面字段
+     */
+    @Select("<script>" +
+            "SELECT id, subject_id, question_type, difficulty, review_status FROM exam_question WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Question> selectForFacets(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 按 (科目, 题型, 难度, 审核状态) 分组计数，分面索引未就绪时使用
+     */
+    @Select("<script>" +
+            "SELECT subject_id, question_type, difficulty, review_status, COUNT(*) AS count FROM exam_question " +
+            "<where>" +
+            "<if test='subjectId != null'>AND subject_id = #{subjectId}</if>" +
+            "<if test='questionType != null'>AND question_type = #{questionType}</if>" +
+            "<if test='difficulty != null'>AND difficulty = #{difficulty}</if>" +
+            "<if test='reviewStatus != null'>AND review_status = #{reviewStatus}</if>" +
+            "</where>" +
+            "GROUP BY subject_id, question_type, difficulty, review_status" +
+            "</script>")
+    List<QuestionFacetCellVO> countFacetCells(@Param("subjectId") Long subjectId,
+                                              @Param("questionType") String questionType,
+                                              @Param("difficulty") Integer difficulty,
+                                              @Param("reviewStatus") Integer reviewStatus);
+    
+    /**
+     * 多行 INSERT 批量写入题目，回填自增ID
+     */
+    @Insert("<script>" +
+            "INSERT INTO exam_question (subject_id, question_type, content, options, answer, analysis, difficulty, " +
+            "score, creator_id, review_status) VALUES " +
+            "<foreach collection='questions' item='q' separator=','>" +
+            "(#{q.subjectId}, #{q.questionType}, #{q.content}, #{q.options}, #{q.answer}, #{q.analysis}, " +
+            "#{q.difficulty}, #{q.score}, #{q.creatorId}, #{q.reviewStatus})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int batchInsert(@Param("questions") List<Question> questions);
+    
+    /**
+     * 游标读取导出的题目，关联科目名和创建人姓名
+     */
+    @Select("<script>" +
+            "SELECT q.id, q.subject_id, s.name AS subject_name, q.question_type, q.content, q.options, q.answer, " +
+            "q.analysis, q.difficulty, q.score, q.review_status, u.real_name AS creator_name, q.create_time " +
+            "FROM exam_question q " +
+            "LEFT JOIN exam_subject s ON s.id = q.subject_id " +
+            "LEFT JOIN sys_user u ON u.id = q.creator_id " +
+            "<where>" +
+            "<if test='subjectId != null'>AND q.subject_id = #{subjectId}</if>" +
+            "<if test='questionType != null'>AND q.question_type = #{questionType}</if>" +
+            "<if test='difficulty != null'>AND q.difficulty = #{difficulty}</if>" +
+            "<if test='reviewStatus != null'>AND q.review_status = #{reviewStatus}</if>" +
+            "</where>" +
+            "ORDER BY q.id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<QuestionExportVO> cursorForExport(@Param("subjectId") Long subjectId,
+                                             @Param("questionType") String questionType,
+                                             @Param("difficulty") Integer difficulty,
+                                             @Param("reviewStatus") Integer reviewStatus);
+    
+    /**
+     * 题库的最新更新时间，标准答案缓存据此发现其他实例修改的题目
+     */
+    @Select("SELECT MAX(update_time) FROM exam_question")
+    LocalDateTime selectLatestUpdateTime();
+    
+    /**
+     * 指定时间及之后修改过的题目ID
+     */
+    @Select("SELECT id FROM exam_question WHERE update_time >= #{since}")
+    List<Long> selectIdsUpdatedSince(@Param("since") LocalDateTime since);
 } 
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.zw.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zw.entity.RegradeJob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+@Mapper
+public interface RegradeJobMapper extends BaseMapper<RegradeJob> {
+    
+    @Select("SELECT * FROM exam_regrade_job WHERE status IN ('PENDING', 'RUNNING') ORDER BY id")
+    List<RegradeJob> selectUnfinished();
+    
+    /**
+     * 认领任务：未被认领、已由本实例认领或原实例心跳过期时成功，返回0表示由其他实例执行
+     */
+    @Update("UPDATE exam_regrade_job SET status = 'RUNNING', owner = #{owner}, heartbeat_time = NOW() " +
+            "WHERE id = #{id} AND status IN ('PENDING', 'RUNNING') AND (owner IS NULL OR owner = #{owner} " +
+            "OR heartbeat_time IS NULL OR heartbeat_time < NOW() - INTERVAL #{leaseSeconds} SECOND)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+    
+    @Update("UPDATE exam_regrade_job SET heartbeat_time = NOW() WHERE id = #{id} AND owner = #{owner}")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner);
+    
+    /**
+     * 停机时释放本实例认领的未完成任务，其他实例无需等待心跳过期
+     */
+    @Update("UPDATE exam_regrade_job SET owner = NULL WHERE owner = #{owner} AND status IN ('PENDING', 'RUNNING')")
+    int release(@Param("owner") String owner);
+} 
\ No newline at end of file
@@ -3,7 +3,16 @@ package com.zw.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zw.entity.Subject;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
 public interface SubjectMapper extends BaseMapper<Subject> {
+    
+    /**
+     * 查询所有科目的层级关系
+     */
+    @Select("SELECT id, parent_id FROM exam_subject")
+    List<Subject> selectHierarchy();
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.zw.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.zw.entity.WrongBook;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -16,4 +17,20 @@ public interface WrongBookMapper extends BaseMapper<WrongBook> {
     
     @Select("SELECT * FROM exam_wrong_book WHERE user_id = #{userId} AND question_id = #{questionId}")
     WrongBook selectByUserIdAndQuestionId(@Param("userId") Long userId, @Param("questionId") Long questionId);
+    
+    /**
+     * 关联题目表按科目（含下级科目）和题干关键字分页查询错题，按最后错误时间倒序
+     */
+    @Select("<script>" +
+            "SELECT w.* FROM exam_wrong_book w JOIN exam_question q ON q.id = w.question_id " +
+            "WHERE w.user_id = #{userId}" +
+            "<if test='subjectIds != null and subjectIds.size() > 0'>" +
+            " AND q.subject_id IN " +
+            "<foreach collection='subjectIds' item='subjectId' open='(' separator=',' close=')'>#{subjectId}</foreach>" +
+            "</if>" +
+            "<if test='keyword != null'> AND q.content LIKE CONCAT('%', #{keyword}, '%')</if>" +
+            " ORDER BY w.last_wrong_time DESC, w.id DESC" +
+            "</script>")
+    IPage<WrongBook> selectPageByQuestion(IPage<WrongBook> page, @Param("userId") Long userId,
+                                          @Param("subjectIds") List<Long> subjectIds, @Param("keyword") String keyword);
 } 
\ No newline at end of file
@@ -1,7 +1,15 @@
 package com.zw.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.zw.common.CursorPage;
 import com.zw.entity.ExamRecord;
+import com.zw.entity.ItemAnalysis;
+import com.zw.vo.ExamPaperVO;
+import com.zw.vo.GradingResultVO;
+import com.zw.vo.LeaderboardEntryVO;
+import com.zw.vo.RankVO;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -19,6 +27,28 @@ public interface ExamRecordService extends BaseService<ExamRecord> {
      */
     ExamRecord submitExam(Long recordId, String answerSnapshot);
     
+    /**
+     * 按题保存答题草稿，答案为null表示清除该题；仅考生本人在考试进行中可保存
+     *
+     * @return 草稿中已作答题目数
+     */
+    int saveDraft(Long recordId, Long userId, Map<String, JsonNode> answers);
+    
+    /**
+     * 获取答题草稿；仅考生本人在考试进行中可获取
+     */
+    JsonNode getDraft(Long recordId, Long userId);
+    
+    /**
+     * 获取考试试卷，题目和选项按考生乱序，不含答案；仅考生本人在考试进行中可获取
+     */
+    ExamPaperVO getExamPaper(Long recordId, Long userId);
+    
+    /**
+     * 查询评分结果（系统评分异步完成）
+     */
+    GradingResultVO getGradingResult(Long recordId);
+    
     /**
      * 超时自动提交
      */
@@ -42,20 +72,51 @@ public interface ExamRecordService extends BaseService<ExamRecord> {
     /**
      * 分页查询考试记录
      */
-    IPage<ExamRecord> getRecordPage(Long userId, Long paperId, String status, Integer pageNum, Integer pageSize);
+    IPage<ExamRecord> getRecordPage(Long userId, Long paperId, String status, Integer pageNum, Integer pageSize,
+                                    Boolean searchCount);
+    
+    /**
+     * 游标分页查询考试记录（按创建时间倒序，深分页耗时恒定）
+     */
+    CursorPage<ExamRecord> getRecordCursor(Long userId, Long paperId, String status, String cursor, Integer size);
+    
+    /**
+     * 按查询条件流式导出考试记录到Excel
+     */
+    void exportRecords(HttpServletResponse response, Long userId, Long paperId, String status);
     
     /**
      * 获取考试结果统计
      */
     Map<String, Object> getExamStatistics(Long paperId);
     
+    /**
+     * 获取试题分析结果，尚未分析时立即分析
+     */
+    List<ItemAnalysis> getItemAnalysis(Long paperId);
+    
+    /**
+     * 重新分析试卷所有试题
+     */
+    List<ItemAnalysis> analyzeItems(Long paperId);
+    
+    /**
+     * 试卷排行榜前N名
+     */
+    List<LeaderboardEntryVO> getLeaderboard(Long paperId, Integer top);
+    
+    /**
+     * 学生在试卷中的名次，未评分时返回null
+     */
+    RankVO getUserRank(Long paperId, Long userId);
+    
     /**
      * 判断用户是否已参加考试
      */
     boolean hasUserTakenExam(Long userId, Long paperId);
     
     /**
-     * 计算自动评分
+     * 计算自动评分，shuffled 为考试记录是否乱序出卷，userId 用于还原考生乱序后的选项
      */
-    BigDecimal calculateAutoScore(Long paperId, String answerSnapshot);
+    BigDecimal calculateAutoScore(Long paperId, Long userId, boolean shuffled, String answerSnapshot);
 } 
\ No newline at end of file
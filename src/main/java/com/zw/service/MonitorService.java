@@ -1,11 +1,13 @@
 package com.zw.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.zw.common.CursorPage;
 import com.zw.dto.LogQueryDTO;
 import com.zw.entity.AccessLog;
 import com.zw.entity.OperationLog;
 import com.zw.vo.AccessStatsVO;
 import com.zw.vo.SystemHealthVO;
+import jakarta.servlet.http.HttpServletResponse;
 
 public interface MonitorService {
     /**
@@ -18,6 +20,16 @@ public interface MonitorService {
      */
     IPage<AccessLog> getAccessLogs(LogQueryDTO queryDTO);
     
+    /**
+     * 游标分页查询访问日志（按访问时间倒序，深分页耗时恒定）
+     */
+    CursorPage<AccessLog> getAccessLogCursor(LogQueryDTO queryDTO);
+    
+    /**
+     * 按查询条件流式导出访问日志到Excel
+     */
+    void exportAccessLogs(HttpServletResponse response, LogQueryDTO queryDTO);
+    
     /**
      * 获取访问统计信息
      */
@@ -1,7 +1,9 @@
 package com.zw.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.zw.dto.PaperBlueprintDTO;
 import com.zw.entity.Paper;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.List;
 
@@ -10,7 +12,8 @@ public interface PaperService extends BaseService<Paper> {
     /**
      * 分页查询试卷列表
      */
-    IPage<Paper> getPaperPage(Long subjectId, String title, Integer status, Integer pageNum, Integer pageSize);
+    IPage<Paper> getPaperPage(Long subjectId, String title, Integer status, Integer pageNum, Integer pageSize,
+                             Boolean searchCount);
     
     /**
      * 获取试卷详情
@@ -42,6 +45,11 @@ public interface PaperService extends BaseService<Paper> {
      */
     void deletePaper(Long id);
     
+    /**
+     * 按蓝图自动组卷，生成的试卷保存为草稿
+     */
+    List<Paper> generatePapers(PaperBlueprintDTO blueprint, Long creatorId);
+    
     /**
      * 获取用户可参加的考试列表
      */
@@ -51,4 +59,9 @@ public interface PaperService extends BaseService<Paper> {
      * 获取用户已参加的考试列表
      */
     List<Paper> getUserExams(Long userId);
+    
+    /**
+     * 导出线下考试 Word 试卷（ZIP），指定考生时每人一套并与其在线乱序一致（有不存在的考生时拒绝），否则按套数生成
+     */
+    void exportPaperDocx(HttpServletResponse response, Long paperId, List<Long> userIds, Integer variants);
 } 
\ No newline at end of file
@@ -1,7 +1,14 @@
 package com.zw.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.zw.common.CursorPage;
 import com.zw.entity.Question;
+import com.zw.entity.QuestionImportJob;
+import com.zw.entity.RegradeJob;
+import com.zw.vo.DuplicateClusterVO;
+import com.zw.vo.QuestionFacetVO;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -11,7 +18,19 @@ public interface QuestionService extends BaseService<Question> {
      * 分页查询题目列表
      */
     IPage<Question> getQuestionPage(Long subjectId, String questionType, String content, 
-                                  Integer difficulty, Integer reviewStatus, Integer pageNum, Integer pageSize);
+                                  Integer difficulty, Integer reviewStatus, Integer pageNum, Integer pageSize,
+                                  Boolean searchCount);
+    
+    /**
+     * 游标分页查询题目列表（按创建时间倒序，深分页耗时恒定）
+     */
+    CursorPage<Question> getQuestionCursor(Long subjectId, String questionType, String content,
+                                           Integer difficulty, Integer reviewStatus, String cursor, Integer size);
+    
+    /**
+     * 题库分面统计：满足筛选条件的题目按科目、题型、难度、审核状态及其组合计数
+     */
+    QuestionFacetVO getQuestionFacets(Long subjectId, String questionType, Integer difficulty, Integer reviewStatus);
     
     /**
      * 获取题目详情
@@ -19,7 +38,7 @@ public interface QuestionService extends BaseService<Question> {
     Question getQuestionDetail(Long id);
     
     /**
-     * 创建题目
+     * 创建题目，题库中疑似重复的题目ID写入 similarQuestionIds
      */
     void createQuestion(Question question);
     
@@ -44,7 +63,42 @@ public interface QuestionService extends BaseService<Question> {
     long getQuestionCountBySubject(Long subjectId);
     
     /**
-     * 随机获取指定数量的题目
+     * 随机获取指定数量的题目，传入种子时结果可重现
+     */
+    List<Question> getRandomQuestions(Long subjectId, String questionType, Integer count, Long seed);
+    
+    /**
+     * 按题目当前答案重新评分所有引用该题的已交答卷，没有试卷引用时返回null
+     */
+    RegradeJob regrade(Long questionId);
+    
+    /**
+     * 查询重新评分任务进度
+     */
+    RegradeJob getRegradeJob(Long jobId);    
+    /**
+     * 提交题库重复题聚类任务
+     */
+    DuplicateClusterVO clusterDuplicates();
+    
+    /**
+     * 查询最近一次重复题聚类结果，从未执行时返回null
+     */
+    DuplicateClusterVO getDuplicateClusters(Integer limit);
+    
+    /**
+     * 上传 Excel 并创建后台导入任务，subjectId 为行内未填科目时使用的默认科目
+     */
+    QuestionImportJob importQuestions(MultipartFile file, Long subjectId, Long creatorId);
+    
+    /**
+     * 查询导入任务进度和错误明细
+     */
+    QuestionImportJob getImportJob(Long jobId);
+    
+    /**
+     * 按查询条件流式导出题目到Excel，导出的文件可直接用于批量导入
      */
-    List<Question> getRandomQuestions(Long subjectId, String questionType, Integer count);
+    void exportQuestions(HttpServletResponse response, Long subjectId, String questionType, Integer difficulty,
+                         Integer reviewStatus);
 } 
\ No newline at end of file
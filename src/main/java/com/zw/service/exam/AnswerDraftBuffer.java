@@ -0,0 +1,320 @@
+package com.zw.service.exam;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.zw.entity.ExamRecord;
+import com.zw.exception.ApiException;
+import com.zw.mapper.ExamRecordMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 答题草稿写缓冲
+ * <p>
+ * 学生按题保存的草稿先合并进内存，按考试记录ID分段加锁；后台定时把有变更的草稿
+ * 合并成一条批量 UPDATE 写入 answer_snapshot，同一记录两次刷盘之间的多次保存只写一次。
+ * 内存中没有的记录首次保存时先读取已刷盘的快照再合并，应用重启后从上次刷盘的状态继续。
+ * 定时刷盘和超时交卷前的立即刷盘都在 writeLock 内完成"取快照 + 写库"，同一记录较旧的快照不会在较新的之后写入。
+ */
+@Slf4j
+@Component
+public class AnswerDraftBuffer {
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${exam.draft.flush-interval-ms:3000}")
+    private long flushIntervalMs;
+
+    @Value("${exam.draft.batch-size:500}")
+    private int batchSize;
+
+    @Value("${exam.draft.idle-evict-ms:600000}")
+    private long idleEvictMs;
+
+    @Value("${exam.draft.max-answers:500}")
+    private int maxAnswers;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * 串行化两条刷盘路径：定时刷盘按批持有，立即刷盘整体持有
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "answer-draft-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flushAll();
+    }
+
+    /**
+     * 保存草稿，按题合并，答案为null表示清除该题
+     *
+     * @return 合并后的草稿题目数
+     */
+    public int save(Long recordId, Map<String, JsonNode> answers) {
+        Stripe stripe = stripeOf(recordId);
+        Draft draft;
+        synchronized (stripe) {
+            draft = stripe.drafts.get(recordId);
+        }
+        if (draft == null) {
+            // 在锁外读取已刷盘的快照，不阻塞同一分段的其他记录
+            Draft loaded = load(recordId);
+            synchronized (stripe) {
+                Draft existing = stripe.drafts.putIfAbsent(recordId, loaded);
+                draft = existing != null ? existing : loaded;
+            }
+        }
+        synchronized (stripe) {
+            int added = 0;
+            for (Map.Entry<String, JsonNode> entry : answers.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isNull() && !draft.answers.has(entry.getKey())) {
+                    added++;
+                }
+            }
+            if (draft.answers.size() + added > maxAnswers) {
+                throw new ApiException(400, "草稿题目数超过上限");
+            }
+            for (Map.Entry<String, JsonNode> entry : answers.entrySet()) {
+                JsonNode value = entry.getValue();
+                if (value == null || value.isNull()) {
+                    draft.answers.remove(entry.getKey());
+                } else {
+                    draft.answers.set(entry.getKey(), value);
+                }
+            }
+            draft.dirty = true;
+            draft.lastAccess = System.currentTimeMillis();
+            return draft.answers.size();
+        }
+    }
+
+    /**
+     * 获取当前草稿（含未刷盘的修改），内存中没有时读取已保存的快照
+     */
+    public String snapshot(Long recordId) {
+        Stripe stripe = stripeOf(recordId);
+        synchronized (stripe) {
+            Draft draft = stripe.drafts.get(recordId);
+            if (draft != null) {
+                draft.lastAccess = System.currentTimeMillis();
+                return draft.answers.toString();
+            }
+        }
+        ExamRecord record = examRecordMapper.selectById(recordId);
+        return record != null ? record.getAnswerSnapshot() : null;
+    }
+
+    /**
+     * 移除草稿并返回未刷盘的内容，没有未刷盘修改时返回null（交卷时调用）
+     */
+    public String discard(Long recordId) {
+        Stripe stripe = stripeOf(recordId);
+        synchronized (stripe) {
+            Draft draft = stripe.drafts.remove(recordId);
+            return draft != null && draft.dirty ? draft.answers.toString() : null;
+        }
+    }
+
+    /**
+     * 立即刷盘指定记录的草稿并移出内存（超时交卷前调用），写库失败时放回草稿并抛出异常，由调用方重试
+     */
+    public void flush(Collection<Long> recordIds) {
+        writeLock.lock();
+        try {
+            List<ExamRecord> pending = new ArrayList<>();
+            for (Long recordId : recordIds) {
+                String snapshot = discard(recordId);
+                if (snapshot != null) {
+                    pending.add(toRecord(recordId, snapshot));
+                }
+            }
+            List<ExamRecord> failed = write(pending);
+            if (!failed.isEmpty()) {
+                restore(failed);
+                throw new IllegalStateException("答题草稿刷盘失败, 记录数=" + failed.size());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushAll() {
+        long evictBefore = System.currentTimeMillis() - idleEvictMs;
+        int next = 0;
+        while (next < STRIPES) {
+            // 每批取快照和写库在同一次加锁内完成，批与批之间让出锁给超时交卷
+            writeLock.lock();
+            try {
+                List<ExamRecord> pending = new ArrayList<>();
+                while (next < STRIPES && pending.size() < batchSize) {
+                    collect(stripes[next++], evictBefore, pending);
+                }
+                requeue(write(pending));
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 取出分段中有变更的草稿快照，清除长时间未访问的草稿
+     */
+    private void collect(Stripe stripe, long evictBefore, List<ExamRecord> pending) {
+        synchronized (stripe) {
+            Iterator<Map.Entry<Long, Draft>> iterator = stripe.drafts.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Draft> entry = iterator.next();
+                Draft draft = entry.getValue();
+                if (draft.dirty) {
+                    pending.add(toRecord(entry.getKey(), draft.answers.toString()));
+                    draft.dirty = false;
+                } else if (draft.lastAccess < evictBefore) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 分批写库，返回写入失败的记录
+     */
+    private List<ExamRecord> write(List<ExamRecord> pending) {
+        List<ExamRecord> failed = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<ExamRecord> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            try {
+                examRecordMapper.batchUpdateDraft(batch);
+            } catch (Exception e) {
+                log.error("答题草稿刷盘失败, 记录数={}", batch.size(), e);
+                failed.addAll(batch);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 刷盘失败时恢复脏标记，下一轮重试
+     */
+    private void requeue(List<ExamRecord> batch) {
+        for (ExamRecord record : batch) {
+            Stripe stripe = stripeOf(record.getId());
+            synchronized (stripe) {
+                Draft draft = stripe.drafts.get(record.getId());
+                if (draft != null) {
+                    draft.dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 立即刷盘失败时把已移出的草稿放回内存，期间重新加载的更新草稿优先
+     */
+    private void restore(List<ExamRecord> batch) {
+        for (ExamRecord record : batch) {
+            Draft draft;
+            try {
+                draft = new Draft((ObjectNode) objectMapper.readTree(record.getAnswerSnapshot()));
+            } catch (JsonProcessingException e) {
+                continue;
+            }
+            draft.dirty = true;
+            Stripe stripe = stripeOf(record.getId());
+            synchronized (stripe) {
+                stripe.drafts.putIfAbsent(record.getId(), draft);
+            }
+        }
+    }
+
+    private Draft load(Long recordId) {
+        ExamRecord record = examRecordMapper.selectById(recordId);
+        if (record == null) {
+            throw new ApiException(404, "考试记录不存在");
+        }
+        if (!"PROGRESS".equals(record.getStatus())) {
+            throw new ApiException(400, "该考试已结束，不能保存草稿");
+        }
+        Draft draft = new Draft(objectMapper.createObjectNode());
+        if (StringUtils.hasText(record.getAnswerSnapshot())) {
+            try {
+                JsonNode saved = objectMapper.readTree(record.getAnswerSnapshot());
+                if (saved instanceof ObjectNode savedAnswers) {
+                    draft.answers.setAll(savedAnswers);
+                }
+            } catch (JsonProcessingException e) {
+                log.warn("已保存的答题快照解析失败, recordId={}: {}", recordId, e.getMessage());
+            }
+        }
+        return draft;
+    }
+
+    private static ExamRecord toRecord(Long recordId, String snapshot) {
+        ExamRecord record = new ExamRecord();
+        record.setId(recordId);
+        record.setAnswerSnapshot(snapshot);
+        return record;
+    }
+
+    private Stripe stripeOf(Long recordId) {
+        return stripes[(int) (recordId ^ (recordId >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+
+        private final Map<Long, Draft> drafts = new HashMap<>();
+    }
+
+    private static final class Draft {
+
+        private final ObjectNode answers;
+
+        private boolean dirty;
+
+        private long lastAccess = System.currentTimeMillis();
+
+        private Draft(ObjectNode answers) {
+            this.answers = answers;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.zw.service.exam;
+
+import com.zw.entity.AnswerSnapshotCodec;
+import com.zw.entity.ExamRecord;
+import com.zw.mapper.ExamRecordMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 答题快照压缩迁移
+ * <p>
+ * 后台按ID顺序分批扫描已评分且仍以JSON存储快照的考试记录，编码为 {@link AnswerSnapshotCodec}
+ * 格式写入 answer_snapshot_bin 并清空 answer_snapshot。进行中和待评分的记录仍用JSON，
+ * 评分完成后由下一轮扫描转换。无法编码或解码后与原快照不一致的快照保持原样。
+ */
+@Slf4j
+@Component
+public class AnswerSnapshotMigrator {
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Value("${exam.snapshot.compact-enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.snapshot.batch-size:500}")
+    private int batchSize;
+
+    @Value("${exam.snapshot.interval-ms:3600000}")
+    private long intervalMs;
+
+    @Value("${exam.snapshot.batch-pause-ms:20}")
+    private long batchPauseMs;
+
+    private ScheduledExecutorService executor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "answer-snapshot-migrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::migrateAll, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 扫描一轮，返回转换的记录数
+     */
+    public int migrateAll() {
+        int migrated = 0;
+        long jsonBytes = 0;
+        long binaryBytes = 0;
+        long lastId = 0L;
+        try {
+            List<ExamRecord> batch;
+            while (!(batch = examRecordMapper.selectJsonSnapshots(lastId, batchSize)).isEmpty()) {
+                List<ExamRecord> encoded = new ArrayList<>(batch.size());
+                for (ExamRecord record : batch) {
+                    byte[] binary = AnswerSnapshotCodec.encode(record.getAnswerSnapshot());
+                    if (binary == null) {
+                        continue;
+                    }
+                    // 清空JSON前确认能原样还原，否则保留JSON
+                    if (!AnswerSnapshotCodec.verify(record.getAnswerSnapshot(), binary)) {
+                        log.warn("答题快照编码校验失败, 保留JSON存储, 记录ID={}", record.getId());
+                        continue;
+                    }
+                    ExamRecord update = new ExamRecord();
+                    update.setId(record.getId());
+                    update.setAnswerSnapshotBin(binary);
+                    encoded.add(update);
+                    jsonBytes += record.getAnswerSnapshot().getBytes(StandardCharsets.UTF_8).length;
+                    binaryBytes += binary.length;
+                }
+                if (!encoded.isEmpty()) {
+                    migrated += examRecordMapper.batchUpdateSnapshotBin(encoded);
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+                if (batchPauseMs > 0) {
+                    Thread.sleep(batchPauseMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 下一轮从头继续，已转换的记录不会再被扫描到
+            log.error("答题快照压缩失败, 断点记录ID={}", lastId, e);
+        }
+        if (migrated > 0) {
+            log.info("答题快照压缩完成, 记录数={}, JSON {}字节 -> {}字节", migrated, jsonBytes, binaryBytes);
+        }
+        return migrated;
+    }
+}
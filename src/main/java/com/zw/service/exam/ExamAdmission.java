@@ -0,0 +1,241 @@
+package com.zw.service.exam;
+
+import com.zw.entity.ExamRecord;
+import com.zw.entity.Paper;
+import com.zw.exception.ApiException;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.mapper.PaperMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 开始考试准入控制
+ * <p>
+ * 考试开放瞬间大量学生同时开始考试，准入层在内存中完成重复参考判断和考试时间校验：
+ * 每张试卷的参考名单（用户ID到考试记录ID）首次访问时从 exam_record 加载，试卷信息短时缓存。
+ * 新的考试记录进入有界队列，由单线程合并为多行 INSERT IGNORE 写入，
+ * (user_id, paper_id) 唯一索引保证同一学生重复点击或多实例并发时只生成一条记录。
+ */
+@Slf4j
+@Component
+public class ExamAdmission {
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private PaperMapper paperMapper;
+
+    @Value("${exam.admission.queue-capacity:5000}")
+    private int queueCapacity;
+
+    @Value("${exam.admission.batch-size:200}")
+    private int batchSize;
+
+    @Value("${exam.admission.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    @Value("${exam.admission.paper-ttl-ms:30000}")
+    private long paperTtlMs;
+
+    @Value("${exam.admission.roster-idle-ms:1800000}")
+    private long rosterIdleMs;
+
+    @Value("${exam.shuffle.enabled:false}")
+    private boolean shuffleEnabled;
+
+    private final Map<Long, Roster> rosters = new ConcurrentHashMap<>();
+
+    private final Map<Long, CachedPaper> papers = new ConcurrentHashMap<>();
+
+    private BlockingQueue<Admission> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::writeLoop, "exam-admission-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(waitTimeoutMs);
+    }
+
+    /**
+     * 获取试卷（短时缓存），不存在时返回null
+     */
+    public Paper getPaper(Long paperId) {
+        long now = System.currentTimeMillis();
+        CachedPaper cached = papers.get(paperId);
+        if (cached != null && now - cached.loadTime() < paperTtlMs) {
+            return cached.paper();
+        }
+        Paper paper = paperMapper.selectById(paperId);
+        if (paper == null) {
+            papers.remove(paperId);
+            return null;
+        }
+        papers.put(paperId, new CachedPaper(paper, now));
+        return paper;
+    }
+
+    /**
+     * 试卷修改后清除缓存
+     */
+    public void evictPaper(Long paperId) {
+        papers.remove(paperId);
+    }
+
+    /**
+     * 查询学生在该试卷下的考试记录ID，未参加时返回null
+     */
+    public Long findRecordId(Long userId, Long paperId) {
+        return roster(paperId).records.get(userId);
+    }
+
+    /**
+     * 试卷参考人数
+     */
+    public int participantCount(Long paperId) {
+        return roster(paperId).records.size();
+    }
+
+    /**
+     * 创建考试记录，已存在时返回已有记录
+     */
+    public ExamRecord admit(Long userId, Long paperId, LocalDateTime startTime) {
+        Admission admission = new Admission(userId, paperId, startTime, new CompletableFuture<>());
+        try {
+            if (!queue.offer(admission, waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ApiException(503, "当前开始考试人数过多，请稍后重试");
+            }
+            return admission.result().get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(503, "开始考试被中断，请重试");
+        } catch (TimeoutException e) {
+            throw new ApiException(503, "当前开始考试人数过多，请稍后重试");
+        } catch (ExecutionException e) {
+            throw new ApiException("开始考试失败", e.getCause());
+        }
+    }
+
+    private Roster roster(Long paperId) {
+        Roster roster = rosters.computeIfAbsent(paperId, id -> {
+            Roster loaded = new Roster();
+            for (ExamRecord record : examRecordMapper.selectParticipants(id)) {
+                loaded.records.put(record.getUserId(), record.getId());
+            }
+            return loaded;
+        });
+        roster.lastAccess = System.currentTimeMillis();
+        return roster;
+    }
+
+    private void writeLoop() {
+        List<Admission> batch = new ArrayList<>(batchSize);
+        long lastSweep = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            try {
+                Admission first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("批量创建考试记录失败, 本批请求数={}", batch.size(), e);
+                for (Admission admission : batch) {
+                    admission.result().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+            if (System.currentTimeMillis() - lastSweep > 60_000L) {
+                sweepIdleRosters();
+                lastSweep = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void writeBatch(List<Admission> batch) {
+        List<ExamRecord> records = new ArrayList<>(batch.size());
+        for (Admission admission : batch) {
+            ExamRecord record = new ExamRecord();
+            record.setUserId(admission.userId());
+            record.setPaperId(admission.paperId());
+            record.setStartTime(admission.startTime());
+            // 是否乱序随记录保存，考试期间切换开关不影响已开始的考试
+            record.setShuffled(shuffleEnabled);
+            records.add(record);
+        }
+        examRecordMapper.batchInsertIgnore(records);
+
+        // 按 (user_id, paper_id) 取回记录，包括本批插入的和此前已存在的
+        Map<String, ExamRecord> saved = new HashMap<>();
+        for (ExamRecord record : examRecordMapper.selectByUserAndPaper(records)) {
+            saved.put(record.getUserId() + ":" + record.getPaperId(), record);
+        }
+        for (Admission admission : batch) {
+            ExamRecord record = saved.get(admission.userId() + ":" + admission.paperId());
+            if (record == null) {
+                admission.result().completeExceptionally(new IllegalStateException("考试记录写入后未找到"));
+                continue;
+            }
+            Roster roster = rosters.get(record.getPaperId());
+            if (roster != null) {
+                roster.records.put(record.getUserId(), record.getId());
+            }
+            admission.result().complete(record);
+        }
+    }
+
+    private void sweepIdleRosters() {
+        long idleBefore = System.currentTimeMillis() - rosterIdleMs;
+        rosters.values().removeIf(roster -> roster.lastAccess < idleBefore);
+        long expiredBefore = System.currentTimeMillis() - paperTtlMs;
+        papers.values().removeIf(cached -> cached.loadTime() < expiredBefore);
+    }
+
+    private static final class Roster {
+
+        private final Map<Long, Long> records = new ConcurrentHashMap<>();
+
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    private record CachedPaper(Paper paper, long loadTime) {
+    }
+
+    private record Admission(Long userId, Long paperId, LocalDateTime startTime,
+                             CompletableFuture<ExamRecord> result) {
+    }
+}
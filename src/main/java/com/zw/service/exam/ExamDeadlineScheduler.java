@@ -0,0 +1,218 @@
+package com.zw.service.exam;
+
+import com.zw.entity.ExamRecord;
+import com.zw.entity.Paper;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.mapper.PaperMapper;
+import com.zw.service.grading.GradingPipeline;
+import com.zw.service.grading.GradingTask;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 考试截止时间调度
+ * <p>
+ * 开始考试时按 min(开始时间 + 考试时长, 考试结束时间) 登记截止时间，交卷时取消。
+ * 到期的记录按批超时交卷并进入评分队列，失败的批次按指数退避重新登记到时间轮。启动时从进行中的考试记录重建。
+ * 多实例部署时每个实例都会调度，超时交卷为条件更新，重复触发无副作用。
+ */
+@Slf4j
+@Component
+public class ExamDeadlineScheduler {
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private PaperMapper paperMapper;
+
+    @Autowired
+    private GradingPipeline gradingPipeline;
+
+    @Autowired
+    private AnswerDraftBuffer answerDraftBuffer;
+
+    @Value("${exam.auto-submit.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${exam.auto-submit.grace-seconds:30}")
+    private long graceSeconds;
+
+    @Value("${exam.auto-submit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${exam.auto-submit.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    @Value("${exam.auto-submit.max-retry-delay-ms:300000}")
+    private long maxRetryDelayMs;
+
+    private final Object lock = new Object();
+
+    /**
+     * 超时交卷失败的记录ID -> 已重试次数，由 lock 保护
+     */
+    private final Map<Long, Integer> retries = new HashMap<>();
+
+    private TimingWheel wheel;
+
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void start() {
+        wheel = new TimingWheel(tickMs, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "exam-deadline-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * 登记考试记录的截止时间，试卷未设置时长和结束时间时不登记
+     */
+    public void schedule(ExamRecord record, Paper paper) {
+        LocalDateTime deadline = deadlineOf(record.getStartTime(), paper);
+        if (deadline == null) {
+            return;
+        }
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (lock) {
+            wheel.schedule(record.getId(), deadlineMillis);
+        }
+    }
+
+    /**
+     * 取消截止时间（已交卷）
+     */
+    public void cancel(Long recordId) {
+        synchronized (lock) {
+            wheel.cancel(recordId);
+            retries.remove(recordId);
+        }
+    }
+
+    /**
+     * 等待截止的考试数
+     */
+    public int size() {
+        synchronized (lock) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * 启动后从进行中的考试记录重建截止时间
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, Paper> papers = new HashMap<>();
+        long lastId = 0L;
+        int scheduled = 0;
+        List<ExamRecord> records;
+        while (!(records = examRecordMapper.selectInProgress(lastId, batchSize)).isEmpty()) {
+            // 本批缺少的试卷一次查出
+            Set<Long> missing = new HashSet<>();
+            for (ExamRecord record : records) {
+                if (!papers.containsKey(record.getPaperId())) {
+                    missing.add(record.getPaperId());
+                }
+            }
+            if (!missing.isEmpty()) {
+                for (Paper paper : paperMapper.selectBatchIds(missing)) {
+                    papers.put(paper.getId(), paper);
+                }
+            }
+            for (ExamRecord record : records) {
+                Paper paper = papers.get(record.getPaperId());
+                if (paper != null) {
+                    schedule(record, paper);
+                    scheduled++;
+                }
+                lastId = record.getId();
+            }
+        }
+        log.info("考试截止时间已重建, 进行中考试数={}", scheduled);
+    }
+
+    private void tick() {
+        List<Long> expired;
+        synchronized (lock) {
+            expired = wheel.advance(System.currentTimeMillis());
+        }
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> ids = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                timeoutBatch(ids);
+                synchronized (lock) {
+                    ids.forEach(retries::remove);
+                }
+            } catch (Exception e) {
+                log.error("批量超时交卷失败, 记录数={}, 稍后重试", ids.size(), e);
+                reschedule(ids);
+            }
+        }
+    }
+
+    /**
+     * 失败的记录按指数退避重新登记，超时交卷为条件更新，期间学生已交卷时重试无副作用
+     */
+    private void reschedule(List<Long> ids) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (Long id : ids) {
+                int attempt = retries.merge(id, 1, Integer::sum);
+                long delay = retryDelayMs << Math.min(attempt - 1, 20);
+                wheel.schedule(id, now + Math.min(delay, maxRetryDelayMs));
+            }
+        }
+    }
+
+    private void timeoutBatch(List<Long> ids) {
+        // 先写入内存中的最新草稿，按最终答案评分
+        answerDraftBuffer.flush(ids);
+        if (examRecordMapper.batchTimeout(ids, LocalDateTime.now()) == 0) {
+            return;
+        }
+        List<ExamRecord> records = examRecordMapper.selectTimeoutUngraded(ids);
+        for (ExamRecord record : records) {
+            gradingPipeline.submit(GradingTask.of(record));
+        }
+        log.info("考试超时自动交卷 {} 条", records.size());
+    }
+
+    private LocalDateTime deadlineOf(LocalDateTime startTime, Paper paper) {
+        LocalDateTime deadline = paper.getExamEnd();
+        if (startTime != null && paper.getTimeLimit() != null && paper.getTimeLimit() > 0) {
+            LocalDateTime limit = startTime.plusMinutes(paper.getTimeLimit());
+            if (deadline == null || limit.isBefore(deadline)) {
+                deadline = limit;
+            }
+        }
+        // 留出网络延迟的宽限时间，避免与学生临近截止的交卷冲突
+        return deadline == null ? null : deadline.plusSeconds(graceSeconds);
+    }
+}
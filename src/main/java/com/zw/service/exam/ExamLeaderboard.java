@@ -0,0 +1,260 @@
+package com.zw.service.exam;
+
+import com.zw.entity.ExamRecord;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.service.grading.ExamGradedEvent;
+import com.zw.service.grading.ExamManualScoredEvent;
+import com.zw.vo.LeaderboardEntryVO;
+import com.zw.vo.RankVO;
+import com.zw.vo.ScoreWatermarkVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 试卷实时排行榜
+ * <p>
+ * 每张试卷维护按分数倒序的跳表（取前N名）和分数树状数组（按分数统计人数，查询名次和百分位），
+ * 均为O(log n)。首次访问时流式扫描该试卷已评分的考试记录重建，之后随评分事件增量更新。
+ * 事件只来自本实例，应用事件时按事件携带的 score_time 推进内存中的 (已评分数, 最近分数变化时间) 水位；
+ * 访问时每隔 reconcile-interval-ms 与数据库中该试卷的水位比对一次，不同（其他实例写入、直接改库等）才清空后重建。
+ * 同分同名次，名次 = 1 + 分数更高的人数。
+ */
+@Component
+public class ExamLeaderboard {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt((Entry entry) -> entry.score).reversed()
+            .thenComparingLong(entry -> entry.recordId);
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Value("${exam.leaderboard.idle-evict-ms:1800000}")
+    private long idleEvictMs;
+
+    @Value("${exam.leaderboard.reconcile-interval-ms:10000}")
+    private long reconcileIntervalMs;
+
+    private final Map<Long, Board> boards = new ConcurrentHashMap<>();
+
+    /**
+     * 前N名
+     */
+    public List<LeaderboardEntryVO> top(Long paperId, int limit) {
+        Board board = board(paperId);
+        List<LeaderboardEntryVO> result = new ArrayList<>(limit);
+        synchronized (board) {
+            int rank = 0;
+            int previousScore = Integer.MIN_VALUE;
+            int position = 0;
+            Iterator<Entry> iterator = board.ranking.iterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                Entry entry = iterator.next();
+                position++;
+                if (entry.score != previousScore) {
+                    rank = position;
+                    previousScore = entry.score;
+                }
+                LeaderboardEntryVO vo = new LeaderboardEntryVO();
+                vo.setRank(rank);
+                vo.setUserId(entry.userId);
+                vo.setRecordId(entry.recordId);
+                vo.setScore(BigDecimal.valueOf(entry.score, 1));
+                result.add(vo);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 学生名次，未评分时返回null
+     */
+    public RankVO rankOf(Long paperId, Long userId) {
+        Board board = board(paperId);
+        synchronized (board) {
+            Long recordId = board.recordsByUser.get(userId);
+            Entry entry = recordId != null ? board.entries.get(recordId) : null;
+            if (entry == null) {
+                return null;
+            }
+            long total = board.scores.total();
+            long below = board.scores.countAtMost(entry.score - 1);
+            RankVO vo = new RankVO();
+            vo.setUserId(userId);
+            vo.setRecordId(entry.recordId);
+            vo.setScore(BigDecimal.valueOf(entry.score, 1));
+            vo.setRank(board.scores.countAbove(entry.score) + 1);
+            vo.setTotal(total);
+            // 超过的考生比例
+            vo.setPercentile(BigDecimal.valueOf(below * 100).divide(BigDecimal.valueOf(total), 1,
+                    RoundingMode.HALF_UP));
+            return vo;
+        }
+    }
+
+    @EventListener
+    public void onGraded(ExamGradedEvent event) {
+        Board board = boards.get(event.getPaperId());
+        if (board != null) {
+            synchronized (board) {
+                Entry old = board.entries.get(event.getRecordId());
+                board.advance(old == null, event.getScoreTime());
+                board.update(event.getRecordId(), event.getUserId(), toTenths(event.getAutoScore()),
+                        old != null ? old.manual : 0);
+            }
+        }
+    }
+
+    @EventListener
+    public void onManualScored(ExamManualScoredEvent event) {
+        Board board = boards.get(event.getPaperId());
+        if (board != null) {
+            synchronized (board) {
+                Entry old = board.entries.get(event.getRecordId());
+                board.advance(old == null, event.getScoreTime());
+                if (old != null) {
+                    board.update(old.recordId, old.userId, old.auto, toTenths(event.getManualScore()));
+                } else {
+                    ExamRecord record = examRecordMapper.selectById(event.getRecordId());
+                    if (record != null) {
+                        board.update(record.getId(), record.getUserId(), toTenths(record.getAutoScore()),
+                                toTenths(event.getManualScore()));
+                    }
+                }
+            }
+        }
+    }
+
+    private Board board(Long paperId) {
+        long idleBefore = System.currentTimeMillis() - idleEvictMs;
+        boards.values().removeIf(board -> board.lastAccess < idleBefore);
+
+        Board board = boards.computeIfAbsent(paperId, id -> new Board());
+        board.lastAccess = System.currentTimeMillis();
+        synchronized (board) {
+            if (board.loaded && System.currentTimeMillis() - board.checkedAt >= reconcileIntervalMs) {
+                ScoreWatermarkVO watermark = examRecordMapper.selectScoreWatermark(paperId);
+                if (Objects.equals(watermark, board.watermark)) {
+                    board.checkedAt = System.currentTimeMillis();
+                } else {
+                    board.reset();
+                }
+            }
+            if (!board.loaded) {
+                // 先取水位再扫描，扫描期间的分数变化会在下次比对时发现
+                board.watermark = examRecordMapper.selectScoreWatermark(paperId);
+                board.checkedAt = System.currentTimeMillis();
+                // 流式扫描，不把整张试卷的记录一次读入内存；加载前已通过事件写入的记录以事件为准
+                examRecordMapper.streamScoredByPaperId(paperId, context -> {
+                    ExamRecord record = context.getResultObject();
+                    if (!board.entries.containsKey(record.getId())) {
+                        board.update(record.getId(), record.getUserId(), toTenths(record.getAutoScore()),
+                                toTenths(record.getManualScore()));
+                    }
+                });
+                board.loaded = true;
+            }
+        }
+        return board;
+    }
+
+    private static int toTenths(BigDecimal score) {
+        return score == null ? 0 : score.movePointRight(1).setScale(0, RoundingMode.HALF_UP).intValue();
+    }
+
+    private static final class Board {
+
+        private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+
+        private ScoreFenwickTree scores = new ScoreFenwickTree();
+
+        private final Map<Long, Entry> entries = new HashMap<>();
+
+        private final Map<Long, Long> recordsByUser = new HashMap<>();
+
+        private boolean loaded;
+
+        private ScoreWatermarkVO watermark;
+
+        private long checkedAt;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private void reset() {
+            ranking.clear();
+            scores = new ScoreFenwickTree();
+            entries.clear();
+            recordsByUser.clear();
+            loaded = false;
+        }
+
+        /**
+         * 按本实例写入的评分推进水位，newlyScored 为该记录此前未评分；重建前收到的事件不推进
+         */
+        private void advance(boolean newlyScored, LocalDateTime scoreTime) {
+            if (!loaded || watermark == null) {
+                return;
+            }
+            if (scoreTime == null) {
+                // 无法推进，下次比对时重建
+                watermark = null;
+                return;
+            }
+            if (newlyScored) {
+                watermark.setScoredCount((watermark.getScoredCount() != null ? watermark.getScoredCount() : 0L) + 1);
+            }
+            if (watermark.getLastScoreTime() == null || scoreTime.isAfter(watermark.getLastScoreTime())) {
+                watermark.setLastScoreTime(scoreTime);
+            }
+        }
+
+        private void update(Long recordId, Long userId, int auto, int manual) {
+            Entry old = entries.get(recordId);
+            if (old != null) {
+                ranking.remove(old);
+                scores.add(old.score, -1);
+            }
+            Entry entry = new Entry(recordId, userId, auto, manual);
+            entries.put(recordId, entry);
+            recordsByUser.put(userId, recordId);
+            ranking.add(entry);
+            scores.add(entry.score, 1);
+        }
+    }
+
+    private static final class Entry {
+
+        private final long recordId;
+
+        private final Long userId;
+
+        private final int auto;
+
+        private final int manual;
+
+        private final int score;
+
+        private Entry(long recordId, Long userId, int auto, int manual) {
+            this.recordId = recordId;
+            this.userId = userId;
+            this.auto = auto;
+            this.manual = manual;
+            this.score = auto + manual;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.zw.service.exam;
+
+import com.zw.entity.ExamRecord;
+import com.zw.entity.Paper;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.service.grading.ExamGradedEvent;
+import com.zw.service.grading.ExamManualScoredEvent;
+import com.zw.vo.ScoreWatermarkVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 考试成绩增量统计
+ * <p>
+ * 试卷统计首次查询时从 exam_record 加载已评分记录，之后随系统评分、人工评分事件增量更新，
+ * 查询直接读取内存中的汇总值。每条记录保存当前的系统分和人工分，分数变化时先减去旧分再加上新分。
+ * 事件只来自本实例，应用事件时按事件携带的 score_time 推进内存中的 (已评分数, 最近分数变化时间) 水位；
+ * 查询时每隔 reconcile-interval-ms 与数据库中该试卷的水位比对一次，不同（其他实例评分、直接改库等）才整体重新加载。
+ * 长时间未查询的试卷移出内存，再次查询时重新加载。
+ */
+@Component
+public class ExamStatisticsAggregator {
+
+    private static final int HISTOGRAM_BANDS = 10;
+
+    private static final double[] PERCENTILES = {25, 50, 75, 90};
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private ExamAdmission examAdmission;
+
+    @Value("${exam.statistics.idle-evict-ms:1800000}")
+    private long idleEvictMs;
+
+    @Value("${exam.statistics.reconcile-interval-ms:10000}")
+    private long reconcileIntervalMs;
+
+    private final Map<Long, PaperStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 获取试卷统计数据
+     */
+    public Map<String, Object> getStatistics(Long paperId) {
+        evictIdle();
+        PaperStats paperStats = stats.computeIfAbsent(paperId, id -> new PaperStats());
+        paperStats.lastAccess = System.currentTimeMillis();
+        synchronized (paperStats) {
+            if (!paperStats.loaded) {
+                load(paperId, paperStats);
+            } else if (System.currentTimeMillis() - paperStats.checkedAt >= reconcileIntervalMs) {
+                reconcile(paperId, paperStats);
+            }
+            return toStatistics(paperId, paperStats.distribution);
+        }
+    }
+
+    @EventListener
+    public void onGraded(ExamGradedEvent event) {
+        PaperStats paperStats = stats.get(event.getPaperId());
+        if (paperStats != null) {
+            synchronized (paperStats) {
+                Long old = paperStats.scores.get(event.getRecordId());
+                paperStats.advance(old == null, event.getScoreTime());
+                paperStats.update(event.getRecordId(), toTenths(event.getAutoScore()), old != null ? manualOf(old) : 0);
+            }
+        }
+    }
+
+    @EventListener
+    public void onManualScored(ExamManualScoredEvent event) {
+        PaperStats paperStats = stats.get(event.getPaperId());
+        if (paperStats != null) {
+            synchronized (paperStats) {
+                Long old = paperStats.scores.get(event.getRecordId());
+                paperStats.advance(old == null, event.getScoreTime());
+                int auto = old != null ? autoOf(old) : autoOfRecord(event.getRecordId());
+                paperStats.update(event.getRecordId(), auto, toTenths(event.getManualScore()));
+            }
+        }
+    }
+
+    /**
+     * 加载已评分记录，加载前已通过事件写入的记录以事件为准
+     */
+    private void load(Long paperId, PaperStats paperStats) {
+        // 先取水位再读记录，读取期间的分数变化会在下次比对时发现
+        paperStats.watermark = examRecordMapper.selectScoreWatermark(paperId);
+        paperStats.checkedAt = System.currentTimeMillis();
+        for (ExamRecord record : examRecordMapper.selectScoredByPaperId(paperId)) {
+            if (!paperStats.scores.containsKey(record.getId())) {
+                paperStats.update(record.getId(), toTenths(record.getAutoScore()), toTenths(record.getManualScore()));
+            }
+        }
+        paperStats.loaded = true;
+    }
+
+    /**
+     * 数据库水位与内存水位（加载时的水位加上之后本实例的评分）不同则清空后重新加载
+     */
+    private void reconcile(Long paperId, PaperStats paperStats) {
+        ScoreWatermarkVO watermark = examRecordMapper.selectScoreWatermark(paperId);
+        if (Objects.equals(watermark, paperStats.watermark)) {
+            paperStats.checkedAt = System.currentTimeMillis();
+            return;
+        }
+        paperStats.reset();
+        load(paperId, paperStats);
+    }
+
+    private int autoOfRecord(Long recordId) {
+        ExamRecord record = examRecordMapper.selectById(recordId);
+        return record != null ? toTenths(record.getAutoScore()) : 0;
+    }
+
+    private Map<String, Object> toStatistics(Long paperId, ScoreDistribution distribution) {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("totalCount", (long) examAdmission.participantCount(paperId));
+        statistics.put("scoredCount", distribution.count());
+        statistics.put("averageScore", distribution.count() == 0 ? new BigDecimal("0")
+                : BigDecimal.valueOf(distribution.sum()).divide(BigDecimal.valueOf(distribution.count() * 10), 2,
+                RoundingMode.HALF_UP));
+        statistics.put("highestScore", fromTenths(distribution.max()));
+        statistics.put("lowestScore", fromTenths(distribution.min()));
+        statistics.put("stdDev", BigDecimal.valueOf(distribution.stdDev() / 10).setScale(2, RoundingMode.HALF_UP));
+
+        Map<String, BigDecimal> percentiles = new LinkedHashMap<>();
+        for (double percent : PERCENTILES) {
+            percentiles.put("p" + (int) percent, fromTenths(distribution.percentile(percent)));
+        }
+        statistics.put("percentiles", percentiles);
+
+        // 按试卷总分等分为10段，最后一段包含满分
+        Paper paper = examAdmission.getPaper(paperId);
+        int fullScore = paper != null && paper.getTotalScore() != null
+                ? toTenths(paper.getTotalScore()) : distribution.max();
+        List<Map<String, Object>> histogram = new ArrayList<>(HISTOGRAM_BANDS);
+        for (int band = 0; band < HISTOGRAM_BANDS; band++) {
+            int from = (int) ((long) fullScore * band / HISTOGRAM_BANDS);
+            int to = band == HISTOGRAM_BANDS - 1 ? Integer.MAX_VALUE
+                    : (int) ((long) fullScore * (band + 1) / HISTOGRAM_BANDS);
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("from", fromTenths(from));
+            bucket.put("to", fromTenths(band == HISTOGRAM_BANDS - 1 ? fullScore : to));
+            bucket.put("count", distribution.countBetween(from, to));
+            histogram.add(bucket);
+        }
+        statistics.put("histogram", histogram);
+        return statistics;
+    }
+
+    private void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - idleEvictMs;
+        stats.values().removeIf(paperStats -> paperStats.lastAccess < idleBefore);
+    }
+
+    private static int toTenths(BigDecimal score) {
+        return score == null ? 0 : score.movePointRight(1).setScale(0, RoundingMode.HALF_UP).intValue();
+    }
+
+    private static BigDecimal fromTenths(int tenths) {
+        return BigDecimal.valueOf(tenths, 1);
+    }
+
+    private static int autoOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int manualOf(long packed) {
+        return (int) packed;
+    }
+
+    private static final class PaperStats {
+
+        /**
+         * 记录ID到分数，高32位为系统分，低32位为人工分（0.1分为单位）
+         */
+        private final Map<Long, Long> scores = new HashMap<>();
+
+        private ScoreDistribution distribution = new ScoreDistribution();
+
+        private boolean loaded;
+
+        private ScoreWatermarkVO watermark;
+
+        private long checkedAt;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private void update(Long recordId, int auto, int manual) {
+            Long old = scores.put(recordId, ((long) auto << 32) | (manual & 0xFFFFFFFFL));
+            if (old != null) {
+                distribution.remove(autoOf(old) + manualOf(old));
+            }
+            distribution.add(auto + manual);
+        }
+
+        private void reset() {
+            scores.clear();
+            distribution = new ScoreDistribution();
+        }
+
+        /**
+         * 按本实例写入的评分推进水位，newlyScored 为该记录此前未评分；加载前收到的事件不推进
+         */
+        private void advance(boolean newlyScored, LocalDateTime scoreTime) {
+            if (!loaded || watermark == null) {
+                return;
+            }
+            if (scoreTime == null) {
+                // 无法推进，下次比对时重新加载
+                watermark = null;
+                return;
+            }
+            if (newlyScored) {
+                watermark.setScoredCount((watermark.getScoredCount() != null ? watermark.getScoredCount() : 0L) + 1);
+            }
+            if (watermark.getLastScoreTime() == null || scoreTime.isAfter(watermark.getLastScoreTime())) {
+                watermark.setLastScoreTime(scoreTime);
+            }
+        }
+    }
+}
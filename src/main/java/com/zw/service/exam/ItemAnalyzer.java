@@ -0,0 +1,216 @@
+package com.zw.service.exam;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.entity.ExamRecord;
+import com.zw.entity.ItemAnalysis;
+import com.zw.entity.Paper;
+import com.zw.exception.ApiException;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.mapper.ItemAnalysisMapper;
+import com.zw.mapper.PaperMapper;
+import com.zw.service.grading.AnswerKey;
+import com.zw.service.grading.AnswerKeyCache;
+import com.zw.service.grading.GradingEngine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 试题分析
+ * <p>
+ * 用 MyBatis 游标流式读取试卷的答题快照，每 {@value #CHUNK_SIZE} 份交给 fork-join 线程池，
+ * 任务再对半拆分到 {@value #LEAF_SIZE} 份以内后用流式解析器统计，计数器逐级合并。
+ * 同时在途的批次数有上限，堆内只保留有限份快照。结果覆盖写入 exam_item_analysis。
+ */
+@Slf4j
+@Component
+public class ItemAnalyzer {
+
+    private static final int CHUNK_SIZE = 2048;
+
+    private static final int LEAF_SIZE = 128;
+
+    private static final String[] JUDGE_OPTIONS = {"正确", "错误"};
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private ItemAnalysisMapper itemAnalysisMapper;
+
+    @Autowired
+    private PaperMapper paperMapper;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private GradingEngine gradingEngine;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 分析试卷所有已交答卷并保存结果
+     */
+    public List<ItemAnalysis> analyze(Long paperId) {
+        Paper paper = paperMapper.selectById(paperId);
+        if (paper == null) {
+            throw new ApiException(404, "试卷不存在");
+        }
+        AnswerKey key = answerKeyCache.get(paper);
+        long start = System.currentTimeMillis();
+
+        // 游标需要在事务内保持连接
+        ItemCounters counters = transactionTemplate.execute(status -> count(paperId, key));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ItemAnalysis> items = new ArrayList<>(key.size());
+        for (int i = 0; i < key.size(); i++) {
+            items.add(toItem(paperId, key, counters, i, now));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            itemAnalysisMapper.deleteByPaperId(paperId);
+            if (!items.isEmpty()) {
+                itemAnalysisMapper.batchInsert(items);
+            }
+        });
+        log.info("试卷{}试题分析完成, 答卷数={}, 题目数={}, 耗时{}ms",
+                paperId, counters.sampleCount, key.size(), System.currentTimeMillis() - start);
+        return items;
+    }
+
+    private ItemCounters count(Long paperId, AnswerKey key) {
+        int maxInFlight = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<ItemCounters>> inFlight = new ArrayDeque<>();
+        ItemCounters total = new ItemCounters(key.size());
+        try (Cursor<ExamRecord> cursor = examRecordMapper.cursorSnapshotsByPaperId(paperId)) {
+            List<ExamRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (ExamRecord record : cursor) {
+                chunk.add(record);
+                if (chunk.size() == CHUNK_SIZE) {
+                    inFlight.add(pool.submit(new CountTask(key, chunk)));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    // 在途批次过多时先合并最早的批次，限制堆内快照数量
+                    if (inFlight.size() >= maxInFlight) {
+                        total.merge(inFlight.poll().join());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(pool.submit(new CountTask(key, chunk)));
+            }
+        } catch (IOException e) {
+            throw new ApiException("读取答题快照失败", e);
+        }
+        while (!inFlight.isEmpty()) {
+            total.merge(inFlight.poll().join());
+        }
+        return total;
+    }
+
+    private ItemAnalysis toItem(Long paperId, AnswerKey key, ItemCounters counters, int index, LocalDateTime now) {
+        ItemAnalysis item = new ItemAnalysis();
+        item.setPaperId(paperId);
+        item.setQuestionId(key.questionId(index));
+        item.setQuestionType(AnswerKey.typeName(key.type(index)));
+        item.setSampleCount((int) counters.sampleCount);
+        item.setAnsweredCount(counters.answered[index]);
+        item.setCorrectCount(counters.correct[index]);
+        item.setDifficulty(BigDecimal.valueOf(counters.difficulty(index)).setScale(4, RoundingMode.HALF_UP));
+        item.setDiscrimination(BigDecimal.valueOf(counters.discrimination(index)).setScale(4, RoundingMode.HALF_UP));
+        item.setOptionCounts(optionCountsJson(key, counters, index));
+        item.setAnalysisTime(now);
+        return item;
+    }
+
+    /**
+     * 选项选择人数，选择题为 {"A": n, ...}，判断题为 {"正确": n, "错误": n}，填空题为null
+     */
+    private String optionCountsJson(AnswerKey key, ItemCounters counters, int index) {
+        byte type = key.type(index);
+        Map<String, Integer> options = new LinkedHashMap<>();
+        int base = index * ItemCounters.MAX_OPTIONS;
+        if (type == AnswerKey.TYPE_JUDGE) {
+            for (int i = 0; i < JUDGE_OPTIONS.length; i++) {
+                options.put(JUDGE_OPTIONS[i], counters.optionCounts[base + i]);
+            }
+        } else if (type == AnswerKey.TYPE_SINGLE || type == AnswerKey.TYPE_MULTI) {
+            // 列出到标准答案或被选过的最大选项为止
+            int last = 31 - Integer.numberOfLeadingZeros(key.mask(index));
+            for (int i = 0; i < ItemCounters.MAX_OPTIONS; i++) {
+                if (counters.optionCounts[base + i] > 0) {
+                    last = Math.max(last, i);
+                }
+            }
+            for (int i = 0; i <= last; i++) {
+                options.put(String.valueOf((char) ('A' + i)), counters.optionCounts[base + i]);
+            }
+        } else {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(options);
+        } catch (JsonProcessingException e) {
+            throw new ApiException("选项统计序列化失败", e);
+        }
+    }
+
+    /**
+     * 统计一批快照，超过 {@value #LEAF_SIZE} 份时对半拆分
+     */
+    private class CountTask extends RecursiveTask<ItemCounters> {
+
+        private final AnswerKey key;
+
+        private final List<ExamRecord> snapshots;
+
+        private CountTask(AnswerKey key, List<ExamRecord> snapshots) {
+            this.key = key;
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        protected ItemCounters compute() {
+            if (snapshots.size() <= LEAF_SIZE) {
+                // 紧凑编码的快照在工作线程中解码
+                return ItemCounters.count(gradingEngine, key, snapshots);
+            }
+            int middle = snapshots.size() >>> 1;
+            CountTask left = new CountTask(key, snapshots.subList(0, middle));
+            CountTask right = new CountTask(key, snapshots.subList(middle, snapshots.size()));
+            left.fork();
+            ItemCounters counters = right.compute();
+            counters.merge(left.join());
+            return counters;
+        }
+    }
+}
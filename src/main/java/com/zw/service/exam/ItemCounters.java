@@ -0,0 +1,120 @@
+package com.zw.service.exam;
+
+import com.zw.entity.ExamRecord;
+import com.zw.service.grading.AnswerKey;
+import com.zw.service.grading.GradingEngine;
+
+import java.util.List;
+
+/**
+ * 题目分析计数器
+ * <p>
+ * 以原始类型数组按题目下标累计作答人数、答对人数、答对者总分之和及各选项选择人数，
+ * 同时累计答卷总分的和与平方和，用于计算点二列相关系数。计数器之间可直接相加合并。
+ */
+class ItemCounters {
+
+    static final int MAX_OPTIONS = 26;
+
+    final int size;
+
+    long sampleCount;
+
+    long scoreSum;
+
+    long scoreSquareSum;
+
+    final int[] answered;
+
+    final int[] correct;
+
+    /**
+     * 答对该题的答卷总分之和（0.1分为单位）
+     */
+    final long[] correctScoreSum;
+
+    /**
+     * 选项选择人数，下标为 题目下标 * 26 + 选项序号
+     */
+    final int[] optionCounts;
+
+    ItemCounters(int size) {
+        this.size = size;
+        this.answered = new int[size];
+        this.correct = new int[size];
+        this.correctScoreSum = new long[size];
+        this.optionCounts = new int[size * MAX_OPTIONS];
+    }
+
+    /**
+     * 统计一批答卷，紧凑编码的快照在此解码；乱序试卷的选项已由评分引擎换回原选项
+     */
+    static ItemCounters count(GradingEngine engine, AnswerKey key, List<ExamRecord> records) {
+        ItemCounters counters = new ItemCounters(key.size());
+        int[] correctIndexes = new int[key.size()];
+        int[] correctCount = new int[1];
+        GradingEngine.AnswerVisitor visitor = (index, isCorrect, mask) -> {
+            counters.answered[index]++;
+            if (isCorrect) {
+                counters.correct[index]++;
+                correctIndexes[correctCount[0]++] = index;
+            }
+            while (mask != 0) {
+                int option = Integer.numberOfTrailingZeros(mask);
+                counters.optionCounts[index * MAX_OPTIONS + option]++;
+                mask &= mask - 1;
+            }
+        };
+        for (ExamRecord record : records) {
+            correctCount[0] = 0;
+            int score = engine.gradeTenths(key, record.getAnswerSnapshot(), record.getUserId(),
+                    Boolean.TRUE.equals(record.getShuffled()), visitor);
+            counters.sampleCount++;
+            counters.scoreSum += score;
+            counters.scoreSquareSum += (long) score * score;
+            for (int i = 0; i < correctCount[0]; i++) {
+                counters.correctScoreSum[correctIndexes[i]] += score;
+            }
+        }
+        return counters;
+    }
+
+    void merge(ItemCounters other) {
+        sampleCount += other.sampleCount;
+        scoreSum += other.scoreSum;
+        scoreSquareSum += other.scoreSquareSum;
+        for (int i = 0; i < size; i++) {
+            answered[i] += other.answered[i];
+            correct[i] += other.correct[i];
+            correctScoreSum[i] += other.correctScoreSum[i];
+        }
+        for (int i = 0; i < optionCounts.length; i++) {
+            optionCounts[i] += other.optionCounts[i];
+        }
+    }
+
+    /**
+     * 难度（通过率）：答对人数 / 答卷数
+     */
+    double difficulty(int index) {
+        return sampleCount == 0 ? 0 : (double) correct[index] / sampleCount;
+    }
+
+    /**
+     * 区分度：题目得分与答卷总分的点二列相关系数
+     * r = (M1 - M) / s * sqrt(p / q)，M1为答对者平均总分，M为全体平均总分，s为总分标准差
+     */
+    double discrimination(int index) {
+        if (sampleCount == 0 || correct[index] == 0 || correct[index] == sampleCount) {
+            return 0;
+        }
+        double mean = (double) scoreSum / sampleCount;
+        double variance = (double) scoreSquareSum / sampleCount - mean * mean;
+        if (variance <= 0) {
+            return 0;
+        }
+        double p = (double) correct[index] / sampleCount;
+        double correctMean = (double) correctScoreSum[index] / correct[index];
+        return (correctMean - mean) / Math.sqrt(variance) * Math.sqrt(p / (1 - p));
+    }
+}
@@ -0,0 +1,117 @@
+package com.zw.service.exam;
+
+import java.util.Arrays;
+
+/**
+ * 分数分布
+ * <p>
+ * 分数以0.1分为单位的整数记录，维护人数、总分、平方和、最高最低分，
+ * 以及每0.1分一个桶的直方图，增删一个分数均为O(1)（最高最低分被删除时向内扫描到下一个非空桶）。
+ * 非线程安全，由调用方加锁。
+ */
+class ScoreDistribution {
+
+    private int[] buckets = new int[1024];
+
+    private long count;
+
+    private long sum;
+
+    private long sumOfSquares;
+
+    private int min = Integer.MAX_VALUE;
+
+    private int max = Integer.MIN_VALUE;
+
+    void add(int tenths) {
+        int score = Math.max(tenths, 0);
+        if (score >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(buckets.length * 2, score + 1));
+        }
+        buckets[score]++;
+        count++;
+        sum += score;
+        sumOfSquares += (long) score * score;
+        min = Math.min(min, score);
+        max = Math.max(max, score);
+    }
+
+    void remove(int tenths) {
+        int score = Math.max(tenths, 0);
+        if (score >= buckets.length || buckets[score] == 0) {
+            return;
+        }
+        buckets[score]--;
+        count--;
+        sum -= score;
+        sumOfSquares -= (long) score * score;
+        if (count == 0) {
+            min = Integer.MAX_VALUE;
+            max = Integer.MIN_VALUE;
+            return;
+        }
+        while (buckets[min] == 0) {
+            min++;
+        }
+        while (buckets[max] == 0) {
+            max--;
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    long sum() {
+        return sum;
+    }
+
+    int min() {
+        return count == 0 ? 0 : min;
+    }
+
+    int max() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * 总体标准差（0.1分为单位）
+     */
+    double stdDev() {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = (double) sum / count;
+        return Math.sqrt(Math.max((double) sumOfSquares / count - mean * mean, 0));
+    }
+
+    /**
+     * 百分位数（最近秩法），percent取值0-100
+     */
+    int percentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(percent / 100 * count), 1);
+        long seen = 0;
+        for (int score = min; score <= max; score++) {
+            seen += buckets[score];
+            if (seen >= rank) {
+                return score;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 统计分数落在 [from, to) 内的人数
+     */
+    long countBetween(int from, int to) {
+        long result = 0;
+        int end = Math.min(to, max + 1);
+        for (int score = Math.max(from, min); score < end; score++) {
+            result += buckets[score];
+        }
+        return result;
+    }
+}
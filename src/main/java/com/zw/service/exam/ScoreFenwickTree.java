@@ -0,0 +1,72 @@
+package com.zw.service.exam;
+
+import java.util.Arrays;
+
+/**
+ * 分数树状数组
+ * <p>
+ * 下标为以0.1分为单位的分数，支持O(log S)增删分数和统计不高于某分数的人数，
+ * 分数超过当前容量时按2倍扩容重建。非线程安全，由调用方加锁。
+ */
+class ScoreFenwickTree {
+
+    private long[] tree = new long[1025];
+
+    private int[] counts = new int[1024];
+
+    private long total;
+
+    void add(int score, int delta) {
+        int index = Math.max(score, 0);
+        if (index >= counts.length) {
+            grow(index + 1);
+        }
+        counts[index] += delta;
+        total += delta;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * 分数不高于score的人数
+     */
+    long countAtMost(int score) {
+        if (score < 0) {
+            return 0;
+        }
+        long result = 0;
+        for (int i = Math.min(score, counts.length - 1) + 1; i > 0; i -= i & -i) {
+            result += tree[i];
+        }
+        return result;
+    }
+
+    /**
+     * 分数高于score的人数
+     */
+    long countAbove(int score) {
+        return total - countAtMost(score);
+    }
+
+    long total() {
+        return total;
+    }
+
+    private void grow(int minSize) {
+        int size = counts.length;
+        while (size < minSize) {
+            size <<= 1;
+        }
+        counts = Arrays.copyOf(counts, size);
+        // 按计数重建，O(S)
+        tree = new long[size + 1];
+        for (int i = 1; i <= size; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.zw.service.exam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮
+ * <p>
+ * 每层64个槽，第k层每槽跨度为 64^k 个tick，4层可覆盖 64^4 个tick（tick为1秒时约194天），
+ * 更远的到期时间先放在最高层末槽，轮转到时重新分配。
+ * 任务以ID为键，插入、取消均为O(1)；推进时高层槽位到期后逐层下放，第0层槽位到期即触发。
+ * <p>
+ * 非线程安全，由调用方加锁。
+ */
+class TimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+
+    /**
+     * 槽位链表的哨兵节点，buckets[level][index]
+     */
+    private final Node[][] buckets = new Node[LEVELS][WHEEL_SIZE];
+
+    private final Map<Long, Node> index = new HashMap<>();
+
+    /**
+     * 当前时间对应的tick，小于等于该值的任务视为已到期
+     */
+    private long currentTick;
+
+    TimingWheel(long tickMs, long nowMillis) {
+        this.tickMs = tickMs;
+        this.currentTick = nowMillis / tickMs;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                Node sentinel = new Node(0L, 0L);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                buckets[level][i] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * 登记或更新任务到期时间，已到期的任务在下一次推进时触发
+     */
+    void schedule(long id, long deadlineMillis) {
+        Node node = index.get(id);
+        if (node != null) {
+            unlink(node);
+        } else {
+            node = new Node(id, 0L);
+            index.put(id, node);
+        }
+        // 向上取整，保证不早于到期时间触发
+        node.expireTick = Math.max((deadlineMillis + tickMs - 1) / tickMs, currentTick + 1);
+        place(node);
+    }
+
+    /**
+     * 取消任务
+     */
+    boolean cancel(long id) {
+        Node node = index.remove(id);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * 推进到指定时间，返回期间到期的任务ID
+     */
+    List<Long> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMs;
+        List<Long> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            // 从高层向低层下放，下放到低层当前槽位的任务随后由低层处理
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = level * WHEEL_BITS;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    cascade(buckets[level][(int) ((currentTick >>> shift) & WHEEL_MASK)]);
+                }
+            }
+            Node sentinel = buckets[0][(int) (currentTick & WHEEL_MASK)];
+            for (Node node = sentinel.next; node != sentinel; ) {
+                Node next = node.next;
+                unlink(node);
+                index.remove(node.id);
+                expired.add(node.id);
+                node = next;
+            }
+        }
+        return expired;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    private void cascade(Node sentinel) {
+        for (Node node = sentinel.next; node != sentinel; ) {
+            Node next = node.next;
+            unlink(node);
+            place(node);
+            node = next;
+        }
+    }
+
+    private void place(Node node) {
+        long expireTick = node.expireTick;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * WHEEL_BITS;
+            // 本层当前槽位的起始tick，到期时间在本层64个槽位范围内则放入本层
+            long levelStart = (currentTick >>> shift) << shift;
+            if (expireTick < levelStart + ((long) WHEEL_SIZE << shift)) {
+                link(buckets[level][(int) ((expireTick >>> shift) & WHEEL_MASK)], node);
+                return;
+            }
+        }
+        // 超出时间轮范围，暂放最高层最远的槽位，轮转到时重新分配
+        int shift = (LEVELS - 1) * WHEEL_BITS;
+        long farthest = ((currentTick >>> shift) + WHEEL_SIZE - 1) & WHEEL_MASK;
+        link(buckets[LEVELS - 1][(int) farthest], node);
+    }
+
+    private static void link(Node sentinel, Node node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    private static final class Node {
+
+        private final long id;
+
+        private long expireTick;
+
+        private Node prev;
+
+        private Node next;
+
+        private Node(long id, long expireTick) {
+            this.id = id;
+            this.expireTick = expireTick;
+        }
+    }
+}
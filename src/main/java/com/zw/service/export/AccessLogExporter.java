@@ -0,0 +1,43 @@
+package com.zw.service.export;
+
+import com.zw.dto.LogQueryDTO;
+import com.zw.entity.AccessLog;
+import com.zw.mapper.AccessLogMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 访问日志导出，查询条件与访问日志分页查询一致
+ */
+@Component
+public class AccessLogExporter {
+
+    private static final List<ExcelColumn<AccessLog>> COLUMNS = List.of(
+            ExcelColumn.of("ID", 10, AccessLog::getId),
+            ExcelColumn.of("访问时间", AccessLog::getAccessTime),
+            ExcelColumn.of("用户名", AccessLog::getUsername),
+            ExcelColumn.of("IP地址", 16, AccessLog::getIpAddress),
+            ExcelColumn.of("请求方法", 10, AccessLog::getRequestMethod),
+            ExcelColumn.of("请求地址", 40, AccessLog::getRequestUri),
+            ExcelColumn.of("状态码", 8, AccessLog::getStatus),
+            ExcelColumn.of("响应时间(ms)", 12, AccessLog::getResponseTime),
+            ExcelColumn.of("User-Agent", 40, AccessLog::getUserAgent));
+
+    @Autowired
+    private AccessLogMapper accessLogMapper;
+
+    @Autowired
+    private StreamingExcelWriter streamingExcelWriter;
+
+    public void export(HttpServletResponse response, LogQueryDTO queryDTO) {
+        String username = StringUtils.hasText(queryDTO.getUsername()) ? queryDTO.getUsername() : null;
+        String ipAddress = StringUtils.hasText(queryDTO.getIpAddress()) ? queryDTO.getIpAddress() : null;
+        streamingExcelWriter.writeCursor(response, "访问日志", "访问日志", COLUMNS,
+                () -> accessLogMapper.cursorForExport(username, ipAddress, queryDTO.getStatus(),
+                        queryDTO.getStartTime(), queryDTO.getEndTime()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.zw.service.export;
+
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.vo.ExamRecordExportVO;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 考试记录导出，总分为系统评分与人工评分之和
+ */
+@Component
+public class ExamRecordExporter {
+
+    private static final List<ExcelColumn<ExamRecordExportVO>> COLUMNS = List.of(
+            ExcelColumn.of("记录ID", 10, ExamRecordExportVO::getId),
+            ExcelColumn.of("用户名", ExamRecordExportVO::getUsername),
+            ExcelColumn.of("姓名", ExamRecordExportVO::getRealName),
+            ExcelColumn.of("试卷ID", 10, ExamRecordExportVO::getPaperId),
+            ExcelColumn.of("试卷名称", 30, ExamRecordExportVO::getPaperTitle),
+            ExcelColumn.of("开始时间", ExamRecordExportVO::getStartTime),
+            ExcelColumn.of("交卷时间", ExamRecordExportVO::getSubmitTime),
+            ExcelColumn.of("系统评分", 10, ExamRecordExportVO::getAutoScore),
+            ExcelColumn.of("人工评分", 10, ExamRecordExportVO::getManualScore),
+            ExcelColumn.of("总分", 10, ExamRecordExporter::totalScore),
+            ExcelColumn.of("状态", 12, ExamRecordExportVO::getStatus),
+            ExcelColumn.of("评分时间", ExamRecordExportVO::getGradeTime));
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private StreamingExcelWriter streamingExcelWriter;
+
+    public void export(HttpServletResponse response, Long userId, Long paperId, String status) {
+        String recordStatus = StringUtils.hasText(status) ? status : null;
+        streamingExcelWriter.writeCursor(response, "考试记录", "考试记录", COLUMNS,
+                () -> examRecordMapper.cursorForExport(userId, paperId, recordStatus));
+    }
+
+    private static BigDecimal totalScore(ExamRecordExportVO record) {
+        if (record.getAutoScore() == null && record.getManualScore() == null) {
+            return null;
+        }
+        BigDecimal auto = record.getAutoScore() != null ? record.getAutoScore() : BigDecimal.ZERO;
+        BigDecimal manual = record.getManualScore() != null ? record.getManualScore() : BigDecimal.ZERO;
+        return auto.add(manual);
+    }
+}
@@ -0,0 +1,19 @@
+package com.zw.service.export;
+
+import java.util.function.Function;
+
+/**
+ * 导出列：表头、列宽（字符数）和取值函数，按列定义的顺序写入单元格
+ */
+public record ExcelColumn<T>(String header, int width, Function<T, ?> value) {
+
+    private static final int DEFAULT_WIDTH = 20;
+
+    public static <T> ExcelColumn<T> of(String header, Function<T, ?> value) {
+        return new ExcelColumn<>(header, DEFAULT_WIDTH, value);
+    }
+
+    public static <T> ExcelColumn<T> of(String header, int width, Function<T, ?> value) {
+        return new ExcelColumn<>(header, width, value);
+    }
+}
@@ -0,0 +1,58 @@
+package com.zw.service.export;
+
+import com.zw.mapper.QuestionMapper;
+import com.zw.vo.QuestionExportVO;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 题库导出，科目ID、题型、题干、选项、答案、解析、难度、分值列可直接用于批量导入
+ */
+@Component
+public class QuestionExporter {
+
+    private static final Map<String, String> TYPE_NAMES = Map.of(
+            "SINGLE", "单选题", "MULTI", "多选题", "JUDGE", "判断题", "FILL", "填空题");
+
+    private static final String[] REVIEW_STATUS_NAMES = {"待审核", "已通过", "已驳回"};
+
+    private static final List<ExcelColumn<QuestionExportVO>> COLUMNS = List.of(
+            ExcelColumn.of("ID", 10, QuestionExportVO::getId),
+            ExcelColumn.of("科目ID", 10, QuestionExportVO::getSubjectId),
+            ExcelColumn.of("科目名称", QuestionExportVO::getSubjectName),
+            ExcelColumn.of("题型", 10, q -> TYPE_NAMES.getOrDefault(q.getQuestionType(), q.getQuestionType())),
+            ExcelColumn.of("题干", 60, QuestionExportVO::getContent),
+            ExcelColumn.of("选项", 40, QuestionExportVO::getOptions),
+            ExcelColumn.of("答案", QuestionExportVO::getAnswer),
+            ExcelColumn.of("解析", 40, QuestionExportVO::getAnalysis),
+            ExcelColumn.of("难度", 8, QuestionExportVO::getDifficulty),
+            ExcelColumn.of("分值", 8, QuestionExportVO::getScore),
+            ExcelColumn.of("审核状态", 10, q -> reviewStatusName(q.getReviewStatus())),
+            ExcelColumn.of("创建人", QuestionExportVO::getCreatorName),
+            ExcelColumn.of("创建时间", QuestionExportVO::getCreateTime));
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Autowired
+    private StreamingExcelWriter streamingExcelWriter;
+
+    public void export(HttpServletResponse response, Long subjectId, String questionType, Integer difficulty,
+                       Integer reviewStatus) {
+        String type = StringUtils.hasText(questionType) ? questionType : null;
+        streamingExcelWriter.writeCursor(response, "题库", "题目", COLUMNS,
+                () -> questionMapper.cursorForExport(subjectId, type, difficulty, reviewStatus));
+    }
+
+    private static String reviewStatusName(Integer reviewStatus) {
+        if (reviewStatus == null || reviewStatus < 0 || reviewStatus >= REVIEW_STATUS_NAMES.length) {
+            return null;
+        }
+        return REVIEW_STATUS_NAMES[reviewStatus];
+    }
+}
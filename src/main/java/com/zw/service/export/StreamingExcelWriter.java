@@ -0,0 +1,219 @@
+package com.zw.service.export;
+
+import com.zw.exception.ApiException;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 流式 Excel 导出
+ * <p>
+ * 用 SXSSFWorkbook 写入，内存中只保留最近 window-size 行，更早的行压缩写入临时文件，
+ * 导出行数不受堆大小限制；数据行超过单个工作表上限时续写到新工作表。
+ * 游标数据源在事务中逐行读取，读完即释放连接，再把工作簿经固定大小的缓冲写入响应流，
+ * 不在内存中生成完整文件。
+ */
+@Slf4j
+@Component
+public class StreamingExcelWriter {
+
+    /**
+     * 单元格文本长度上限（Excel 限制）
+     */
+    private static final int MAX_CELL_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+    /**
+     * 每个工作表的数据行上限（除表头）
+     */
+    private static final int MAX_DATA_ROWS = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${exam.export.window-size:500}")
+    private int windowSize;
+
+    @Value("${exam.export.buffer-size:65536}")
+    private int bufferSize;
+
+    /**
+     * 导出内存中的数据
+     */
+    public <T> void write(HttpServletResponse response, String fileName, String sheetName,
+                          List<ExcelColumn<T>> columns, Iterable<T> rows) {
+        export(response, fileName, sheetName, columns, writer -> rows.forEach(writer::append));
+    }
+
+    /**
+     * 导出游标数据源，游标在事务中打开并逐行读取，读完后提交事务释放连接
+     */
+    public <T> void writeCursor(HttpServletResponse response, String fileName, String sheetName,
+                                List<ExcelColumn<T>> columns, Supplier<Cursor<T>> source) {
+        export(response, fileName, sheetName, columns, writer -> transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<T> cursor = source.get()) {
+                cursor.forEach(writer::append);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    private <T> void export(HttpServletResponse response, String fileName, String sheetName,
+                            List<ExcelColumn<T>> columns, Consumer<SheetWriter<T>> fill) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(windowSize);
+        workbook.setCompressTempFiles(true);
+        try {
+            long start = System.currentTimeMillis();
+            SheetWriter<T> writer = new SheetWriter<>(workbook, sheetName, columns);
+            fill.accept(writer);
+
+            setExportResponseHeader(response, fileName + ".xlsx");
+            OutputStream os = new BufferedOutputStream(response.getOutputStream(), bufferSize);
+            workbook.write(os);
+            os.flush();
+            log.info("导出Excel {}, {}行, 耗时{}ms", fileName, writer.total, System.currentTimeMillis() - start);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Export Excel error", e);
+            throw new ApiException("导出Excel文件失败");
+        } finally {
+            // 删除临时文件
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                log.warn("关闭导出工作簿失败", e);
+            }
+        }
+    }
+
+    private static void setExportResponseHeader(HttpServletResponse response, String fileName) {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setCharacterEncoding("UTF-8");
+        String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+        response.setHeader("Content-Disposition", "attachment;filename=" + encodedFileName);
+        response.setHeader("Access-Control-Expose-Headers", "Content-Disposition");
+    }
+
+    /**
+     * 按列定义逐行写入，当前工作表写满时新建工作表并重复表头
+     */
+    private static final class SheetWriter<T> {
+
+        private final SXSSFWorkbook workbook;
+
+        private final String sheetName;
+
+        private final List<ExcelColumn<T>> columns;
+
+        private final CellStyle headerStyle;
+
+        private final CellStyle dataStyle;
+
+        private SXSSFSheet sheet;
+
+        private int sheetCount;
+
+        private int rowIndex;
+
+        private long total;
+
+        SheetWriter(SXSSFWorkbook workbook, String sheetName, List<ExcelColumn<T>> columns) {
+            this.workbook = workbook;
+            this.sheetName = sheetName;
+            this.columns = columns;
+
+            headerStyle = workbook.createCellStyle();
+            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            headerStyle.setAlignment(HorizontalAlignment.CENTER);
+            headerStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+
+            dataStyle = workbook.createCellStyle();
+            dataStyle.setAlignment(HorizontalAlignment.CENTER);
+            dataStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+
+            newSheet();
+        }
+
+        void append(T item) {
+            if (rowIndex > MAX_DATA_ROWS) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = columns.get(i).value().apply(item);
+                if (value == null) {
+                    continue;
+                }
+                Cell cell = row.createCell(i);
+                setValue(cell, value);
+                cell.setCellStyle(dataStyle);
+            }
+            total++;
+        }
+
+        private void newSheet() {
+            sheetCount++;
+            sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + "(" + sheetCount + ")");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < columns.size(); i++) {
+                ExcelColumn<T> column = columns.get(i);
+                sheet.setColumnWidth(i, column.width() * 256);
+                Cell cell = header.createCell(i);
+                cell.setCellValue(column.header());
+                cell.setCellStyle(headerStyle);
+            }
+            rowIndex = 1;
+        }
+
+        private static void setValue(Cell cell, Object value) {
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof Boolean bool) {
+                cell.setCellValue(bool);
+            } else if (value instanceof LocalDateTime dateTime) {
+                cell.setCellValue(DATE_TIME_FORMATTER.format(dateTime));
+            } else if (value instanceof LocalDate date) {
+                cell.setCellValue(DATE_FORMATTER.format(date));
+            } else {
+                String text = value.toString();
+                cell.setCellValue(text.length() > MAX_CELL_LENGTH ? text.substring(0, MAX_CELL_LENGTH) : text);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.zw.service.grading;
+
+import java.util.Arrays;
+
+/**
+ * 编译后的试卷标准答案
+ * <p>
+ * 题目按ID升序存放在并行的基本类型数组中，评分时二分查找定位题目，
+ * 不再访问数据库或题目实体。分值以0.1分为单位存为整数，与表中 DECIMAL(5,1) 对应。
+ */
+public final class AnswerKey {
+
+    public static final byte TYPE_UNKNOWN = 0;
+    public static final byte TYPE_SINGLE = 1;
+    public static final byte TYPE_MULTI = 2;
+    public static final byte TYPE_JUDGE = 3;
+    public static final byte TYPE_FILL = 4;
+
+    private final long paperId;
+
+    private final long[] questionIds;
+
+    private final byte[] types;
+
+    /**
+     * 选择题、判断题的标准答案位掩码（A对应第0位，判断题见 {@link AnswerMatcher}）
+     */
+    private final int[] masks;
+
+    /**
+     * 填空题每个空的标准答案（已规范化），其他题型为null
+     */
+    private final char[][][] fillAnswers;
+
+    /**
+     * 每题分值，单位0.1分
+     */
+    private final int[] scores;
+
+    /**
+     * 选择题的选项数，考生乱序时用于还原选项
+     */
+    private final byte[] optionCounts;
+
+    private final int totalScore;
+
+    AnswerKey(long paperId, long[] questionIds, byte[] types, int[] masks, char[][][] fillAnswers, int[] scores,
+              byte[] optionCounts) {
+        this.paperId = paperId;
+        this.questionIds = questionIds;
+        this.types = types;
+        this.masks = masks;
+        this.fillAnswers = fillAnswers;
+        this.scores = scores;
+        this.optionCounts = optionCounts;
+        int total = 0;
+        for (int score : scores) {
+            total += score;
+        }
+        this.totalScore = total;
+    }
+
+    /**
+     * 题型编码
+     */
+    public static byte typeOf(String questionType) {
+        if (questionType == null) {
+            return TYPE_UNKNOWN;
+        }
+        switch (questionType) {
+            case "SINGLE":
+                return TYPE_SINGLE;
+            case "MULTI":
+                return TYPE_MULTI;
+            case "JUDGE":
+                return TYPE_JUDGE;
+            case "FILL":
+                return TYPE_FILL;
+            default:
+                return TYPE_UNKNOWN;
+        }
+    }
+
+    /**
+     * 题型名称，与 {@link #typeOf(String)} 互逆
+     */
+    public static String typeName(byte type) {
+        switch (type) {
+            case TYPE_SINGLE:
+                return "SINGLE";
+            case TYPE_MULTI:
+                return "MULTI";
+            case TYPE_JUDGE:
+                return "JUDGE";
+            case TYPE_FILL:
+                return "FILL";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 查找题目下标，不存在时返回负数
+     */
+    public int indexOf(long questionId) {
+        return Arrays.binarySearch(questionIds, questionId);
+    }
+
+    public long getPaperId() {
+        return paperId;
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public long questionId(int index) {
+        return questionIds[index];
+    }
+
+    public byte type(int index) {
+        return types[index];
+    }
+
+    public int mask(int index) {
+        return masks[index];
+    }
+
+    public char[][] fillAnswer(int index) {
+        return fillAnswers[index];
+    }
+
+    public int score(int index) {
+        return scores[index];
+    }
+
+    public int optionCount(int index) {
+        return optionCounts[index];
+    }
+
+    /**
+     * 客观题总分，单位0.1分
+     */
+    public int totalScore() {
+        return totalScore;
+    }
+}
@@ -0,0 +1,180 @@
+package com.zw.service.grading;
+
+import com.zw.entity.Paper;
+import com.zw.mapper.QuestionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 试卷标准答案缓存
+ * <p>
+ * 以试卷ID为键缓存编译好的 {@link AnswerKey}，版本为试卷更新时间。试卷发布时预先编译，修改或归档时失效，
+ * 本实例修改题目时失效引用了该题目的试卷，交卷评分时不再读取题库表。每张试卷先放入占位再编译，
+ * 同一试卷的并发请求等待同一次编译；失效只移除该试卷（或引用了该题目的试卷）的占位，编译期间被移除的结果不写入缓存。
+ * 多实例部署时其他实例修改试卷会改变 update_time，按版本自动重新编译；其他实例修改题目不会改变试卷行，
+ * 每隔 check-interval-ms 由一个调用方查询一次题库的最新更新时间（整个实例一次，不按试卷），
+ * 前进时取出期间修改过的题目，只失效引用了这些题目的试卷。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnswerKeyCache {
+
+    private final AnswerKeyCompiler answerKeyCompiler;
+
+    private final QuestionMapper questionMapper;
+
+    private final Map<Long, CompletableFuture<CachedKey>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 上次检查题库更新时间的时刻，同一时刻只有一个调用方检查
+     */
+    private final AtomicLong checkedAt = new AtomicLong();
+
+    /**
+     * 上次检查时题库的最新更新时间，为null表示尚未建立基线
+     */
+    private volatile LocalDateTime questionVersion;
+
+    @Value("${exam.grading.answer-key-check-interval-ms:1000}")
+    private long checkIntervalMs;
+
+    /**
+     * 获取试卷标准答案，未缓存或版本不一致时编译
+     */
+    public AnswerKey get(Paper paper) {
+        checkQuestions();
+        while (true) {
+            CompletableFuture<CachedKey> future = cache.get(paper.getId());
+            if (future == null) {
+                CompletableFuture<CachedKey> loading = new CompletableFuture<>();
+                future = cache.putIfAbsent(paper.getId(), loading);
+                if (future == null) {
+                    return compile(paper, loading);
+                }
+            }
+            CachedKey cached = join(future);
+            if (Objects.equals(cached.paperVersion(), paper.getUpdateTime())) {
+                return cached.answerKey();
+            }
+            // 试卷已修改，按新版本重新编译；替换失败说明其他线程已替换或失效，重新读取
+            CompletableFuture<CachedKey> loading = new CompletableFuture<>();
+            if (cache.replace(paper.getId(), future, loading)) {
+                return compile(paper, loading);
+            }
+        }
+    }
+
+    /**
+     * 重新编译并缓存试卷标准答案
+     */
+    public AnswerKey rebuild(Paper paper) {
+        checkQuestions();
+        CompletableFuture<CachedKey> loading = new CompletableFuture<>();
+        cache.put(paper.getId(), loading);
+        return compile(paper, loading);
+    }
+
+    /**
+     * 失效试卷标准答案
+     */
+    public void invalidate(Long paperId) {
+        cache.remove(paperId);
+    }
+
+    /**
+     * 失效引用了该题目的试卷标准答案，题目修改事务提交后调用
+     */
+    public void invalidateQuestion(Long questionId) {
+        invalidateQuestions(List.of(questionId));
+    }
+
+    /**
+     * 已缓存的试卷数量
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private AnswerKey compile(Paper paper, CompletableFuture<CachedKey> loading) {
+        try {
+            loading.complete(new CachedKey(paper.getUpdateTime(), answerKeyCompiler.compile(paper)));
+        } catch (RuntimeException | Error e) {
+            cache.remove(paper.getId(), loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        return loading.join().answerKey();
+    }
+
+    private void invalidateQuestions(Collection<Long> questionIds) {
+        cache.values().removeIf(future -> {
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                // 编译中的答案可能早于本次修改
+                return true;
+            }
+            AnswerKey answerKey = future.join().answerKey();
+            for (Long questionId : questionIds) {
+                if (answerKey.indexOf(questionId) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 到达检查间隔时查询题库最新更新时间，前进则失效引用了期间修改的题目的试卷
+     */
+    private void checkQuestions() {
+        long now = System.currentTimeMillis();
+        long last = checkedAt.get();
+        if (now - last < checkIntervalMs || !checkedAt.compareAndSet(last, now)) {
+            return;
+        }
+        try {
+            LocalDateTime latest = questionMapper.selectLatestUpdateTime();
+            LocalDateTime since = questionVersion;
+            if (since == null) {
+                // 建立基线前编译的答案无从比对，全部重新编译
+                questionVersion = latest != null ? latest : LocalDateTime.of(1970, 1, 1, 0, 0);
+                cache.clear();
+                return;
+            }
+            if (latest == null || !latest.isAfter(since)) {
+                return;
+            }
+            // update_time 只精确到秒，与上次同一秒内的修改也一并取出
+            List<Long> changed = questionMapper.selectIdsUpdatedSince(since);
+            if (!changed.isEmpty()) {
+                invalidateQuestions(changed);
+            }
+            questionVersion = latest;
+        } catch (RuntimeException e) {
+            log.warn("检查题库更新时间失败: {}", e.getMessage());
+        }
+    }
+
+    private static CachedKey join(CompletableFuture<CachedKey> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private record CachedKey(LocalDateTime paperVersion, AnswerKey answerKey) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.zw.service.grading;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.entity.Paper;
+import com.zw.entity.Question;
+import com.zw.mapper.QuestionMapper;
+import com.zw.service.paper.PaperQuestionData;
+import com.zw.service.paper.PaperShuffle;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 试卷答案编译器
+ * <p>
+ * 用 {@link PaperQuestionData} 解析 Paper.questionData，一次批量查询题目，
+ * 把标准答案和分值编译为 {@link AnswerKey}。试卷中配置的分值优先，未配置时使用题目分值。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnswerKeyCompiler {
+
+    private final QuestionMapper questionMapper;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 编译试卷答案
+     */
+    public AnswerKey compile(Paper paper) {
+        // 题目ID -> 试卷中配置的分值（单位0.1分，未配置为null），按ID升序
+        TreeMap<Long, Integer> items = parseQuestionData(paper.getQuestionData());
+        Map<Long, Question> questions = loadQuestions(items.keySet());
+
+        int size = items.size();
+        long[] questionIds = new long[size];
+        byte[] types = new byte[size];
+        int[] masks = new int[size];
+        char[][][] fillAnswers = new char[size][][];
+        int[] scores = new int[size];
+        byte[] optionCounts = new byte[size];
+
+        int index = 0;
+        for (Map.Entry<Long, Integer> item : items.entrySet()) {
+            Question question = questions.get(item.getKey());
+            questionIds[index] = item.getKey();
+            if (question != null) {
+                byte type = AnswerKey.typeOf(question.getQuestionType());
+                types[index] = type;
+                compileAnswer(question.getAnswer(), type, masks, fillAnswers, index);
+                if (type == AnswerKey.TYPE_SINGLE || type == AnswerKey.TYPE_MULTI) {
+                    optionCounts[index] = countOptions(question.getOptions());
+                }
+                scores[index] = item.getValue() != null ? item.getValue() : toTenths(question.getScore());
+            } else {
+                log.warn("试卷{}引用的题目{}不存在，按0分处理", paper.getId(), item.getKey());
+            }
+            index++;
+        }
+        return new AnswerKey(paper.getId(), questionIds, types, masks, fillAnswers, scores, optionCounts);
+    }
+
+    /**
+     * 试卷引用的题目ID
+     */
+    public Set<Long> questionIds(Paper paper) {
+        return parseQuestionData(paper.getQuestionData()).keySet();
+    }
+
+    /**
+     * 解析试卷题目元数据，分值换算为0.1分，按ID升序
+     */
+    private TreeMap<Long, Integer> parseQuestionData(String questionData) {
+        TreeMap<Long, Integer> items = new TreeMap<>();
+        PaperQuestionData.parse(objectMapper, questionData)
+                .forEach((id, score) -> items.put(id, score != null ? toTenths(score) : null));
+        return items;
+    }
+
+    private Map<Long, Question> loadQuestions(Collection<Long> ids) {
+        Map<Long, Question> questions = new HashMap<>();
+        if (ids.isEmpty()) {
+            return questions;
+        }
+        for (Question question : questionMapper.selectBatchIds(ids)) {
+            questions.put(question.getId(), question);
+        }
+        return questions;
+    }
+
+    /**
+     * 编译标准答案：选择题、判断题转位掩码，填空题规范化每个空
+     */
+    private void compileAnswer(String answer, byte type, int[] masks, char[][][] fillAnswers, int index) {
+        List<String> parts = splitAnswer(answer);
+        switch (type) {
+            case AnswerKey.TYPE_SINGLE:
+            case AnswerKey.TYPE_MULTI:
+                int mask = 0;
+                for (String part : parts) {
+                    mask |= AnswerMatcher.choiceMask(part);
+                }
+                masks[index] = mask;
+                break;
+            case AnswerKey.TYPE_JUDGE:
+                masks[index] = parts.isEmpty() ? 0 : AnswerMatcher.judgeMask(parts.get(0));
+                break;
+            case AnswerKey.TYPE_FILL:
+                char[][] blanks = new char[parts.size()][];
+                for (int i = 0; i < parts.size(); i++) {
+                    blanks[i] = AnswerMatcher.normalizeFill(parts.get(i));
+                }
+                fillAnswers[index] = blanks;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 选项数（options 为JSON数组），超过位掩码范围的按0处理，不参与乱序
+     */
+    private byte countOptions(String options) {
+        if (!StringUtils.hasText(options)) {
+            return 0;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(options);
+            return root.isArray() && root.size() <= PaperShuffle.MAX_OPTIONS ? (byte) root.size() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 标准答案可能是普通文本（"B"）或JSON数组（["A","B"]）
+     */
+    private List<String> splitAnswer(String answer) {
+        List<String> parts = new ArrayList<>();
+        if (!StringUtils.hasText(answer)) {
+            return parts;
+        }
+        String trimmed = answer.trim();
+        if (trimmed.startsWith("[")) {
+            try {
+                for (JsonNode node : objectMapper.readTree(trimmed)) {
+                    parts.add(node.asText());
+                }
+                return parts;
+            } catch (IOException e) {
+                // 不是合法JSON，按普通文本处理
+            }
+        }
+        parts.add(trimmed);
+        return parts;
+    }
+
+    private static int toTenths(BigDecimal score) {
+        if (score == null) {
+            return 0;
+        }
+        return score.movePointRight(1).setScale(0, RoundingMode.HALF_UP).intValue();
+    }
+}
@@ -0,0 +1,125 @@
+package com.zw.service.grading;
+
+/**
+ * 答案解析与比对
+ * <p>
+ * 直接在字符数组区间上工作，评分热路径上不创建字符串。
+ */
+public final class AnswerMatcher {
+
+    /**
+     * 判断题"正确"的掩码
+     */
+    public static final int JUDGE_TRUE = 1;
+
+    /**
+     * 判断题"错误"的掩码
+     */
+    public static final int JUDGE_FALSE = 2;
+
+    private AnswerMatcher() {
+    }
+
+    /**
+     * 选择题答案转位掩码：A/a对应第0位，依次类推，其他字符忽略。
+     * 例如 "B" -> 0b10，"A,C" -> 0b101
+     */
+    public static int choiceMask(char[] chars, int offset, int length) {
+        int mask = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = chars[i];
+            if (c >= 'A' && c <= 'Z') {
+                mask |= 1 << (c - 'A');
+            } else if (c >= 'a' && c <= 'z') {
+                mask |= 1 << (c - 'a');
+            } else if (c >= 'Ａ' && c <= 'Ｚ') {
+                mask |= 1 << (c - 'Ａ');
+            }
+        }
+        return mask;
+    }
+
+    public static int choiceMask(String text) {
+        return text == null ? 0 : choiceMask(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * 判断题答案转掩码，按首个非空白字符识别：
+     * 正确/对/√/T/Y/1/A 视为正确，错误/错/×/F/N/0/B 视为错误
+     */
+    public static int judgeMask(char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = chars[i];
+            if (isBlank(c)) {
+                continue;
+            }
+            switch (c) {
+                case '正': case '对': case '是': case '√': case '✓':
+                case 'T': case 't': case 'Y': case 'y': case '1': case 'A': case 'a':
+                    return JUDGE_TRUE;
+                case '错': case '否': case '×': case '✗': case 'X': case 'x':
+                case 'F': case 'f': case 'N': case 'n': case '0': case 'B': case 'b':
+                    return JUDGE_FALSE;
+                default:
+                    return 0;
+            }
+        }
+        return 0;
+    }
+
+    public static int judgeMask(String text) {
+        return text == null ? 0 : judgeMask(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * 规范化填空题标准答案：去掉空白，全角字母数字转半角，字母转小写
+     */
+    public static char[] normalizeFill(String text) {
+        if (text == null) {
+            return new char[0];
+        }
+        char[] buffer = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isBlank(c)) {
+                buffer[length++] = normalizeChar(c);
+            }
+        }
+        char[] result = new char[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * 比对考生填空答案与规范化后的标准答案
+     */
+    public static boolean fillMatches(char[] chars, int offset, int length, char[] expected) {
+        int j = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = chars[i];
+            if (isBlank(c)) {
+                continue;
+            }
+            if (j >= expected.length || normalizeChar(c) != expected[j]) {
+                return false;
+            }
+            j++;
+        }
+        return j == expected.length && expected.length > 0;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '　';
+    }
+
+    private static char normalizeChar(char c) {
+        if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0);
+        }
+        if (c >= 'A' && c <= 'Z') {
+            c = (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+}
@@ -0,0 +1,28 @@
+package com.zw.service.grading;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 考试记录完成系统评分事件
+ */
+@Getter
+@AllArgsConstructor
+public class ExamGradedEvent {
+
+    private final Long recordId;
+
+    private final Long userId;
+
+    private final Long paperId;
+
+    private final BigDecimal autoScore;
+
+    /**
+     * 写入 exam_record.score_time 的数据库时间
+     */
+    private final LocalDateTime scoreTime;
+}
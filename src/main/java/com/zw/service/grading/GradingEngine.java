@@ -0,0 +1,262 @@
+package com.zw.service.grading;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.zw.service.paper.PaperShuffle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+/**
+ * 客观题评分引擎
+ * <p>
+ * 用流式解析器逐个读取答题快照 {"题目ID": 答案, ...}，在编译好的 {@link AnswerKey} 上比对，
+ * 不构建JSON树、不查询数据库。单选、多选、判断题比较位掩码，填空题逐空比对规范化文本，
+ * 均为答全对得分、否则不得分。考试记录按考生乱序出卷时，选择题所选选项先按考生的选项顺序换回原选项再比对。
+ */
+@Slf4j
+@Component
+public class GradingEngine {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 评分，返回保留1位小数的分数
+     */
+    public BigDecimal grade(AnswerKey key, String answerSnapshot) {
+        return grade(key, answerSnapshot, null, false);
+    }
+
+    /**
+     * 评分考生的答卷，返回保留1位小数的分数
+     *
+     * @param userId   考生ID，乱序时用于还原选项
+     * @param shuffled 考试记录是否按考生乱序出卷（exam_record.shuffled），为false或userId为null时按原选项顺序评分
+     */
+    public BigDecimal grade(AnswerKey key, String answerSnapshot, Long userId, boolean shuffled) {
+        return BigDecimal.valueOf(gradeTenths(key, answerSnapshot, userId, shuffled, null), 1);
+    }
+
+    /**
+     * 评分，返回以0.1分为单位的整数分数
+     */
+    public int gradeTenths(AnswerKey key, String answerSnapshot) {
+        return gradeTenths(key, answerSnapshot, null, false, null);
+    }
+
+    /**
+     * 评分并逐题回调作答情况，返回以0.1分为单位的整数分数；回调的选项掩码已换回原选项
+     */
+    public int gradeTenths(AnswerKey key, String answerSnapshot, Long userId, boolean shuffled,
+                           AnswerVisitor visitor) {
+        if (key == null || key.size() == 0 || answerSnapshot == null || answerSnapshot.isBlank()) {
+            return 0;
+        }
+        shuffled = shuffled && userId != null;
+        long seed = shuffled ? PaperShuffle.seed(key.getPaperId(), userId) : 0L;
+        int[] optionOrder = shuffled ? new int[PaperShuffle.MAX_OPTIONS] : null;
+        try (JsonParser parser = JSON_FACTORY.createParser(answerSnapshot)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            // 已评分题目的位图，防止重复键重复计分
+            long[] graded = new long[(key.size() + 63) >>> 6];
+            int total = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int index = indexOf(key, parser.currentName());
+                JsonToken valueToken = parser.nextToken();
+                if (index < 0 || (graded[index >>> 6] & (1L << index)) != 0) {
+                    parser.skipChildren();
+                    continue;
+                }
+                graded[index >>> 6] |= 1L << index;
+                byte type = key.type(index);
+                int mask = 0;
+                boolean correct;
+                if (type == AnswerKey.TYPE_FILL) {
+                    correct = isFillCorrect(key.fillAnswer(index), parser, valueToken);
+                } else {
+                    mask = type == AnswerKey.TYPE_JUDGE
+                            ? readJudgeMask(parser, valueToken) : readChoiceMask(parser, valueToken);
+                    int optionCount = key.optionCount(index);
+                    if (shuffled && type != AnswerKey.TYPE_JUDGE && PaperShuffle.shufflable(optionCount)) {
+                        PaperShuffle.optionOrder(seed, key.questionId(index), optionOrder, optionCount);
+                        mask = PaperShuffle.toOriginalMask(mask, optionOrder, optionCount);
+                    }
+                    correct = mask != 0 && mask == key.mask(index);
+                }
+                if (correct) {
+                    total += key.score(index);
+                }
+                if (visitor != null) {
+                    visitor.visit(index, correct, mask);
+                }
+            }
+            return total;
+        } catch (IOException e) {
+            log.warn("答题快照解析失败, paperId={}: {}", key.getPaperId(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 把按考生乱序作答的快照中选择题所选的显示位置字母换回原选项字母，换算与评分一致，其他内容原样保留
+     */
+    public String toOriginalSnapshot(AnswerKey key, String answerSnapshot, Long userId) {
+        if (key == null || userId == null || answerSnapshot == null || answerSnapshot.isBlank()) {
+            return answerSnapshot;
+        }
+        long seed = PaperShuffle.seed(key.getPaperId(), userId);
+        int[] optionOrder = new int[PaperShuffle.MAX_OPTIONS];
+        StringWriter writer = new StringWriter(answerSnapshot.length());
+        try (JsonParser parser = JSON_FACTORY.createParser(answerSnapshot);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return answerSnapshot;
+            }
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int index = indexOf(key, parser.currentName());
+                generator.writeFieldName(parser.currentName());
+                JsonToken valueToken = parser.nextToken();
+                byte type = index >= 0 ? key.type(index) : AnswerKey.TYPE_UNKNOWN;
+                int optionCount = index >= 0 ? key.optionCount(index) : 0;
+                if ((type != AnswerKey.TYPE_SINGLE && type != AnswerKey.TYPE_MULTI)
+                        || !PaperShuffle.shufflable(optionCount)
+                        || (valueToken != JsonToken.VALUE_STRING && valueToken != JsonToken.START_ARRAY)) {
+                    generator.copyCurrentStructure(parser);
+                    continue;
+                }
+                PaperShuffle.optionOrder(seed, key.questionId(index), optionOrder, optionCount);
+                if (valueToken == JsonToken.VALUE_STRING) {
+                    generator.writeString(originalLetters(parser, optionOrder, optionCount));
+                    continue;
+                }
+                generator.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                        generator.writeString(originalLetters(parser, optionOrder, optionCount));
+                    } else {
+                        generator.copyCurrentStructure(parser);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            log.warn("答题快照解析失败, paperId={}: {}", key.getPaperId(), e.getMessage());
+            return answerSnapshot;
+        }
+        return writer.toString();
+    }
+
+    private static String originalLetters(JsonParser parser, int[] optionOrder, int optionCount) throws IOException {
+        int mask = AnswerMatcher.choiceMask(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        StringBuilder letters = new StringBuilder();
+        for (int bits = PaperShuffle.toOriginalMask(mask, optionOrder, optionCount); bits != 0; bits &= bits - 1) {
+            letters.append((char) ('A' + Integer.numberOfTrailingZeros(bits)));
+        }
+        return letters.toString();
+    }
+
+    private int readChoiceMask(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return AnswerMatcher.choiceMask(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        if (token == JsonToken.START_ARRAY) {
+            int mask = 0;
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (element == JsonToken.VALUE_STRING) {
+                    mask |= AnswerMatcher.choiceMask(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return mask;
+        }
+        parser.skipChildren();
+        return 0;
+    }
+
+    private int readJudgeMask(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_TRUE) {
+            return AnswerMatcher.JUDGE_TRUE;
+        }
+        if (token == JsonToken.VALUE_FALSE) {
+            return AnswerMatcher.JUDGE_FALSE;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return AnswerMatcher.judgeMask(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        parser.skipChildren();
+        return 0;
+    }
+
+    private boolean isFillCorrect(char[][] expected, JsonParser parser, JsonToken token) throws IOException {
+        if (expected == null || expected.length == 0) {
+            parser.skipChildren();
+            return false;
+        }
+        if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return expected.length == 1 && AnswerMatcher.fillMatches(
+                    parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), expected[0]);
+        }
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return false;
+        }
+        // 多个空按顺序逐一比对，需全部正确
+        boolean correct = true;
+        int blank = 0;
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element == JsonToken.START_ARRAY || element == JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                correct = false;
+            } else if (blank >= expected.length || !AnswerMatcher.fillMatches(
+                    parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), expected[blank])) {
+                correct = false;
+            }
+            blank++;
+        }
+        return correct && blank == expected.length;
+    }
+
+    /**
+     * 解析题目ID并定位，非数字键返回-1
+     */
+    private static int indexOf(AnswerKey key, String name) {
+        if (name == null || name.isEmpty() || name.length() > 18) {
+            return -1;
+        }
+        long questionId = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            questionId = questionId * 10 + (c - '0');
+        }
+        return key.indexOf(questionId);
+    }
+
+    /**
+     * 逐题作答回调，只回调快照中出现的题目
+     */
+    @FunctionalInterface
+    public interface AnswerVisitor {
+
+        /**
+         * @param index   题目在 {@link AnswerKey} 中的下标
+         * @param correct 是否答对
+         * @param mask    选择题、判断题所选选项的位掩码，填空题为0
+         */
+        void visit(int index, boolean correct, int mask);
+    }
+}
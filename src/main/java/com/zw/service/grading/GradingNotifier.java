@@ -0,0 +1,74 @@
+package com.zw.service.grading;
+
+import com.zw.vo.GradingResultVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 评分结果推送
+ * <p>
+ * 客户端按考试记录订阅，评分完成后推送一次 graded 事件并结束连接。
+ */
+@Slf4j
+@Component
+public class GradingNotifier {
+
+    private static final long SUBSCRIBE_TIMEOUT_MS = 60_000L;
+
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅考试记录的评分结果
+     */
+    public SseEmitter subscribe(Long recordId) {
+        SseEmitter emitter = new SseEmitter(SUBSCRIBE_TIMEOUT_MS);
+        subscribers.computeIfAbsent(recordId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        Runnable remove = () -> unsubscribe(recordId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 直接向单个订阅者推送结果（订阅前已完成评分的情况）
+     */
+    public void complete(SseEmitter emitter, GradingResultVO result) {
+        try {
+            emitter.send(SseEmitter.event().name("graded").data(result));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @EventListener
+    public void onGraded(ExamGradedEvent event) {
+        List<SseEmitter> emitters = subscribers.remove(event.getRecordId());
+        if (emitters == null) {
+            return;
+        }
+        GradingResultVO result = new GradingResultVO();
+        result.setRecordId(event.getRecordId());
+        result.setGraded(true);
+        result.setAutoScore(event.getAutoScore());
+        for (SseEmitter emitter : emitters) {
+            complete(emitter, result);
+        }
+    }
+
+    private void unsubscribe(Long recordId, SseEmitter emitter) {
+        subscribers.computeIfPresent(recordId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
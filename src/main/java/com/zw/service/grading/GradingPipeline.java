@@ -0,0 +1,254 @@
+package com.zw.service.grading;
+
+import com.zw.entity.ExamRecord;
+import com.zw.entity.Paper;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.mapper.PaperMapper;
+import com.zw.vo.GradingMetricsVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步评分流水线
+ * <p>
+ * 交卷只负责持久化答题快照，评分任务进入有界队列，由评分线程批量取出、
+ * 按批加载试卷并通过一条 UPDATE 写回系统评分。队列已满时在提交线程中直接评分，
+ * 保证交卷不会因评分积压而失败。评分完成的记录写入 grade_time，
+ * 应用重启后未评分的记录会被重新入队。
+ */
+@Slf4j
+@Component
+public class GradingPipeline {
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private PaperMapper paperMapper;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private GradingEngine gradingEngine;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${exam.grading.workers:4}")
+    private int workers;
+
+    @Value("${exam.grading.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${exam.grading.batch-size:200}")
+    private int batchSize;
+
+    @Value("${exam.grading.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<GradingTask> queue;
+
+    private ExecutorService workerPool;
+
+    private volatile boolean running;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    private final AtomicLong gradedCount = new AtomicLong();
+
+    private final AtomicLong inlineGradedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile long lastBatchLagMs;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "grading-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::drainLoop);
+        }
+        log.info("评分流水线已启动, workers={}, queueCapacity={}, batchSize={}", workers, queueCapacity, batchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+            // 未完成的任务没有写入 grade_time，下次启动时恢复
+            log.warn("评分流水线关闭超时, 剩余任务数={}", queue.size());
+            workerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交评分任务，队列已满时在当前线程直接评分
+     */
+    public void submit(GradingTask task) {
+        submittedCount.incrementAndGet();
+        try {
+            if (queue.offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inlineGradedCount.incrementAndGet();
+        gradeBatch(List.of(task));
+    }
+
+    /**
+     * 启动后恢复未评分的记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverUngraded() {
+        Thread thread = new Thread(() -> {
+            long lastId = 0L;
+            int recovered = 0;
+            try {
+                List<ExamRecord> records;
+                while (running && !(records = examRecordMapper.selectUngraded(lastId, batchSize)).isEmpty()) {
+                    for (ExamRecord record : records) {
+                        // 恢复时阻塞等待队列空位，不占用交卷请求的直接评分通道
+                        submittedCount.incrementAndGet();
+                        queue.put(GradingTask.of(record));
+                        lastId = record.getId();
+                        recovered++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("恢复未评分考试记录失败", e);
+            }
+            if (recovered > 0) {
+                log.info("已重新提交未评分考试记录 {} 条", recovered);
+            }
+        }, "grading-recovery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 流水线运行指标
+     */
+    public GradingMetricsVO metrics() {
+        GradingMetricsVO metrics = new GradingMetricsVO();
+        metrics.setQueueDepth(queue.size());
+        metrics.setQueueCapacity(queueCapacity);
+        metrics.setWorkers(workers);
+        GradingTask oldest = queue.peek();
+        metrics.setOldestTaskLagMs(oldest != null ? System.currentTimeMillis() - oldest.enqueueTime() : 0L);
+        metrics.setLastBatchLagMs(lastBatchLagMs);
+        metrics.setSubmittedCount(submittedCount.get());
+        metrics.setGradedCount(gradedCount.get());
+        metrics.setInlineGradedCount(inlineGradedCount.get());
+        metrics.setFailedCount(failedCount.get());
+        return metrics;
+    }
+
+    private void drainLoop() {
+        List<GradingTask> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                GradingTask first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                gradeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failedCount.addAndGet(batch.size());
+                log.error("批量评分失败, 本批任务数={}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void gradeBatch(List<GradingTask> batch) {
+        // 本批涉及的试卷一次查出
+        Set<Long> paperIds = new LinkedHashSet<>();
+        for (GradingTask task : batch) {
+            paperIds.add(task.paperId());
+        }
+        Map<Long, Paper> papers = new HashMap<>();
+        for (Paper paper : paperMapper.selectBatchIds(paperIds)) {
+            papers.put(paper.getId(), paper);
+        }
+
+        List<ExamRecord> graded = new ArrayList<>(batch.size());
+        List<GradingTask> gradedTasks = new ArrayList<>(batch.size());
+        long oldestEnqueueTime = Long.MAX_VALUE;
+        for (GradingTask task : batch) {
+            Paper paper = papers.get(task.paperId());
+            ExamRecord record = new ExamRecord();
+            record.setId(task.recordId());
+            try {
+                // 试卷已被删除时记0分
+                record.setAutoScore(paper == null
+                        ? new BigDecimal("0.0")
+                        : gradingEngine.grade(answerKeyCache.get(paper), task.answerSnapshot(), task.userId(),
+                                task.shuffled()));
+            } catch (Exception e) {
+                // 不写 grade_time，重启后重新评分
+                failedCount.incrementAndGet();
+                log.warn("考试记录评分失败, recordId={}, paperId={}: {}", task.recordId(), task.paperId(), e.getMessage());
+                continue;
+            }
+            graded.add(record);
+            gradedTasks.add(task);
+            oldestEnqueueTime = Math.min(oldestEnqueueTime, task.enqueueTime());
+        }
+        if (graded.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime scoreTime = examRecordMapper.selectNow();
+        examRecordMapper.batchUpdateAutoScore(graded, LocalDateTime.now(), scoreTime);
+        gradedCount.addAndGet(graded.size());
+        lastBatchLagMs = System.currentTimeMillis() - oldestEnqueueTime;
+
+        for (int i = 0; i < graded.size(); i++) {
+            GradingTask task = gradedTasks.get(i);
+            eventPublisher.publishEvent(new ExamGradedEvent(task.recordId(), task.userId(), task.paperId(),
+                    graded.get(i).getAutoScore(), scoreTime));
+        }
+    }
+}
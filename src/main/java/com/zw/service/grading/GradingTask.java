@@ -0,0 +1,15 @@
+package com.zw.service.grading;
+
+import com.zw.entity.ExamRecord;
+
+/**
+ * 待评分任务
+ */
+public record GradingTask(Long recordId, Long userId, Long paperId, boolean shuffled, String answerSnapshot,
+                          long enqueueTime) {
+
+    public static GradingTask of(ExamRecord record) {
+        return new GradingTask(record.getId(), record.getUserId(), record.getPaperId(),
+                Boolean.TRUE.equals(record.getShuffled()), record.getAnswerSnapshot(), System.currentTimeMillis());
+    }
+}
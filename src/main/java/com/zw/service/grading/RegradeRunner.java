@@ -0,0 +1,334 @@
+package com.zw.service.grading;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.zw.entity.ExamRecord;
+import com.zw.entity.Paper;
+import com.zw.entity.RegradeJob;
+import com.zw.exception.ApiException;
+import com.zw.mapper.ExamRecordMapper;
+import com.zw.mapper.PaperMapper;
+import com.zw.mapper.RegradeJobMapper;
+import com.zw.utils.JobUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 批量重新评分
+ * <p>
+ * 题目答案修改后，扫描所有试卷的题目数据找出引用该题的试卷，按考试记录ID顺序分块读取已交卷记录，
+ * 在独立的 fork-join 线程池中并行重算系统评分，只把分数变化的记录批量写回。
+ * 每块完成后把已处理的最大记录ID写入任务表作为断点，重启后从断点继续。
+ * 任务串行执行，评分线程数不超过CPU核数的一半，块之间留出间隔，不影响进行中的考试。
+ * 多实例部署时执行前先条件更新认领任务，执行期间定时写心跳，断点也只在仍持有任务时写入；
+ * 各实例定时扫描未完成的任务，原实例停机或心跳超过租约时间的任务由其他实例接管。
+ */
+@Slf4j
+@Component
+public class RegradeRunner {
+
+    private static final int PAPER_SCAN_BATCH = 500;
+
+    @Autowired
+    private RegradeJobMapper regradeJobMapper;
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private PaperMapper paperMapper;
+
+    @Autowired
+    private AnswerKeyCompiler answerKeyCompiler;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private GradingEngine gradingEngine;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${exam.regrade.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${exam.regrade.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    @Value("${exam.regrade.lease-seconds:120}")
+    private long leaseSeconds;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "regrade-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ForkJoinPool gradingPool =
+            new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final ScheduledExecutorService scanner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "regrade-job-scanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 已提交到本实例执行队列、尚未结束的任务
+     */
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本实例正在执行的任务
+     */
+    private volatile Long runningJobId;
+
+    @PreDestroy
+    public void shutdown() {
+        // 未完成的任务保留断点并释放认领，由其他实例或重启后继续
+        scanner.shutdownNow();
+        jobExecutor.shutdownNow();
+        gradingPool.shutdownNow();
+        try {
+            jobExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            regradeJobMapper.release(JobUtils.INSTANCE_ID);
+        } catch (Exception e) {
+            log.warn("释放重新评分任务失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 创建重新评分任务，没有试卷引用该题时返回null
+     */
+    public RegradeJob submit(Long questionId) {
+        List<Long> paperIds = findPapersReferencing(questionId);
+        if (paperIds.isEmpty()) {
+            return null;
+        }
+        RegradeJob job = new RegradeJob();
+        job.setQuestionId(questionId);
+        job.setPaperIds(paperIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        job.setStatus("PENDING");
+        job.setTotalCount(examRecordMapper.countForRegrade(paperIds).intValue());
+        job.setProcessedCount(0);
+        job.setChangedCount(0);
+        job.setLastRecordId(0L);
+        regradeJobMapper.insert(job);
+
+        enqueue(job.getId());
+        return job;
+    }
+
+    /**
+     * 查询任务进度
+     */
+    public RegradeJob getJob(Long jobId) {
+        RegradeJob job = regradeJobMapper.selectById(jobId);
+        if (job == null) {
+            throw new ApiException(404, "重新评分任务不存在");
+        }
+        return job;
+    }
+
+    /**
+     * 启动后开始定时扫描：为正在执行的任务写心跳，并把未完成的任务加入执行队列，实际执行前再认领
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        long period = Math.max(1, leaseSeconds / 3);
+        scanner.scheduleWithFixedDelay(this::scan, 0, period, TimeUnit.SECONDS);
+    }
+
+    private void scan() {
+        try {
+            Long running = runningJobId;
+            if (running != null) {
+                regradeJobMapper.heartbeat(running, JobUtils.INSTANCE_ID);
+            }
+            for (RegradeJob job : regradeJobMapper.selectUnfinished()) {
+                enqueue(job.getId());
+            }
+        } catch (Exception e) {
+            log.warn("扫描重新评分任务失败: {}", e.getMessage());
+        }
+    }
+
+    private void enqueue(Long jobId) {
+        if (queued.add(jobId)) {
+            jobExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    queued.remove(jobId);
+                }
+            });
+        }
+    }
+
+    private void run(Long jobId) {
+        // 认领失败说明任务已完成或由其他实例执行
+        if (regradeJobMapper.claim(jobId, JobUtils.INSTANCE_ID, leaseSeconds) == 0) {
+            return;
+        }
+        RegradeJob job = regradeJobMapper.selectById(jobId);
+        if (job == null) {
+            return;
+        }
+        log.info("开始重新评分任务{}, 断点记录ID={}", jobId, job.getLastRecordId());
+        runningJobId = jobId;
+        try {
+            List<Long> paperIds = parsePaperIds(job.getPaperIds());
+            Map<Long, AnswerKey> keys = compileKeys(paperIds);
+
+            long lastId = job.getLastRecordId() != null ? job.getLastRecordId() : 0L;
+            List<ExamRecord> chunk;
+            while (!(chunk = examRecordMapper.selectForRegrade(paperIds, lastId, chunkSize)).isEmpty()) {
+                List<ExamRecord> changed = regradeChunk(chunk, keys);
+                if (!changed.isEmpty()) {
+                    LocalDateTime scoreTime = examRecordMapper.selectNow();
+                    examRecordMapper.batchUpdateAutoScore(changed, LocalDateTime.now(), scoreTime);
+                    for (ExamRecord record : changed) {
+                        eventPublisher.publishEvent(new ExamGradedEvent(record.getId(), record.getUserId(),
+                                record.getPaperId(), record.getAutoScore(), scoreTime));
+                    }
+                }
+                lastId = chunk.get(chunk.size() - 1).getId();
+
+                // 写入断点，同时确认仍持有任务
+                RegradeJob checkpoint = new RegradeJob();
+                checkpoint.setLastRecordId(lastId);
+                checkpoint.setProcessedCount(job.getProcessedCount() + chunk.size());
+                checkpoint.setChangedCount(job.getChangedCount() + changed.size());
+                if (!updateOwned(jobId, checkpoint)) {
+                    log.warn("重新评分任务{}已由其他实例接管, 停止执行", jobId);
+                    return;
+                }
+                job.setProcessedCount(checkpoint.getProcessedCount());
+                job.setChangedCount(checkpoint.getChangedCount());
+
+                if (chunkPauseMs > 0) {
+                    Thread.sleep(chunkPauseMs);
+                }
+            }
+            job.setFinishTime(LocalDateTime.now());
+            updateStatus(job, "COMPLETED", null);
+            log.info("重新评分任务{}完成, 处理{}条, 分数变化{}条", jobId, job.getProcessedCount(), job.getChangedCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("重新评分任务{}失败", jobId, e);
+            updateStatus(job, "FAILED", e.getMessage());
+        } finally {
+            runningJobId = null;
+        }
+    }
+
+    /**
+     * 并行重算一块记录，返回分数变化的记录
+     */
+    private List<ExamRecord> regradeChunk(List<ExamRecord> chunk, Map<Long, AnswerKey> keys)
+            throws InterruptedException, ExecutionException {
+        return gradingPool.submit(() -> chunk.parallelStream()
+                .filter(record -> keys.containsKey(record.getPaperId()))
+                .map(record -> {
+                    BigDecimal score = gradingEngine.grade(keys.get(record.getPaperId()), record.getAnswerSnapshot(),
+                            record.getUserId(), Boolean.TRUE.equals(record.getShuffled()));
+                    if (record.getAutoScore() != null && record.getAutoScore().compareTo(score) == 0) {
+                        return null;
+                    }
+                    ExamRecord updated = new ExamRecord();
+                    updated.setId(record.getId());
+                    updated.setUserId(record.getUserId());
+                    updated.setPaperId(record.getPaperId());
+                    updated.setAutoScore(score);
+                    return updated;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())).get();
+    }
+
+    /**
+     * 清除缓存后按最新题目答案重新编译
+     */
+    private Map<Long, AnswerKey> compileKeys(List<Long> paperIds) {
+        Map<Long, AnswerKey> keys = new HashMap<>();
+        for (Paper paper : paperMapper.selectBatchIds(paperIds)) {
+            answerKeyCache.invalidate(paper.getId());
+            keys.put(paper.getId(), answerKeyCache.get(paper));
+        }
+        return keys;
+    }
+
+    private List<Long> findPapersReferencing(Long questionId) {
+        List<Long> paperIds = new ArrayList<>();
+        long lastId = 0L;
+        List<Paper> papers;
+        while (!(papers = paperMapper.selectQuestionDataAfter(lastId, PAPER_SCAN_BATCH)).isEmpty()) {
+            for (Paper paper : papers) {
+                try {
+                    if (answerKeyCompiler.questionIds(paper).contains(questionId)) {
+                        paperIds.add(paper.getId());
+                    }
+                } catch (ApiException e) {
+                    log.warn("试卷{}题目数据格式错误, 跳过", paper.getId());
+                }
+                lastId = paper.getId();
+            }
+        }
+        return paperIds;
+    }
+
+    private void updateStatus(RegradeJob job, String status, String errorMessage) {
+        RegradeJob update = new RegradeJob();
+        update.setStatus(status);
+        update.setErrorMessage(JobUtils.errorMessage(errorMessage));
+        update.setFinishTime(job.getFinishTime());
+        if (updateOwned(job.getId(), update)) {
+            job.setStatus(status);
+        }
+    }
+
+    /**
+     * 仅在本实例仍持有任务时更新，顺带刷新心跳
+     */
+    private boolean updateOwned(Long jobId, RegradeJob update) {
+        return regradeJobMapper.update(update, new LambdaUpdateWrapper<RegradeJob>()
+                .eq(RegradeJob::getId, jobId)
+                .eq(RegradeJob::getOwner, JobUtils.INSTANCE_ID)
+                .setSql("heartbeat_time = NOW()")) > 0;
+    }
+
+    private static List<Long> parsePaperIds(String paperIds) {
+        List<Long> ids = new ArrayList<>();
+        if (StringUtils.hasText(paperIds)) {
+            for (String id : paperIds.split(",")) {
+                ids.add(Long.valueOf(id.trim()));
+            }
+        }
+        return ids;
+    }
+}
@@ -4,19 +4,50 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.common.CursorPage;
 import com.zw.entity.ExamRecord;
+import com.zw.entity.ItemAnalysis;
 import com.zw.entity.Paper;
+import com.zw.entity.User;
+import com.zw.exception.ApiException;
 import com.zw.mapper.ExamRecordMapper;
+import com.zw.mapper.ItemAnalysisMapper;
 import com.zw.service.ExamRecordService;
+import com.zw.service.exam.AnswerDraftBuffer;
+import com.zw.service.exam.ExamAdmission;
+import com.zw.service.exam.ExamDeadlineScheduler;
+import com.zw.service.exam.ExamLeaderboard;
+import com.zw.service.exam.ExamStatisticsAggregator;
+import com.zw.service.exam.ItemAnalyzer;
+import com.zw.service.export.ExamRecordExporter;
 import com.zw.service.PaperService;
-import com.zw.service.UserService;
+import com.zw.service.grading.AnswerKey;
+import com.zw.service.grading.AnswerKeyCache;
+import com.zw.service.grading.ExamManualScoredEvent;
+import com.zw.service.grading.GradingEngine;
+import com.zw.service.grading.GradingPipeline;
+import com.zw.service.grading.GradingTask;
+import com.zw.service.paper.PaperRenderer;
+import com.zw.service.support.AssociationLoader;
+import com.zw.utils.CursorUtils;
+import com.zw.utils.PageUtils;
+import com.zw.utils.TransactionUtils;
+import com.zw.vo.ExamPaperVO;
+import com.zw.vo.GradingResultVO;
+import com.zw.vo.LeaderboardEntryVO;
+import com.zw.vo.RankVO;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,18 +58,63 @@ public class ExamRecordServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRec
     private PaperService paperService;
     
     @Autowired
-    private UserService userService;
+    private AssociationLoader associationLoader;
+    
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+    
+    @Autowired
+    private GradingEngine gradingEngine;
+    
+    @Autowired
+    private GradingPipeline gradingPipeline;
+    
+    @Autowired
+    private ExamDeadlineScheduler examDeadlineScheduler;
+    
+    @Autowired
+    private AnswerDraftBuffer answerDraftBuffer;
+    
+    @Autowired
+    private ExamAdmission examAdmission;
+    
+    @Autowired
+    private ExamStatisticsAggregator examStatisticsAggregator;
+    
+    @Autowired
+    private ExamLeaderboard examLeaderboard;
+    
+    @Autowired
+    private ItemAnalyzer itemAnalyzer;
+    
+    @Autowired
+    private ItemAnalysisMapper itemAnalysisMapper;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PaperRenderer paperRenderer;
+    
+    @Autowired
+    private ExamRecordExporter examRecordExporter;
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public ExamRecord startExam(Long userId, Long paperId) {
-        // 检查用户是否已参加该考试
-        if (hasUserTakenExam(userId, paperId)) {
-            throw new RuntimeException("您已经参加过该考试");
+        // 已参加过时返回已有记录，重复点击不报错
+        Long recordId = examAdmission.findRecordId(userId, paperId);
+        if (recordId != null) {
+            ExamRecord existing = getById(recordId);
+            if (existing != null) {
+                return existing;
+            }
         }
         
         // 检查考试是否在有效期内
-        Paper paper = paperService.getById(paperId);
+        Paper paper = examAdmission.getPaper(paperId);
         if (paper == null) {
             throw new RuntimeException("考试不存在");
         }
@@ -51,16 +127,13 @@ public class ExamRecordServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRec
             throw new RuntimeException("考试已结束");
         }
         
-        // 创建考试记录
-        ExamRecord record = new ExamRecord();
-        record.setUserId(userId);
-        record.setPaperId(paperId);
-        record.setStartTime(now);
-        record.setStatus("PROGRESS");
-        record.setAutoScore(new BigDecimal("0"));
-        record.setManualScore(new BigDecimal("0"));
+        // 创建考试记录，合并批量写入
+        ExamRecord record = examAdmission.admit(userId, paperId, now);
         
-        save(record);
+        // 登记截止时间，到期自动交卷
+        if ("PROGRESS".equals(record.getStatus())) {
+            examDeadlineScheduler.schedule(record, paper);
+        }
         
         return record;
     }
@@ -77,21 +150,97 @@ public class ExamRecordServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRec
             throw new RuntimeException("该考试已结束，不能重复提交");
         }
         
+        // 未提交答案时以草稿作为最终答案
+        if (!StringUtils.hasText(answerSnapshot)) {
+            answerSnapshot = answerDraftBuffer.snapshot(recordId);
+        }
+        
+        // 只持久化答题快照，条件更新防止并发重复交卷
         LocalDateTime now = LocalDateTime.now();
+        if (baseMapper.submitAnswer(recordId, answerSnapshot, now, "SUBMITTED") == 0) {
+            throw new RuntimeException("该考试已结束，不能重复提交");
+        }
         record.setSubmitTime(now);
         record.setAnswerSnapshot(answerSnapshot);
         record.setStatus("SUBMITTED");
         
-        // 计算自动评分
-        BigDecimal autoScore = calculateAutoScore(record.getPaperId(), answerSnapshot);
-        record.setAutoScore(autoScore);
+        // 事务提交后进入评分队列，系统评分异步写回
+        GradingTask task = GradingTask.of(record);
+        TransactionUtils.afterCommit(() -> {
+            answerDraftBuffer.discard(recordId);
+            examDeadlineScheduler.cancel(recordId);
+            gradingPipeline.submit(task);
+        });
         
-        // 更新记录
-        updateById(record);
+        return record;
+    }
+    
+    @Override
+    public int saveDraft(Long recordId, Long userId, Map<String, JsonNode> answers) {
+        checkInProgress(recordId, userId, "无权修改该考试草稿", "该考试已结束，不能保存草稿");
+        return answerDraftBuffer.save(recordId, answers);
+    }
+    
+    @Override
+    public JsonNode getDraft(Long recordId, Long userId) {
+        checkInProgress(recordId, userId, "无权查看该考试草稿", "该考试已结束，不能获取草稿");
+        String snapshot = answerDraftBuffer.snapshot(recordId);
+        if (!StringUtils.hasText(snapshot)) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            return objectMapper.readTree(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("答题草稿解析失败");
+        }
+    }
+    
+    @Override
+    public ExamPaperVO getExamPaper(Long recordId, Long userId) {
+        ExamRecord record = checkInProgress(recordId, userId, "无权查看该考试试卷", "该考试已结束，不能获取试卷");
         
+        // 基础试卷按发布缓存，乱序的记录按考生ID即时乱序
+        ExamPaperVO paper = paperRenderer.render(record.getPaperId(), record.getUserId(),
+                Boolean.TRUE.equals(record.getShuffled()));
+        paper.setRecordId(recordId);
+        return paper;
+    }
+    
+    /**
+     * 校验考试记录属于该考生且仍在进行中
+     */
+    private ExamRecord checkInProgress(Long recordId, Long userId, String forbiddenMessage, String endedMessage) {
+        ExamRecord record = getById(recordId);
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在");
+        }
+        if (!record.getUserId().equals(userId)) {
+            throw new ApiException(403, forbiddenMessage);
+        }
+        if (!"PROGRESS".equals(record.getStatus())) {
+            throw new ApiException(400, endedMessage);
+        }
         return record;
     }
     
+    @Override
+    public GradingResultVO getGradingResult(Long recordId) {
+        ExamRecord record = getById(recordId);
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在");
+        }
+        
+        GradingResultVO result = new GradingResultVO();
+        result.setRecordId(record.getId());
+        result.setStatus(record.getStatus());
+        result.setGraded(record.getGradeTime() != null);
+        result.setAutoScore(record.getAutoScore());
+        result.setManualScore(record.getManualScore());
+        result.setFinalScore(record.getFinalScore());
+        result.setGradeTime(record.getGradeTime());
+        return result;
+    }
+    
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void autoSubmitExam(Long recordId) {
@@ -100,9 +249,20 @@ public class ExamRecordServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRec
             return;
         }
         
-        record.setSubmitTime(LocalDateTime.now());
-        record.setStatus("TIMEOUT");
-        updateById(record);
+        // 按最新的答题草稿评分
+        String draft = answerDraftBuffer.snapshot(recordId);
+        record.setAnswerSnapshot(draft);
+        LocalDateTime now = LocalDateTime.now();
+        if (baseMapper.submitAnswer(recordId, draft, now, "TIMEOUT") == 0) {
+            return;
+        }
+        
+        GradingTask task = GradingTask.of(record);
+        TransactionUtils.afterCommit(() -> {
+            answerDraftBuffer.discard(recordId);
+            examDeadlineScheduler.cancel(recordId);
+            gradingPipeline.submit(task);
+        });
     }
     
     @Override
@@ -117,17 +277,25 @@ public class ExamRecordServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRec
             throw new RuntimeException("当前状态不允许评分");
         }
         
-        record.setManualScore(score);
-        record.setStatus("REVIEWING");
-        updateById(record);
+        // 只更新评分字段，不回写答题快照
+        LocalDateTime scoreTime = baseMapper.selectNow();
+        baseMapper.updateManualScore(recordId, score, scoreTime);
+        
+        // 事务提交后更新成绩统计
+        ExamManualScoredEvent event = new ExamManualScoredEvent(recordId, record.getPaperId(), score, scoreTime);
+        TransactionUtils.afterCommit(() -> eventPublisher.publishEvent(event));
     }
     
     @Override
     public ExamRecord getRecordDetail(Long recordId) {
         ExamRecord record = getById(recordId);
         if (record != null) {
-            record.setUser(userService.getById(record.getUserId()));
-            record.setPaper(paperService.getById(record.getPaperId()));
+            associationLoader.fillRecordDetail(record);
+            if (Boolean.TRUE.equals(record.getShuffled()) && record.getPaper() != null) {
+                // 乱序记录保存的是显示位置的选项字母，按评分时的换算还原为原选项
+                record.setAnswerSnapshot(gradingEngine.toOriginalSnapshot(answerKeyCache.get(record.getPaper()),
+                        record.getAnswerSnapshot(), record.getUserId()));
+            }
         }
         return record;
     }
@@ -135,74 +303,134 @@ public class ExamRecordServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRec
     @Override
     public List<ExamRecord> getUserRecords(Long userId) {
         List<ExamRecord> records = baseMapper.selectByUserId(userId);
-        for (ExamRecord record : records) {
-            record.setPaper(paperService.getById(record.getPaperId()));
-        }
+        associationLoader.fillRecordPapers(records);
         return records;
     }
     
     @Override
-    public IPage<ExamRecord> getRecordPage(Long userId, Long paperId, String status, Integer pageNum, Integer pageSize) {
-        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
-        
-        if (userId != null) {
-            wrapper.eq(ExamRecord::getUserId, userId);
-        }
-        if (paperId != null) {
-            wrapper.eq(ExamRecord::getPaperId, paperId);
-        }
-        if (status != null && !status.isEmpty()) {
-            wrapper.eq(ExamRecord::getStatus, status);
-        }
+    public IPage<ExamRecord> getRecordPage(Long userId, Long paperId, String status, Integer pageNum, Integer pageSize,
+                                           Boolean searchCount) {
+        LambdaQueryWrapper<ExamRecord> wrapper = buildQueryWrapper(userId, paperId, status);
         
         wrapper.orderByDesc(ExamRecord::getCreateTime);
         
-        Page<ExamRecord> page = new Page<>(pageNum, pageSize);
+        Page<ExamRecord> page = PageUtils.of(pageNum, pageSize, searchCount);
         IPage<ExamRecord> recordPage = page(page, wrapper);
         
-        // 设置关联信息
-        for (ExamRecord record : recordPage.getRecords()) {
-            record.setUser(userService.getById(record.getUserId()));
-            record.setPaper(paperService.getById(record.getPaperId()));
-        }
+        // 批量设置关联信息
+        associationLoader.fillRecords(recordPage.getRecords());
         
         return recordPage;
     }
     
     @Override
-    public Map<String, Object> getExamStatistics(Long paperId) {
-        Map<String, Object> statistics = new HashMap<>();
+    public CursorPage<ExamRecord> getRecordCursor(Long userId, Long paperId, String status, String cursor, Integer size) {
+        LambdaQueryWrapper<ExamRecord> wrapper = buildQueryWrapper(userId, paperId, status);
         
-        // 参考人数
-        Long totalCount = baseMapper.countByPaperId(paperId);
-        statistics.put("totalCount", totalCount);
+        // 从上一页最后一行之后开始查询
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        if (position != null) {
+            wrapper.apply("(create_time < {0} OR (create_time = {0} AND id < {1}))", position.time(), position.id());
+        }
         
-        // 平均分
-        BigDecimal avgScore = baseMapper.getAverageScore(paperId);
-        statistics.put("averageScore", avgScore != null ? avgScore : new BigDecimal("0"));
+        int pageSize = CursorUtils.normalizeSize(size);
+        wrapper.orderByDesc(ExamRecord::getCreateTime).orderByDesc(ExamRecord::getId);
+        wrapper.last(CursorUtils.limitClause(pageSize));
         
-        // 最高分
-        BigDecimal highestScore = baseMapper.getHighestScore(paperId);
-        statistics.put("highestScore", highestScore != null ? highestScore : new BigDecimal("0"));
+        CursorPage<ExamRecord> recordPage = CursorUtils.toPage(list(wrapper), pageSize,
+                ExamRecord::getCreateTime, ExamRecord::getId);
         
-        // 最低分
-        BigDecimal lowestScore = baseMapper.getLowestScore(paperId);
-        statistics.put("lowestScore", lowestScore != null ? lowestScore : new BigDecimal("0"));
+        // 批量设置关联信息
+        associationLoader.fillRecords(recordPage.getRecords());
         
-        return statistics;
+        return recordPage;
+    }
+    
+    @Override
+    public void exportRecords(HttpServletResponse response, Long userId, Long paperId, String status) {
+        examRecordExporter.export(response, userId, paperId, status);
+    }
+    
+    @Override
+    public Map<String, Object> getExamStatistics(Long paperId) {
+        return examStatisticsAggregator.getStatistics(paperId);
+    }
+    
+    @Override
+    public List<ItemAnalysis> getItemAnalysis(Long paperId) {
+        List<ItemAnalysis> items = itemAnalysisMapper.selectByPaperId(paperId);
+        if (items.isEmpty()) {
+            items = itemAnalyzer.analyze(paperId);
+        }
+        associationLoader.fillItemAnalyses(items);
+        return items;
+    }
+    
+    @Override
+    public List<ItemAnalysis> analyzeItems(Long paperId) {
+        List<ItemAnalysis> items = itemAnalyzer.analyze(paperId);
+        associationLoader.fillItemAnalyses(items);
+        return items;
+    }
+    
+    @Override
+    public List<LeaderboardEntryVO> getLeaderboard(Long paperId, Integer top) {
+        int limit = top == null || top < 1 ? 10 : Math.min(top, 100);
+        List<LeaderboardEntryVO> entries = examLeaderboard.top(paperId, limit);
+        
+        // 批量填充用户信息
+        Map<Long, User> users = associationLoader.loadUsers(
+                entries.stream().map(LeaderboardEntryVO::getUserId).toList());
+        for (LeaderboardEntryVO entry : entries) {
+            User user = users.get(entry.getUserId());
+            if (user != null) {
+                entry.setUsername(user.getUsername());
+                entry.setRealName(user.getRealName());
+            }
+        }
+        return entries;
+    }
+    
+    @Override
+    public RankVO getUserRank(Long paperId, Long userId) {
+        return examLeaderboard.rankOf(paperId, userId);
     }
     
     @Override
     public boolean hasUserTakenExam(Long userId, Long paperId) {
-        Integer count = baseMapper.countByUserIdAndPaperId(userId, paperId);
-        return count != null && count > 0;
+        return examAdmission.findRecordId(userId, paperId) != null;
+    }
+    
+    /**
+     * 构建考试记录列表查询条件
+     */
+    private LambdaQueryWrapper<ExamRecord> buildQueryWrapper(Long userId, Long paperId, String status) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        // 列表不展示答题快照，只在记录详情中加载
+        wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getPaperId, ExamRecord::getStartTime,
+                ExamRecord::getSubmitTime, ExamRecord::getAutoScore, ExamRecord::getManualScore,
+                ExamRecord::getStatus, ExamRecord::getGradeTime, ExamRecord::getCreateTime);
+        if (userId != null) {
+            wrapper.eq(ExamRecord::getUserId, userId);
+        }
+        if (paperId != null) {
+            wrapper.eq(ExamRecord::getPaperId, paperId);
+        }
+        if (status != null && !status.isEmpty()) {
+            wrapper.eq(ExamRecord::getStatus, status);
+        }
+        return wrapper;
     }
     
     @Override
-    public BigDecimal calculateAutoScore(Long paperId, String answerSnapshot) {
-        // TODO: 实现自动评分逻辑
-        // 这需要解析答题快照和试卷信息，比对答案并计算分数
-        // 简单起见，这里先返回0分，实际实现需要根据具体业务逻辑
-        return new BigDecimal("0");
+    public BigDecimal calculateAutoScore(Long paperId, Long userId, boolean shuffled, String answerSnapshot) {
+        Paper paper = paperService.getById(paperId);
+        if (paper == null || !StringUtils.hasText(answerSnapshot)) {
+            return new BigDecimal("0");
+        }
+        
+        // 使用缓存的试卷标准答案比对客观题
+        AnswerKey answerKey = answerKeyCache.get(paper);
+        return gradingEngine.grade(answerKey, answerSnapshot, userId, shuffled);
     }
 } 
\ No newline at end of file
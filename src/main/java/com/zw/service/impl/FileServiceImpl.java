@@ -6,11 +6,11 @@ import com.aliyun.oss.model.PutObjectRequest;
 import com.zw.config.OssConfig;
 import com.zw.exception.ApiException;
 import com.zw.service.FileService;
+import com.zw.service.export.ExcelColumn;
+import com.zw.service.export.StreamingExcelWriter;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xwpf.usermodel.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -38,6 +39,7 @@ public class FileServiceImpl implements FileService {
 
     private final OSS ossClient;
     private final OssConfig ossConfig;
+    private final StreamingExcelWriter streamingExcelWriter;
     
     @Value("${aliyun.oss.bucketName}")
     private String bucketName;
@@ -163,73 +165,13 @@ public class FileServiceImpl implements FileService {
     @Override
     public void exportExcel(HttpServletResponse response, String fileName, String sheetName, 
                            String[] headers, List<Map<String, Object>> dataList) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            // 创建工作表
-            Sheet sheet = workbook.createSheet(sheetName);
-            
-            // 设置列宽
-            for (int i = 0; i < headers.length; i++) {
-                sheet.setColumnWidth(i, 20 * 256);
-            }
-            
-            // 创建标题样式
-            CellStyle headerStyle = workbook.createCellStyle();
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
-            headerStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-            
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-            
-            // 创建数据样式
-            CellStyle dataStyle = workbook.createCellStyle();
-            dataStyle.setAlignment(HorizontalAlignment.CENTER);
-            dataStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-            
-            // 填充表头
-            Row headerRow = sheet.createRow(0);
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-            
-            // 填充数据
-            if (dataList != null && !dataList.isEmpty()) {
-                for (int i = 0; i < dataList.size(); i++) {
-                    Row dataRow = sheet.createRow(i + 1);
-                    Map<String, Object> rowData = dataList.get(i);
-                    
-                    int cellIndex = 0;
-                    for (String key : rowData.keySet()) {
-                        if (cellIndex < headers.length) {
-                            Cell cell = dataRow.createCell(cellIndex++);
-                            Object value = rowData.get(key);
-                            if (value != null) {
-                                cell.setCellValue(value.toString());
-                            } else {
-                                cell.setCellValue("");
-                            }
-                            cell.setCellStyle(dataStyle);
-                        }
-                    }
-                }
-            }
-            
-            // 配置响应头
-            setExportResponseHeader(response, fileName + ".xlsx");
-            
-            // 写入响应流
-            try (OutputStream os = response.getOutputStream()) {
-                workbook.write(os);
-                os.flush();
-            }
-        } catch (IOException e) {
-            log.error("Export Excel error", e);
-            throw new ApiException("导出Excel文件失败");
+        // 按表头取值，列顺序与 headers 一致，不依赖 Map 的遍历顺序
+        List<ExcelColumn<Map<String, Object>>> columns = new ArrayList<>(headers.length);
+        for (String header : headers) {
+            columns.add(ExcelColumn.of(header, row -> row.get(header)));
         }
+        streamingExcelWriter.write(response, fileName, sheetName, columns,
+                dataList != null ? dataList : List.of());
     }
     
     @Override
@@ -3,14 +3,19 @@ package com.zw.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zw.common.CursorPage;
 import com.zw.dto.LogQueryDTO;
 import com.zw.entity.AccessLog;
 import com.zw.entity.OperationLog;
 import com.zw.mapper.AccessLogMapper;
 import com.zw.mapper.OperationLogMapper;
 import com.zw.service.MonitorService;
+import com.zw.service.export.AccessLogExporter;
+import com.zw.utils.CursorUtils;
+import com.zw.utils.PageUtils;
 import com.zw.vo.AccessStatsVO;
 import com.zw.vo.SystemHealthVO;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -33,6 +38,7 @@ public class MonitorServiceImpl implements MonitorService {
 
     private final OperationLogMapper operationLogMapper;
     private final AccessLogMapper accessLogMapper;
+    private final AccessLogExporter accessLogExporter;
 
     @Override
     public IPage<OperationLog> getOperationLogs(LogQueryDTO queryDTO) {
@@ -67,15 +73,51 @@ public class MonitorServiceImpl implements MonitorService {
         wrapper.orderByDesc(OperationLog::getOperTime);
         
         // 执行分页查询
-        Page<OperationLog> page = new Page<>(queryDTO.getPageNum(), queryDTO.getPageSize());
+        Page<OperationLog> page = PageUtils.of(queryDTO.getPageNum(), queryDTO.getPageSize(), queryDTO.getSearchCount());
         return operationLogMapper.selectPage(page, wrapper);
     }
 
     @Override
     public IPage<AccessLog> getAccessLogs(LogQueryDTO queryDTO) {
+        LambdaQueryWrapper<AccessLog> wrapper = buildAccessLogWrapper(queryDTO);
+        
+        // 设置排序
+        wrapper.orderByDesc(AccessLog::getAccessTime);
+        
+        // 执行分页查询
+        Page<AccessLog> page = PageUtils.of(queryDTO.getPageNum(), queryDTO.getPageSize(), queryDTO.getSearchCount());
+        return accessLogMapper.selectPage(page, wrapper);
+    }
+
+    @Override
+    public CursorPage<AccessLog> getAccessLogCursor(LogQueryDTO queryDTO) {
+        LambdaQueryWrapper<AccessLog> wrapper = buildAccessLogWrapper(queryDTO);
+        
+        // 从上一页最后一行之后开始查询，走idx_access_time索引
+        CursorUtils.Cursor position = CursorUtils.decode(queryDTO.getCursor());
+        if (position != null) {
+            wrapper.apply("(access_time < {0} OR (access_time = {0} AND id < {1}))", position.time(), position.id());
+        }
+        
+        int pageSize = CursorUtils.normalizeSize(queryDTO.getPageSize());
+        wrapper.orderByDesc(AccessLog::getAccessTime).orderByDesc(AccessLog::getId);
+        wrapper.last(CursorUtils.limitClause(pageSize));
+        
+        return CursorUtils.toPage(accessLogMapper.selectList(wrapper), pageSize,
+                AccessLog::getAccessTime, AccessLog::getId);
+    }
+    
+    @Override
+    public void exportAccessLogs(HttpServletResponse response, LogQueryDTO queryDTO) {
+        accessLogExporter.export(response, queryDTO);
+    }
+    
+    /**
+     * 构建访问日志查询条件
+     */
+    private LambdaQueryWrapper<AccessLog> buildAccessLogWrapper(LogQueryDTO queryDTO) {
         LambdaQueryWrapper<AccessLog> wrapper = new LambdaQueryWrapper<>();
         
-        // 添加查询条件
         if (StringUtils.hasText(queryDTO.getUsername())) {
             wrapper.like(AccessLog::getUsername, queryDTO.getUsername());
         }
@@ -96,12 +138,7 @@ public class MonitorServiceImpl implements MonitorService {
             wrapper.le(AccessLog::getAccessTime, queryDTO.getEndTime());
         }
         
-        // 设置排序
-        wrapper.orderByDesc(AccessLog::getAccessTime);
-        
-        // 执行分页查询
-        Page<AccessLog> page = new Page<>(queryDTO.getPageNum(), queryDTO.getPageSize());
-        return accessLogMapper.selectPage(page, wrapper);
+        return wrapper;
     }
 
     @Override
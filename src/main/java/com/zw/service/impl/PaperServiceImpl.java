@@ -4,32 +4,93 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.dto.PaperBlueprintDTO;
+import com.zw.entity.ExamRecord;
 import com.zw.entity.Paper;
+import com.zw.entity.User;
+import com.zw.exception.ApiException;
+import com.zw.mapper.ExamRecordMapper;
 import com.zw.mapper.PaperMapper;
+import com.zw.mapper.UserMapper;
 import com.zw.service.PaperService;
-import com.zw.service.SubjectService;
-import com.zw.service.UserService;
+import com.zw.service.exam.ExamAdmission;
+import com.zw.service.grading.AnswerKeyCache;
+import com.zw.service.paper.PaperAssembler;
+import com.zw.service.paper.PaperDocxRenderer;
+import com.zw.service.paper.PaperRenderer;
+import com.zw.service.support.AssociationLoader;
+import com.zw.utils.TransactionUtils;
+import com.zw.utils.PageUtils;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+@Slf4j
 @Service
 public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements PaperService {
 
     @Autowired
-    private SubjectService subjectService;
+    private AssociationLoader associationLoader;
     
     @Autowired
-    private UserService userService;
+    private AnswerKeyCache answerKeyCache;
+    
+    @Autowired
+    private ExamAdmission examAdmission;
+    
+    @Autowired
+    private PaperAssembler paperAssembler;
+    
+    @Autowired
+    private PaperRenderer paperRenderer;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PaperDocxRenderer paperDocxRenderer;
+    
+    @Autowired
+    private UserMapper userMapper;
+    
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+    
+    @Value("${exam.paper-docx.max-variants:500}")
+    private int maxDocxVariants;
+    
+    @Value("${exam.shuffle.enabled:false}")
+    private boolean shuffleEnabled;
     
     @Override
-    public IPage<Paper> getPaperPage(Long subjectId, String title, Integer status, Integer pageNum, Integer pageSize) {
+    public IPage<Paper> getPaperPage(Long subjectId, String title, Integer status, Integer pageNum, Integer pageSize,
+                                    Boolean searchCount) {
         LambdaQueryWrapper<Paper> wrapper = new LambdaQueryWrapper<>();
         
+        // 列表不展示试题数据，只在试卷详情中加载
+        wrapper.select(Paper::getId, Paper::getTitle, Paper::getSubjectId, Paper::getTotalScore, Paper::getTimeLimit,
+                Paper::getCreatorId, Paper::getExamStart, Paper::getExamEnd, Paper::getStatus,
+                Paper::getCreateTime, Paper::getUpdateTime);
+        
         // 构建查询条件
         if (subjectId != null) {
             wrapper.eq(Paper::getSubjectId, subjectId);
@@ -45,11 +106,11 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
         wrapper.orderByDesc(Paper::getCreateTime);
         
         // 执行分页查询
-        Page<Paper> page = new Page<>(pageNum, pageSize);
+        Page<Paper> page = PageUtils.of(pageNum, pageSize, searchCount);
         IPage<Paper> paperPage = page(page, wrapper);
         
-        // 设置关联信息
-        paperPage.getRecords().forEach(this::setPaperAssociations);
+        // 批量设置关联信息
+        associationLoader.fillPapers(paperPage.getRecords());
         
         return paperPage;
     }
@@ -58,7 +119,7 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
     public Paper getPaperDetail(Long id) {
         Paper paper = getById(id);
         if (paper != null) {
-            setPaperAssociations(paper);
+            associationLoader.fillPapers(List.of(paper));
         }
         return paper;
     }
@@ -75,6 +136,8 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
     @Transactional(rollbackFor = Exception.class)
     public void updatePaper(Paper paper) {
         updateById(paper);
+        associationLoader.clear();
+        TransactionUtils.afterCommit(() -> evictPaperCaches(paper.getId()));
     }
     
     @Override
@@ -84,6 +147,14 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
         paper.setId(id);
         paper.setStatus(1);
         updateById(paper);
+        associationLoader.clear();
+        
+        // 发布后预编译标准答案、渲染基础试卷，交卷评分和考生取卷直接使用
+        TransactionUtils.afterCommit(() -> {
+            examAdmission.evictPaper(id);
+            precompileAnswerKey(id);
+            paperRenderer.rebuild(id);
+        });
     }
     
     @Override
@@ -93,34 +164,160 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
         paper.setId(id);
         paper.setStatus(2);
         updateById(paper);
+        associationLoader.clear();
+        TransactionUtils.afterCommit(() -> evictPaperCaches(id));
     }
     
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deletePaper(Long id) {
         removeById(id);
+        associationLoader.clear();
+        TransactionUtils.afterCommit(() -> evictPaperCaches(id));
+    }
+    
+    /**
+     * 清除试卷相关缓存
+     */
+    private void evictPaperCaches(Long id) {
+        answerKeyCache.invalidate(id);
+        examAdmission.evictPaper(id);
+        paperRenderer.evict(id);
+    }
+    
+    /**
+     * 预编译试卷标准答案，失败时交卷评分会再次尝试编译
+     */
+    private void precompileAnswerKey(Long id) {
+        try {
+            Paper paper = getById(id);
+            if (paper != null) {
+                answerKeyCache.rebuild(paper);
+            }
+        } catch (Exception e) {
+            log.warn("试卷{}标准答案预编译失败: {}", id, e.getMessage());
+        }
+    }
+    
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Paper> generatePapers(PaperBlueprintDTO blueprint, Long creatorId) {
+        List<PaperAssembler.AssembledPaper> assembled = paperAssembler.assemble(blueprint);
+        List<Paper> papers = new ArrayList<>(assembled.size());
+        for (int i = 0; i < assembled.size(); i++) {
+            PaperAssembler.AssembledPaper variant = assembled.get(i);
+            Paper paper = new Paper();
+            // 多份平行试卷按A、B、C...区分
+            paper.setTitle(assembled.size() == 1 ? blueprint.getTitle()
+                    : blueprint.getTitle() + "（" + (char) ('A' + i) + "卷）");
+            paper.setSubjectId(blueprint.getSubjectId());
+            paper.setTotalScore(variant.totalScoreValue());
+            paper.setTimeLimit(blueprint.getTimeLimit());
+            paper.setQuestionData(toQuestionData(variant));
+            paper.setCreatorId(creatorId);
+            paper.setExamStart(blueprint.getExamStart());
+            paper.setExamEnd(blueprint.getExamEnd());
+            paper.setStatus(0);
+            papers.add(paper);
+        }
+        saveBatch(papers);
+        return papers;
+    }
+    
+    /**
+     * 生成试卷题目数据 [{"question_id":1,"score":2.0}, ...]
+     */
+    private String toQuestionData(PaperAssembler.AssembledPaper variant) {
+        List<Map<String, Object>> items = new ArrayList<>(variant.questionIds().length);
+        for (int i = 0; i < variant.questionIds().length; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("question_id", variant.questionIds()[i]);
+            item.put("score", BigDecimal.valueOf(variant.scores()[i], 1));
+            items.add(item);
+        }
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new ApiException("试卷题目数据序列化失败", e);
+        }
     }
     
     @Override
     public List<Paper> getAvailableExams(Long userId) {
         LocalDateTime now = LocalDateTime.now();
         List<Paper> papers = baseMapper.selectAvailableExams(userId, now);
-        papers.forEach(this::setPaperAssociations);
+        associationLoader.fillPapers(papers);
         return papers;
     }
     
     @Override
     public List<Paper> getUserExams(Long userId) {
         List<Paper> papers = baseMapper.selectUserExams(userId);
-        papers.forEach(this::setPaperAssociations);
+        associationLoader.fillPapers(papers);
         return papers;
     }
     
+    @Override
+    public void exportPaperDocx(HttpServletResponse response, Long paperId, List<Long> userIds, Integer variants) {
+        Paper paper = getById(paperId);
+        if (paper == null) {
+            throw new ApiException(404, "试卷不存在");
+        }
+        
+        List<PaperDocxRenderer.Variant> items = new ArrayList<>();
+        if (userIds != null && !userIds.isEmpty()) {
+            // 按考生出卷，题目和选项顺序与该考生在线考试一致
+            if (userIds.size() > maxDocxVariants) {
+                throw new ApiException("单次最多导出" + maxDocxVariants + "套试卷");
+            }
+            List<User> users = userMapper.selectBatchIds(userIds);
+            Set<Long> missing = new LinkedHashSet<>(userIds);
+            users.forEach(user -> missing.remove(user.getId()));
+            if (!missing.isEmpty()) {
+                throw new ApiException(400, "考生不存在: " + missing);
+            }
+            // 已开始考试的考生按记录中的乱序标记，未开始的按当前开关（与开始考试时写入的一致）
+            LambdaQueryWrapper<ExamRecord> recordWrapper = new LambdaQueryWrapper<>();
+            recordWrapper.select(ExamRecord::getUserId, ExamRecord::getShuffled)
+                    .eq(ExamRecord::getPaperId, paperId).in(ExamRecord::getUserId, userIds);
+            Map<Long, Boolean> shuffled = new HashMap<>();
+            for (ExamRecord record : examRecordMapper.selectList(recordWrapper)) {
+                shuffled.put(record.getUserId(), Boolean.TRUE.equals(record.getShuffled()));
+            }
+            for (User user : users) {
+                String name = StringUtils.hasText(user.getRealName()) ? user.getRealName() : user.getUsername();
+                items.add(new PaperDocxRenderer.Variant(fileName(user.getUsername() + "_" + name),
+                        "考生：" + name, user.getId(), shuffled.getOrDefault(user.getId(), shuffleEnabled), 0,
+                        name, user.getUsername()));
+            }
+        } else {
+            int count = variants != null ? variants : 1;
+            if (count < 1 || count > maxDocxVariants) {
+                throw new ApiException("套数须在1到" + maxDocxVariants + "之间");
+            }
+            for (int i = 1; i <= count; i++) {
+                items.add(new PaperDocxRenderer.Variant(fileName(paper.getTitle() + "_第" + i + "套"),
+                        "第" + i + "套", null, true, i, null, null));
+            }
+        }
+        
+        response.setContentType("application/zip");
+        response.setCharacterEncoding("UTF-8");
+        String encodedFileName = URLEncoder.encode(paper.getTitle() + ".zip", StandardCharsets.UTF_8);
+        response.setHeader("Content-Disposition", "attachment;filename=" + encodedFileName);
+        response.setHeader("Access-Control-Expose-Headers", "Content-Disposition");
+        try {
+            paperDocxRenderer.writeZip(paperId, items, response.getOutputStream());
+        } catch (IOException e) {
+            log.error("Export paper docx error", e);
+            throw new ApiException("导出试卷失败");
+        }
+    }
+    
     /**
-     * 设置试卷关联信息（科目和创建人）
+     * ZIP 内的文件名，去掉文件系统不允许的字符
      */
-    private void setPaperAssociations(Paper paper) {
-        paper.setSubject(subjectService.getById(paper.getSubjectId()));
-        paper.setCreator(userService.getById(paper.getCreatorId()));
+    private static String fileName(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|]", "_") + ".docx";
     }
 } 
\ No newline at end of file
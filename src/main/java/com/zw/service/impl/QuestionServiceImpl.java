@@ -4,58 +4,217 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.zw.common.CursorPage;
 import com.zw.entity.Question;
+import com.zw.entity.QuestionImportJob;
+import com.zw.exception.ApiException;
+import com.zw.entity.RegradeJob;
 import com.zw.mapper.QuestionMapper;
+import com.zw.service.FileService;
 import com.zw.service.QuestionService;
-import com.zw.service.SubjectService;
-import com.zw.service.UserService;
+import com.zw.service.export.QuestionExporter;
+import com.zw.service.grading.AnswerKeyCache;
+import com.zw.service.grading.RegradeRunner;
+import com.zw.service.imports.QuestionImportRunner;
+import com.zw.service.paper.PaperRenderer;
+import com.zw.service.paper.QuestionBankIndex;
+import com.zw.service.paper.QuestionSampler;
+import com.zw.service.search.DuplicateClusterer;
+import com.zw.service.search.QuestionDedupIndex;
+import com.zw.service.search.QuestionFacetIndex;
+import com.zw.service.search.QuestionSearchIndex;
+import com.zw.service.support.AssociationLoader;
+import com.zw.utils.CursorUtils;
+import com.zw.utils.PageUtils;
+import com.zw.utils.TransactionUtils;
+import com.zw.vo.DuplicateClusterVO;
+import com.zw.vo.QuestionFacetCellVO;
+import com.zw.vo.QuestionFacetVO;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> implements QuestionService {
     
     @Autowired
-    private SubjectService subjectService;
+    private AssociationLoader associationLoader;
     
     @Autowired
-    private UserService userService;
+    private RegradeRunner regradeRunner;
+    
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+    
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+    
+    @Autowired
+    private QuestionSampler questionSampler;
+    
+    @Autowired
+    private PaperRenderer paperRenderer;
+    
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+    
+    @Autowired
+    private QuestionDedupIndex questionDedupIndex;
+    
+    @Autowired
+    private DuplicateClusterer duplicateClusterer;
+    
+    @Autowired
+    private QuestionFacetIndex questionFacetIndex;
+    
+    @Autowired
+    private QuestionImportRunner questionImportRunner;
+    
+    @Autowired
+    private FileService fileService;
+    
+    @Autowired
+    private QuestionExporter questionExporter;
     
     @Override
     public IPage<Question> getQuestionPage(Long subjectId, String questionType, String content,
-                                         Integer difficulty, Integer reviewStatus, Integer pageNum, Integer pageSize) {
-        LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
-        
-        // 构建查询条件
-        if (subjectId != null) {
-            wrapper.eq(Question::getSubjectId, subjectId);
-        }
-        if (StringUtils.hasText(questionType)) {
-            wrapper.eq(Question::getQuestionType, questionType);
-        }
+                                         Integer difficulty, Integer reviewStatus, Integer pageNum, Integer pageSize,
+                                         Boolean searchCount) {
+        // 关键词检索走内存倒排索引，按相关度排序；索引未就绪时回退到模糊查询
         if (StringUtils.hasText(content)) {
-            wrapper.like(Question::getContent, content);
-        }
-        if (difficulty != null) {
-            wrapper.eq(Question::getDifficulty, difficulty);
+            IPage<Question> searched = searchQuestionPage(subjectId, questionType, content, difficulty, reviewStatus,
+                    pageNum, pageSize, searchCount);
+            if (searched != null) {
+                return searched;
+            }
         }
-        if (reviewStatus != null) {
-            wrapper.eq(Question::getReviewStatus, reviewStatus);
+        
+        Page<Question> page = PageUtils.of(pageNum, pageSize, searchCount);
+        LambdaQueryWrapper<Question> wrapper = buildQueryWrapper(subjectId, questionType, content, difficulty,
+                reviewStatus);
+        // 不按关键词筛选时，分面索引直接给出总数，省去COUNT；数据仍按条件分页查询
+        Long total = StringUtils.hasText(content) ? null
+                : questionFacetIndex.count(subjectId, questionType, difficulty, reviewStatus);
+        if (total != null) {
+            page.setSearchCount(false);
+            page.setTotal(total);
         }
         
         // 按创建时间降序排序
         wrapper.orderByDesc(Question::getCreateTime);
         
         // 执行分页查询
-        Page<Question> page = new Page<>(pageNum, pageSize);
         IPage<Question> questionPage = page(page, wrapper);
         
-        // 设置关联信息
-        questionPage.getRecords().forEach(this::setQuestionAssociations);
+        // 批量设置关联信息
+        associationLoader.fillQuestions(questionPage.getRecords());
+        
+        return questionPage;
+    }
+    
+    private IPage<Question> searchQuestionPage(Long subjectId, String questionType, String content,
+                                               Integer difficulty, Integer reviewStatus, Integer pageNum,
+                                               Integer pageSize, Boolean searchCount) {
+        Page<Question> page = PageUtils.of(pageNum, pageSize, searchCount);
+        QuestionSearchIndex.SearchResult result = questionSearchIndex.search(content, subjectId, questionType,
+                difficulty, reviewStatus, (int) Math.min(page.offset(), Integer.MAX_VALUE), (int) page.getSize());
+        if (result == null) {
+            return null;
+        }
+        page.setTotal(result.total());
+        if (result.ids().isEmpty()) {
+            return page;
+        }
+        
+        // 按检索结果的顺序返回
+        LambdaQueryWrapper<Question> wrapper = buildQueryWrapper(null, null, null, null, null);
+        wrapper.in(Question::getId, result.ids());
+        Map<Long, Question> questions = list(wrapper).stream()
+                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        List<Question> records = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            Question question = questions.get(id);
+            if (question != null) {
+                records.add(question);
+            }
+        }
+        page.setRecords(records);
+        associationLoader.fillQuestions(records);
+        return page;
+    }
+    
+    @Override
+    public QuestionFacetVO getQuestionFacets(Long subjectId, String questionType, Integer difficulty,
+                                             Integer reviewStatus) {
+        String type = StringUtils.hasText(questionType) ? questionType : null;
+        List<QuestionFacetCellVO> cells = questionFacetIndex.cells(subjectId, type, difficulty, reviewStatus);
+        if (cells == null) {
+            // 索引未就绪时用一次分组查询代替逐个组合计数
+            cells = baseMapper.countFacetCells(subjectId, type, difficulty, reviewStatus);
+        }
+        
+        QuestionFacetVO facets = new QuestionFacetVO();
+        Map<Long, Long> subjects = new TreeMap<>();
+        Map<String, Long> questionTypes = new TreeMap<>();
+        Map<Integer, Long> difficulties = new TreeMap<>();
+        Map<Integer, Long> reviewStatuses = new TreeMap<>();
+        long total = 0;
+        for (QuestionFacetCellVO cell : cells) {
+            total += cell.getCount();
+            addFacetCount(subjects, cell.getSubjectId(), cell.getCount());
+            addFacetCount(questionTypes, cell.getQuestionType(), cell.getCount());
+            addFacetCount(difficulties, cell.getDifficulty(), cell.getCount());
+            addFacetCount(reviewStatuses, cell.getReviewStatus(), cell.getCount());
+        }
+        cells.sort(Comparator.comparing(QuestionFacetCellVO::getCount).reversed());
+        facets.setTotal(total);
+        facets.setSubjects(subjects);
+        facets.setQuestionTypes(questionTypes);
+        facets.setDifficulties(difficulties);
+        facets.setReviewStatuses(reviewStatuses);
+        facets.setCells(cells);
+        return facets;
+    }
+    
+    /**
+     * 累加分面计数，取值为空的只计入总数和组合
+     */
+    private static <K> void addFacetCount(Map<K, Long> counts, K key, Long count) {
+        if (key != null) {
+            counts.merge(key, count, Long::sum);
+        }
+    }
+    
+    @Override
+    public CursorPage<Question> getQuestionCursor(Long subjectId, String questionType, String content,
+                                                  Integer difficulty, Integer reviewStatus, String cursor, Integer size) {
+        LambdaQueryWrapper<Question> wrapper = buildQueryWrapper(subjectId, questionType, content, difficulty, reviewStatus);
+        
+        // 从上一页最后一行之后开始查询
+        CursorUtils.Cursor position = CursorUtils.decode(cursor);
+        if (position != null) {
+            wrapper.apply("(create_time < {0} OR (create_time = {0} AND id < {1}))", position.time(), position.id());
+        }
+        
+        int pageSize = CursorUtils.normalizeSize(size);
+        wrapper.orderByDesc(Question::getCreateTime).orderByDesc(Question::getId);
+        wrapper.last(CursorUtils.limitClause(pageSize));
+        
+        CursorPage<Question> questionPage = CursorUtils.toPage(list(wrapper), pageSize,
+                Question::getCreateTime, Question::getId);
+        associationLoader.fillQuestions(questionPage.getRecords());
         
         return questionPage;
     }
@@ -64,7 +223,7 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
     public Question getQuestionDetail(Long id) {
         Question question = getById(id);
         if (question != null) {
-            setQuestionAssociations(question);
+            associationLoader.fillQuestions(List.of(question));
         }
         return question;
     }
@@ -74,15 +233,96 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
     public void createQuestion(Question question) {
         // 设置初始审核状态
         question.setReviewStatus(0);
+        question.setSimilarQuestionIds(
+                questionDedupIndex.findSimilar(question.getContent(), question.getOptions(), null));
         save(question);
+        refreshSearchIndex(List.of(question.getId()));
+        refreshDedupIndex(List.of(question.getId()));
+        refreshFacetIndex(List.of(question.getId()));
     }
     
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void updateQuestion(Question question) {
+        Question existing = getById(question.getId());
+        
         // 重置审核状态
         question.setReviewStatus(0);
         updateById(question);
+        associationLoader.clear();
+        
+        // 重置审核状态后题目退出组卷题库
+        Long updatedId = question.getId();
+        refreshBanks(List.of(updatedId));
+        
+        // 已渲染的考试试卷随题目内容更新
+        TransactionUtils.afterCommit(() -> paperRenderer.evictQuestion(updatedId));
+        refreshSearchIndex(List.of(updatedId));
+        refreshFacetIndex(List.of(updatedId));
+        if (question.getContent() != null || question.getOptions() != null) {
+            refreshDedupIndex(List.of(updatedId));
+        }
+        
+        // 答案、题型、分值或选项变化时失效标准答案并重新评分已交答卷（选项数影响乱序试卷的选项还原）
+        if (existing != null && affectsScoring(existing, question)) {
+            Long questionId = question.getId();
+            TransactionUtils.afterCommit(() -> {
+                answerKeyCache.invalidateQuestion(questionId);
+                regradeRunner.submit(questionId);
+            });
+        }
+    }
+    
+    @Override
+    public RegradeJob regrade(Long questionId) {
+        return regradeRunner.submit(questionId);
+    }
+    
+    @Override
+    public RegradeJob getRegradeJob(Long jobId) {
+        return regradeRunner.getJob(jobId);
+    }
+    
+    @Override
+    public DuplicateClusterVO clusterDuplicates() {
+        return duplicateClusterer.submit();
+    }
+    
+    @Override
+    public DuplicateClusterVO getDuplicateClusters(Integer limit) {
+        return duplicateClusterer.latest(limit == null ? 100 : Math.max(0, limit));
+    }
+    
+    @Override
+    public QuestionImportJob importQuestions(MultipartFile file, Long subjectId, Long creatorId) {
+        String fileName = file.getOriginalFilename();
+        if (fileName == null || !fileName.toLowerCase().endsWith(".xlsx")) {
+            throw new ApiException("仅支持导入 .xlsx 格式的Excel文件");
+        }
+        String filePath = fileService.uploadDocument(file, "imports");
+        return questionImportRunner.submit(fileName, filePath, subjectId, creatorId);
+    }
+    
+    @Override
+    public QuestionImportJob getImportJob(Long jobId) {
+        return questionImportRunner.getJob(jobId);
+    }
+    
+    @Override
+    public void exportQuestions(HttpServletResponse response, Long subjectId, String questionType,
+                                Integer difficulty, Integer reviewStatus) {
+        questionExporter.export(response, subjectId, questionType, difficulty, reviewStatus);
+    }
+    
+    /**
+     * 更新内容是否影响评分，未传的字段不会被更新
+     */
+    private boolean affectsScoring(Question existing, Question updated) {
+        return (updated.getAnswer() != null && !updated.getAnswer().equals(existing.getAnswer()))
+                || (updated.getQuestionType() != null && !updated.getQuestionType().equals(existing.getQuestionType()))
+                || (updated.getScore() != null && (existing.getScore() == null
+                        || updated.getScore().compareTo(existing.getScore()) != 0))
+                || (updated.getOptions() != null && !updated.getOptions().equals(existing.getOptions()));
     }
     
     @Override
@@ -92,31 +332,93 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
         question.setId(id);
         question.setReviewStatus(reviewStatus);
         updateById(question);
+        associationLoader.clear();
+        refreshBanks(List.of(id));
+        refreshSearchIndex(List.of(id));
+        refreshFacetIndex(List.of(id));
     }
     
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deleteQuestions(List<Long> ids) {
         removeBatchByIds(ids);
+        associationLoader.clear();
+        refreshBanks(ids);
+        TransactionUtils.afterCommit(() -> ids.forEach(paperRenderer::evictQuestion));
+        refreshSearchIndex(ids);
+        refreshDedupIndex(ids);
+        refreshFacetIndex(ids);
+    }
+    
+    /**
+     * 事务提交后按最新内容更新检索索引
+     */
+    private void refreshSearchIndex(Collection<Long> ids) {
+        TransactionUtils.afterCommit(() -> questionSearchIndex.refresh(ids));
+    }
+    
+    /**
+     * 事务提交后按最新内容更新相似题目索引
+     */
+    private void refreshDedupIndex(Collection<Long> ids) {
+        TransactionUtils.afterCommit(() -> questionDedupIndex.refresh(ids));
+    }
+    
+    /**
+     * 事务提交后按最新属性更新分面索引
+     */
+    private void refreshFacetIndex(Collection<Long> ids) {
+        TransactionUtils.afterCommit(() -> questionFacetIndex.refresh(ids));
+    }
+    
+    /**
+     * 事务提交后按最新内容更新组卷题库索引
+     */
+    private void refreshBanks(Collection<Long> ids) {
+        TransactionUtils.afterCommit(() -> questionBankIndex.refresh(ids));
     }
     
     @Override
     public long getQuestionCountBySubject(Long subjectId) {
+        Long count = questionFacetIndex.count(subjectId, null, null, null);
+        if (count != null) {
+            return count;
+        }
         LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Question::getSubjectId, subjectId);
         return count(wrapper);
     }
     
     @Override
-    public List<Question> getRandomQuestions(Long subjectId, String questionType, Integer count) {
-        return baseMapper.selectRandomQuestions(subjectId, questionType, count);
+    public List<Question> getRandomQuestions(Long subjectId, String questionType, Integer count, Long seed) {
+        return questionSampler.sample(subjectId, questionType, count == null ? 0 : count, seed);
     }
     
     /**
-     * 设置题目关联信息（科目和创建人）
+     * 构建题目列表查询条件
      */
-    private void setQuestionAssociations(Question question) {
-        question.setSubject(subjectService.getById(question.getSubjectId()));
-        question.setCreator(userService.getById(question.getCreatorId()));
+    private LambdaQueryWrapper<Question> buildQueryWrapper(Long subjectId, String questionType, String content,
+                                                           Integer difficulty, Integer reviewStatus) {
+        LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
+        // 列表不展示选项和解析，只在题目详情中加载
+        wrapper.select(Question::getId, Question::getSubjectId, Question::getQuestionType, Question::getContent,
+                Question::getAnswer, Question::getDifficulty, Question::getScore, Question::getCreatorId,
+                Question::getReviewStatus, Question::getCreateTime, Question::getUpdateTime);
+        if (subjectId != null) {
+            wrapper.eq(Question::getSubjectId, subjectId);
+        }
+        if (StringUtils.hasText(questionType)) {
+            wrapper.eq(Question::getQuestionType, questionType);
+        }
+        if (StringUtils.hasText(content)) {
+            wrapper.like(Question::getContent, content);
+        }
+        if (difficulty != null) {
+            wrapper.eq(Question::getDifficulty, difficulty);
+        }
+        if (reviewStatus != null) {
+            wrapper.eq(Question::getReviewStatus, reviewStatus);
+        }
+        return wrapper;
     }
 } 
\ No newline at end of file
@@ -15,6 +15,7 @@ import com.zw.mapper.UserMapper;
 import com.zw.service.PermissionService;
 import com.zw.service.RoleService;
 import com.zw.service.UserService;
+import com.zw.utils.PageUtils;
 import com.zw.vo.UserInfoVO;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -154,7 +155,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         }
         
         // 创建分页对象
-        Page<User> page = new Page<>(queryDTO.getPageNum(), queryDTO.getPageSize());
+        Page<User> page = PageUtils.of(queryDTO.getPageNum(), queryDTO.getPageSize(), queryDTO.getSearchCount());
         
         // 执行分页查询
         Page<User> userPage = page(page, wrapper);
@@ -9,6 +9,9 @@ import com.zw.entity.WrongBook;
 import com.zw.mapper.WrongBookMapper;
 import com.zw.service.QuestionService;
 import com.zw.service.WrongBookService;
+import com.zw.service.paper.QuestionBankIndex;
+import com.zw.service.support.AssociationLoader;
+import com.zw.utils.PageUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +26,12 @@ public class WrongBookServiceImpl extends ServiceImpl<WrongBookMapper, WrongBook
     @Autowired
     private QuestionService questionService;
     
+    @Autowired
+    private AssociationLoader associationLoader;
+    
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+    
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void addWrongQuestion(Long userId, Long questionId) {
@@ -54,63 +63,31 @@ public class WrongBookServiceImpl extends ServiceImpl<WrongBookMapper, WrongBook
     @Override
     public List<WrongBook> getUserWrongBooks(Long userId) {
         List<WrongBook> wrongBooks = baseMapper.selectByUserId(userId);
-        for (WrongBook wrongBook : wrongBooks) {
-            wrongBook.setQuestion(questionService.getById(wrongBook.getQuestionId()));
-        }
+        associationLoader.fillWrongBooks(wrongBooks);
         return wrongBooks;
     }
     
     @Override
     public IPage<WrongBook> getWrongBookPage(Long userId, Long subjectId, String keyword, Integer pageNum, Integer pageSize) {
-        // 构建查询条件
-        LambdaQueryWrapper<WrongBook> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(WrongBook::getUserId, userId);
+        Page<WrongBook> page = PageUtils.of(pageNum, pageSize);
+        IPage<WrongBook> wrongBookPage;
         
-        // 如果指定了科目或关键字，需要关联题目表进行查询
         if (subjectId != null || StringUtils.hasText(keyword)) {
-            // 这种复杂查询应该在Mapper中实现，这里简化处理
-            // 先获取所有错题，然后在内存中过滤
-            Page<WrongBook> page = new Page<>(pageNum, pageSize);
-            IPage<WrongBook> wrongBookPage = page(page, wrapper);
-            
-            // 设置关联信息并过滤
-            List<WrongBook> records = wrongBookPage.getRecords();
-            for (int i = records.size() - 1; i >= 0; i--) {
-                WrongBook wrongBook = records.get(i);
-                Question question = questionService.getById(wrongBook.getQuestionId());
-                wrongBook.setQuestion(question);
-                
-                // 根据科目和关键字过滤
-                boolean remove = false;
-                
-                if (subjectId != null && !subjectId.equals(question.getSubjectId())) {
-                    remove = true;
-                }
-                
-                if (StringUtils.hasText(keyword) && !question.getContent().contains(keyword)) {
-                    remove = true;
-                }
-                
-                if (remove) {
-                    records.remove(i);
-                }
-            }
-            
-            return wrongBookPage;
+            // 指定了科目或关键字时关联题目表过滤，分页和总数都在数据库中按过滤后的结果计算
+            List<Long> subjectIds = subjectId != null ? questionBankIndex.subtree(subjectId, true) : null;
+            wrongBookPage = baseMapper.selectPageByQuestion(page, userId, subjectIds,
+                    StringUtils.hasText(keyword) ? keyword.trim() : null);
         } else {
-            // 不需要关联查询的情况
-            wrapper.orderByDesc(WrongBook::getLastWrongTime);
-            
-            Page<WrongBook> page = new Page<>(pageNum, pageSize);
-            IPage<WrongBook> wrongBookPage = page(page, wrapper);
-            
-            // 设置关联信息
-            for (WrongBook wrongBook : wrongBookPage.getRecords()) {
-                wrongBook.setQuestion(questionService.getById(wrongBook.getQuestionId()));
-            }
-            
-            return wrongBookPage;
+            LambdaQueryWrapper<WrongBook> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(WrongBook::getUserId, userId);
+            wrapper.orderByDesc(WrongBook::getLastWrongTime).orderByDesc(WrongBook::getId);
+            wrongBookPage = page(page, wrapper);
         }
+        
+        // 批量设置关联信息
+        associationLoader.fillWrongBooks(wrongBookPage.getRecords());
+        
+        return wrongBookPage;
     }
     
     @Override
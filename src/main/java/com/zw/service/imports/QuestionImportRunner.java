@@ -0,0 +1,577 @@
+package com.zw.service.imports;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.zw.entity.Question;
+import com.zw.entity.QuestionImportJob;
+import com.zw.entity.Subject;
+import com.zw.exception.ApiException;
+import com.zw.mapper.QuestionImportJobMapper;
+import com.zw.mapper.QuestionMapper;
+import com.zw.mapper.SubjectMapper;
+import com.zw.service.search.QuestionDedupIndex;
+import com.zw.service.search.QuestionFacetIndex;
+import com.zw.service.search.QuestionSearchIndex;
+import com.zw.utils.JobUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Excel 批量导入题目
+ * <p>
+ * 用 POI 事件模型（SAX）逐行读取 .xlsx 的第一个工作表，不构建整个工作簿，内存只与块大小有关
+ * （共享字符串表除外，它按文件中不重复的文本加载）。每攒满一块行在独立的 fork-join 线程池中并行校验，
+ * 合格的题目在一个事务中用多行 INSERT 分批写入，同时把进度、断点行号和错误明细写入任务表；
+ * 重启后跳过断点之前的行继续。任务串行执行，完成后删除上传的文件。
+ * 多实例部署时执行前先条件更新认领任务，执行期间定时写心跳，写入题目的事务只在仍持有任务时提交；
+ * 各实例定时扫描未完成的任务，只认领本机能读到上传文件的任务（上传目录应放在共享存储），
+ * 原实例停机或心跳超过租约时间的任务由其他实例接管。
+ */
+@Slf4j
+@Component
+public class QuestionImportRunner {
+
+    @Autowired
+    private QuestionImportJobMapper questionImportJobMapper;
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Autowired
+    private SubjectMapper subjectMapper;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private QuestionDedupIndex questionDedupIndex;
+
+    @Autowired
+    private QuestionFacetIndex questionFacetIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${file.upload.local-path:D:/file}")
+    private String localUploadPath;
+
+    @Value("${exam.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${exam.import.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    @Value("${exam.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${exam.import.lease-seconds:120}")
+    private long leaseSeconds;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "question-import-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ForkJoinPool validationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final ScheduledExecutorService scanner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "question-import-scanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 已提交到本实例执行队列、尚未结束的任务
+     */
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本实例正在执行的任务
+     */
+    private volatile Long runningJobId;
+
+    @PreDestroy
+    public void shutdown() {
+        // 未完成的任务保留断点并释放认领，由其他实例或重启后继续
+        scanner.shutdownNow();
+        jobExecutor.shutdownNow();
+        validationPool.shutdownNow();
+        try {
+            jobExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            questionImportJobMapper.release(null, JobUtils.INSTANCE_ID);
+        } catch (Exception e) {
+            log.warn("释放题目导入任务失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 创建导入任务，filePath 为相对上传目录的路径
+     */
+    public QuestionImportJob submit(String fileName, String filePath, Long subjectId, Long creatorId) {
+        QuestionImportJob job = new QuestionImportJob();
+        job.setFileName(fileName);
+        job.setFilePath(filePath);
+        job.setSubjectId(subjectId);
+        job.setCreatorId(creatorId);
+        job.setStatus("PENDING");
+        job.setTotalRows(0);
+        job.setProcessedRows(0);
+        job.setSuccessCount(0);
+        job.setFailedCount(0);
+        job.setLastRow(0);
+        questionImportJobMapper.insert(job);
+
+        enqueue(job.getId());
+        return job;
+    }
+
+    /**
+     * 查询任务进度
+     */
+    public QuestionImportJob getJob(Long jobId) {
+        QuestionImportJob job = questionImportJobMapper.selectById(jobId);
+        if (job == null) {
+            throw new ApiException(404, "导入任务不存在");
+        }
+        return job;
+    }
+
+    /**
+     * 启动后开始定时扫描：为正在执行的任务写心跳，并把本机能读到文件的未完成任务加入执行队列，实际执行前再认领
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        long period = Math.max(1, leaseSeconds / 3);
+        scanner.scheduleWithFixedDelay(this::scan, 0, period, TimeUnit.SECONDS);
+    }
+
+    private void scan() {
+        try {
+            Long running = runningJobId;
+            if (running != null) {
+                questionImportJobMapper.heartbeat(running, JobUtils.INSTANCE_ID);
+            }
+            for (QuestionImportJob job : questionImportJobMapper.selectUnfinished()) {
+                if (Files.isReadable(Paths.get(localUploadPath, job.getFilePath()))) {
+                    enqueue(job.getId());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("扫描题目导入任务失败: {}", e.getMessage());
+        }
+    }
+
+    private void enqueue(Long jobId) {
+        if (queued.add(jobId)) {
+            jobExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    queued.remove(jobId);
+                }
+            });
+        }
+    }
+
+    private void run(Long jobId) {
+        // 认领失败说明任务已结束或由其他实例执行
+        if (questionImportJobMapper.claim(jobId, JobUtils.INSTANCE_ID, leaseSeconds) == 0) {
+            return;
+        }
+        QuestionImportJob job = questionImportJobMapper.selectById(jobId);
+        if (job == null) {
+            return;
+        }
+        Path file = Paths.get(localUploadPath, job.getFilePath());
+        if (!Files.isReadable(file)) {
+            // 文件不在本机，留给能读到文件的实例，不标记失败
+            log.warn("题目导入任务{}的文件{}不在本实例, 释放任务", jobId, file);
+            questionImportJobMapper.release(jobId, JobUtils.INSTANCE_ID);
+            return;
+        }
+        log.info("开始题目导入任务{}, 断点行号={}", jobId, job.getLastRow());
+        runningJobId = jobId;
+        try {
+            ImportContext context = new ImportContext(job);
+            readSheet(file.toFile(), context);
+            if (context.parser == null) {
+                throw new ApiException("导入文件为空");
+            }
+            context.flush();
+
+            job.setTotalRows(context.dataRows);
+            job.setFinishTime(LocalDateTime.now());
+            if (!updateStatus(job, "COMPLETED", null)) {
+                throw new LeaseLostException();
+            }
+            deleteQuietly(file);
+            log.info("题目导入任务{}完成, 成功{}行, 失败{}行", jobId, job.getSuccessCount(), job.getFailedCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (LeaseLostException e) {
+            log.warn("题目导入任务{}已由其他实例接管, 停止执行", jobId);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ImportAbortedException ? e.getCause() : e;
+            if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            log.error("题目导入任务{}失败", jobId, cause);
+            job.setFinishTime(LocalDateTime.now());
+            if (updateStatus(job, "FAILED",
+                    cause instanceof ApiException ? cause.getMessage() : "文件读取失败：" + cause.getMessage())) {
+                deleteQuietly(file);
+            }
+        } finally {
+            runningJobId = null;
+        }
+    }
+
+    /**
+     * 先读工作表的范围估算总行数供进度显示，再用 SAX 逐行读取
+     */
+    private void readSheet(File file, ImportContext context) throws Exception {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new ApiException("导入文件没有工作表");
+            }
+            try (InputStream sheet = sheets.next()) {
+                context.estimateTotal(readLastRow(sheet));
+            }
+
+            sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new RowCollector(context),
+                        new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * 读取 dimension 元素（如 "A1:H100001"）的末行号，遇到 sheetData 即停止；没有该元素时返回-1
+     */
+    private static int readLastRow(InputStream sheet) throws XMLStreamException {
+        XMLInputFactory factory = XMLHelper.newXMLInputFactory();
+        XMLStreamReader reader = factory.createXMLStreamReader(sheet);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = reader.getLocalName();
+                if ("dimension".equals(name)) {
+                    String ref = reader.getAttributeValue(null, "ref");
+                    if (!StringUtils.hasText(ref)) {
+                        return -1;
+                    }
+                    String last = ref.substring(ref.indexOf(':') + 1);
+                    return new CellReference(last).getRow();
+                }
+                if ("sheetData".equals(name)) {
+                    return -1;
+                }
+            }
+            return -1;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 更新任务状态，已不持有任务时返回false
+     */
+    private boolean updateStatus(QuestionImportJob job, String status, String errorMessage) {
+        QuestionImportJob update = new QuestionImportJob();
+        update.setStatus(status);
+        update.setErrorMessage(JobUtils.errorMessage(errorMessage));
+        update.setTotalRows(job.getTotalRows());
+        update.setFinishTime(job.getFinishTime());
+        if (!updateOwned(job.getId(), update)) {
+            return false;
+        }
+        job.setStatus(status);
+        return true;
+    }
+
+    /**
+     * 仅在本实例仍持有任务时更新，顺带刷新心跳
+     */
+    private boolean updateOwned(Long jobId, QuestionImportJob update) {
+        return questionImportJobMapper.update(update, new LambdaUpdateWrapper<QuestionImportJob>()
+                .eq(QuestionImportJob::getId, jobId)
+                .eq(QuestionImportJob::getOwner, JobUtils.INSTANCE_ID)
+                .setSql("heartbeat_time = NOW()")) > 0;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导入文件{}失败", file, e);
+        }
+    }
+
+    /**
+     * 一次导入的状态：表头解析器、待校验的行、累计的进度和错误明细
+     */
+    private final class ImportContext {
+
+        private final QuestionImportJob job;
+
+        private final int lastRow;
+
+        private final List<Map<String, Object>> errors;
+
+        private final List<QuestionRowParser.Row> pending = new ArrayList<>();
+
+        private QuestionRowParser parser;
+
+        /**
+         * 非空数据行数（含断点之前已处理的行）
+         */
+        private int dataRows;
+
+        /**
+         * 表头行号，数据行数按其之后的行估算
+         */
+        private int headerRow = -1;
+
+        private int estimatedLastRow = -1;
+
+        ImportContext(QuestionImportJob job) throws IOException {
+            this.job = job;
+            this.lastRow = job.getLastRow() != null ? job.getLastRow() : 0;
+            this.errors = StringUtils.hasText(job.getErrors())
+                    ? objectMapper.readValue(job.getErrors(), new TypeReference<List<Map<String, Object>>>() { })
+                    : new ArrayList<>();
+        }
+
+        void estimateTotal(int lastRowNum) {
+            this.estimatedLastRow = lastRowNum;
+        }
+
+        void accept(int rowNum, String[] cells) {
+            if (parser == null) {
+                Set<Long> subjectIds = subjectMapper.selectHierarchy().stream()
+                        .map(Subject::getId)
+                        .collect(Collectors.toSet());
+                parser = QuestionRowParser.of(cells, subjectIds, job.getSubjectId(), job.getCreatorId(), objectMapper);
+                headerRow = rowNum;
+                if (estimatedLastRow > headerRow && (job.getTotalRows() == null || job.getTotalRows() == 0)) {
+                    QuestionImportJob update = new QuestionImportJob();
+                    update.setTotalRows(estimatedLastRow - headerRow);
+                    updateOwned(job.getId(), update);
+                    job.setTotalRows(update.getTotalRows());
+                }
+                return;
+            }
+            dataRows++;
+            if (rowNum <= lastRow) {
+                // 断点之前已写入
+                return;
+            }
+            pending.add(new QuestionRowParser.Row(rowNum, cells));
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * 并行校验待处理的行，在一个事务中写入合格题目和断点
+         */
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<QuestionRowParser.Row> rows = new ArrayList<>(pending);
+            pending.clear();
+            List<QuestionRowParser.ParsedRow> parsed;
+            try {
+                parsed = validationPool.submit(() -> rows.parallelStream()
+                        .map(parser::parse)
+                        .collect(Collectors.toList())).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ImportAbortedException(e);
+            } catch (ExecutionException e) {
+                throw new ImportAbortedException(e.getCause());
+            }
+
+            List<Question> questions = new ArrayList<>(parsed.size());
+            int failed = 0;
+            for (QuestionRowParser.ParsedRow row : parsed) {
+                if (row.question() != null) {
+                    questions.add(row.question());
+                } else {
+                    failed++;
+                    if (errors.size() < maxErrors) {
+                        Map<String, Object> error = new LinkedHashMap<>();
+                        error.put("row", row.rowNum() + 1);
+                        error.put("message", row.error());
+                        errors.add(error);
+                    }
+                }
+            }
+
+            QuestionImportJob checkpoint = new QuestionImportJob();
+            checkpoint.setLastRow(rows.get(rows.size() - 1).rowNum());
+            checkpoint.setProcessedRows(job.getProcessedRows() + rows.size());
+            checkpoint.setSuccessCount(job.getSuccessCount() + questions.size());
+            checkpoint.setFailedCount(job.getFailedCount() + failed);
+            if (failed > 0) {
+                try {
+                    checkpoint.setErrors(objectMapper.writeValueAsString(errors));
+                } catch (IOException e) {
+                    throw new ImportAbortedException(e);
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < questions.size(); from += insertBatchSize) {
+                    int to = Math.min(from + insertBatchSize, questions.size());
+                    questionMapper.batchInsert(questions.subList(from, to));
+                }
+                // 已被其他实例接管时回滚本块写入的题目，避免重复导入
+                if (!updateOwned(job.getId(), checkpoint)) {
+                    throw new LeaseLostException();
+                }
+            });
+            job.setLastRow(checkpoint.getLastRow());
+            job.setProcessedRows(checkpoint.getProcessedRows());
+            job.setSuccessCount(checkpoint.getSuccessCount());
+            job.setFailedCount(checkpoint.getFailedCount());
+
+            if (!questions.isEmpty()) {
+                List<Long> ids = questions.stream().map(Question::getId).collect(Collectors.toList());
+                questionSearchIndex.refresh(ids);
+                questionDedupIndex.refresh(ids);
+                questionFacetIndex.refresh(ids);
+            }
+        }
+    }
+
+    /**
+     * 把 SAX 回调的单元格拼成一行，空行跳过；单元格按列号放置，中间的空单元格为null
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final ImportContext context;
+
+        private String[] cells = new String[16];
+
+        private int width;
+
+        private int nextColumn;
+
+        RowCollector(ImportContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, 0, width, null);
+            width = 0;
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (width > 0) {
+                context.accept(rowNum, Arrays.copyOf(cells, width));
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (!StringUtils.hasText(formattedValue)) {
+                return;
+            }
+            if (column >= cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(column + 1, cells.length * 2));
+            }
+            cells[column] = formattedValue;
+            width = Math.max(width, column + 1);
+        }
+    }
+
+    /**
+     * SAX 回调中不能抛出受检异常，包装后在 run 中还原
+     */
+    private static final class ImportAbortedException extends RuntimeException {
+
+        ImportAbortedException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * 任务已由其他实例接管
+     */
+    private static final class LeaseLostException extends RuntimeException {
+
+        LeaseLostException() {
+            super(null, null, false, false);
+        }
+    }
+}
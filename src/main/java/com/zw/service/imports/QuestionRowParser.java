@@ -0,0 +1,358 @@
+package com.zw.service.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.entity.Question;
+import com.zw.exception.ApiException;
+import com.zw.service.grading.AnswerKey;
+import com.zw.service.grading.AnswerMatcher;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 导入文件的行校验与转换
+ * <p>
+ * 按表头别名确定各列位置，把一行单元格文本转成待写入的题目，规则与题目编辑一致：
+ * 选择题选项为JSON数组并带 "A." 标签，单选答案为一个字母，多选答案为字母JSON数组，
+ * 判断题答案为"正确"/"错误"。无共享状态，可在多个线程中并行调用 {@link #parse(Row)}。
+ */
+final class QuestionRowParser {
+
+    static final int MAX_CONTENT_LENGTH = 20000;
+
+    static final int MAX_OPTIONS = 26;
+
+    private static final int MAX_ANALYSIS_LENGTH = 20000;
+
+    private static final BigDecimal MAX_SCORE = new BigDecimal("9999.9");
+
+    private static final BigDecimal DEFAULT_SCORE = new BigDecimal("2.0");
+
+    private static final int DEFAULT_DIFFICULTY = 3;
+
+    private static final String JUDGE_OPTIONS = "[\"正确\", \"错误\"]";
+
+    private static final Pattern OPTION_LABEL = Pattern.compile("^[A-Za-zＡ-Ｚ]\\s*[.、．:：)）]");
+
+    private static final Pattern OPTION_SEPARATOR = Pattern.compile("\\r?\\n|[|｜]");
+
+    private static final int SUBJECT = 0;
+    private static final int TYPE = 1;
+    private static final int CONTENT = 2;
+    private static final int OPTIONS = 3;
+    private static final int ANSWER = 4;
+    private static final int ANALYSIS = 5;
+    private static final int DIFFICULTY = 6;
+    private static final int SCORE = 7;
+
+    private static final String[] FIELD_NAMES = {"科目ID", "题型", "题干", "选项", "答案", "解析", "难度", "分值"};
+
+    private static final Map<String, Integer> HEADER_ALIASES = Map.ofEntries(
+            Map.entry("科目id", SUBJECT), Map.entry("科目编号", SUBJECT), Map.entry("subjectid", SUBJECT),
+            Map.entry("题型", TYPE), Map.entry("题目类型", TYPE), Map.entry("questiontype", TYPE),
+            Map.entry("题干", CONTENT), Map.entry("题目", CONTENT), Map.entry("题目内容", CONTENT),
+            Map.entry("content", CONTENT),
+            Map.entry("选项", OPTIONS), Map.entry("options", OPTIONS),
+            Map.entry("答案", ANSWER), Map.entry("参考答案", ANSWER), Map.entry("answer", ANSWER),
+            Map.entry("解析", ANALYSIS), Map.entry("答案解析", ANALYSIS), Map.entry("analysis", ANALYSIS),
+            Map.entry("难度", DIFFICULTY), Map.entry("difficulty", DIFFICULTY),
+            Map.entry("分值", SCORE), Map.entry("分数", SCORE), Map.entry("score", SCORE));
+
+    private static final Map<String, Byte> TYPE_NAMES = Map.ofEntries(
+            Map.entry("单选", AnswerKey.TYPE_SINGLE), Map.entry("单选题", AnswerKey.TYPE_SINGLE),
+            Map.entry("单项选择题", AnswerKey.TYPE_SINGLE),
+            Map.entry("多选", AnswerKey.TYPE_MULTI), Map.entry("多选题", AnswerKey.TYPE_MULTI),
+            Map.entry("多项选择题", AnswerKey.TYPE_MULTI),
+            Map.entry("判断", AnswerKey.TYPE_JUDGE), Map.entry("判断题", AnswerKey.TYPE_JUDGE),
+            Map.entry("填空", AnswerKey.TYPE_FILL), Map.entry("填空题", AnswerKey.TYPE_FILL));
+
+    /**
+     * 各字段所在列，-1 表示文件中没有该列
+     */
+    private final int[] columns;
+
+    private final Set<Long> subjectIds;
+
+    private final Long defaultSubjectId;
+
+    private final Long creatorId;
+
+    private final ObjectMapper objectMapper;
+
+    private QuestionRowParser(int[] columns, Set<Long> subjectIds, Long defaultSubjectId, Long creatorId,
+                              ObjectMapper objectMapper) {
+        this.columns = columns;
+        this.subjectIds = subjectIds;
+        this.defaultSubjectId = defaultSubjectId;
+        this.creatorId = creatorId;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 按表头行创建，缺少题型、题干或答案列，或既没有科目列也没有默认科目时抛出异常
+     */
+    static QuestionRowParser of(String[] header, Set<Long> subjectIds, Long defaultSubjectId, Long creatorId,
+                                ObjectMapper objectMapper) {
+        int[] columns = new int[FIELD_NAMES.length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] == null) {
+                continue;
+            }
+            // 表头可带必填标记 "*" 或说明括号，如 "*题型(单选/多选/判断/填空)"
+            String name = header[i].replace("*", "").replaceAll("[(（].*$", "")
+                    .replaceAll("\\s", "").toLowerCase(Locale.ROOT);
+            Integer field = HEADER_ALIASES.get(name);
+            if (field != null && columns[field] < 0) {
+                columns[field] = i;
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (int field : new int[]{TYPE, CONTENT, ANSWER}) {
+            if (columns[field] < 0) {
+                missing.add(FIELD_NAMES[field]);
+            }
+        }
+        if (columns[SUBJECT] < 0 && defaultSubjectId == null) {
+            missing.add(FIELD_NAMES[SUBJECT]);
+        }
+        if (!missing.isEmpty()) {
+            throw new ApiException("导入文件缺少必需的列：" + String.join("、", missing));
+        }
+        if (defaultSubjectId != null && !subjectIds.contains(defaultSubjectId)) {
+            throw new ApiException("科目不存在");
+        }
+        return new QuestionRowParser(columns, subjectIds, defaultSubjectId, creatorId, objectMapper);
+    }
+
+    /**
+     * 校验一行，成功时返回题目，失败时返回原因
+     */
+    ParsedRow parse(Row row) {
+        try {
+            return new ParsedRow(row.rowNum(), toQuestion(row.cells()), null);
+        } catch (InvalidRowException e) {
+            return new ParsedRow(row.rowNum(), null, "第" + (row.rowNum() + 1) + "行：" + e.getMessage());
+        }
+    }
+
+    private Question toQuestion(String[] cells) {
+        byte type = parseType(cell(cells, TYPE));
+        String content = cell(cells, CONTENT);
+        if (content == null) {
+            throw new InvalidRowException("题干不能为空");
+        }
+        if (content.length() > MAX_CONTENT_LENGTH) {
+            throw new InvalidRowException("题干超过" + MAX_CONTENT_LENGTH + "字");
+        }
+        String analysis = cell(cells, ANALYSIS);
+        if (analysis != null && analysis.length() > MAX_ANALYSIS_LENGTH) {
+            throw new InvalidRowException("解析超过" + MAX_ANALYSIS_LENGTH + "字");
+        }
+
+        Question question = new Question();
+        question.setSubjectId(parseSubject(cell(cells, SUBJECT)));
+        question.setQuestionType(AnswerKey.typeName(type));
+        question.setContent(content);
+        String answer = cell(cells, ANSWER);
+        if (answer == null) {
+            throw new InvalidRowException("答案不能为空");
+        }
+        switch (type) {
+            case AnswerKey.TYPE_SINGLE, AnswerKey.TYPE_MULTI -> {
+                List<String> options = parseOptions(cell(cells, OPTIONS));
+                question.setOptions(toJson(options));
+                question.setAnswer(parseChoiceAnswer(type, answer, options.size()));
+            }
+            case AnswerKey.TYPE_JUDGE -> {
+                question.setOptions(JUDGE_OPTIONS);
+                int mask = AnswerMatcher.judgeMask(answer);
+                if (mask == 0) {
+                    throw new InvalidRowException("判断题答案应为正确或错误");
+                }
+                question.setAnswer(mask == AnswerMatcher.JUDGE_TRUE ? "正确" : "错误");
+            }
+            default -> question.setAnswer(answer);
+        }
+        question.setAnalysis(analysis);
+        question.setDifficulty(parseDifficulty(cell(cells, DIFFICULTY)));
+        question.setScore(parseScore(cell(cells, SCORE)));
+        question.setCreatorId(creatorId);
+        question.setReviewStatus(0);
+        return question;
+    }
+
+    private byte parseType(String text) {
+        if (text == null) {
+            throw new InvalidRowException("题型不能为空");
+        }
+        byte type = AnswerKey.typeOf(text.toUpperCase(Locale.ROOT));
+        if (type == AnswerKey.TYPE_UNKNOWN) {
+            type = TYPE_NAMES.getOrDefault(text, AnswerKey.TYPE_UNKNOWN);
+        }
+        if (type == AnswerKey.TYPE_UNKNOWN) {
+            throw new InvalidRowException("题型应为单选、多选、判断或填空");
+        }
+        return type;
+    }
+
+    private Long parseSubject(String text) {
+        if (text == null) {
+            if (defaultSubjectId == null) {
+                throw new InvalidRowException("科目ID不能为空");
+            }
+            return defaultSubjectId;
+        }
+        Long subjectId;
+        try {
+            subjectId = new BigDecimal(text).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new InvalidRowException("科目ID格式错误");
+        }
+        if (!subjectIds.contains(subjectId)) {
+            throw new InvalidRowException("科目" + subjectId + "不存在");
+        }
+        return subjectId;
+    }
+
+    /**
+     * 选项可以是JSON数组，也可以每行（或用 "|" 分隔）一个选项，缺少 "A." 标签时按顺序补上
+     */
+    private List<String> parseOptions(String text) {
+        if (text == null) {
+            throw new InvalidRowException("选择题选项不能为空");
+        }
+        List<String> values = new ArrayList<>();
+        if (text.startsWith("[")) {
+            try {
+                JsonNode root = objectMapper.readTree(text);
+                if (!root.isArray()) {
+                    throw new InvalidRowException("选项格式错误");
+                }
+                for (JsonNode node : root) {
+                    values.add(node.asText().trim());
+                }
+            } catch (IOException e) {
+                throw new InvalidRowException("选项格式错误");
+            }
+        } else {
+            for (String value : OPTION_SEPARATOR.split(text)) {
+                values.add(value.trim());
+            }
+        }
+        values.removeIf(String::isEmpty);
+        if (values.size() < 2 || values.size() > MAX_OPTIONS) {
+            throw new InvalidRowException("选择题选项应为2到" + MAX_OPTIONS + "个");
+        }
+        List<String> options = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i);
+            options.add(OPTION_LABEL.matcher(value).find() ? value : (char) ('A' + i) + "." + value);
+        }
+        return options;
+    }
+
+    private String parseChoiceAnswer(byte type, String text, int optionCount) {
+        int mask = AnswerMatcher.choiceMask(text);
+        if (mask == 0) {
+            throw new InvalidRowException("选择题答案应为选项字母");
+        }
+        if ((mask >>> optionCount) != 0) {
+            throw new InvalidRowException("答案超出选项范围");
+        }
+        if (type == AnswerKey.TYPE_SINGLE) {
+            if (Integer.bitCount(mask) != 1) {
+                throw new InvalidRowException("单选题只能有一个答案");
+            }
+            return String.valueOf((char) ('A' + Integer.numberOfTrailingZeros(mask)));
+        }
+        List<String> letters = new ArrayList<>();
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            letters.add(String.valueOf((char) ('A' + Integer.numberOfTrailingZeros(bits))));
+        }
+        return toJson(letters);
+    }
+
+    private Integer parseDifficulty(String text) {
+        if (text == null) {
+            return DEFAULT_DIFFICULTY;
+        }
+        try {
+            int difficulty = new BigDecimal(text).intValueExact();
+            if (difficulty >= 1 && difficulty <= 5) {
+                return difficulty;
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            // 按格式错误处理
+        }
+        throw new InvalidRowException("难度应为1到5的整数");
+    }
+
+    private BigDecimal parseScore(String text) {
+        if (text == null) {
+            return DEFAULT_SCORE;
+        }
+        BigDecimal score;
+        try {
+            score = new BigDecimal(text).setScale(1, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            throw new InvalidRowException("分值格式错误");
+        }
+        if (score.signum() <= 0 || score.compareTo(MAX_SCORE) > 0) {
+            throw new InvalidRowException("分值应大于0且不超过" + MAX_SCORE);
+        }
+        return score;
+    }
+
+    private String toJson(List<String> values) {
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRowException("选项格式错误");
+        }
+    }
+
+    /**
+     * 去掉首尾空白后的单元格文本，空白或没有该列时返回null
+     */
+    private String cell(String[] cells, int field) {
+        int column = columns[field];
+        if (column < 0 || column >= cells.length || cells[column] == null) {
+            return null;
+        }
+        String value = cells[column].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 一行单元格文本，rowNum 为工作表行号（从0开始）
+     */
+    record Row(int rowNum, String[] cells) {
+    }
+
+    /**
+     * 行校验结果，question 和 error 有且只有一个非null
+     */
+    record ParsedRow(int rowNum, Question question, String error) {
+    }
+
+    /**
+     * 行校验失败，不记录堆栈（错误行可能很多）
+     */
+    private static final class InvalidRowException extends RuntimeException {
+
+        InvalidRowException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
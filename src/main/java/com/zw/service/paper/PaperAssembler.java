@@ -0,0 +1,322 @@
+package com.zw.service.paper;
+
+import com.zw.dto.PaperBlueprintDTO;
+import com.zw.exception.ApiException;
+import com.zw.service.grading.AnswerKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自动组卷
+ * <p>
+ * 按蓝图在题库内存索引上抽题：每种题型先按难度权重用最大余数法分配各难度的题数，
+ * 某难度题目不足时把缺口移到最近的难度；各难度内随机抽取，优先避开前几份试卷已用的题目。
+ * 指定目标总分时，再随机挑选同题型同难度的题目替换，只接受让总分更接近目标的替换。
+ * 全程只访问内存数组，十万级题库也在毫秒内完成。
+ */
+@Slf4j
+@Component
+public class PaperAssembler {
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+
+    /**
+     * 按蓝图生成试卷，返回每份试卷的题目和分值
+     */
+    public List<AssembledPaper> assemble(PaperBlueprintDTO blueprint) {
+        long start = System.nanoTime();
+        List<Long> subjectIds = questionBankIndex.subtree(blueprint.getSubjectId(),
+                !Boolean.FALSE.equals(blueprint.getIncludeChildren()));
+
+        List<TypeSpec> specs = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : blueprint.getTypeCounts().entrySet()) {
+            byte type = AnswerKey.typeOf(entry.getKey());
+            if (type == AnswerKey.TYPE_UNKNOWN) {
+                throw new ApiException(400, "不支持的题型: " + entry.getKey());
+            }
+            int count = entry.getValue() == null ? 0 : entry.getValue();
+            if (count < 0 || count > 500) {
+                throw new ApiException(400, "每种题型的题目数量应在0到500之间");
+            }
+            if (count > 0) {
+                specs.add(new TypeSpec(entry.getKey(), count, mergePools(subjectIds, type)));
+            }
+        }
+        if (specs.isEmpty()) {
+            throw new ApiException(400, "题目数量不能为0");
+        }
+
+        long seed = blueprint.getSeed() != null ? blueprint.getSeed() : ThreadLocalRandom.current().nextLong();
+        Random random = new Random(seed);
+        int target = blueprint.getTotalScore() != null
+                ? blueprint.getTotalScore().movePointRight(1).setScale(0, RoundingMode.HALF_UP).intValue() : -1;
+        int variants = blueprint.getVariants() == null ? 1 : blueprint.getVariants();
+
+        List<AssembledPaper> papers = new ArrayList<>(variants);
+        Set<Long> used = new HashSet<>();
+        for (int i = 0; i < variants; i++) {
+            AssembledPaper paper = solve(specs, blueprint.getDifficultyWeights(), target, random, used);
+            for (long questionId : paper.questionIds()) {
+                used.add(questionId);
+            }
+            papers.add(paper);
+        }
+        log.info("自动组卷完成, 科目={}, 份数={}, 种子={}, 耗时{}ms", blueprint.getSubjectId(), variants, seed,
+                (System.nanoTime() - start) / 1_000_000);
+        return papers;
+    }
+
+    private AssembledPaper solve(List<TypeSpec> specs, Map<Integer, Integer> weights, int target, Random random,
+                                 Set<Long> avoid) {
+        List<Slot> slots = new ArrayList<>();
+        Set<Long> selected = new HashSet<>();
+        for (TypeSpec spec : specs) {
+            int[] need = allocate(spec, weights);
+            for (int difficulty = QuestionBankIndex.MIN_DIFFICULTY; difficulty <= QuestionBankIndex.MAX_DIFFICULTY;
+                 difficulty++) {
+                Pool pool = spec.pools()[difficulty];
+                for (int position : sample(pool, need[difficulty], random, avoid)) {
+                    slots.add(new Slot(pool, position));
+                    selected.add(pool.ids()[position]);
+                }
+            }
+        }
+
+        int total = 0;
+        for (Slot slot : slots) {
+            total += slot.score();
+        }
+        if (target >= 0) {
+            total = adjustScore(slots, selected, avoid, total, target, random);
+        }
+
+        long[] questionIds = new long[slots.size()];
+        int[] scores = new int[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            questionIds[i] = slots.get(i).id();
+            scores[i] = slots.get(i).score();
+        }
+        return new AssembledPaper(questionIds, scores, total);
+    }
+
+    /**
+     * 按难度权重分配题数，权重为空时按各难度的题目数分配
+     */
+    private static int[] allocate(TypeSpec spec, Map<Integer, Integer> weights) {
+        int min = QuestionBankIndex.MIN_DIFFICULTY;
+        int max = QuestionBankIndex.MAX_DIFFICULTY;
+        long[] weight = new long[max + 1];
+        long weightSum = 0;
+        int available = 0;
+        for (int d = min; d <= max; d++) {
+            available += spec.pools()[d].size();
+            Integer w = weights != null ? weights.get(d) : null;
+            weight[d] = w != null ? Math.max(0, w) : 0;
+            weightSum += weight[d];
+        }
+        if (available < spec.count()) {
+            throw new ApiException(400, String.format("题库中%s题只有%d道，少于要求的%d道", spec.name(), available,
+                    spec.count()));
+        }
+        if (weightSum == 0) {
+            for (int d = min; d <= max; d++) {
+                weight[d] = spec.pools()[d].size();
+                weightSum += weight[d];
+            }
+        }
+
+        // 最大余数法
+        int[] need = new int[max + 1];
+        long[] remainder = new long[max + 1];
+        int assigned = 0;
+        for (int d = min; d <= max; d++) {
+            need[d] = (int) (spec.count() * weight[d] / weightSum);
+            remainder[d] = spec.count() * weight[d] % weightSum;
+            assigned += need[d];
+        }
+        while (assigned < spec.count()) {
+            int best = min;
+            for (int d = min + 1; d <= max; d++) {
+                if (remainder[d] > remainder[best]) {
+                    best = d;
+                }
+            }
+            need[best]++;
+            remainder[best] = -1;
+            assigned++;
+        }
+
+        // 题目不足的难度把缺口移到最近的难度，距离相同时先取较低难度
+        for (int d = min; d <= max; d++) {
+            int excess = need[d] - spec.pools()[d].size();
+            for (int distance = 1; excess > 0 && distance <= max - min; distance++) {
+                for (int neighbor : new int[]{d - distance, d + distance}) {
+                    if (neighbor < min || neighbor > max || excess == 0) {
+                        continue;
+                    }
+                    int spare = spec.pools()[neighbor].size() - need[neighbor];
+                    if (spare > 0) {
+                        int moved = Math.min(spare, excess);
+                        need[neighbor] += moved;
+                        need[d] -= moved;
+                        excess -= moved;
+                    }
+                }
+            }
+        }
+        return need;
+    }
+
+    /**
+     * 从题目池随机抽取k个不重复位置，优先不在 avoid 中的题目
+     */
+    private static int[] sample(Pool pool, int k, Random random, Set<Long> avoid) {
+        int[] picked = new int[k];
+        if (k == 0) {
+            return picked;
+        }
+        int n = pool.size();
+        if (avoid.isEmpty()) {
+            return Sampling.floyd(n, k, random);
+        }
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        int size = 0;
+        // 题目池远大于k时随机探测几乎不会冲突
+        for (int attempts = k * 8 + 32; size < k && attempts > 0; attempts--) {
+            int position = random.nextInt(n);
+            if (!avoid.contains(pool.ids()[position]) && chosen.add(position)) {
+                picked[size++] = position;
+            }
+        }
+        if (size < k) {
+            // 剩余题目不多时，把未选中的位置按未用过、用过分成两段，分别部分洗牌补足
+            int[] rest = new int[n - size];
+            int fresh = 0;
+            int tail = rest.length;
+            for (int position = 0; position < n; position++) {
+                if (!chosen.contains(position)) {
+                    if (avoid.contains(pool.ids()[position])) {
+                        rest[--tail] = position;
+                    } else {
+                        rest[fresh++] = position;
+                    }
+                }
+            }
+            size = shuffleInto(rest, 0, fresh, picked, size, random);
+            shuffleInto(rest, fresh, rest.length, picked, size, random);
+        }
+        return picked;
+    }
+
+    private static int shuffleInto(int[] source, int from, int to, int[] target, int size, Random random) {
+        for (int i = from; i < to && size < target.length; i++) {
+            int j = i + random.nextInt(to - i);
+            int position = source[j];
+            source[j] = source[i];
+            source[i] = position;
+            target[size++] = position;
+        }
+        return size;
+    }
+
+    /**
+     * 随机替换同题型同难度的题目，使总分逼近目标
+     */
+    private static int adjustScore(List<Slot> slots, Set<Long> selected, Set<Long> avoid, int total, int target,
+                                   Random random) {
+        for (int iterations = slots.size() * 50; total != target && iterations > 0; iterations--) {
+            Slot slot = slots.get(random.nextInt(slots.size()));
+            Pool pool = slot.pool;
+            int candidate = random.nextInt(pool.size());
+            long candidateId = pool.ids()[candidate];
+            int delta = pool.scores()[candidate] - slot.score();
+            if (delta == 0 || selected.contains(candidateId) || avoid.contains(candidateId)
+                    || Math.abs(total + delta - target) >= Math.abs(total - target)) {
+                continue;
+            }
+            selected.remove(slot.id());
+            selected.add(candidateId);
+            slot.position = candidate;
+            total += delta;
+        }
+        return total;
+    }
+
+    private Pool[] mergePools(List<Long> subjectIds, byte type) {
+        Pool[] pools = new Pool[QuestionBankIndex.MAX_DIFFICULTY + 1];
+        for (int d = 0; d < pools.length; d++) {
+            List<QuestionBankIndex.Bucket> buckets = new ArrayList<>(subjectIds.size());
+            int size = 0;
+            if (d >= QuestionBankIndex.MIN_DIFFICULTY) {
+                for (Long subjectId : subjectIds) {
+                    QuestionBankIndex.Bucket bucket = questionBankIndex.bucket(subjectId, type, d);
+                    buckets.add(bucket);
+                    size += bucket.size();
+                }
+            }
+            long[] ids = new long[size];
+            int[] scores = new int[size];
+            int offset = 0;
+            for (QuestionBankIndex.Bucket bucket : buckets) {
+                for (int i = 0; i < bucket.size(); i++, offset++) {
+                    ids[offset] = bucket.id(i);
+                    scores[offset] = bucket.score(i);
+                }
+            }
+            pools[d] = new Pool(ids, scores);
+        }
+        return pools;
+    }
+
+    /**
+     * 一份试卷的题目ID和分值（单位0.1分），按蓝图题型顺序、难度从低到高排列
+     */
+    public record AssembledPaper(long[] questionIds, int[] scores, int totalScore) {
+
+        public BigDecimal totalScoreValue() {
+            return BigDecimal.valueOf(totalScore, 1);
+        }
+    }
+
+    private record TypeSpec(String name, int count, Pool[] pools) {
+    }
+
+    private record Pool(long[] ids, int[] scores) {
+
+        private int size() {
+            return ids.length;
+        }
+    }
+
+    private static final class Slot {
+
+        private final Pool pool;
+
+        private int position;
+
+        private Slot(Pool pool, int position) {
+            this.pool = pool;
+            this.position = position;
+        }
+
+        private long id() {
+            return pool.ids()[position];
+        }
+
+        private int score() {
+            return pool.scores()[position];
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.zw.service.paper;
+
+import com.zw.vo.ExamPaperVO;
+import com.zw.vo.ExamQuestionVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTFonts;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyle;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyles;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STJc;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STStyleType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 线下考试试卷批量渲染为 Word
+ * <p>
+ * 每套试卷按 {@link PaperRenderer} 的题目和选项顺序排版：卷头、按题型分大题的题目和选项，另起一页为答题卡。
+ * 段落样式（字体、字号、缩进、间距）在启动时构建一次，每份文档只复制样式表并按样式ID引用，
+ * 不为每个段落和文字单独设置格式。多套试卷在有界线程池中并发渲染，按提交顺序写入 ZIP，
+ * 在途文档数不超过线程数的两倍，内存占用与套数无关。
+ */
+@Slf4j
+@Component
+public class PaperDocxRenderer {
+
+    private static final String STYLE_TITLE = "ExamTitle";
+    private static final String STYLE_INFO = "ExamInfo";
+    private static final String STYLE_SECTION = "ExamSection";
+    private static final String STYLE_STEM = "QuestionStem";
+    private static final String STYLE_OPTION = "QuestionOption";
+    private static final String STYLE_SHEET = "AnswerSheet";
+
+    private static final String[] SECTION_NUMBERS = {"一", "二", "三", "四", "五", "六", "七", "八", "九", "十"};
+
+    private static final Map<String, String> TYPE_NAMES = Map.of(
+            "SINGLE", "单选题", "MULTI", "多选题", "JUDGE", "判断题", "FILL", "填空题");
+
+    /**
+     * 答题卡每行的题数
+     */
+    private static final int SHEET_COLUMNS = 5;
+
+    private static final String BLANK = "____________";
+
+    @Autowired
+    private PaperRenderer paperRenderer;
+
+    @Value("${exam.paper-docx.threads:4}")
+    private int threads;
+
+    @Value("${exam.paper-docx.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor renderPool;
+
+    /**
+     * 样式表模板，复制时加锁（XMLBeans 对象并发复制不安全）
+     */
+    private CTStyles templateStyles;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时由提交线程自己渲染，多个导出请求同时进行时不会无限排队
+        renderPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "paper-docx-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        templateStyles = buildStyles();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    /**
+     * 渲染多套试卷写入 ZIP，每套一个 .docx 文件；不关闭 out
+     */
+    public void writeZip(Long paperId, List<Variant> variants, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        Deque<Variant> pending = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+        long start = System.currentTimeMillis();
+        try {
+            for (Variant variant : variants) {
+                inFlight.add(renderPool.submit(() -> render(paperId, variant)));
+                pending.add(variant);
+                if (inFlight.size() >= maxInFlight) {
+                    writeEntry(zip, pending.poll(), inFlight.poll());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeEntry(zip, pending.poll(), inFlight.poll());
+            }
+            zip.finish();
+            zip.flush();
+            log.info("试卷{}渲染{}套Word, 耗时{}ms", paperId, variants.size(), System.currentTimeMillis() - start);
+        } finally {
+            // 客户端断开或渲染失败时取消剩余任务
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * 渲染一套试卷
+     */
+    public byte[] render(Long paperId, Variant variant) {
+        ExamPaperVO paper = variant.userId() != null
+                ? paperRenderer.render(paperId, variant.userId(), variant.shuffled())
+                : paperRenderer.renderVariant(paperId, variant.number());
+        try (XWPFDocument document = new XWPFDocument()) {
+            document.createStyles().setStyles(copyStyles());
+            writeHeader(document, paper, variant);
+            writeQuestions(document, paper.getQuestions());
+            writeAnswerSheet(document, paper, variant);
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+            document.write(buffer);
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zip, Variant variant, Future<byte[]> future) throws IOException {
+        byte[] content;
+        try {
+            content = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("试卷渲染被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("试卷渲染失败: " + variant.fileName(), e.getCause());
+        }
+        // docx 本身已压缩，直接存储
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ZipEntry entry = new ZipEntry(variant.fileName());
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private void writeHeader(XWPFDocument document, ExamPaperVO paper, Variant variant) {
+        paragraph(document, STYLE_TITLE, paper.getTitle());
+        StringBuilder info = new StringBuilder();
+        if (paper.getTimeLimit() != null) {
+            info.append("考试时长：").append(paper.getTimeLimit()).append("分钟　　");
+        }
+        if (paper.getTotalScore() != null) {
+            info.append("满分：").append(formatScore(paper.getTotalScore())).append("分　　");
+        }
+        info.append(variant.label());
+        paragraph(document, STYLE_INFO, info.toString());
+        paragraph(document, STYLE_INFO, studentLine(variant));
+    }
+
+    /**
+     * 题目按题型连续分组（乱序只在同题型区段内进行），每组一个大题
+     */
+    private void writeQuestions(XWPFDocument document, List<ExamQuestionVO> questions) {
+        int section = 0;
+        for (int from = 0; from < questions.size(); ) {
+            String type = questions.get(from).getQuestionType();
+            int to = from;
+            BigDecimal sectionScore = BigDecimal.ZERO;
+            while (to < questions.size() && type.equals(questions.get(to).getQuestionType())) {
+                BigDecimal score = questions.get(to).getScore();
+                sectionScore = score != null ? sectionScore.add(score) : sectionScore;
+                to++;
+            }
+            String sectionNumber = section < SECTION_NUMBERS.length ? SECTION_NUMBERS[section] : String.valueOf(section + 1);
+            paragraph(document, STYLE_SECTION, sectionNumber + "、" + TYPE_NAMES.getOrDefault(type, type)
+                    + "（共" + (to - from) + "题，共" + formatScore(sectionScore) + "分）");
+            for (int i = from; i < to; i++) {
+                writeQuestion(document, i + 1, questions.get(i));
+            }
+            section++;
+            from = to;
+        }
+    }
+
+    private void writeQuestion(XWPFDocument document, int number, ExamQuestionVO question) {
+        String score = question.getScore() != null ? "（" + formatScore(question.getScore()) + "分）" : "";
+        String type = question.getQuestionType();
+        if ("JUDGE".equals(type)) {
+            paragraph(document, STYLE_STEM, number + ". " + question.getContent() + score + "（　　）");
+            return;
+        }
+        paragraph(document, STYLE_STEM, number + ". " + question.getContent() + score);
+        if ("FILL".equals(type)) {
+            paragraph(document, STYLE_OPTION, "答：" + BLANK + BLANK);
+            return;
+        }
+        List<String> options = question.getOptions();
+        for (int i = 0; i < options.size(); i++) {
+            paragraph(document, STYLE_OPTION, (char) ('A' + i) + ". " + options.get(i));
+        }
+    }
+
+    /**
+     * 答题卡另起一页：选择题和判断题填入表格，填空题每题一行
+     */
+    private void writeAnswerSheet(XWPFDocument document, ExamPaperVO paper, Variant variant) {
+        XWPFParagraph title = paragraph(document, STYLE_TITLE, paper.getTitle() + " 答题卡");
+        title.setPageBreak(true);
+        paragraph(document, STYLE_INFO, variant.label());
+        paragraph(document, STYLE_INFO, studentLine(variant));
+
+        List<ExamQuestionVO> questions = paper.getQuestions();
+        int choiceCount = 0;
+        for (ExamQuestionVO question : questions) {
+            if (!"FILL".equals(question.getQuestionType())) {
+                choiceCount++;
+            }
+        }
+        if (choiceCount > 0) {
+            int rows = (choiceCount + SHEET_COLUMNS - 1) / SHEET_COLUMNS;
+            XWPFTable table = document.createTable(rows * 2, SHEET_COLUMNS);
+            table.setWidth("100%");
+            int index = 0;
+            for (int i = 0; i < questions.size(); i++) {
+                if ("FILL".equals(questions.get(i).getQuestionType())) {
+                    continue;
+                }
+                int row = index / SHEET_COLUMNS * 2;
+                int column = index % SHEET_COLUMNS;
+                cellText(table.getRow(row).getCell(column), String.valueOf(i + 1));
+                cellText(table.getRow(row + 1).getCell(column), "");
+                index++;
+            }
+        }
+        for (int i = 0; i < questions.size(); i++) {
+            if ("FILL".equals(questions.get(i).getQuestionType())) {
+                paragraph(document, STYLE_OPTION, (i + 1) + ". " + BLANK + BLANK + BLANK);
+            }
+        }
+    }
+
+    private static String studentLine(Variant variant) {
+        return "姓名：" + (variant.studentName() != null ? variant.studentName() : BLANK)
+                + "　　学号：" + (variant.studentNo() != null ? variant.studentNo() : BLANK);
+    }
+
+    /**
+     * 按样式ID新建段落，文本中的换行转为段内换行
+     */
+    private static XWPFParagraph paragraph(XWPFDocument document, String style, String text) {
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.setStyle(style);
+        appendText(paragraph, text);
+        return paragraph;
+    }
+
+    private static void cellText(XWPFTableCell cell, String text) {
+        XWPFParagraph paragraph = cell.getParagraphs().get(0);
+        paragraph.setStyle(STYLE_SHEET);
+        appendText(paragraph, text);
+    }
+
+    private static void appendText(XWPFParagraph paragraph, String text) {
+        XWPFRun run = paragraph.createRun();
+        if (text == null) {
+            return;
+        }
+        int lineStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                int lineEnd = i > lineStart && text.charAt(i - 1) == '\r' ? i - 1 : i;
+                run.setText(text.substring(lineStart, lineEnd));
+                run.addBreak();
+                lineStart = i + 1;
+            }
+        }
+        run.setText(text.substring(lineStart));
+    }
+
+    private static String formatScore(BigDecimal score) {
+        return score.stripTrailingZeros().toPlainString();
+    }
+
+    private CTStyles copyStyles() {
+        synchronized (templateStyles) {
+            return (CTStyles) templateStyles.copy();
+        }
+    }
+
+    private static CTStyles buildStyles() {
+        CTStyles styles = CTStyles.Factory.newInstance();
+        // 字号单位为半磅，缩进和间距单位为 1/20 磅
+        addStyle(styles, STYLE_TITLE, "试卷标题", 36, true, STJc.CENTER, 0, 240);
+        addStyle(styles, STYLE_INFO, "卷头信息", 21, false, STJc.CENTER, 0, 120);
+        addStyle(styles, STYLE_SECTION, "大题标题", 24, true, null, 0, 120);
+        addStyle(styles, STYLE_STEM, "题干", 21, false, null, 0, 60);
+        addStyle(styles, STYLE_OPTION, "选项", 21, false, null, 420, 40);
+        addStyle(styles, STYLE_SHEET, "答题卡", 21, false, STJc.CENTER, 0, 0);
+        return styles;
+    }
+
+    private static void addStyle(CTStyles styles, String id, String name, int halfPoints, boolean bold,
+                                 STJc.Enum alignment, int indent, int spacingAfter) {
+        CTStyle style = styles.addNewStyle();
+        style.setType(STStyleType.PARAGRAPH);
+        style.setStyleId(id);
+        style.addNewName().setVal(name);
+        style.addNewQFormat();
+
+        CTPPr paragraph = style.addNewPPr();
+        if (alignment != null) {
+            paragraph.addNewJc().setVal(alignment);
+        }
+        if (indent > 0) {
+            paragraph.addNewInd().setLeft(BigInteger.valueOf(indent));
+        }
+        paragraph.addNewSpacing().setAfter(BigInteger.valueOf(spacingAfter));
+
+        CTRPr run = style.addNewRPr();
+        CTFonts fonts = run.addNewRFonts();
+        fonts.setAscii("Times New Roman");
+        fonts.setHAnsi("Times New Roman");
+        fonts.setEastAsia("宋体");
+        if (bold) {
+            run.addNewB();
+        }
+        run.addNewSz().setVal(BigInteger.valueOf(halfPoints));
+    }
+
+    /**
+     * 一套试卷：userId 非空时按考生渲染，shuffled 为该考生是否乱序（与在线考试一致），否则按套号 number 乱序
+     */
+    public record Variant(String fileName, String label, Long userId, boolean shuffled, long number,
+                          String studentName, String studentNo) {
+    }
+}
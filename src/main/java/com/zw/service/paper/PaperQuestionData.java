@@ -0,0 +1,48 @@
+package com.zw.service.paper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.exception.ApiException;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 试卷题目数据解析
+ * <p>
+ * Paper.questionData 为 [{"question_id":1,"score":2.0}, ...]，题目ID兼容 question_id / questionId / id 三种键名。
+ * 试卷渲染和标准答案编译共用，保证考生看到的题目、分值与评分时一致。
+ */
+public final class PaperQuestionData {
+
+    private PaperQuestionData() {
+    }
+
+    /**
+     * 解析为 题目ID -> 试卷中配置的分值（未配置为null），保持试卷中的顺序，重复的题目只保留第一次
+     */
+    public static Map<Long, BigDecimal> parse(ObjectMapper objectMapper, String questionData) {
+        Map<Long, BigDecimal> items = new LinkedHashMap<>();
+        if (!StringUtils.hasText(questionData)) {
+            return items;
+        }
+        try {
+            for (JsonNode node : objectMapper.readTree(questionData)) {
+                JsonNode idNode = node.has("question_id") ? node.get("question_id")
+                        : node.has("questionId") ? node.get("questionId") : node.get("id");
+                if (idNode == null || !idNode.canConvertToLong()) {
+                    continue;
+                }
+                JsonNode scoreNode = node.get("score");
+                items.putIfAbsent(idNode.asLong(), scoreNode != null && scoreNode.isNumber()
+                        ? scoreNode.decimalValue() : null);
+            }
+        } catch (IOException e) {
+            throw new ApiException("试卷题目数据格式错误");
+        }
+        return items;
+    }
+}
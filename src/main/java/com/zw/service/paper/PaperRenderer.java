@@ -0,0 +1,239 @@
+package com.zw.service.paper;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.entity.Paper;
+import com.zw.entity.Question;
+import com.zw.exception.ApiException;
+import com.zw.mapper.PaperMapper;
+import com.zw.mapper.QuestionMapper;
+import com.zw.service.grading.AnswerKey;
+import com.zw.vo.ExamPaperVO;
+import com.zw.vo.ExamQuestionVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 考试试卷渲染
+ * <p>
+ * 试卷发布时把题目（不含答案和解析）按 questionData 顺序渲染为基础试卷并缓存，选项预先解析为字符串数组。
+ * 考试记录按考生乱序出卷时，取卷按 {@link PaperShuffle} 的题目顺序和选项顺序直接重排数组，不再查询数据库或解析JSON；
+ * 评分时由评分引擎按同一种子把所选选项换回原选项。试卷修改、归档、删除或题目修改时清除缓存。
+ */
+@Slf4j
+@Component
+public class PaperRenderer {
+
+    /**
+     * 选项原有的字母标号，如 "A."、"B、"、"C："
+     */
+    private static final Pattern OPTION_LABEL = Pattern.compile("^[A-Z]\\s*[.．、:：)）]\\s*");
+
+    @Autowired
+    private PaperMapper paperMapper;
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<Long, CompletableFuture<BasePaper>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 渲染考生的试卷
+     *
+     * @param shuffled 是否按考生乱序，考试记录取 exam_record.shuffled，与评分保持一致
+     */
+    public ExamPaperVO render(Long paperId, Long userId, boolean shuffled) {
+        shuffled = shuffled && userId != null;
+        return render(paperId, shuffled, shuffled ? PaperShuffle.seed(paperId, userId) : 0L);
+    }
+
+    /**
+     * 渲染线下考试的第 variant 套试卷，不受乱序开关影响总是乱序，同一套号每次顺序相同
+     */
+    public ExamPaperVO renderVariant(Long paperId, long variant) {
+        return render(paperId, true, PaperShuffle.variantSeed(paperId, variant));
+    }
+
+    private ExamPaperVO render(Long paperId, boolean shuffled, long seed) {
+        BasePaper base = basePaper(paperId);
+        int size = base.questions().length;
+        int[] order = shuffled ? PaperShuffle.questionOrder(seed, base.types()) : null;
+        int[] optionOrder = new int[PaperShuffle.MAX_OPTIONS];
+
+        List<ExamQuestionVO> questions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BaseQuestion question = base.questions()[shuffled ? order[i] : i];
+            ExamQuestionVO vo = new ExamQuestionVO();
+            vo.setQuestionId(question.id());
+            vo.setQuestionType(question.questionType());
+            vo.setContent(question.content());
+            vo.setScore(question.score());
+            String[] options = question.options();
+            byte type = base.types()[shuffled ? order[i] : i];
+            if (shuffled && (type == AnswerKey.TYPE_SINGLE || type == AnswerKey.TYPE_MULTI)
+                    && PaperShuffle.shufflable(options.length)) {
+                PaperShuffle.optionOrder(seed, question.id(), optionOrder, options.length);
+                String[] permuted = new String[options.length];
+                for (int d = 0; d < options.length; d++) {
+                    permuted[d] = options[optionOrder[d]];
+                }
+                vo.setOptions(Arrays.asList(permuted));
+            } else {
+                vo.setOptions(Arrays.asList(options));
+            }
+            questions.add(vo);
+        }
+
+        ExamPaperVO paper = new ExamPaperVO();
+        paper.setPaperId(paperId);
+        paper.setTitle(base.title());
+        paper.setTotalScore(base.totalScore());
+        paper.setTimeLimit(base.timeLimit());
+        paper.setShuffled(shuffled);
+        paper.setQuestions(questions);
+        return paper;
+    }
+
+    /**
+     * 重新渲染基础试卷，试卷发布后调用
+     */
+    public void rebuild(Long paperId) {
+        try {
+            cache.put(paperId, CompletableFuture.completedFuture(load(paperId)));
+        } catch (Exception e) {
+            cache.remove(paperId);
+            log.warn("试卷{}渲染失败: {}", paperId, e.getMessage());
+        }
+    }
+
+    /**
+     * 清除试卷缓存
+     */
+    public void evict(Long paperId) {
+        cache.remove(paperId);
+    }
+
+    /**
+     * 清除引用了该题目的试卷缓存
+     */
+    public void evictQuestion(Long questionId) {
+        // 渲染中的试卷可能早于本次修改，一并清除
+        cache.values().removeIf(future -> !future.isDone() || future.isCompletedExceptionally()
+                || future.join().contains(questionId));
+    }
+
+    private BasePaper basePaper(Long paperId) {
+        CompletableFuture<BasePaper> future = cache.get(paperId);
+        if (future == null) {
+            // 先放入占位，渲染在映射表之外进行，同一试卷的并发请求等待同一次渲染
+            CompletableFuture<BasePaper> loading = new CompletableFuture<>();
+            future = cache.putIfAbsent(paperId, loading);
+            if (future == null) {
+                try {
+                    loading.complete(load(paperId));
+                } catch (RuntimeException | Error e) {
+                    cache.remove(paperId, loading);
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                return loading.join();
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private BasePaper load(Long paperId) {
+        Paper paper = paperMapper.selectById(paperId);
+        if (paper == null) {
+            throw new ApiException(404, "试卷不存在");
+        }
+        // 题目ID -> 试卷中配置的分值，保持试卷中的顺序
+        Map<Long, BigDecimal> items = PaperQuestionData.parse(objectMapper, paper.getQuestionData());
+        Map<Long, Question> questions = new HashMap<>();
+        if (!items.isEmpty()) {
+            LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(Question::getId, Question::getQuestionType, Question::getContent, Question::getOptions,
+                    Question::getScore);
+            wrapper.in(Question::getId, items.keySet());
+            for (Question question : questionMapper.selectList(wrapper)) {
+                questions.put(question.getId(), question);
+            }
+        }
+
+        List<BaseQuestion> rendered = new ArrayList<>(items.size());
+        for (Map.Entry<Long, BigDecimal> item : items.entrySet()) {
+            Question question = questions.get(item.getKey());
+            if (question == null) {
+                log.warn("试卷{}引用的题目{}不存在，渲染时跳过", paperId, item.getKey());
+                continue;
+            }
+            rendered.add(new BaseQuestion(question.getId(), question.getQuestionType(), question.getContent(),
+                    parseOptions(question.getOptions()),
+                    item.getValue() != null ? item.getValue() : question.getScore()));
+        }
+        BaseQuestion[] array = rendered.toArray(new BaseQuestion[0]);
+        byte[] types = new byte[array.length];
+        long[] sortedIds = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            types[i] = AnswerKey.typeOf(array[i].questionType());
+            sortedIds[i] = array[i].id();
+        }
+        Arrays.sort(sortedIds);
+        return new BasePaper(paper.getTitle(), paper.getTotalScore(), paper.getTimeLimit(), array, types, sortedIds);
+    }
+
+    /**
+     * 选项JSON数组解析为去掉字母标号的文本数组
+     */
+    private String[] parseOptions(String options) {
+        if (!StringUtils.hasText(options)) {
+            return new String[0];
+        }
+        try {
+            JsonNode root = objectMapper.readTree(options);
+            if (!root.isArray()) {
+                return new String[0];
+            }
+            String[] result = new String[root.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = OPTION_LABEL.matcher(root.get(i).asText()).replaceFirst("");
+            }
+            return result;
+        } catch (IOException e) {
+            return new String[0];
+        }
+    }
+
+    private record BasePaper(String title, BigDecimal totalScore, Integer timeLimit, BaseQuestion[] questions,
+                             byte[] types, long[] sortedIds) {
+
+        private boolean contains(Long questionId) {
+            return Arrays.binarySearch(sortedIds, questionId) >= 0;
+        }
+    }
+
+    private record BaseQuestion(long id, String questionType, String content, String[] options, BigDecimal score) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.zw.service.paper;
+
+/**
+ * 考生乱序
+ * <p>
+ * 以 (试卷ID, 考生ID) 派生种子，用 SplitMix64 序列做 Fisher-Yates 洗牌，同一考生每次得到相同的题目和选项顺序，
+ * 不需要为每份考试记录保存试卷副本。选项顺序只由种子和题目ID决定，与题目在试卷中的位置无关，
+ * 评分时只需考生ID和选项数即可把所选选项换回原选项。
+ */
+public final class PaperShuffle {
+
+    /**
+     * 可乱序的最多选项数，与选项位掩码的位数对应
+     */
+    public static final int MAX_OPTIONS = 26;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private PaperShuffle() {
+    }
+
+    /**
+     * 考生在试卷上的乱序种子
+     */
+    public static long seed(long paperId, long userId) {
+        return mix(mix(paperId + GOLDEN_GAMMA) ^ userId);
+    }
+
+    /**
+     * 线下考试第 variant 套（从1开始）的乱序种子，取负数与考生ID（正数）分开，任何一套都不会与某个考生的试卷相同
+     */
+    public static long variantSeed(long paperId, long variant) {
+        return seed(paperId, -variant);
+    }
+
+    /**
+     * 题目顺序：第i个显示位置为原第 order[i] 题。只在同一题型的连续区段内打乱，题型分组保持不变
+     */
+    public static int[] questionOrder(long seed, byte[] types) {
+        int[] order = new int[types.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        long state = seed;
+        int start = 0;
+        while (start < types.length) {
+            int end = start + 1;
+            while (end < types.length && types[end] == types[start]) {
+                end++;
+            }
+            for (int i = end - 1; i > start; i--) {
+                state += GOLDEN_GAMMA;
+                int j = start + bounded(mix(state), i - start + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            start = end;
+        }
+        return order;
+    }
+
+    /**
+     * 选项顺序写入 order[0, n)：第i个显示的选项为原第 order[i] 个选项
+     */
+    public static void optionOrder(long seed, long questionId, int[] order, int n) {
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        long state = mix(seed ^ mix(questionId));
+        for (int i = n - 1; i > 0; i--) {
+            state += GOLDEN_GAMMA;
+            int j = bounded(mix(state), i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /**
+     * 按显示位置所选选项的位掩码换回原选项的位掩码，超出选项数的位原样保留（必然判错）
+     */
+    public static int toOriginalMask(int mask, int[] order, int n) {
+        int original = 0;
+        while (mask != 0) {
+            int display = Integer.numberOfTrailingZeros(mask);
+            original |= 1 << (display < n ? order[display] : display);
+            mask &= mask - 1;
+        }
+        return original;
+    }
+
+    /**
+     * 选项数是否可以乱序
+     */
+    public static boolean shufflable(int optionCount) {
+        return optionCount > 1 && optionCount <= MAX_OPTIONS;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * [0, bound) 内的随机数，取高32位相乘，偏差可忽略
+     */
+    private static int bounded(long random, int bound) {
+        return (int) (((random >>> 32) * bound) >>> 32);
+    }
+}
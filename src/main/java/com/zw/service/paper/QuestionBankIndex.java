@@ -0,0 +1,321 @@
+package com.zw.service.paper;
+
+import com.zw.entity.Question;
+import com.zw.entity.Subject;
+import com.zw.mapper.QuestionMapper;
+import com.zw.mapper.SubjectMapper;
+import com.zw.service.grading.AnswerKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 题库内存索引
+ * <p>
+ * 每个科目首次使用时流式读取已审核通过题目的ID、题型、难度和分值，
+ * 按 (题型, 难度) 分桶存为基本类型数组，另存每种题型的全部题目ID，组卷和随机抽题直接在数组上进行，不再查询数据库。
+ * 加载在映射表之外进行，同一科目的并发请求等待同一次加载。题目修改、审核、删除后由题目服务按题目更新已加载的科目，
+ * 只替换受影响的桶；正在加载的科目直接清除，下次使用时重新加载。
+ */
+@Slf4j
+@Component
+public class QuestionBankIndex {
+
+    public static final int MIN_DIFFICULTY = 1;
+
+    public static final int MAX_DIFFICULTY = 5;
+
+    private static final int DEFAULT_DIFFICULTY = 3;
+
+    private static final int TYPE_COUNT = AnswerKey.TYPE_FILL + 1;
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Autowired
+    private SubjectMapper subjectMapper;
+
+    private final Map<Long, CompletableFuture<Bank>> banks = new ConcurrentHashMap<>();
+
+    /**
+     * 科目及其所有下级科目的ID
+     */
+    public List<Long> subtree(Long subjectId, boolean includeChildren) {
+        List<Long> result = new ArrayList<>();
+        result.add(subjectId);
+        if (!includeChildren) {
+            return result;
+        }
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (Subject subject : subjectMapper.selectHierarchy()) {
+            if (subject.getParentId() != null) {
+                children.computeIfAbsent(subject.getParentId(), id -> new ArrayList<>()).add(subject.getId());
+            }
+        }
+        Deque<Long> queue = new ArrayDeque<>(children.getOrDefault(subjectId, List.of()));
+        while (!queue.isEmpty()) {
+            Long id = queue.poll();
+            result.add(id);
+            queue.addAll(children.getOrDefault(id, List.of()));
+        }
+        return result;
+    }
+
+    /**
+     * 科目下指定题型、难度的题目
+     */
+    public Bucket bucket(Long subjectId, byte type, int difficulty) {
+        return bank(subjectId).buckets[type * (MAX_DIFFICULTY + 1) + difficulty];
+    }
+
+    /**
+     * 科目下指定题型的全部题目ID（升序），调用方不得修改返回的数组
+     */
+    public long[] ids(Long subjectId, byte type) {
+        return bank(subjectId).typeIds[type];
+    }
+
+    /**
+     * 按数据库中的最新数据更新已加载科目中的题目，未通过审核或已删除的题目移出索引，科目变更时从原科目移到新科目。
+     * 题目修改、审核、删除的事务提交后调用，串行执行保证后提交的修改后生效
+     */
+    public synchronized void refresh(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty() || banks.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Question> questions = new HashMap<>();
+            for (Question question : questionMapper.selectForBank(ids)) {
+                questions.put(question.getId(), question);
+            }
+            for (Long subjectId : banks.keySet()) {
+                banks.computeIfPresent(subjectId, (key, future) -> {
+                    if (!future.isDone() || future.isCompletedExceptionally()) {
+                        // 加载中的数据可能早于本次修改
+                        return null;
+                    }
+                    Bank bank = future.join();
+                    for (Long id : ids) {
+                        Question question = questions.get(id);
+                        bank = bank.update(id, question != null && key.equals(question.getSubjectId())
+                                && Integer.valueOf(1).equals(question.getReviewStatus()) ? question : null);
+                    }
+                    return bank == future.join() ? future : CompletableFuture.completedFuture(bank);
+                });
+            }
+        } catch (Exception e) {
+            banks.clear();
+            log.warn("题库索引更新失败, 已清除全部科目, ids={}: {}", ids, e.getMessage());
+        }
+    }
+
+    private Bank bank(Long subjectId) {
+        CompletableFuture<Bank> future = banks.get(subjectId);
+        if (future == null) {
+            // 先放入占位，加载在映射表之外进行，同一科目的并发请求等待同一次加载
+            CompletableFuture<Bank> loading = new CompletableFuture<>();
+            future = banks.putIfAbsent(subjectId, loading);
+            if (future == null) {
+                try {
+                    loading.complete(load(subjectId));
+                } catch (RuntimeException | Error e) {
+                    banks.remove(subjectId, loading);
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                return loading.join();
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private Bank load(Long subjectId) {
+        long start = System.currentTimeMillis();
+        BucketBuilder[] builders = new BucketBuilder[TYPE_COUNT * (MAX_DIFFICULTY + 1)];
+        int[] count = new int[1];
+        questionMapper.streamReviewedBySubject(subjectId, context -> {
+            Question question = context.getResultObject();
+            byte type = AnswerKey.typeOf(question.getQuestionType());
+            if (type == AnswerKey.TYPE_UNKNOWN) {
+                return;
+            }
+            int index = type * (MAX_DIFFICULTY + 1) + normalizeDifficulty(question.getDifficulty());
+            if (builders[index] == null) {
+                builders[index] = new BucketBuilder();
+            }
+            builders[index].add(question.getId(), toTenths(question.getScore()));
+            count[0]++;
+        });
+        Bucket[] buckets = new Bucket[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            buckets[i] = builders[i] != null ? builders[i].build() : Bucket.EMPTY;
+        }
+        long[][] typeIds = new long[TYPE_COUNT][];
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            int size = 0;
+            for (int d = MIN_DIFFICULTY; d <= MAX_DIFFICULTY; d++) {
+                size += buckets[type * (MAX_DIFFICULTY + 1) + d].size();
+            }
+            long[] ids = new long[size];
+            int offset = 0;
+            for (int d = MIN_DIFFICULTY; d <= MAX_DIFFICULTY; d++) {
+                Bucket bucket = buckets[type * (MAX_DIFFICULTY + 1) + d];
+                System.arraycopy(bucket.ids, 0, ids, offset, bucket.size());
+                offset += bucket.size();
+            }
+            Arrays.sort(ids);
+            typeIds[type] = ids;
+        }
+        log.info("科目{}题库索引加载完成, 题目数={}, 耗时{}ms", subjectId, count[0], System.currentTimeMillis() - start);
+        return new Bank(buckets, typeIds);
+    }
+
+    static int normalizeDifficulty(Integer difficulty) {
+        if (difficulty == null) {
+            return DEFAULT_DIFFICULTY;
+        }
+        return Math.max(MIN_DIFFICULTY, Math.min(MAX_DIFFICULTY, difficulty));
+    }
+
+    private static int toTenths(BigDecimal score) {
+        return score == null ? 0 : score.movePointRight(1).setScale(0, RoundingMode.HALF_UP).intValue();
+    }
+
+    private static long[] insert(long[] ids, int position, long id) {
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        result[position] = id;
+        System.arraycopy(ids, position, result, position + 1, ids.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] ids, int position) {
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, result.length - position);
+        return result;
+    }
+
+    private record Bank(Bucket[] buckets, long[][] typeIds) {
+
+        /**
+         * 移除题目，question 不为空时按其题型、难度和分值重新加入；数组不可修改，只复制受影响的桶
+         */
+        private Bank update(long id, Question question) {
+            Bucket[] newBuckets = buckets;
+            long[][] newTypeIds = typeIds;
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                int position = Arrays.binarySearch(typeIds[type], id);
+                if (position < 0) {
+                    continue;
+                }
+                newBuckets = newBuckets == buckets ? buckets.clone() : newBuckets;
+                newTypeIds = newTypeIds == typeIds ? typeIds.clone() : newTypeIds;
+                newTypeIds[type] = remove(newTypeIds[type], position);
+                for (int d = MIN_DIFFICULTY; d <= MAX_DIFFICULTY; d++) {
+                    int index = type * (MAX_DIFFICULTY + 1) + d;
+                    newBuckets[index] = newBuckets[index].without(id);
+                }
+            }
+            byte type = question != null ? AnswerKey.typeOf(question.getQuestionType()) : AnswerKey.TYPE_UNKNOWN;
+            if (type != AnswerKey.TYPE_UNKNOWN) {
+                newBuckets = newBuckets == buckets ? buckets.clone() : newBuckets;
+                newTypeIds = newTypeIds == typeIds ? typeIds.clone() : newTypeIds;
+                int index = type * (MAX_DIFFICULTY + 1) + normalizeDifficulty(question.getDifficulty());
+                newBuckets[index] = newBuckets[index].with(id, toTenths(question.getScore()));
+                newTypeIds[type] = insert(newTypeIds[type], -Arrays.binarySearch(newTypeIds[type], id) - 1, id);
+            }
+            return newBuckets == buckets ? this : new Bank(newBuckets, newTypeIds);
+        }
+    }
+
+    /**
+     * 同一题型、难度的题目，ID升序，分值单位0.1分
+     */
+    public static final class Bucket {
+
+        static final Bucket EMPTY = new Bucket(new long[0], new int[0]);
+
+        private final long[] ids;
+
+        private final int[] scores;
+
+        private Bucket(long[] ids, int[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public long id(int index) {
+            return ids[index];
+        }
+
+        public int score(int index) {
+            return scores[index];
+        }
+
+        private Bucket without(long id) {
+            int position = Arrays.binarySearch(ids, id);
+            if (position < 0) {
+                return this;
+            }
+            int[] newScores = new int[scores.length - 1];
+            System.arraycopy(scores, 0, newScores, 0, position);
+            System.arraycopy(scores, position + 1, newScores, position, newScores.length - position);
+            return new Bucket(remove(ids, position), newScores);
+        }
+
+        private Bucket with(long id, int score) {
+            int position = -Arrays.binarySearch(ids, id) - 1;
+            int[] newScores = new int[scores.length + 1];
+            System.arraycopy(scores, 0, newScores, 0, position);
+            newScores[position] = score;
+            System.arraycopy(scores, position, newScores, position + 1, scores.length - position);
+            return new Bucket(insert(ids, position, id), newScores);
+        }
+    }
+
+    private static final class BucketBuilder {
+
+        private long[] ids = new long[16];
+
+        private int[] scores = new int[16];
+
+        private int size;
+
+        private void add(long id, int score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+        }
+
+        private Bucket build() {
+            return new Bucket(Arrays.copyOf(ids, size), Arrays.copyOf(scores, size));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.zw.service.paper;
+
+import com.zw.entity.Question;
+import com.zw.exception.ApiException;
+import com.zw.mapper.QuestionMapper;
+import com.zw.service.grading.AnswerKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机抽题
+ * <p>
+ * 在题库索引中该科目、题型的已审核题目ID数组上用 Floyd 算法抽取k个ID，再一次 selectBatchIds 取回题目，
+ * 替代 ORDER BY RAND() 的全量排序。传入种子时结果可重现（题库不变的前提下）。
+ */
+@Component
+public class QuestionSampler {
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    /**
+     * 随机抽取题目，按抽取顺序返回
+     */
+    public List<Question> sample(Long subjectId, String questionType, int count, Long seed) {
+        byte type = AnswerKey.typeOf(questionType);
+        if (type == AnswerKey.TYPE_UNKNOWN) {
+            throw new ApiException(400, "不支持的题型: " + questionType);
+        }
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        long[] ids = questionBankIndex.ids(subjectId, type);
+        Random random = seed != null ? new Random(seed) : ThreadLocalRandom.current();
+        int[] positions = Sampling.floyd(ids.length, count, random);
+        if (positions.length == 0) {
+            return new ArrayList<>();
+        }
+
+        List<Long> sampledIds = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            sampledIds.add(ids[position]);
+        }
+        Map<Long, Question> questions = new HashMap<>();
+        for (Question question : questionMapper.selectBatchIds(sampledIds)) {
+            questions.put(question.getId(), question);
+        }
+        // 按抽取顺序返回，索引加载后被删除的题目跳过
+        List<Question> result = new ArrayList<>(sampledIds.size());
+        for (Long id : sampledIds) {
+            Question question = questions.get(id);
+            if (question != null) {
+                result.add(question);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package com.zw.service.paper;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 无放回随机抽样
+ */
+public final class Sampling {
+
+    private Sampling() {
+    }
+
+    /**
+     * Floyd 算法从 [0, n) 中抽取 k 个不重复的位置，只需 k 次随机数，与 n 无关；
+     * 结果再洗牌，顺序也是均匀随机的。k 大于 n 时返回全部位置。
+     */
+    public static int[] floyd(int n, int k, Random random) {
+        k = Math.min(k, n);
+        int[] result = new int[k];
+        if (k == 0) {
+            return result;
+        }
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        int size = 0;
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            int picked = chosen.add(t) ? t : j;
+            if (picked == j) {
+                chosen.add(j);
+            }
+            result[size++] = picked;
+        }
+        for (int i = k - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,240 @@
+package com.zw.service.search;
+
+import com.zw.vo.DuplicateClusterVO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * 题库重复题聚类
+ * <p>
+ * 取相似题目索引的签名快照，逐段把题目按桶号排序，同一桶的题目两两比较签名，
+ * 相似度达到阈值的合并到同一组（并查集）。各段、各桶在 ForkJoinPool 中用全部CPU核并行处理，
+ * 并查集用 CAS 合并，无需加锁。同一桶内签名完全相同的题目先直接合并，只对不同签名两两比较，
+ * 大量完全重复的题目不会使比较次数平方增长。最近一次结果保存在内存中。
+ */
+@Slf4j
+@Component
+public class DuplicateClusterer {
+
+    private static final int SIGNATURE_LONGS = QuestionDedupIndex.SIGNATURE_LONGS;
+
+    @Autowired
+    private QuestionDedupIndex questionDedupIndex;
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "duplicate-cluster-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ForkJoinPool clusterPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private volatile DuplicateClusterVO latest;
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        clusterPool.shutdownNow();
+    }
+
+    /**
+     * 提交聚类任务，已有任务在运行时直接返回其状态
+     */
+    public synchronized DuplicateClusterVO submit() {
+        if (latest != null && "RUNNING".equals(latest.getStatus())) {
+            return latest;
+        }
+        DuplicateClusterVO job = new DuplicateClusterVO();
+        job.setStatus("RUNNING");
+        job.setSimilarity(questionDedupIndex.similarity());
+        job.setStartTime(LocalDateTime.now());
+        latest = job;
+        jobExecutor.execute(() -> run(job));
+        return summary(job, 0);
+    }
+
+    /**
+     * 最近一次聚类结果，只返回前 limit 个重复组；从未执行时返回null
+     */
+    public DuplicateClusterVO latest(int limit) {
+        DuplicateClusterVO job = latest;
+        return job == null ? null : summary(job, limit);
+    }
+
+    /**
+     * 结果写入新对象后整体替换 latest，查询线程不会读到写了一半的结果
+     */
+    private void run(DuplicateClusterVO job) {
+        DuplicateClusterVO result = summary(job, Integer.MAX_VALUE);
+        try {
+            if (!questionDedupIndex.isReady()) {
+                throw new IllegalStateException("相似题目索引尚未加载完成");
+            }
+            QuestionDedupIndex.Snapshot snapshot = questionDedupIndex.snapshot();
+            List<List<Long>> clusters = clusterPool.submit(() -> cluster(snapshot, questionDedupIndex.minMatches())).get();
+            result.setQuestionCount(snapshot.present().cardinality());
+            result.setClusterCount(clusters.size());
+            result.setDuplicateCount(clusters.stream().mapToInt(List::size).sum());
+            result.setClusters(clusters);
+            result.setStatus("COMPLETED");
+            log.info("重复题聚类完成, 题目数={}, 重复组数={}", result.getQuestionCount(), result.getClusterCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.setStatus("FAILED");
+            result.setErrorMessage("任务被中断");
+        } catch (Exception e) {
+            log.error("重复题聚类失败", e);
+            result.setStatus("FAILED");
+            result.setErrorMessage(e.getMessage());
+        }
+        result.setFinishTime(LocalDateTime.now());
+        latest = result;
+    }
+
+    /**
+     * 在 clusterPool 中执行，并行流和并行排序都使用该线程池
+     */
+    private List<List<Long>> cluster(QuestionDedupIndex.Snapshot snapshot, int minMatches) {
+        long[] signatures = snapshot.signatures();
+        char[] bucketKeys = snapshot.bucketKeys();
+        int[] ids = snapshot.present().stream().toArray();
+        AtomicIntegerArray parent = new AtomicIntegerArray(bucketKeys.length / QuestionDedupIndex.BANDS);
+        for (int id : ids) {
+            parent.set(id, id);
+        }
+        for (int band = 0; band < QuestionDedupIndex.BANDS; band++) {
+            // 高32位为桶号、低32位为题目ID，排序后同一桶的题目相邻
+            long[] entries = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                entries[i] = (long) bucketKeys[ids[i] * QuestionDedupIndex.BANDS + band] << 32 | ids[i];
+            }
+            Arrays.parallelSort(entries);
+            int[] runStarts = IntStream.range(0, entries.length)
+                    .filter(i -> i == 0 || entries[i] >>> 32 != entries[i - 1] >>> 32)
+                    .toArray();
+            IntStream.range(0, runStarts.length).parallel().forEach(run -> {
+                int from = runStarts[run];
+                int to = run + 1 < runStarts.length ? runStarts[run + 1] : entries.length;
+                if (to - from > 1) {
+                    clusterBucket(entries, from, to, signatures, minMatches, parent);
+                }
+            });
+        }
+        return collect(ids, parent);
+    }
+
+    private void clusterBucket(long[] entries, int from, int to, long[] signatures, int minMatches,
+                               AtomicIntegerArray parent) {
+        Integer[] members = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            members[i - from] = (int) entries[i];
+        }
+        Comparator<Integer> bySignature = (a, b) -> Arrays.compare(
+                signatures, a * SIGNATURE_LONGS, (a + 1) * SIGNATURE_LONGS,
+                signatures, b * SIGNATURE_LONGS, (b + 1) * SIGNATURE_LONGS);
+        Arrays.sort(members, bySignature);
+        // 签名相同的题目合并到第一个，只保留不同签名两两比较
+        int distinct = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (distinct > 0 && bySignature.compare(members[i], members[distinct - 1]) == 0) {
+                union(parent, members[i], members[distinct - 1]);
+            } else {
+                members[distinct++] = members[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            int offset = members[i] * SIGNATURE_LONGS;
+            for (int j = i + 1; j < distinct; j++) {
+                if (QuestionDedupIndex.matches(signatures, offset, signatures, members[j] * SIGNATURE_LONGS)
+                        >= minMatches) {
+                    union(parent, members[i], members[j]);
+                }
+            }
+        }
+    }
+
+    private List<List<Long>> collect(int[] ids, AtomicIntegerArray parent) {
+        int[] sizes = new int[parent.length()];
+        for (int id : ids) {
+            sizes[find(parent, id)]++;
+        }
+        List<List<Long>> clusters = new ArrayList<>();
+        Map<Integer, List<Long>> byRoot = new HashMap<>();
+        for (int id : ids) {
+            int root = find(parent, id);
+            if (sizes[root] > 1) {
+                byRoot.computeIfAbsent(root, key -> {
+                    List<Long> cluster = new ArrayList<>(sizes[key]);
+                    clusters.add(cluster);
+                    return cluster;
+                }).add((long) id);
+            }
+        }
+        clusters.sort(Comparator.comparingInt((List<Long> cluster) -> cluster.size()).reversed()
+                .thenComparingLong(cluster -> cluster.get(0)));
+        return clusters;
+    }
+
+    private static int find(AtomicIntegerArray parent, int id) {
+        int current = id;
+        int next;
+        while ((next = parent.get(current)) != current) {
+            // 路径减半，并发时写入旧值也不影响正确性
+            int grand = parent.get(next);
+            parent.compareAndSet(current, next, grand);
+            current = grand;
+        }
+        return current;
+    }
+
+    /**
+     * 较大的根挂到较小的根下，根始终是组内最小ID
+     */
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB) {
+                return;
+            }
+            int high = Math.max(rootA, rootB);
+            int low = Math.min(rootA, rootB);
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    private DuplicateClusterVO summary(DuplicateClusterVO job, int limit) {
+        DuplicateClusterVO view = new DuplicateClusterVO();
+        view.setStatus(job.getStatus());
+        view.setQuestionCount(job.getQuestionCount());
+        view.setClusterCount(job.getClusterCount());
+        view.setDuplicateCount(job.getDuplicateCount());
+        view.setSimilarity(job.getSimilarity());
+        view.setStartTime(job.getStartTime());
+        view.setFinishTime(job.getFinishTime());
+        view.setErrorMessage(job.getErrorMessage());
+        List<List<Long>> clusters = job.getClusters();
+        if (clusters != null) {
+            view.setClusters(clusters.subList(0, Math.min(limit, clusters.size())));
+        }
+        return view;
+    }
+}
@@ -0,0 +1,392 @@
+package com.zw.service.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * 压缩位图（Roaring 结构），存放非负 int 题目ID
+ * <p>
+ * 按ID高16位分块，每块的低16位按基数选择存储：不超过4096个时为有序 char 数组（每个ID 2字节），
+ * 超过时为65536位的位图（固定8KB）。稀疏和稠密的取值都紧凑，求交集时按块对齐，
+ * 位图块按64位字与运算并统计位数。非线程安全，由调用方加锁。
+ */
+final class IdBitmap {
+
+    /**
+     * 数组块的最大基数，超过时转为位图块（两种存储此时大小相同）
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    /**
+     * 块的高16位，升序
+     */
+    private char[] keys = new char[4];
+
+    private Container[] containers = new Container[4];
+
+    private int size;
+
+    boolean add(int id) {
+        char key = (char) (id >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        return containers[index].add((char) id);
+    }
+
+    boolean remove(int id) {
+        int index = indexOf((char) (id >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        if (!container.remove((char) id)) {
+            return false;
+        }
+        if (container.cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    boolean contains(int id) {
+        int index = indexOf((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 按ID升序回调
+     */
+    void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * 交集的基数，不生成中间位图的最后一步
+     */
+    static long andCardinality(List<IdBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return 0;
+        }
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0).cardinality();
+        }
+        IdBitmap[] sorted = sortByCardinality(bitmaps);
+        IdBitmap current = sorted[0];
+        for (int i = 1; i < sorted.length - 1 && !current.isEmpty(); i++) {
+            current = and(current, sorted[i]);
+        }
+        IdBitmap last = sorted[sorted.length - 1];
+        long cardinality = 0;
+        for (int i = 0; i < current.size; i++) {
+            int index = last.indexOf(current.keys[i]);
+            if (index >= 0) {
+                cardinality += current.containers[i].andCardinality(last.containers[index]);
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * 多个位图的交集，从基数最小的开始依次求交
+     */
+    static IdBitmap and(List<IdBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return new IdBitmap();
+        }
+        IdBitmap[] sorted = sortByCardinality(bitmaps);
+        IdBitmap current = sorted[0];
+        if (sorted.length == 1) {
+            return current.copy();
+        }
+        for (int i = 1; i < sorted.length && !current.isEmpty(); i++) {
+            current = and(current, sorted[i]);
+        }
+        return current;
+    }
+
+    private static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.insertContainer(result.size, a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private static IdBitmap[] sortByCardinality(List<IdBitmap> bitmaps) {
+        IdBitmap[] sorted = bitmaps.toArray(new IdBitmap[0]);
+        long[] cardinalities = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            cardinalities[i] = sorted[i].cardinality();
+        }
+        // 位图个数很少（每个筛选维度一个），插入排序即可
+        for (int i = 1; i < sorted.length; i++) {
+            for (int j = i; j > 0 && cardinalities[j] < cardinalities[j - 1]; j--) {
+                long cardinality = cardinalities[j];
+                cardinalities[j] = cardinalities[j - 1];
+                cardinalities[j - 1] = cardinality;
+                IdBitmap bitmap = sorted[j];
+                sorted[j] = sorted[j - 1];
+                sorted[j - 1] = bitmap;
+            }
+        }
+        return sorted;
+    }
+
+    private IdBitmap copy() {
+        IdBitmap copy = new IdBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(size, 4));
+        copy.containers = new Container[copy.keys.length];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    private int indexOf(char key) {
+        // 块数不多且多为连续ID段，先比较末尾块
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * 一个块：array 非null时为数组块（前 cardinality 个有效），否则为位图块
+     */
+    private static final class Container {
+
+        private char[] array = new char[4];
+
+        private long[] bits;
+
+        private int cardinality;
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+            int index = cardinality > 0 && array[cardinality - 1] < low
+                    ? -cardinality - 1 : Arrays.binarySearch(array, 0, cardinality, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(array, index, array, index + 1, cardinality - index);
+            array[index] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[low >>> 6] &= ~mask;
+                if (--cardinality <= ARRAY_MAX) {
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(array, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(array, index + 1, array, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        void forEach(int base, IntConsumer consumer) {
+            if (bits != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long value = bits[word];
+                    while (value != 0) {
+                        consumer.accept(base | (word << 6) | Long.numberOfTrailingZeros(value));
+                        value &= value - 1;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    consumer.accept(base | array[i]);
+                }
+            }
+        }
+
+        int andCardinality(Container other) {
+            if (bits != null && other.bits != null) {
+                int cardinality = 0;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    cardinality += Long.bitCount(bits[word] & other.bits[word]);
+                }
+                return cardinality;
+            }
+            if (bits != null) {
+                return other.andCardinality(this);
+            }
+            int cardinality = 0;
+            if (other.bits != null) {
+                for (int i = 0; i < this.cardinality; i++) {
+                    if (other.contains(array[i])) {
+                        cardinality++;
+                    }
+                }
+                return cardinality;
+            }
+            for (int i = 0, j = 0; i < this.cardinality && j < other.cardinality; ) {
+                if (array[i] < other.array[j]) {
+                    i++;
+                } else if (array[i] > other.array[j]) {
+                    j++;
+                } else {
+                    cardinality++;
+                    i++;
+                    j++;
+                }
+            }
+            return cardinality;
+        }
+
+        Container and(Container other) {
+            Container result = new Container();
+            if (bits != null && other.bits != null) {
+                result.bits = new long[BITMAP_WORDS];
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    result.bits[word] = bits[word] & other.bits[word];
+                    result.cardinality += Long.bitCount(result.bits[word]);
+                }
+                if (result.cardinality <= ARRAY_MAX) {
+                    result.toArray();
+                } else {
+                    result.array = null;
+                }
+                return result;
+            }
+            if (bits != null) {
+                return other.and(this);
+            }
+            result.array = new char[Math.max(4, Math.min(cardinality, other.cardinality))];
+            if (other.bits != null) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(array[i])) {
+                        result.array[result.cardinality++] = array[i];
+                    }
+                }
+                return result;
+            }
+            for (int i = 0, j = 0; i < cardinality && j < other.cardinality; ) {
+                if (array[i] < other.array[j]) {
+                    i++;
+                } else if (array[i] > other.array[j]) {
+                    j++;
+                } else {
+                    result.array[result.cardinality++] = array[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (bits != null) {
+                copy.bits = bits.clone();
+                copy.array = null;
+            } else {
+                copy.array = Arrays.copyOf(array, Math.max(4, cardinality));
+            }
+            return copy;
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        private void toArray() {
+            char[] values = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long value = bits[word];
+                while (value != 0) {
+                    values[count++] = (char) ((word << 6) | Long.numberOfTrailingZeros(value));
+                    value &= value - 1;
+                }
+            }
+            array = values;
+            bits = null;
+        }
+    }
+}
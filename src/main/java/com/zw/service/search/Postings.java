@@ -0,0 +1,159 @@
+package com.zw.service.search;
+
+import java.util.Arrays;
+
+/**
+ * 倒排表编码
+ * <p>
+ * 压缩倒排表为 varint(条目数) 后接每个条目的 varint(题目ID差值)、varint(词频)，题目ID升序。
+ * 题目ID差值和词频通常只占1字节，一百万道题的索引只有原文的数分之一。
+ */
+final class Postings {
+
+    private Postings() {
+    }
+
+    /**
+     * 压缩倒排表的条目数
+     */
+    static int count(byte[] data) {
+        int value = 0;
+        for (int shift = 0, pos = 0; ; shift += 7) {
+            byte b = data[pos++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * 按题目ID升序追加条目，生成压缩倒排表
+     */
+    static final class Writer {
+
+        private byte[] buffer = new byte[8];
+
+        private int size;
+
+        private int count;
+
+        private int lastDoc = -1;
+
+        void add(int doc, int tf) {
+            if (doc <= lastDoc) {
+                throw new IllegalArgumentException("倒排表题目ID必须升序: " + doc);
+            }
+            ensure(10);
+            size = writeVarint(buffer, size, lastDoc < 0 ? doc : doc - lastDoc);
+            size = writeVarint(buffer, size, tf);
+            lastDoc = doc;
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        byte[] toBytes() {
+            byte[] header = new byte[5];
+            int headerSize = writeVarint(header, 0, count);
+            byte[] data = new byte[headerSize + size];
+            System.arraycopy(header, 0, data, 0, headerSize);
+            System.arraycopy(buffer, 0, data, headerSize, size);
+            return data;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * 顺序读取压缩倒排表
+     */
+    static final class Reader {
+
+        private final byte[] data;
+
+        private int pos;
+
+        private int remaining;
+
+        private int doc = -1;
+
+        private int tf;
+
+        Reader(byte[] data) {
+            this.data = data;
+            this.remaining = readVarint();
+        }
+
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            int delta = readVarint();
+            doc = doc < 0 ? delta : doc + delta;
+            tf = readVarint();
+            return true;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int tf() {
+            return tf;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * 增量倒排表：按写入顺序存放的 (题目ID, 词频, 版本)，题目ID无序，同一题目可能有多个版本
+     */
+    static final class Delta {
+
+        int[] docs = new int[4];
+
+        int[] tfs = new int[4];
+
+        int[] versions = new int[4];
+
+        int size;
+
+        void add(int doc, int tf, int version) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+                versions = Arrays.copyOf(versions, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            versions[size] = version;
+            size++;
+        }
+    }
+
+    private static int writeVarint(byte[] buffer, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -0,0 +1,436 @@
+package com.zw.service.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zw.entity.Question;
+import com.zw.mapper.QuestionMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 相似题目索引
+ * <p>
+ * 对题干和选项文本（去掉选项字母标号）的分词集合计算32个 MinHash，两道题某个 MinHash 相等的概率等于其词集合的
+ * Jaccard 相似度。每个 MinHash 只保存低8位用于估算相似度，每道题占32字节。32个 MinHash 分成8段、每段4个，
+ * 每段哈希到65536个桶之一（LSH）：相似度0.8的两道题至少有一段落入同一桶的概率约98.5%，而不相关的题目几乎不会，
+ * 查重时只需比对8个桶中的题目，期望耗时与题库规模无关。
+ * 启动后在后台加载全部题目，题目新增、修改、删除的事务提交后增量更新。
+ */
+@Slf4j
+@Component
+public class QuestionDedupIndex {
+
+    static final int HASHES = 32;
+
+    static final int BANDS = 8;
+
+    static final int ROWS = HASHES / BANDS;
+
+    static final int BAND_BITS = 16;
+
+    /**
+     * 每道题的签名占用的 long 数，每个 MinHash 占1字节
+     */
+    static final int SIGNATURE_LONGS = HASHES / 8;
+
+    private static final int MAX_RESULTS = 20;
+
+    private static final Pattern OPTION_LABEL = Pattern.compile("^[A-Z]\\s*[.．、:：)）]\\s*");
+
+    /**
+     * 各 MinHash 的乘数（奇数）和加数，由固定种子生成，重启后签名不变
+     */
+    private static final long[] MULTIPLIERS = new long[HASHES];
+
+    private static final long[] ADDENDS = new long[HASHES];
+
+    static {
+        long state = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < HASHES; i++) {
+            state += 0x9e3779b97f4a7c15L;
+            MULTIPLIERS[i] = mix(state) | 1;
+            state += 0x9e3779b97f4a7c15L;
+            ADDENDS[i] = mix(state);
+        }
+    }
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${exam.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.dedup.similarity:0.8}")
+    private double similarity;
+
+    /**
+     * 判定相似所需的最少相同 MinHash 数，已扣除低8位偶然相同的概率
+     */
+    private int minMatches;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    // 以下字段由 lock 保护
+
+    /**
+     * 以题目ID为下标的签名，第 id 道题占 [id * 4, id * 4 + 4)
+     */
+    private long[] signatures = new long[1024 * SIGNATURE_LONGS];
+
+    /**
+     * 以题目ID为下标的各段桶号，第 id 道题占 [id * 8, id * 8 + 8)，删除时据此找到所在的桶
+     */
+    private char[] bucketKeys = new char[1024 * BANDS];
+
+    private final BitSet present = new BitSet();
+
+    /**
+     * 桶下标为 段号 * 65536 + 桶号，桶内为题目ID
+     */
+    private final int[][] buckets = new int[BANDS << BAND_BITS][];
+
+    private final int[] bucketSizes = new int[BANDS << BAND_BITS];
+
+    private Set<Integer> touchedDuringLoad;
+
+    @PostConstruct
+    public void init() {
+        similarity = Math.max(0, Math.min(1, similarity));
+        minMatches = (int) Math.ceil(HASHES * (similarity + (1 - similarity) / 256));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "question-dedup-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public double similarity() {
+        return similarity;
+    }
+
+    int minMatches() {
+        return minMatches;
+    }
+
+    /**
+     * 查找与给定内容相近的题目，按相似度降序，最多 {@value #MAX_RESULTS} 个；索引未就绪时返回空列表
+     *
+     * @param excludeId 排除的题目（修改题目时为其自身），可为null
+     */
+    public List<Long> findSimilar(String content, String options, Long excludeId) {
+        if (!ready) {
+            return List.of();
+        }
+        Signature signature = signature(content, options);
+        if (signature == null) {
+            return List.of();
+        }
+        int exclude = excludeId == null || excludeId > Integer.MAX_VALUE ? -1 : excludeId.intValue();
+        // 高32位为不同的 MinHash 数、低32位为题目ID，排序后即按相似度降序、ID升序
+        long[] found = new long[16];
+        int size = 0;
+        Set<Integer> seen = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (int band = 0; band < BANDS; band++) {
+                int bucket = (band << BAND_BITS) | signature.bucketKeys()[band];
+                int[] members = buckets[bucket];
+                for (int i = 0; i < bucketSizes[bucket]; i++) {
+                    int id = members[i];
+                    if (id == exclude || !seen.add(id)) {
+                        continue;
+                    }
+                    int matches = matches(signature.bits(), 0, signatures, id * SIGNATURE_LONGS);
+                    if (matches >= minMatches) {
+                        if (size == found.length) {
+                            found = Arrays.copyOf(found, size * 2);
+                        }
+                        found[size++] = ((long) (HASHES - matches) << 32) | id;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(found, 0, size);
+        List<Long> ids = new ArrayList<>(Math.min(size, MAX_RESULTS));
+        for (int i = 0; i < size && ids.size() < MAX_RESULTS; i++) {
+            ids.add(found[i] & 0xFFFFFFFFL);
+        }
+        return ids;
+    }
+
+    /**
+     * 按数据库中的最新内容更新签名，已删除的题目移出索引。题目新增、修改、删除的事务提交后调用
+     */
+    public void refresh(Collection<Long> ids) {
+        if (!enabled || ids == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            List<Question> questions = questionMapper.selectForDedup(ids);
+            Set<Long> missing = new HashSet<>(ids);
+            lock.writeLock().lock();
+            try {
+                for (Question question : questions) {
+                    missing.remove(question.getId());
+                    if (question.getId() <= Integer.MAX_VALUE) {
+                        int id = question.getId().intValue();
+                        markTouched(id);
+                        put(id, signature(question.getContent(), question.getOptions()));
+                    }
+                }
+                for (Long id : missing) {
+                    if (id != null && id <= Integer.MAX_VALUE) {
+                        markTouched(id.intValue());
+                        unlink(id.intValue());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("相似题目索引更新失败, ids={}: {}", ids, e.getMessage());
+        }
+    }
+
+    /**
+     * 当前全部签名的快照，供聚类任务使用
+     */
+    Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            int length = present.length();
+            return new Snapshot((BitSet) present.clone(), Arrays.copyOf(signatures, length * SIGNATURE_LONGS),
+                    Arrays.copyOf(bucketKeys, length * BANDS));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 题干和选项文本的 MinHash 签名，没有可用文本时返回null
+     */
+    Signature signature(String content, String options) {
+        long[] mins = new long[HASHES];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        boolean[] empty = {true};
+        TextTokenizer.TermConsumer consumer = term -> {
+            long hash = mix(term);
+            for (int i = 0; i < HASHES; i++) {
+                // 乘加后取高32位，各 MinHash 相互独立
+                long value = (hash * MULTIPLIERS[i] + ADDENDS[i]) >>> 32;
+                if (value < mins[i]) {
+                    mins[i] = value;
+                }
+            }
+            empty[0] = false;
+        };
+        TextTokenizer.tokenize(content, consumer);
+        for (String option : optionTexts(options)) {
+            TextTokenizer.tokenize(option, consumer);
+        }
+        if (empty[0]) {
+            return null;
+        }
+        long[] bits = new long[SIGNATURE_LONGS];
+        for (int i = 0; i < HASHES; i++) {
+            bits[i >>> 3] |= (mins[i] & 0xFF) << ((i & 7) << 3);
+        }
+        char[] keys = new char[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + mins[band * ROWS + row]);
+            }
+            keys[band] = (char) hash;
+        }
+        return new Signature(bits, keys);
+    }
+
+    /**
+     * 两个签名中相同的 MinHash 数（低8位相同）
+     */
+    static int matches(long[] a, int aOffset, long[] b, int bOffset) {
+        int different = 0;
+        for (int i = 0; i < SIGNATURE_LONGS; i++) {
+            long x = a[aOffset + i] ^ b[bOffset + i];
+            // 把每个字节内的非0位汇集到该字节最低位
+            x |= x >>> 4;
+            x |= x >>> 2;
+            x |= x >>> 1;
+            different += Long.bitCount(x & 0x0101010101010101L);
+        }
+        return HASHES - different;
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            List<Signature> loaded = new ArrayList<>();
+            BitSet loadedIds = new BitSet();
+            questionMapper.streamForDedup(context -> {
+                Question question = context.getResultObject();
+                if (question.getId() > Integer.MAX_VALUE) {
+                    return;
+                }
+                Signature signature = signature(question.getContent(), question.getOptions());
+                if (signature != null) {
+                    loadedIds.set(question.getId().intValue());
+                    loaded.add(signature);
+                }
+            });
+            lock.writeLock().lock();
+            try {
+                // 按ID升序读取，签名与 loadedIds 中的ID一一对应
+                int index = 0;
+                for (int id = loadedIds.nextSetBit(0); id >= 0; id = loadedIds.nextSetBit(id + 1), index++) {
+                    if (!touchedDuringLoad.contains(id)) {
+                        put(id, loaded.get(index));
+                    }
+                }
+                touchedDuringLoad = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("相似题目索引加载完成, 题目数={}, 耗时{}ms", loadedIds.cardinality(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("相似题目索引加载失败", e);
+            lock.writeLock().lock();
+            try {
+                touchedDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void markTouched(int id) {
+        if (touchedDuringLoad != null) {
+            touchedDuringLoad.add(id);
+        }
+    }
+
+    private void put(int id, Signature signature) {
+        unlink(id);
+        if (signature == null) {
+            return;
+        }
+        if ((long) (id + 1) * BANDS > bucketKeys.length) {
+            int capacity = Math.max(id + 1, bucketKeys.length / BANDS * 2);
+            signatures = Arrays.copyOf(signatures, capacity * SIGNATURE_LONGS);
+            bucketKeys = Arrays.copyOf(bucketKeys, capacity * BANDS);
+        }
+        System.arraycopy(signature.bits(), 0, signatures, id * SIGNATURE_LONGS, SIGNATURE_LONGS);
+        System.arraycopy(signature.bucketKeys(), 0, bucketKeys, id * BANDS, BANDS);
+        present.set(id);
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = (band << BAND_BITS) | signature.bucketKeys()[band];
+            int[] members = buckets[bucket];
+            if (members == null) {
+                members = buckets[bucket] = new int[4];
+            } else if (bucketSizes[bucket] == members.length) {
+                members = buckets[bucket] = Arrays.copyOf(members, members.length * 2);
+            }
+            members[bucketSizes[bucket]++] = id;
+        }
+    }
+
+    private void unlink(int id) {
+        if (!present.get(id)) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = (band << BAND_BITS) | bucketKeys[id * BANDS + band];
+            int[] members = buckets[bucket];
+            int size = bucketSizes[bucket];
+            for (int i = 0; i < size; i++) {
+                if (members[i] == id) {
+                    members[i] = members[size - 1];
+                    bucketSizes[bucket]--;
+                    break;
+                }
+            }
+        }
+        present.clear(id);
+    }
+
+    /**
+     * 选项JSON数组中各选项的文本，去掉字母标号
+     */
+    private List<String> optionTexts(String options) {
+        if (!StringUtils.hasText(options)) {
+            return List.of();
+        }
+        try {
+            JsonNode root = objectMapper.readTree(options);
+            if (!root.isArray()) {
+                return List.of(options);
+            }
+            List<String> texts = new ArrayList<>(root.size());
+            for (JsonNode option : root) {
+                texts.add(OPTION_LABEL.matcher(option.asText()).replaceFirst(""));
+            }
+            return texts;
+        } catch (IOException e) {
+            return List.of(options);
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 一道题的签名：bits 为32个 MinHash 的低8位，bucketKeys 为8个段的桶号
+     */
+    record Signature(long[] bits, char[] bucketKeys) {
+    }
+
+    /**
+     * 签名快照，布局与索引中的 signatures、bucketKeys 相同
+     */
+    record Snapshot(BitSet present, long[] signatures, char[] bucketKeys) {
+    }
+}
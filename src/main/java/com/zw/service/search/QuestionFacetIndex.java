@@ -0,0 +1,359 @@
+package com.zw.service.search;
+
+import com.zw.entity.Question;
+import com.zw.mapper.QuestionMapper;
+import com.zw.service.grading.AnswerKey;
+import com.zw.vo.QuestionFacetCellVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 题库分面索引
+ * <p>
+ * 按科目、题型、难度、审核状态的每个取值维护一个压缩位图（{@link IdBitmap}），任意筛选条件的题目数
+ * 由位图求交得到；另按 (科目, 题型, 难度, 审核状态) 组合维护计数，分面矩阵只需遍历组合，与题目数无关。
+ * 启动后在后台加载，题目新增、修改、审核、删除的事务提交后增量更新。
+ */
+@Slf4j
+@Component
+public class QuestionFacetIndex {
+
+    /**
+     * 难度、审核状态为空
+     */
+    private static final byte NULL_VALUE = Byte.MIN_VALUE;
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Value("${exam.facet.enabled:true}")
+    private boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    // 以下字段由 lock 保护
+
+    private final IdBitmap all = new IdBitmap();
+
+    private final Map<Long, IdBitmap> bySubject = new HashMap<>();
+
+    private final IdBitmap[] byType = new IdBitmap[AnswerKey.TYPE_FILL + 1];
+
+    private final Map<Byte, IdBitmap> byDifficulty = new HashMap<>();
+
+    private final Map<Byte, IdBitmap> byReviewStatus = new HashMap<>();
+
+    private final Map<Cell, int[]> cellCounts = new HashMap<>();
+
+    /**
+     * 以题目ID为下标的属性，删除或修改时据此找到原来所在的位图
+     */
+    private long[] subjects = new long[1024];
+
+    private byte[] types = new byte[1024];
+
+    private byte[] difficulties = new byte[1024];
+
+    private byte[] reviewStatuses = new byte[1024];
+
+    private Set<Integer> touchedDuringLoad;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "question-facet-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 满足筛选条件的题目数，条件为null时不限；索引未就绪时返回null
+     */
+    public Long count(Long subjectId, String questionType, Integer difficulty, Integer reviewStatus) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<IdBitmap> filters = filters(subjectId, questionType, difficulty, reviewStatus);
+            if (filters == null) {
+                return 0L;
+            }
+            return filters.isEmpty() ? all.cardinality() : IdBitmap.andCardinality(filters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 满足筛选条件的 (科目, 题型, 难度, 审核状态) 组合及题目数；索引未就绪时返回null
+     */
+    public List<QuestionFacetCellVO> cells(Long subjectId, String questionType, Integer difficulty,
+                                           Integer reviewStatus) {
+        if (!ready) {
+            return null;
+        }
+        byte type = StringUtils.hasText(questionType) ? AnswerKey.typeOf(questionType.toUpperCase()) : -1;
+        if (type == AnswerKey.TYPE_UNKNOWN) {
+            return new ArrayList<>();
+        }
+        List<QuestionFacetCellVO> cells = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            cellCounts.forEach((cell, count) -> {
+                if ((subjectId == null || cell.subject() == subjectId)
+                        && (type < 0 || cell.type() == type)
+                        && (difficulty == null || cell.difficulty() == difficulty)
+                        && (reviewStatus == null || cell.reviewStatus() == reviewStatus)) {
+                    cells.add(cell.toVO(count[0]));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return cells;
+    }
+
+    /**
+     * 按数据库中的最新数据更新，已删除的题目移出索引。题目新增、修改、审核、删除的事务提交后调用
+     */
+    public void refresh(Collection<Long> ids) {
+        if (!enabled || ids == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            List<Question> questions = questionMapper.selectForFacets(ids);
+            Set<Long> missing = new HashSet<>(ids);
+            lock.writeLock().lock();
+            try {
+                for (Question question : questions) {
+                    missing.remove(question.getId());
+                    if (question.getId() <= Integer.MAX_VALUE) {
+                        markTouched(question.getId().intValue());
+                        put(question);
+                    }
+                }
+                for (Long id : missing) {
+                    if (id != null && id <= Integer.MAX_VALUE) {
+                        markTouched(id.intValue());
+                        unlink(id.intValue());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("题库分面索引更新失败, ids={}: {}", ids, e.getMessage());
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            List<Question> batch = new ArrayList<>(1000);
+            long[] loaded = new long[1];
+            questionMapper.streamForFacets(context -> {
+                batch.add(context.getResultObject());
+                if (batch.size() == 1000) {
+                    loaded[0] += apply(batch);
+                }
+            });
+            loaded[0] += apply(batch);
+            lock.writeLock().lock();
+            try {
+                touchedDuringLoad = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("题库分面索引加载完成, 题目数={}, 耗时{}ms", loaded[0], System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("题库分面索引加载失败", e);
+            lock.writeLock().lock();
+            try {
+                touchedDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 加载时分批写入，加载期间已被增量更新的题目以增量结果为准
+     */
+    private int apply(List<Question> batch) {
+        int applied = 0;
+        lock.writeLock().lock();
+        try {
+            for (Question question : batch) {
+                if (question.getId() <= Integer.MAX_VALUE
+                        && !touchedDuringLoad.contains(question.getId().intValue())) {
+                    put(question);
+                    applied++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        batch.clear();
+        return applied;
+    }
+
+    /**
+     * 筛选条件对应的位图，没有条件时为空列表，某个取值没有题目时返回null
+     */
+    private List<IdBitmap> filters(Long subjectId, String questionType, Integer difficulty, Integer reviewStatus) {
+        List<IdBitmap> filters = new ArrayList<>(4);
+        if (subjectId != null && !addFilter(filters, bySubject.get(subjectId))) {
+            return null;
+        }
+        if (StringUtils.hasText(questionType)) {
+            byte type = AnswerKey.typeOf(questionType.toUpperCase());
+            if (type == AnswerKey.TYPE_UNKNOWN || !addFilter(filters, byType[type])) {
+                return null;
+            }
+        }
+        if (difficulty != null && !addFilter(filters, byteKey(difficulty, byDifficulty))) {
+            return null;
+        }
+        if (reviewStatus != null && !addFilter(filters, byteKey(reviewStatus, byReviewStatus))) {
+            return null;
+        }
+        return filters;
+    }
+
+    private static boolean addFilter(List<IdBitmap> filters, IdBitmap bitmap) {
+        if (bitmap == null || bitmap.isEmpty()) {
+            return false;
+        }
+        filters.add(bitmap);
+        return true;
+    }
+
+    private static IdBitmap byteKey(int value, Map<Byte, IdBitmap> bitmaps) {
+        return value < Byte.MIN_VALUE + 1 || value > Byte.MAX_VALUE ? null : bitmaps.get((byte) value);
+    }
+
+    private void markTouched(int id) {
+        if (touchedDuringLoad != null) {
+            touchedDuringLoad.add(id);
+        }
+    }
+
+    private void put(Question question) {
+        int id = question.getId().intValue();
+        unlink(id);
+        if (id >= subjects.length) {
+            int capacity = Math.max(id + 1, subjects.length * 2);
+            subjects = Arrays.copyOf(subjects, capacity);
+            types = Arrays.copyOf(types, capacity);
+            difficulties = Arrays.copyOf(difficulties, capacity);
+            reviewStatuses = Arrays.copyOf(reviewStatuses, capacity);
+        }
+        long subject = question.getSubjectId() == null ? 0 : question.getSubjectId();
+        byte type = AnswerKey.typeOf(question.getQuestionType());
+        byte difficulty = byteValue(question.getDifficulty());
+        byte reviewStatus = byteValue(question.getReviewStatus());
+        subjects[id] = subject;
+        types[id] = type;
+        difficulties[id] = difficulty;
+        reviewStatuses[id] = reviewStatus;
+
+        all.add(id);
+        bySubject.computeIfAbsent(subject, key -> new IdBitmap()).add(id);
+        if (byType[type] == null) {
+            byType[type] = new IdBitmap();
+        }
+        byType[type].add(id);
+        if (difficulty != NULL_VALUE) {
+            byDifficulty.computeIfAbsent(difficulty, key -> new IdBitmap()).add(id);
+        }
+        if (reviewStatus != NULL_VALUE) {
+            byReviewStatus.computeIfAbsent(reviewStatus, key -> new IdBitmap()).add(id);
+        }
+        cellCounts.computeIfAbsent(new Cell(subject, type, difficulty, reviewStatus), key -> new int[1])[0]++;
+    }
+
+    private void unlink(int id) {
+        if (!all.remove(id)) {
+            return;
+        }
+        long subject = subjects[id];
+        byte type = types[id];
+        byte difficulty = difficulties[id];
+        byte reviewStatus = reviewStatuses[id];
+        removeFrom(bySubject, subject, id);
+        byType[type].remove(id);
+        if (difficulty != NULL_VALUE) {
+            removeFrom(byDifficulty, difficulty, id);
+        }
+        if (reviewStatus != NULL_VALUE) {
+            removeFrom(byReviewStatus, reviewStatus, id);
+        }
+        Cell cell = new Cell(subject, type, difficulty, reviewStatus);
+        int[] count = cellCounts.get(cell);
+        if (--count[0] == 0) {
+            cellCounts.remove(cell);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, IdBitmap> bitmaps, K key, int id) {
+        IdBitmap bitmap = bitmaps.get(key);
+        bitmap.remove(id);
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+
+    private static byte byteValue(Integer value) {
+        if (value == null || value <= Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            return NULL_VALUE;
+        }
+        return value.byteValue();
+    }
+
+    /**
+     * (科目, 题型, 难度, 审核状态) 组合
+     */
+    private record Cell(long subject, byte type, byte difficulty, byte reviewStatus) {
+
+        QuestionFacetCellVO toVO(int count) {
+            QuestionFacetCellVO vo = new QuestionFacetCellVO();
+            vo.setSubjectId(subject == 0 ? null : subject);
+            vo.setQuestionType(AnswerKey.typeName(type));
+            vo.setDifficulty(difficulty == NULL_VALUE ? null : (int) difficulty);
+            vo.setReviewStatus(reviewStatus == NULL_VALUE ? null : (int) reviewStatus);
+            vo.setCount((long) count);
+            return vo;
+        }
+    }
+}
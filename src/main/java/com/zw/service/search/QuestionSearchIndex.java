@@ -0,0 +1,818 @@
+package com.zw.service.search;
+
+import com.zw.entity.Question;
+import com.zw.mapper.QuestionMapper;
+import com.zw.service.grading.AnswerKey;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 题目全文检索索引
+ * <p>
+ * 启动后流式读取全部题目，对题干、选项、解析做二元分词（见 {@link TextTokenizer}），
+ * 以题目ID（int）为文档号建立压缩倒排表（见 {@link Postings}），题干中的词权重加倍。
+ * 查询时所有词都须命中，从最短的倒排表开始逐个求交，按 BM25 排序，同时按科目、题型、难度、审核状态过滤。
+ * <p>
+ * 增量更新：题目新增、修改、审核、删除后重新索引，新词条写入增量段，旧词条通过每道题所在段号和版本号失效；
+ * 增量段超过阈值时在后台与主段合并为新的压缩主段，合并期间的更新写入新的增量段，查询不受阻塞。
+ * 索引加载完成前 {@link #search} 返回null，调用方回退到数据库模糊查询。
+ */
+@Slf4j
+@Component
+public class QuestionSearchIndex {
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    /**
+     * 题干中的词频权重，选项、解析为1
+     */
+    private static final int CONTENT_WEIGHT = 2;
+
+    @Autowired
+    private QuestionMapper questionMapper;
+
+    @Value("${exam.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.search.compact-threshold:200000}")
+    private int compactThreshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private ExecutorService executor;
+
+    private volatile boolean ready;
+
+    // 以下字段由 lock 保护
+
+    private int nextSegmentId = 1;
+
+    private Segment main;
+
+    /**
+     * 合并中的增量段，合并完成前仍参与查询
+     */
+    private DeltaSegment frozen;
+
+    private DeltaSegment delta = new DeltaSegment(nextSegmentId++);
+
+    private final DocTable docs = new DocTable();
+
+    private int docCount;
+
+    private long totalLength;
+
+    /**
+     * 加载期间被更新或删除的题目，加载结果中的旧内容不再采用
+     */
+    private Set<Integer> touchedDuringLoad;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "question-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::load);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 关键词检索
+     *
+     * @return 按相关度排序的一页题目ID及命中总数；索引未就绪或查询无法用索引回答（如只有单个汉字）时返回null
+     */
+    public SearchResult search(String query, Long subjectId, String questionType, Integer difficulty,
+                               Integer reviewStatus, int offset, int limit) {
+        if (!ready) {
+            return null;
+        }
+        Set<Long> terms = new LinkedHashSet<>();
+        TextTokenizer.tokenize(query, terms::add);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        for (long term : terms) {
+            if (TextTokenizer.isSingleCjk(term)) {
+                return null;
+            }
+        }
+        // 与分面过滤一致：空白不过滤，题型不区分大小写
+        boolean typed = StringUtils.hasText(questionType);
+        byte type = typed ? AnswerKey.typeOf(questionType.toUpperCase()) : AnswerKey.TYPE_UNKNOWN;
+        if (typed && type == AnswerKey.TYPE_UNKNOWN) {
+            return new SearchResult(0, List.of());
+        }
+        Filter filter = new Filter(subjectId, type, difficulty, reviewStatus);
+
+        lock.readLock().lock();
+        try {
+            // 从命中题目最少的词开始求交
+            List<Long> ordered = new ArrayList<>(terms);
+            Map<Long, Integer> frequencies = new HashMap<>();
+            for (Long term : ordered) {
+                frequencies.put(term, documentFrequency(term));
+            }
+            ordered.sort((a, b) -> Integer.compare(frequencies.get(a), frequencies.get(b)));
+
+            float averageLength = docCount == 0 ? 1f : Math.max(1f, (float) totalLength / docCount);
+            Matches candidates = null;
+            for (Long term : ordered) {
+                Matches matches = collect(term, candidates, candidates == null ? filter : null);
+                // 文档频率含失效条目，可能略大于题目数，idf 保持为正
+                float idf = Math.max(1e-6f, (float) Math.log(1 + (docCount - frequencies.get(term) + 0.5)
+                        / (frequencies.get(term) + 0.5)));
+                int cursor = 0;
+                for (int i = 0; i < matches.size; i++) {
+                    int doc = matches.docs[i];
+                    float previous = 0;
+                    if (candidates != null) {
+                        // 本轮结果是上一轮的子集，两者都按题目ID升序
+                        while (candidates.docs[cursor] < doc) {
+                            cursor++;
+                        }
+                        previous = candidates.scores[cursor];
+                    }
+                    int tf = matches.tfs[i];
+                    float norm = K1 * (1 - B + B * docs.length[doc] / averageLength);
+                    matches.scores[i] = previous + idf * tf * (K1 + 1) / (tf + norm);
+                }
+                candidates = matches;
+                if (candidates.size == 0) {
+                    break;
+                }
+            }
+            return new SearchResult(candidates.size, top(candidates, offset, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按数据库中的最新内容重新索引题目，已删除的题目移出索引。题目新增、修改、审核、删除的事务提交后调用
+     */
+    public void refresh(Collection<Long> ids) {
+        if (!enabled || ids == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            List<Question> questions = questionMapper.selectForSearch(ids);
+            Set<Long> missing = new HashSet<>(ids);
+            for (Question question : questions) {
+                missing.remove(question.getId());
+            }
+            index(questions);
+            remove(missing);
+        } catch (Exception e) {
+            log.warn("题目检索索引更新失败, ids={}: {}", ids, e.getMessage());
+        }
+    }
+
+    private void index(Collection<Question> questions) {
+        for (Question question : questions) {
+            if (question.getId() == null || question.getId() > Integer.MAX_VALUE) {
+                continue;
+            }
+            int doc = question.getId().intValue();
+            TermFrequencies frequencies = tokenize(question);
+            lock.writeLock().lock();
+            try {
+                if (touchedDuringLoad != null) {
+                    touchedDuringLoad.add(doc);
+                }
+                docs.ensure(doc);
+                unlink(doc);
+                int version = ++docs.version[doc];
+                for (int i = 0; i < frequencies.size; i++) {
+                    delta.add(frequencies.terms[i], doc, frequencies.tfs[i], version);
+                }
+                docs.set(doc, delta.id, frequencies.length, question);
+                docCount++;
+                totalLength += frequencies.length;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        maybeCompact();
+    }
+
+    private void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                if (id == null || id > Integer.MAX_VALUE) {
+                    continue;
+                }
+                int doc = id.intValue();
+                if (touchedDuringLoad != null) {
+                    touchedDuringLoad.add(doc);
+                }
+                if (doc < docs.capacity()) {
+                    unlink(doc);
+                    docs.segment[doc] = 0;
+                    docs.version[doc]++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已索引的题目数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unlink(int doc) {
+        if (docs.segment[doc] != 0) {
+            docCount--;
+            totalLength -= docs.length[doc];
+        }
+    }
+
+    /**
+     * 流式读取全部题目建立主段
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            LongMap<Postings.Writer> writers = new LongMap<>(1 << 16);
+            DocTable loaded = new DocTable();
+            questionMapper.streamForSearch(context -> {
+                Question question = context.getResultObject();
+                if (question.getId() > Integer.MAX_VALUE) {
+                    return;
+                }
+                int doc = question.getId().intValue();
+                TermFrequencies frequencies = tokenize(question);
+                for (int i = 0; i < frequencies.size; i++) {
+                    writers.computeIfAbsent(frequencies.terms[i], term -> new Postings.Writer())
+                            .add(doc, frequencies.tfs[i]);
+                }
+                loaded.ensure(doc);
+                loaded.set(doc, 1, frequencies.length, question);
+            });
+            LongMap<byte[]> terms = new LongMap<>(writers.size());
+            writers.forEach((term, writer) -> terms.put(term, writer.toBytes()));
+
+            int loadedCount = 0;
+            lock.writeLock().lock();
+            try {
+                main = new Segment(nextSegmentId++, terms);
+                for (int doc = 0; doc < loaded.capacity(); doc++) {
+                    if (loaded.segment[doc] == 0 || touchedDuringLoad.contains(doc)) {
+                        continue;
+                    }
+                    docs.ensure(doc);
+                    docs.copy(doc, loaded, main.id);
+                    docCount++;
+                    totalLength += loaded.length[doc];
+                    loadedCount++;
+                }
+                touchedDuringLoad = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("题目检索索引加载完成, 题目数={}, 词数={}, 耗时{}ms", loadedCount, terms.size(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("题目检索索引加载失败，题目搜索使用数据库模糊查询", e);
+            lock.writeLock().lock();
+            try {
+                touchedDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        maybeCompact();
+    }
+
+    private void maybeCompact() {
+        if (!ready || executor == null || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        boolean scheduled = false;
+        try {
+            lock.readLock().lock();
+            try {
+                if (delta.postingCount < compactThreshold) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            executor.execute(this::compact);
+            scheduled = true;
+        } finally {
+            if (!scheduled) {
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * 把增量段合并进主段。合并在锁外进行，只在切换增量段和安装新主段时短暂加写锁
+     */
+    private void compact() {
+        long start = System.currentTimeMillis();
+        try {
+            Segment oldMain;
+            DeltaSegment merging;
+            int newId;
+            int[] segments;
+            int[] versions;
+            lock.writeLock().lock();
+            try {
+                oldMain = main;
+                merging = delta;
+                frozen = delta;
+                delta = new DeltaSegment(nextSegmentId++);
+                newId = nextSegmentId++;
+                segments = docs.segment;
+                versions = docs.version;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // 合并期间被更新的题目已移到新增量段，这里读到的旧段号只会让新主段多出查询时被忽略的无效条目
+            LongMap<byte[]> terms = new LongMap<>(oldMain.terms.size() + merging.terms.size());
+            LongMap.EntryConsumer<Object> merge = (term, ignored) -> {
+                if (terms.get(term) != null) {
+                    return;
+                }
+                long[] entries = mergeEntries(oldMain, merging, term, segments, versions);
+                if (entries.length == 0) {
+                    return;
+                }
+                Postings.Writer writer = new Postings.Writer();
+                for (long entry : entries) {
+                    writer.add((int) (entry >>> 32), (int) entry);
+                }
+                terms.put(term, writer.toBytes());
+            };
+            oldMain.terms.forEach(merge::accept);
+            merging.terms.forEach(merge::accept);
+
+            lock.writeLock().lock();
+            try {
+                main = new Segment(newId, terms);
+                frozen = null;
+                int[] current = docs.segment;
+                for (int doc = 0; doc < docs.capacity(); doc++) {
+                    if (current[doc] == oldMain.id || current[doc] == merging.id) {
+                        current[doc] = newId;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("题目检索索引合并完成, 合并增量条目{}条, 词数={}, 耗时{}ms", merging.postingCount, terms.size(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("题目检索索引合并失败", e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * 主段和增量段中仍然有效的条目，按题目ID升序，每项为 (题目ID << 32 | 词频)
+     */
+    private static long[] mergeEntries(Segment main, DeltaSegment merging, long term, int[] segments,
+                                       int[] versions) {
+        long[] entries = new long[16];
+        int size = 0;
+        byte[] data = main.terms.get(term);
+        if (data != null) {
+            Postings.Reader reader = new Postings.Reader(data);
+            while (reader.next()) {
+                if (reader.doc() < segments.length && segments[reader.doc()] == main.id) {
+                    if (size == entries.length) {
+                        entries = Arrays.copyOf(entries, size * 2);
+                    }
+                    entries[size++] = ((long) reader.doc() << 32) | reader.tf();
+                }
+            }
+        }
+        Postings.Delta postings = merging.terms.get(term);
+        boolean unsorted = false;
+        if (postings != null) {
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                if (doc < segments.length && segments[doc] == merging.id && versions[doc] == postings.versions[i]) {
+                    if (size == entries.length) {
+                        entries = Arrays.copyOf(entries, size * 2);
+                    }
+                    entries[size++] = ((long) doc << 32) | postings.tfs[i];
+                    unsorted = true;
+                }
+            }
+        }
+        entries = Arrays.copyOf(entries, size);
+        if (unsorted) {
+            Arrays.sort(entries);
+        }
+        return entries;
+    }
+
+    /**
+     * 词的文档频率（含失效条目的近似值）
+     */
+    private int documentFrequency(long term) {
+        int frequency = 0;
+        byte[] data = main.terms.get(term);
+        if (data != null) {
+            frequency += Postings.count(data);
+        }
+        if (frozen != null) {
+            Postings.Delta postings = frozen.terms.get(term);
+            frequency += postings == null ? 0 : postings.size;
+        }
+        Postings.Delta postings = delta.terms.get(term);
+        return frequency + (postings == null ? 0 : postings.size);
+    }
+
+    /**
+     * 取出词的有效条目。within 不为空时只保留其中的题目（求交），filter 不为空时按条件过滤
+     */
+    private Matches collect(long term, Matches within, Filter filter) {
+        Matches matches = new Matches(within != null ? within.size : 16);
+        byte[] data = main.terms.get(term);
+        if (data != null) {
+            Postings.Reader reader = new Postings.Reader(data);
+            int cursor = 0;
+            while (reader.next()) {
+                int doc = reader.doc();
+                if (within != null) {
+                    // 两个有序序列归并求交
+                    while (cursor < within.size && within.docs[cursor] < doc) {
+                        cursor++;
+                    }
+                    if (cursor == within.size) {
+                        break;
+                    }
+                    if (within.docs[cursor] != doc) {
+                        continue;
+                    }
+                }
+                if (doc < docs.segment.length && docs.segment[doc] == main.id
+                        && (filter == null || filter.accept(docs, doc))) {
+                    matches.add(doc, reader.tf());
+                }
+            }
+        }
+        boolean unsorted = collectDelta(frozen, term, within, filter, matches);
+        unsorted |= collectDelta(delta, term, within, filter, matches);
+        if (unsorted) {
+            matches.sort();
+        }
+        return matches;
+    }
+
+    private boolean collectDelta(DeltaSegment segment, long term, Matches within, Filter filter, Matches matches) {
+        if (segment == null) {
+            return false;
+        }
+        Postings.Delta postings = segment.terms.get(term);
+        if (postings == null) {
+            return false;
+        }
+        boolean added = false;
+        for (int i = 0; i < postings.size; i++) {
+            int doc = postings.docs[i];
+            if (docs.segment[doc] != segment.id || docs.version[doc] != postings.versions[i]) {
+                continue;
+            }
+            if (within != null && Arrays.binarySearch(within.docs, 0, within.size, doc) < 0) {
+                continue;
+            }
+            if (filter == null || filter.accept(docs, doc)) {
+                matches.add(doc, postings.tfs[i]);
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 按相关度降序（相同时题目ID降序）取第 offset 起的 limit 个
+     */
+    private static List<Long> top(Matches matches, int offset, int limit) {
+        int k = (int) Math.min((long) offset + limit, matches.size);
+        if (offset >= k) {
+            return List.of();
+        }
+        // 得分为正数，浮点位模式与大小同序，打包后整体比较
+        long[] heap = new long[k];
+        int heapSize = 0;
+        for (int i = 0; i < matches.size; i++) {
+            long packed = ((long) Float.floatToIntBits(matches.scores[i]) << 32) | matches.docs[i];
+            if (heapSize < k) {
+                heap[heapSize] = packed;
+                siftUp(heap, heapSize++);
+            } else if (packed > heap[0]) {
+                heap[0] = packed;
+                siftDown(heap, k);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        List<Long> ids = new ArrayList<>(k - offset);
+        for (int i = heapSize - 1 - offset; i >= 0 && ids.size() < limit; i--) {
+            ids.add(heap[i] & 0xFFFFFFFFL);
+        }
+        return ids;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long value = heap[0];
+        int index = 0;
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * 统计题干、选项、解析的加权词频
+     */
+    private static TermFrequencies tokenize(Question question) {
+        // 词编码最高位恒为0，左移一位后最低位标记是否来自题干；排序后同一个词相邻，累加加权词频
+        TermFrequencies frequencies = new TermFrequencies();
+        TextTokenizer.tokenize(question.getContent(), term -> frequencies.add(term << 1 | 1));
+        TextTokenizer.TermConsumer plain = term -> frequencies.add(term << 1);
+        TextTokenizer.tokenize(question.getOptions(), plain);
+        TextTokenizer.tokenize(question.getAnalysis(), plain);
+        frequencies.count();
+        return frequencies;
+    }
+
+    /**
+     * 检索结果
+     *
+     * @param total 命中总数
+     * @param ids   当前页的题目ID，按相关度降序
+     */
+    public record SearchResult(long total, List<Long> ids) {
+    }
+
+    /**
+     * 压缩主段，不可变
+     */
+    private record Segment(int id, LongMap<byte[]> terms) {
+    }
+
+    /**
+     * 增量段，写锁内追加；合并开始后不再写入
+     */
+    private static final class DeltaSegment {
+
+        private final int id;
+
+        private final LongMap<Postings.Delta> terms = new LongMap<>(1024);
+
+        private int postingCount;
+
+        private DeltaSegment(int id) {
+            this.id = id;
+        }
+
+        private void add(long term, int doc, int tf, int version) {
+            terms.computeIfAbsent(term, t -> new Postings.Delta()).add(doc, tf, version);
+            postingCount++;
+        }
+    }
+
+    /**
+     * 以题目ID为下标的题目属性
+     */
+    private static final class DocTable {
+
+        /**
+         * 题目当前内容所在的段号，0表示不在索引中
+         */
+        private int[] segment = new int[1024];
+
+        /**
+         * 题目版本，每次更新加1，增量段中旧版本的条目失效
+         */
+        private int[] version = new int[1024];
+
+        private int[] length = new int[1024];
+
+        private long[] subject = new long[1024];
+
+        private byte[] type = new byte[1024];
+
+        private byte[] difficulty = new byte[1024];
+
+        private byte[] reviewStatus = new byte[1024];
+
+        private int capacity() {
+            return segment.length;
+        }
+
+        private void ensure(int doc) {
+            if (doc < segment.length) {
+                return;
+            }
+            int capacity = Math.max(doc + 1, (int) Math.min(Integer.MAX_VALUE - 8, segment.length * 2L));
+            segment = Arrays.copyOf(segment, capacity);
+            version = Arrays.copyOf(version, capacity);
+            length = Arrays.copyOf(length, capacity);
+            subject = Arrays.copyOf(subject, capacity);
+            type = Arrays.copyOf(type, capacity);
+            difficulty = Arrays.copyOf(difficulty, capacity);
+            reviewStatus = Arrays.copyOf(reviewStatus, capacity);
+        }
+
+        private void set(int doc, int segmentId, int docLength, Question question) {
+            segment[doc] = segmentId;
+            length[doc] = docLength;
+            subject[doc] = question.getSubjectId() == null ? 0 : question.getSubjectId();
+            type[doc] = AnswerKey.typeOf(question.getQuestionType());
+            difficulty[doc] = question.getDifficulty() == null ? 0 : question.getDifficulty().byteValue();
+            reviewStatus[doc] = question.getReviewStatus() == null ? 0 : question.getReviewStatus().byteValue();
+        }
+
+        private void copy(int doc, DocTable from, int segmentId) {
+            segment[doc] = segmentId;
+            length[doc] = from.length[doc];
+            subject[doc] = from.subject[doc];
+            type[doc] = from.type[doc];
+            difficulty[doc] = from.difficulty[doc];
+            reviewStatus[doc] = from.reviewStatus[doc];
+        }
+    }
+
+    /**
+     * 一道题的词及加权词频
+     */
+    private static final class TermFrequencies {
+
+        private long[] terms = new long[64];
+
+        private int[] tfs;
+
+        private int size;
+
+        private int length;
+
+        private void add(long taggedTerm) {
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+            }
+            terms[size++] = taggedTerm;
+        }
+
+        /**
+         * 合并相同的词，之后 terms[0, size) 为不重复的词编码，tfs 为对应的加权词频
+         */
+        private void count() {
+            Arrays.sort(terms, 0, size);
+            tfs = new int[size];
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                long term = terms[i] >>> 1;
+                int weight = (terms[i] & 1) != 0 ? CONTENT_WEIGHT : 1;
+                length += weight;
+                if (distinct > 0 && terms[distinct - 1] == term) {
+                    tfs[distinct - 1] += weight;
+                } else {
+                    terms[distinct] = term;
+                    tfs[distinct++] = weight;
+                }
+            }
+            size = distinct;
+        }
+    }
+
+    private record Filter(Long subjectId, byte type, Integer difficulty, Integer reviewStatus) {
+
+        private boolean accept(DocTable docs, int doc) {
+            return (subjectId == null || docs.subject[doc] == subjectId)
+                    && (type == AnswerKey.TYPE_UNKNOWN || docs.type[doc] == type)
+                    && (difficulty == null || docs.difficulty[doc] == difficulty)
+                    && (reviewStatus == null || docs.reviewStatus[doc] == reviewStatus);
+        }
+    }
+
+    /**
+     * 一个词的命中题目，题目ID升序
+     */
+    private static final class Matches {
+
+        private int[] docs;
+
+        private int[] tfs;
+
+        private float[] scores;
+
+        private int size;
+
+        private Matches(int capacity) {
+            capacity = Math.max(capacity, 4);
+            docs = new int[capacity];
+            tfs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        private void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+        }
+
+        private void sort() {
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) docs[i] << 32) | tfs[i];
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < size; i++) {
+                docs[i] = (int) (packed[i] >>> 32);
+                tfs[i] = (int) packed[i];
+            }
+        }
+    }
+}
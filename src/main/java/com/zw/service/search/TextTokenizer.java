@@ -0,0 +1,128 @@
+package com.zw.service.search;
+
+/**
+ * 检索分词
+ * <p>
+ * 中日韩文字按相邻两字切分（二元分词），只有一个字的片段保留单字；英文字母和数字按连续串切分并转小写，
+ * 全角字母数字先转半角。其他字符（标点、空白等）作为分隔符。不依赖词典，新词、专业术语也能命中。
+ * <p>
+ * 词以64位整数表示，不创建字符串：二元、单字直接把两个码点拼成整数（单字的第二个码点为0），
+ * 英文、数字词取64位哈希并置最高两位之一，两类编码互不相交。两字字符串的 hashCode 取值范围很小，
+ * 用字符串做键时大量冲突，整数编码则分布均匀。
+ */
+public final class TextTokenizer {
+
+    /**
+     * 英文、数字词的最大长度，超出部分截断
+     */
+    static final int MAX_WORD_LENGTH = 32;
+
+    private static final long WORD_FLAG = 1L << 62;
+
+    private static final long WORD_MASK = WORD_FLAG - 1;
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 分词，依次回调每个词的编码（可能重复）
+     */
+    public static void tokenize(String text, TermConsumer consumer) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int length = text.length();
+        // 当前英文、数字词的 FNV-1a 哈希和长度
+        long wordHash = 0;
+        int wordLength = 0;
+        // 上一个中日韩字符，没有时为0
+        int previousCjk = 0;
+        boolean pendingSingle = false;
+        for (int i = 0; i < length; ) {
+            int c = text.codePointAt(i);
+            i += Character.charCount(c);
+            c = normalize(c);
+            if (isCjk(c)) {
+                if (wordLength > 0) {
+                    consumer.accept(wordTerm(wordHash));
+                    wordLength = 0;
+                }
+                if (previousCjk != 0) {
+                    consumer.accept(cjkTerm(previousCjk, c));
+                    pendingSingle = false;
+                } else {
+                    pendingSingle = true;
+                }
+                previousCjk = c;
+            } else {
+                if (pendingSingle) {
+                    consumer.accept(cjkTerm(previousCjk, 0));
+                    pendingSingle = false;
+                }
+                previousCjk = 0;
+                if (Character.isLetterOrDigit(c)) {
+                    if (wordLength == 0) {
+                        wordHash = 0xcbf29ce484222325L;
+                    }
+                    if (wordLength < MAX_WORD_LENGTH) {
+                        wordHash = (wordHash ^ Character.toLowerCase(c)) * 0x100000001b3L;
+                        wordLength++;
+                    }
+                } else if (wordLength > 0) {
+                    consumer.accept(wordTerm(wordHash));
+                    wordLength = 0;
+                }
+            }
+        }
+        if (pendingSingle) {
+            consumer.accept(cjkTerm(previousCjk, 0));
+        }
+        if (wordLength > 0) {
+            consumer.accept(wordTerm(wordHash));
+        }
+    }
+
+    /**
+     * 是否为单个中日韩字符的词（只出现在不足两字的片段中，不能用二元索引检索其他文本里的这个字）
+     */
+    public static boolean isSingleCjk(long term) {
+        return (term & WORD_FLAG) == 0 && (term & 0x1FFFFF) == 0;
+    }
+
+    private static long cjkTerm(int first, int second) {
+        return ((long) first << 21) | second;
+    }
+
+    private static long wordTerm(long hash) {
+        // 再混合一次，使低位也均匀
+        hash ^= hash >>> 29;
+        hash *= 0xbf58476d1ce4e5b9L;
+        hash ^= hash >>> 32;
+        return WORD_FLAG | (hash & WORD_MASK);
+    }
+
+    /**
+     * 全角字母数字、空格转半角
+     */
+    private static int normalize(int c) {
+        if (c >= 0xFF01 && c <= 0xFF5E) {
+            return c - 0xFEE0;
+        }
+        return c == 0x3000 ? ' ' : c;
+    }
+
+    private static boolean isCjk(int c) {
+        if (c < 0x1100) {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    @FunctionalInterface
+    public interface TermConsumer {
+
+        void accept(long term);
+    }
+}
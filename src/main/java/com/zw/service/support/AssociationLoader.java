@@ -0,0 +1,284 @@
+package com.zw.service.support;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zw.entity.ExamRecord;
+import com.zw.entity.ItemAnalysis;
+import com.zw.entity.Paper;
+import com.zw.entity.Question;
+import com.zw.entity.Subject;
+import com.zw.entity.User;
+import com.zw.entity.WrongBook;
+import com.zw.mapper.PaperMapper;
+import com.zw.mapper.QuestionMapper;
+import com.zw.mapper.SubjectMapper;
+import com.zw.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 批量关联加载器
+ * <p>
+ * 列表查询后收集关联ID，每种实体只执行一次 selectBatchIds，再回填到每一行，
+ * 替代逐行 getById 带来的 N+1 查询。
+ * 在Web请求内，已加载的实体按请求缓存，同一请求中重复的ID只查询一次。
+ * 缓存中的实体不直接交给调用方：回填时每行各得一份浅拷贝，load 方法同样返回拷贝；
+ * 请求内修改了可能已缓存的实体后调用 {@link #clear()}。
+ */
+@Component
+@RequiredArgsConstructor
+public class AssociationLoader {
+
+    private static final String MEMO_ATTRIBUTE = AssociationLoader.class.getName() + ".MEMO";
+
+    private final SubjectMapper subjectMapper;
+    private final UserMapper userMapper;
+    private final PaperMapper paperMapper;
+    private final QuestionMapper questionMapper;
+
+    /**
+     * 回填题目的科目和创建人
+     */
+    public void fillQuestions(Collection<Question> questions) {
+        if (questions == null || questions.isEmpty()) {
+            return;
+        }
+        Map<Long, Subject> subjects = subjects(collectIds(questions, Question::getSubjectId));
+        Map<Long, User> creators = users(collectIds(questions, Question::getCreatorId));
+        for (Question question : questions) {
+            question.setSubject(copyOf(subjects.get(question.getSubjectId())));
+            question.setCreator(copyOf(creators.get(question.getCreatorId())));
+        }
+    }
+
+    /**
+     * 回填试卷的科目和创建人
+     */
+    public void fillPapers(Collection<Paper> papers) {
+        if (papers == null || papers.isEmpty()) {
+            return;
+        }
+        Map<Long, Subject> subjects = subjects(collectIds(papers, Paper::getSubjectId));
+        Map<Long, User> creators = users(collectIds(papers, Paper::getCreatorId));
+        for (Paper paper : papers) {
+            paper.setSubject(copyOf(subjects.get(paper.getSubjectId())));
+            paper.setCreator(copyOf(creators.get(paper.getCreatorId())));
+        }
+    }
+
+    /**
+     * 回填考试记录的考生和试卷
+     */
+    public void fillRecords(Collection<ExamRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        Map<Long, User> users = users(collectIds(records, ExamRecord::getUserId));
+        for (ExamRecord record : records) {
+            record.setUser(copyOf(users.get(record.getUserId())));
+        }
+        fillRecordPapers(records);
+    }
+
+    /**
+     * 只回填考试记录的试卷（不含试题数据）
+     */
+    public void fillRecordPapers(Collection<ExamRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        Map<Long, Paper> papers = paperSummaries(collectIds(records, ExamRecord::getPaperId));
+        for (ExamRecord record : records) {
+            record.setPaper(copyOf(papers.get(record.getPaperId())));
+        }
+    }
+
+    /**
+     * 回填考试记录详情的考生和完整试卷
+     */
+    public void fillRecordDetail(ExamRecord record) {
+        record.setUser(copyOf(users(List.of(record.getUserId())).get(record.getUserId())));
+        record.setPaper(copyOf(papers(List.of(record.getPaperId())).get(record.getPaperId())));
+    }
+
+    /**
+     * 回填错题本的题目
+     */
+    public void fillWrongBooks(Collection<WrongBook> wrongBooks) {
+        if (wrongBooks == null || wrongBooks.isEmpty()) {
+            return;
+        }
+        Map<Long, Question> questions = questions(collectIds(wrongBooks, WrongBook::getQuestionId));
+        for (WrongBook wrongBook : wrongBooks) {
+            wrongBook.setQuestion(copyOf(questions.get(wrongBook.getQuestionId())));
+        }
+    }
+
+    /**
+     * 回填试题分析的题目
+     */
+    public void fillItemAnalyses(Collection<ItemAnalysis> items) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        Map<Long, Question> questions = questions(collectIds(items, ItemAnalysis::getQuestionId));
+        for (ItemAnalysis item : items) {
+            item.setQuestion(copyOf(questions.get(item.getQuestionId())));
+        }
+    }
+
+    public Map<Long, Subject> loadSubjects(Collection<Long> ids) {
+        return copies(subjects(ids));
+    }
+
+    public Map<Long, User> loadUsers(Collection<Long> ids) {
+        return copies(users(ids));
+    }
+
+    public Map<Long, Paper> loadPapers(Collection<Long> ids) {
+        return copies(papers(ids));
+    }
+
+    /**
+     * 加载试卷列表字段，不含试题数据
+     */
+    public Map<Long, Paper> loadPaperSummaries(Collection<Long> ids) {
+        return copies(paperSummaries(ids));
+    }
+
+    public Map<Long, Question> loadQuestions(Collection<Long> ids) {
+        return copies(questions(ids));
+    }
+
+    /**
+     * 清除当前请求的缓存，请求内新增、修改或删除了关联实体后调用
+     */
+    public void clear() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.removeAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private Map<Long, Subject> subjects(Collection<Long> ids) {
+        return load("subject", subjectMapper, ids, Subject::getId);
+    }
+
+    private Map<Long, User> users(Collection<Long> ids) {
+        return load("user", userMapper, ids, User::getId);
+    }
+
+    private Map<Long, Paper> papers(Collection<Long> ids) {
+        return load("paper", paperMapper, ids, Paper::getId);
+    }
+
+    private Map<Long, Paper> paperSummaries(Collection<Long> ids) {
+        return load("paperSummary", ids, Paper::getId, paperMapper::selectSummariesByIds);
+    }
+
+    private Map<Long, Question> questions(Collection<Long> ids) {
+        return load("question", questionMapper, ids, Question::getId);
+    }
+
+    /**
+     * 按ID批量加载实体，优先从请求级缓存中取，未命中的ID合并为一次查询
+     */
+    private <T> Map<Long, T> load(String type, BaseMapper<T> mapper, Collection<Long> ids, Function<T, Long> idGetter) {
+        return load(type, ids, idGetter, mapper::selectBatchIds);
+    }
+
+    private <T> Map<Long, T> load(String type, Collection<Long> ids, Function<T, Long> idGetter,
+                                  Function<Collection<Long>, List<T>> query) {
+        Map<Long, T> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, T> memo = memo(type);
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                continue;
+            }
+            if (memo.containsKey(id)) {
+                result.put(id, memo.get(id));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<T> entities = query.apply(missing);
+            for (T entity : entities) {
+                Long id = idGetter.apply(entity);
+                result.put(id, entity);
+                memo.put(id, entity);
+            }
+            // 不存在的ID也记录下来，避免同一请求内重复查询
+            for (Long id : missing) {
+                memo.putIfAbsent(id, null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取请求级缓存，不在Web请求中时返回一次性的缓存
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Map<Long, T> memo(String type) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
+        }
+        Map<String, Map<Long, Object>> memos =
+                (Map<String, Map<Long, Object>>) attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memos == null) {
+            memos = new HashMap<>();
+            attributes.setAttribute(MEMO_ATTRIBUTE, memos, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<Long, T>) (Map<?, ?>) memos.computeIfAbsent(type, key -> new HashMap<>());
+    }
+
+    private static <T> Map<Long, T> copies(Map<Long, T> entities) {
+        Map<Long, T> result = new HashMap<>(entities.size() * 2);
+        for (Map.Entry<Long, T> entry : entities.entrySet()) {
+            result.put(entry.getKey(), copyOf(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 浅拷贝实体，调用方修改返回的实体不影响缓存和其他行
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T copyOf(T entity) {
+        if (entity == null) {
+            return null;
+        }
+        T copy = (T) BeanUtils.instantiateClass(entity.getClass());
+        BeanUtils.copyProperties(entity, copy);
+        return copy;
+    }
+
+    private static <E> Set<Long> collectIds(Collection<E> rows, Function<E, Long> idGetter) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (E row : rows) {
+            Long id = idGetter.apply(row);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,97 @@
+package com.zw.utils;
+
+import com.zw.common.CursorPage;
+import com.zw.exception.ApiException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（keyset）分页工具类
+ * <p>
+ * 游标对外是不透明字符串，内部编码上一页最后一行的(时间, id)。
+ * 查询条件写作 time < ? OR (time = ? AND id < ?)，配合 ORDER BY time DESC, id DESC
+ * 可以直接在时间索引上做范围扫描，翻页耗时与页深无关。
+ * 不使用行构造器 (time, id) < (?, ?)，MySQL 不会把它用作索引范围条件。
+ */
+public class CursorUtils {
+
+    public static final int DEFAULT_SIZE = 10;
+
+    public static final int MAX_SIZE = 500;
+
+    private static final String SEPARATOR = "_";
+
+    private CursorUtils() {
+    }
+
+    /**
+     * 游标位置
+     */
+    public record Cursor(LocalDateTime time, Long id) {
+    }
+
+    /**
+     * 编码游标
+     */
+    public static String encode(LocalDateTime time, Long id) {
+        String raw = time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空表示从第一页开始
+     */
+    public static Cursor decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new Cursor(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new ApiException(400, "无效的分页游标");
+        }
+    }
+
+    /**
+     * 规范化每页大小
+     */
+    public static int normalizeSize(Integer size) {
+        if (size == null || size < 1) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    /**
+     * 查询时多取一行用于判断是否还有下一页
+     */
+    public static String limitClause(int size) {
+        return "LIMIT " + (size + 1);
+    }
+
+    /**
+     * 将多取一行的查询结果转换为游标分页结果
+     */
+    public static <T> CursorPage<T> toPage(List<T> rows, int size,
+                                           Function<T, LocalDateTime> timeGetter, Function<T, Long> idGetter) {
+        CursorPage<T> page = new CursorPage<>();
+        page.setSize(size);
+        boolean hasMore = rows.size() > size;
+        List<T> records = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            page.setNextCursor(encode(timeGetter.apply(last), idGetter.apply(last)));
+        }
+        return page;
+    }
+}
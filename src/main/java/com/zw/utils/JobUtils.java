@@ -0,0 +1,34 @@
+package com.zw.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * 后台任务工具类
+ */
+public class JobUtils {
+
+    /**
+     * 当前实例标识（主机名@进程号 + 随机后缀），写入任务表的 owner 列，每次启动都不同
+     */
+    public static final String INSTANCE_ID = ManagementFactory.getRuntimeMXBean().getName()
+            + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * 任务表 error_message 列的长度
+     */
+    private static final int ERROR_MESSAGE_LENGTH = 500;
+
+    private JobUtils() {
+    }
+
+    /**
+     * 截断失败原因，避免超过列长度导致状态更新本身失败
+     */
+    public static String errorMessage(String message) {
+        if (message == null || message.length() <= ERROR_MESSAGE_LENGTH) {
+            return message;
+        }
+        return message.substring(0, ERROR_MESSAGE_LENGTH);
+    }
+}
@@ -0,0 +1,31 @@
+package com.zw.utils;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
+/**
+ * 分页参数工具类
+ */
+public class PageUtils {
+
+    private static final long DEFAULT_PAGE_SIZE = 10;
+
+    private PageUtils() {
+    }
+
+    /**
+     * 构建分页对象，页码和大小非法时使用默认值
+     */
+    public static <T> Page<T> of(Integer pageNum, Integer pageSize) {
+        return of(pageNum, pageSize, true);
+    }
+
+    /**
+     * 构建分页对象
+     * @param searchCount 是否查询总数，深分页或无需总数的场景传false跳过COUNT
+     */
+    public static <T> Page<T> of(Integer pageNum, Integer pageSize, Boolean searchCount) {
+        long current = pageNum == null || pageNum < 1 ? 1 : pageNum;
+        long size = pageSize == null || pageSize < 1 ? DEFAULT_PAGE_SIZE : pageSize;
+        return new Page<>(current, size, searchCount == null || searchCount);
+    }
+}
@@ -0,0 +1,31 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class DuplicateClusterVO {
+    // 任务状态：RUNNING、COMPLETED、FAILED
+    private String status;
+
+    // 参与聚类的题目数
+    private Integer questionCount;
+
+    // 重复组数（至少两道题）
+    private Integer clusterCount;
+
+    // 重复组内的题目总数
+    private Integer duplicateCount;
+
+    // 判定重复的相似度阈值（题干和选项分词集合的 Jaccard 相似度）
+    private Double similarity;
+
+    private LocalDateTime startTime;
+    private LocalDateTime finishTime;
+    private String errorMessage;
+
+    // 重复组，按组大小降序，组内按题目ID升序
+    private List<List<Long>> clusters;
+}
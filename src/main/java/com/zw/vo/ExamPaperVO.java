@@ -0,0 +1,20 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class ExamPaperVO {
+    private Long recordId;
+    private Long paperId;
+    private String title;
+    private BigDecimal totalScore;
+    private Integer timeLimit;
+    
+    // 是否按考生乱序
+    private Boolean shuffled;
+    
+    private List<ExamQuestionVO> questions;
+}
@@ -0,0 +1,18 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class ExamQuestionVO {
+    private Long questionId;
+    private String questionType;
+    private String content;
+    
+    // 选项文本（已去掉原字母标号），按显示位置依次对应A、B、C…，作答时提交显示位置的字母
+    private List<String> options;
+    
+    private BigDecimal score;
+}
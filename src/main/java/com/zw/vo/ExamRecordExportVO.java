@@ -0,0 +1,22 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class ExamRecordExportVO {
+    private Long id;
+    private Long userId;
+    private String username;
+    private String realName;
+    private Long paperId;
+    private String paperTitle;
+    private LocalDateTime startTime;
+    private LocalDateTime submitTime;
+    private BigDecimal autoScore;
+    private BigDecimal manualScore;
+    private String status;
+    private LocalDateTime gradeTime;
+}
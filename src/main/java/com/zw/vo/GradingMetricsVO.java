@@ -0,0 +1,33 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+@Data
+public class GradingMetricsVO {
+    // 队列中等待评分的任务数
+    private Integer queueDepth;
+    
+    // 队列容量
+    private Integer queueCapacity;
+    
+    // 评分线程数
+    private Integer workers;
+    
+    // 队首任务已等待时间（毫秒）
+    private Long oldestTaskLagMs;
+    
+    // 最近一批任务从入队到写库的最大延迟（毫秒）
+    private Long lastBatchLagMs;
+    
+    // 累计入队数
+    private Long submittedCount;
+    
+    // 累计完成评分数
+    private Long gradedCount;
+    
+    // 队列满时在提交线程中直接评分的次数
+    private Long inlineGradedCount;
+    
+    // 评分失败数（失败记录在重启后恢复评分）
+    private Long failedCount;
+}
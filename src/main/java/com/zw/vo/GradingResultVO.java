@@ -0,0 +1,20 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class GradingResultVO {
+    private Long recordId;
+    private String status;
+    
+    // 系统评分是否已完成
+    private Boolean graded;
+    
+    private BigDecimal autoScore;
+    private BigDecimal manualScore;
+    private BigDecimal finalScore;
+    private LocalDateTime gradeTime;
+}
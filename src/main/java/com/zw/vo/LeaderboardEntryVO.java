@@ -0,0 +1,16 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class LeaderboardEntryVO {
+    // 名次，同分同名次
+    private Integer rank;
+    private Long userId;
+    private String username;
+    private String realName;
+    private Long recordId;
+    private BigDecimal score;
+}
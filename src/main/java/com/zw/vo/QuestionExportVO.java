@@ -0,0 +1,23 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class QuestionExportVO {
+    private Long id;
+    private Long subjectId;
+    private String subjectName;
+    private String questionType;
+    private String content;
+    private String options;
+    private String answer;
+    private String analysis;
+    private Integer difficulty;
+    private BigDecimal score;
+    private Integer reviewStatus;
+    private String creatorName;
+    private LocalDateTime createTime;
+}
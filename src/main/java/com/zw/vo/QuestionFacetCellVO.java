@@ -0,0 +1,14 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+@Data
+public class QuestionFacetCellVO {
+    private Long subjectId;
+    private String questionType;
+    private Integer difficulty;
+    private Integer reviewStatus;
+    
+    // 该组合下的题目数
+    private Long count;
+}
@@ -0,0 +1,21 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class QuestionFacetVO {
+    // 满足筛选条件的题目总数
+    private Long total;
+    
+    // 各维度取值的题目数，均在筛选条件范围内统计
+    private Map<Long, Long> subjects;
+    private Map<String, Long> questionTypes;
+    private Map<Integer, Long> difficulties;
+    private Map<Integer, Long> reviewStatuses;
+    
+    // (科目, 题型, 难度, 审核状态) 组合的题目数
+    private List<QuestionFacetCellVO> cells;
+}
@@ -0,0 +1,21 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class RankVO {
+    private Long userId;
+    private Long recordId;
+    private BigDecimal score;
+    
+    // 名次，同分同名次
+    private Long rank;
+    
+    // 已评分人数
+    private Long total;
+    
+    // 超过的考生百分比
+    private BigDecimal percentile;
+}
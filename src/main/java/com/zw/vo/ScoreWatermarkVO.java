@@ -0,0 +1,14 @@
+package com.zw.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ScoreWatermarkVO {
+    // 已评分记录数
+    private Long scoredCount;
+    
+    // 最近一次分数变化时间
+    private LocalDateTime lastScoreTime;
+}
@@ -0,0 +1,124 @@
+package com.zw.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerSnapshotCodecTest {
+
+    @Test
+    void emptyMap() {
+        assertRoundTrip("{}");
+    }
+
+    @Test
+    void singleAndMultiChoice() {
+        assertRoundTrip("{\"101\":\"A\",\"102\":\"ABD\",\"103\":[\"A\",\"C\"],\"104\":[\"B\"]}");
+    }
+
+    @Test
+    void choiceOutOfOrderKeptAsText() {
+        // 非升序或重复的字母不能存为位掩码，必须原样保留
+        assertRoundTrip("{\"1\":\"BA\",\"2\":[\"C\",\"A\"],\"3\":[\"A\",\"A\"],\"4\":\"a\"}");
+    }
+
+    @Test
+    void judgeAndNullAnswers() {
+        assertRoundTrip("{\"1\":\"正确\",\"2\":\"错误\",\"3\":true,\"4\":false,\"5\":null,\"6\":\"\"}");
+    }
+
+    @Test
+    void nonAsciiFillAnswers() {
+        assertRoundTrip("{\"7\":[\"牛顿第一定律\",\"惯性\"],\"8\":\"引号\\\"与\\\\反斜杠\\n换行\","
+                + "\"9\":\"😀 emoji\",\"10\":[\"牛顿第一定律\",12,3.50,null]}");
+    }
+
+    @Test
+    void numberTextPreserved() {
+        assertRoundTrip("{\"1\":3.50,\"2\":-0,\"3\":1e10,\"4\":12345678901234567890}");
+    }
+
+    @Test
+    void largeQuestionIds() {
+        // 题目ID非递增时差值为负，zigzag 编码后仍能还原
+        assertRoundTrip("{\"999999999999999999\":\"A\",\"1\":\"B\",\"185243921673088614\":\"C\"}");
+    }
+
+    @Test
+    void duplicateKeysAndOrderPreserved() {
+        assertRoundTrip("{\"5\":\"A\",\"3\":\"B\",\"5\":\"C\"}");
+    }
+
+    @Test
+    void whitespaceIsNotSignificant() {
+        String json = "{ \"1\" : \"A\" ,\n \"2\" : [ \"B\" , \"C\" ] }";
+        byte[] data = AnswerSnapshotCodec.encode(json);
+        assertNotNull(data);
+        assertEquals("{\"1\":\"A\",\"2\":[\"B\",\"C\"]}", AnswerSnapshotCodec.decode(data));
+        assertTrue(AnswerSnapshotCodec.verify(json, data));
+    }
+
+    @Test
+    void unsupportedSnapshotsNotEncoded() {
+        assertNull(AnswerSnapshotCodec.encode(null));
+        assertNull(AnswerSnapshotCodec.encode(" "));
+        assertNull(AnswerSnapshotCodec.encode("[]"));
+        assertNull(AnswerSnapshotCodec.encode("{\"abc\":\"A\"}"));
+        assertNull(AnswerSnapshotCodec.encode("{\"01\":\"A\"}"));
+        assertNull(AnswerSnapshotCodec.encode("{\"1234567890123456789\":\"A\"}"));
+        assertNull(AnswerSnapshotCodec.encode("{\"1\":{\"a\":1}}"));
+        assertNull(AnswerSnapshotCodec.encode("{\"1\":[[\"A\"]]}"));
+    }
+
+    @Test
+    void malformedJsonNotEncoded() {
+        assertNull(AnswerSnapshotCodec.encode("{\"1\":\"A\""));
+        assertNull(AnswerSnapshotCodec.encode("{\"1\":\"A\"} trailing"));
+        assertNull(AnswerSnapshotCodec.encode("{\"1\":}"));
+        assertNull(AnswerSnapshotCodec.encode("not json"));
+    }
+
+    @Test
+    void malformedBinaryRejected() {
+        byte[] data = AnswerSnapshotCodec.encode("{\"1\":\"填空\",\"2\":\"ABC\"}");
+        assertNotNull(data);
+
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalStateException.class, () -> AnswerSnapshotCodec.decode(truncated));
+
+        byte[] badVersion = data.clone();
+        badVersion[0] = 99;
+        assertThrows(IllegalStateException.class, () -> AnswerSnapshotCodec.decode(badVersion));
+
+        assertThrows(IllegalStateException.class, () -> AnswerSnapshotCodec.decode(new byte[]{1, 0, 1, 2, 42}));
+        assertNull(AnswerSnapshotCodec.decode(null));
+        assertNull(AnswerSnapshotCodec.decode(new byte[0]));
+
+        assertFalse(AnswerSnapshotCodec.verify("{\"1\":\"填空\",\"2\":\"ABC\"}", truncated));
+    }
+
+    @Test
+    void verifyDetectsMismatch() {
+        byte[] data = AnswerSnapshotCodec.encode("{\"1\":\"A\",\"2\":\"正确\"}");
+        assertTrue(AnswerSnapshotCodec.verify("{\"1\":\"A\",\"2\":\"正确\"}", data));
+        assertTrue(AnswerSnapshotCodec.verify("{\"1\":\"A\",\"2\":\"\\u6b63\\u786e\"}", data));
+        assertFalse(AnswerSnapshotCodec.verify("{\"1\":\"A\",\"2\":\"错误\"}", data));
+        assertFalse(AnswerSnapshotCodec.verify("{\"2\":\"正确\",\"1\":\"A\"}", data));
+        assertFalse(AnswerSnapshotCodec.verify("{\"1\":\"A\"}", data));
+    }
+
+    private static void assertRoundTrip(String json) {
+        byte[] data = AnswerSnapshotCodec.encode(json);
+        assertNotNull(data, json);
+        assertEquals(json, AnswerSnapshotCodec.decode(data));
+        assertTrue(AnswerSnapshotCodec.verify(json, data));
+        assertArrayEquals(data, AnswerSnapshotCodec.encode(AnswerSnapshotCodec.decode(data)));
+    }
+}